@@ -0,0 +1,30 @@
+package cn.superman.sandbox.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 基准测试入口，参数与JMH自带的入口一致，没有指定结果格式时，默认把结果以JSON格式写到jmh-result.json，方便跟踪性能回退
+ */
+public class BenchmarkMain {
+	private static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+		if (commandLineOptions.shouldHelp()) {
+			commandLineOptions.showHelp();
+			return;
+		}
+		OptionsBuilder optionsBuilder = new OptionsBuilder();
+		optionsBuilder.parent(commandLineOptions);
+		if (!commandLineOptions.getResultFormat().hasValue()) {
+			optionsBuilder.resultFormat(ResultFormatType.JSON);
+			if (!commandLineOptions.getResult().hasValue()) {
+				optionsBuilder.result(DEFAULT_RESULT_FILE);
+			}
+		}
+		new Runner(optionsBuilder.build()).run();
+	}
+}
@@ -0,0 +1,90 @@
+package cn.superman.sandbox.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cn.superman.sandbox.core.classLoader.SandboxClassLoader;
+import cn.superman.sandbox.core.warmUp.WarmUpProgram;
+
+/**
+ * SandboxClassLoader加载提交的类的开销：新的类加载器定义类（字节码已经在共享缓存中），以及同一个类加载器再次加载已经定义的类。
+ * 提交的类使用WarmUpProgram的字节码，复制到临时的class文件根目录中
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:+ClassUnloading")
+public class ClassLoaderBenchmark {
+	private static final String CLASS_NAME = WarmUpProgram.class.getName();
+	private File classRoot;
+	private File classFile;
+	private SandboxClassLoader loadedClassLoader;
+
+	@Setup
+	public void setup() throws Exception {
+		classRoot = File.createTempFile("sandboxBenchmark", "");
+		classRoot.delete();
+		String relativePath = CLASS_NAME.replace('.', '/') + ".class";
+		classFile = new File(classRoot, relativePath.replace('/',
+				File.separatorChar));
+		classFile.getParentFile().mkdirs();
+		InputStream in = WarmUpProgram.class.getClassLoader()
+				.getResourceAsStream(relativePath);
+		OutputStream out = new FileOutputStream(classFile);
+		try {
+			byte[] buffer = new byte[4096];
+			int len = 0;
+			while ((len = in.read(buffer)) > 0) {
+				out.write(buffer, 0, len);
+			}
+		} finally {
+			in.close();
+			out.close();
+		}
+		loadedClassLoader = new SandboxClassLoader(classRoot.getAbsolutePath());
+		loadedClassLoader.loadSandboxClass(CLASS_NAME);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		File file = classFile;
+		while (file != null && !file.equals(classRoot.getParentFile())) {
+			file.delete();
+			file = file.getParentFile();
+		}
+	}
+
+	@Benchmark
+	public Class<?> defineInNewClassLoader() throws ClassNotFoundException {
+		return new SandboxClassLoader(classRoot.getAbsolutePath())
+				.loadSandboxClass(CLASS_NAME);
+	}
+
+	@Benchmark
+	public Class<?> loadAlreadyDefined() throws ClassNotFoundException {
+		return loadedClassLoader.loadSandboxClass(CLASS_NAME);
+	}
+
+	@Benchmark
+	public boolean checkOutdated() {
+		return loadedClassLoader.isOutdated(CLASS_NAME);
+	}
+}
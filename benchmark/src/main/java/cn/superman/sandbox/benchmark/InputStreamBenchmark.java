@@ -0,0 +1,109 @@
+package cn.superman.sandbox.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cn.superman.sandbox.core.systemInStream.ByteBufferInputStream;
+import cn.superman.sandbox.core.systemInStream.ThreadInputStream;
+
+/**
+ * 代码通过System.in（ThreadInputStream）读取测试数据的速度：逐字节读取、批量读取以及常见的BufferedReader逐行解析。
+ * 结果以每秒读完测试数据的次数表示，乘以dataSize就是读取速度
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputStreamBenchmark {
+	private static final int READ_BUFFER_SIZE = 8192;
+	@Param({ "65536", "4194304" })
+	private int dataSize;
+
+	private ThreadInputStream threadInputStream;
+	private ByteBuffer data;
+	private byte[] readBuffer;
+
+	@Setup
+	public void setup() {
+		threadInputStream = new ThreadInputStream();
+		// 每行10个整数，与常见的测试数据格式一致
+		StringBuilder builder = new StringBuilder(dataSize);
+		int i = 0;
+		while (builder.length() < dataSize) {
+			builder.append(i % 100000);
+			builder.append(++i % 10 == 0 ? '\n' : ' ');
+		}
+		byte[] bytes = builder.toString().getBytes();
+		data = ByteBuffer.allocate(bytes.length);
+		data.put(bytes);
+		data.flip();
+		readBuffer = new byte[READ_BUFFER_SIZE];
+	}
+
+	@TearDown
+	public void tearDown() {
+		threadInputStream.removeAndCloseThreadIn();
+	}
+
+	private void resetThreadIn() {
+		threadInputStream.setThreadIn(new ByteBufferInputStream(data
+				.duplicate()));
+	}
+
+	@Benchmark
+	public long byteWise() throws IOException {
+		resetThreadIn();
+		long sum = 0;
+		int b = 0;
+		while ((b = threadInputStream.read()) >= 0) {
+			sum += b;
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long bulk() throws IOException {
+		resetThreadIn();
+		long sum = 0;
+		int len = 0;
+		while ((len = threadInputStream.read(readBuffer, 0, readBuffer.length)) > 0) {
+			sum += len;
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public long bufferedReaderTokens() throws IOException {
+		resetThreadIn();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				threadInputStream));
+		long sum = 0;
+		String line = null;
+		while ((line = reader.readLine()) != null) {
+			StringTokenizer tokenizer = new StringTokenizer(line);
+			while (tokenizer.hasMoreTokens()) {
+				sum += Integer.parseInt(tokenizer.nextToken());
+			}
+		}
+		return sum;
+	}
+}
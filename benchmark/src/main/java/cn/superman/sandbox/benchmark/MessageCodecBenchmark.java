@@ -0,0 +1,143 @@
+package cn.superman.sandbox.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+
+import cn.superman.sandbox.constant.CommunicationSignal;
+import cn.superman.sandbox.constant.Verdict;
+import cn.superman.sandbox.core.protocol.BinaryFrameCodec;
+import cn.superman.sandbox.core.protocol.BinaryMessages;
+import cn.superman.sandbox.core.protocol.JsonLineCodec;
+import cn.superman.sandbox.dto.Problem;
+import cn.superman.sandbox.dto.ProblemResult;
+import cn.superman.sandbox.dto.ProblemResultItem;
+import cn.superman.sandbox.dto.Request;
+import cn.superman.sandbox.dto.Response;
+
+/**
+ * 请求以及回复的编解码开销：JSON行协议（Gson）与二进制帧协议对比，判题结果包含testCount个测试用例的结果
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageCodecBenchmark {
+	@Param({ "1", "50" })
+	private int testCount;
+
+	private Gson gson;
+	private JsonLineCodec jsonLineCodec;
+	private BinaryFrameCodec binaryFrameCodec;
+	private Response response;
+	private String requestJson;
+	private byte[] requestFrame;
+	private String responseJson;
+	private byte[] responseFrame;
+
+	@Setup
+	public void setup() throws IOException {
+		gson = new Gson();
+		jsonLineCodec = new JsonLineCodec(null, gson);
+		binaryFrameCodec = new BinaryFrameCodec(null, gson,
+				BinaryMessages.VERSION);
+
+		Problem problem = new Problem();
+		problem.setRunId("run-1");
+		problem.setClassFileName("Main");
+		problem.setTimeLimit(1000);
+		problem.setMemoryLimit(256 * 1024 * 1024);
+		List<String> inputPaths = new ArrayList<String>();
+		List<String> outputPaths = new ArrayList<String>();
+		ProblemResult problemResult = new ProblemResult();
+		problemResult.setRunId(problem.getRunId());
+		problemResult.setTestCount(testCount);
+		for (int i = 0; i < testCount; i++) {
+			inputPaths.add("/data/problem/1000/" + i + ".in");
+			outputPaths.add("/data/problem/1000/" + i + ".out");
+			ProblemResultItem item = new ProblemResultItem();
+			item.setUseTime(12);
+			item.setUseWallTime(15);
+			item.setUseMemory(1024 * 1024);
+			item.setAllocatedBytes(4 * 1024 * 1024);
+			item.setVerdict(Verdict.ACCEPTED);
+			item.setNormal(true);
+			item.setOutputDigest("9ae0ea9e3c9c6e1b9b6252c8395efdc1");
+			item.setInputFilePath(inputPaths.get(i));
+			item.setTestIndex(i);
+			problemResult.getResultItems().add(item);
+		}
+		problem.setInputDataFilePathList(inputPaths);
+		problem.setOutputDataFilePathList(outputPaths);
+
+		Request request = new Request();
+		request.setCommand(CommunicationSignal.RequestSignal.REQUSET_JUDGED_PROBLEM);
+		request.setSignalId("42");
+		request.setData(gson.toJson(problem));
+		requestJson = gson.toJson(request);
+		requestFrame = BinaryMessages.encodeRequest(request);
+
+		response = new Response();
+		response.setSignalId("42");
+		response.setRequestCommand(CommunicationSignal.RequestSignal.REQUSET_JUDGED_PROBLEM);
+		response.setResponseCommand(CommunicationSignal.ResponseSignal.OK);
+		response.setBody(problemResult);
+		byte[] jsonLine = jsonLineCodec.encodeResponse(response);
+		responseJson = new String(jsonLine, 0, jsonLine.length - 1, "UTF-8");
+		byte[] frame = binaryFrameCodec.encodeResponse(response);
+		// 去掉4个字节的长度，与BinaryMessages.readFrame返回的内容一致
+		responseFrame = new byte[frame.length - 4];
+		System.arraycopy(frame, 4, responseFrame, 0, responseFrame.length);
+	}
+
+	@Benchmark
+	public Problem decodeRequestJson() {
+		Request request = gson.fromJson(requestJson, Request.class);
+		return gson.fromJson(request.getData(), Problem.class);
+	}
+
+	@Benchmark
+	public Problem decodeRequestBinary() throws IOException {
+		Request request = BinaryMessages.decodeRequest(requestFrame);
+		return gson.fromJson(request.getData(), Problem.class);
+	}
+
+	@Benchmark
+	public byte[] encodeResponseJson() throws IOException {
+		return jsonLineCodec.encodeResponse(response);
+	}
+
+	@Benchmark
+	public byte[] encodeResponseBinary() throws IOException {
+		return binaryFrameCodec.encodeResponse(response);
+	}
+
+	@Benchmark
+	public ProblemResult decodeResponseJson() {
+		Response decoded = gson.fromJson(responseJson, Response.class);
+		return gson.fromJson(decoded.getData(), ProblemResult.class);
+	}
+
+	@Benchmark
+	public Object decodeResponseBinary() throws IOException {
+		return BinaryMessages.decodeResponse(responseFrame,
+				BinaryMessages.VERSION).getBody();
+	}
+}
@@ -0,0 +1,78 @@
+package cn.superman.sandbox.benchmark;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cn.superman.sandbox.core.systemOutStream.CacheOutputStream;
+import cn.superman.sandbox.core.systemOutStream.OutputChunkPool;
+
+/**
+ * 代码输出到CacheOutputStream的开销：逐字节输出、批量输出以及经过PrintStream输出字符串。
+ * 每次调用输出完payloadSize个字节后清空当前线程的缓冲，与一个测试用例结束时的处理一致
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OutputStreamBenchmark {
+	@Param({ "64", "4096", "1048576" })
+	private int payloadSize;
+	@Param({ "false", "true" })
+	private boolean directBuffer;
+
+	private CacheOutputStream outputStream;
+	private PrintStream printStream;
+	private byte[] payload;
+	private String line;
+
+	@Setup
+	public void setup() {
+		outputStream = new CacheOutputStream(new OutputChunkPool(
+				OutputChunkPool.DEFAULT_CHUNK_SIZE, directBuffer,
+				OutputChunkPool.DEFAULT_MAX_POOLED_CHUNKS));
+		printStream = new PrintStream(outputStream);
+		payload = new byte[payloadSize];
+		for (int i = 0; i < payload.length; i++) {
+			payload[i] = (byte) ('0' + i % 10);
+		}
+		// 每行16个字符（包括换行），模拟逐行输出答案
+		line = "123456789012345";
+	}
+
+	@Benchmark
+	public void byteWise() throws IOException {
+		for (int i = 0; i < payload.length; i++) {
+			outputStream.write(payload[i]);
+		}
+		outputStream.clearBytes();
+	}
+
+	@Benchmark
+	public void bulk() throws IOException {
+		outputStream.write(payload, 0, payload.length);
+		outputStream.clearBytes();
+	}
+
+	@Benchmark
+	public void printStreamLines() {
+		for (int written = 0; written < payloadSize; written += line.length() + 1) {
+			printStream.println(line);
+		}
+		outputStream.clearBytes();
+	}
+}
@@ -0,0 +1,91 @@
+package cn.superman.sandbox.benchmark;
+
+import java.io.FilePermission;
+import java.lang.reflect.ReflectPermission;
+import java.net.SocketPermission;
+import java.security.Permission;
+import java.util.PropertyPermission;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cn.superman.sandbox.core.securityManager.SandboxSecurityManager;
+
+/**
+ * SandboxSecurityManager.checkPermission本身的开销，直接调用而不安装到虚拟机中，只衡量权限判断的逻辑。
+ * 被拒绝的权限会抛出SecurityException，包括了创建异常的开销
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SecurityManagerBenchmark {
+	private SandboxSecurityManager securityManager;
+	private Permission fileRead;
+	private Permission propertyRead;
+	private Permission runtime;
+	private Permission reflect;
+	private Permission fileWrite;
+	private Permission socket;
+
+	@Setup
+	public void setup() {
+		securityManager = new SandboxSecurityManager();
+		fileRead = new FilePermission("/tmp/sandbox/1.in", "read");
+		propertyRead = new PropertyPermission("line.separator", "read");
+		runtime = new RuntimePermission("accessDeclaredMembers");
+		reflect = new ReflectPermission("suppressAccessChecks");
+		fileWrite = new FilePermission("/tmp/sandbox/1.out", "write");
+		socket = new SocketPermission("localhost:80", "connect");
+	}
+
+	@Benchmark
+	public void allowedFileRead() {
+		securityManager.checkPermission(fileRead);
+	}
+
+	@Benchmark
+	public void allowedPropertyRead() {
+		securityManager.checkPermission(propertyRead);
+	}
+
+	@Benchmark
+	public void allowedRuntime() {
+		securityManager.checkPermission(runtime);
+	}
+
+	@Benchmark
+	public void allowedReflect() {
+		securityManager.checkPermission(reflect);
+	}
+
+	@Benchmark
+	public Object deniedFileWrite() {
+		return checkDenied(fileWrite);
+	}
+
+	@Benchmark
+	public Object deniedSocket() {
+		return checkDenied(socket);
+	}
+
+	private Object checkDenied(Permission permission) {
+		try {
+			securityManager.checkPermission(permission);
+			return null;
+		} catch (SecurityException e) {
+			return e;
+		}
+	}
+}
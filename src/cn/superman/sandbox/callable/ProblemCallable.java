@@ -1,76 +1,159 @@
 package cn.superman.sandbox.callable;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.FutureTask;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+import cn.superman.sandbox.constant.JudgeMode;
+import cn.superman.sandbox.constant.Verdict;
+import cn.superman.sandbox.core.checker.CheckResult;
+import cn.superman.sandbox.core.checker.Checker;
+import cn.superman.sandbox.core.entryPoint.EntryPoint;
+import cn.superman.sandbox.core.systemInStream.ByteBufferInputStream;
 import cn.superman.sandbox.core.systemInStream.ThreadInputStream;
 import cn.superman.sandbox.core.systemOutStream.CacheOutputStream;
+import cn.superman.sandbox.core.testDataCache.TestDataCache;
+import cn.superman.sandbox.core.watchdog.Watchdog;
+import cn.superman.sandbox.core.watchdog.WatchdogTask;
+import cn.superman.sandbox.core.watchdog.WatchdogTimeout;
+import cn.superman.sandbox.core.workerPool.WorkerPool;
 import cn.superman.sandbox.dto.Problem;
 import cn.superman.sandbox.dto.ProblemResultItem;
 
 public class ProblemCallable implements Callable<List<ProblemResultItem>> {
-	private Method mainMethod;
+	private EntryPoint entryPoint;
 	private Problem problem;
 	private CacheOutputStream resultBuffer;
-	private Runtime run = null;
 	private CountDownLatch countDownLatch = null;
+	// 各个测试用例是在不同线程中并行执行的，结果列表需要线程安全
+	private List<ProblemResultItem> resultItems = null;
+	// 每个测试用例是否已经有结果了，执行线程无法终止时，看门狗会先给出结果，执行线程之后的结果会被丢弃
+	private AtomicIntegerArray completedItems = null;
 	private ThreadInputStream threadSystemIn;
-	private static final ExecutorService itemGetThreadPool = Executors
-			.newCachedThreadPool(new ThreadFactory() {
-				@Override
-				public Thread newThread(Runnable r) {
-					Thread thread = new Thread(r);
-					thread.setName("itemGetThreadPool id "
-							+ System.currentTimeMillis());
-					return thread;
-				}
-			});
-	private static final ExecutorService itemExecThreadPool = Executors
-			.newCachedThreadPool(new ThreadFactory() {
-				@Override
-				public Thread newThread(Runnable r) {
-					Thread thread = new Thread(r);
-					thread.setName("itemExecThreadPool id "
-							+ System.currentTimeMillis());
-					return thread;
-				}
-			});
+	private TestDataCache testDataCache;
+	// 执行测试用例的线程池，所有题目共用
+	private WorkerPool workerPool;
+	// 答案检查器以及执行答案检查器的线程池，题目不使用答案检查器时为null
+	private Class<? extends Checker> checkerClass;
+	private WorkerPool checkerPool;
+	// 不为null时，每个测试用例判完就交给它，不再放到返回的结果列表中
+	private ProblemResultItemListener resultItemListener;
+	// 正在执行的测试用例，判题方式为FAIL_FAST时，用于取消其余的测试用例
+	private final Set<ItemWatch> runningItems = Collections
+			.newSetFromMap(new ConcurrentHashMap<ItemWatch, Boolean>());
+	// 已经有测试用例不通过，其余测试用例不再需要执行
+	private volatile boolean aborted = false;
+	// 执行时间超过时间限制的多少倍时，无论CPU时间是否用完，都算作超时
+	public static final int WALL_TIME_LIMIT_FACTOR = 3;
+	// 终止执行线程之后，代码仍然在执行（比如自己捕获了ThreadDeath）时，再次终止的间隔（毫微秒）
+	private static final long STOP_RETRY_NANOS = TimeUnit.MILLISECONDS
+			.toNanos(50);
+	// 终止之后过了这么久（毫微秒）代码还在执行，就不再等执行线程，直接给出结果，之后仍然会不断尝试终止
+	private static final long STOP_GIVE_UP_NANOS = TimeUnit.MILLISECONDS
+			.toNanos(500);
+	// 看门狗检查测试用例是否已经被确认超出内存限制的间隔（毫微秒），超出内存限制的代码会被及时终止，不会一直占用堆，拖慢甚至拖垮同一个进程中的其他测试用例
+	private static final long MEMORY_CHECK_NANOS = TimeUnit.MILLISECONDS
+			.toNanos(10);
+	// 堆中除了Eden区以外的内存池。Eden区中大多是还没有被回收的垃圾，检查内存时不算在内，
+	// 代码真正占用的内存经过一次垃圾回收就会进入其他内存池，很大的数组则直接分配在其他内存池中
+	private static final List<MemoryPoolMXBean> retainedHeapPools = new ArrayList<MemoryPoolMXBean>();
+	private static final List<MemoryPoolMXBean> edenHeapPools = new ArrayList<MemoryPoolMXBean>();
+	// 所有题目正在执行的测试用例，确认超出内存限制时，需要扣除其他测试用例可能占用的内存
+	private static final Set<ItemWatch> watchedItems = Collections
+			.newSetFromMap(new ConcurrentHashMap<ItemWatch, Boolean>());
+	// 发送垃圾回收通知的垃圾回收器，以及已经处理完的通知数，虚拟机不支持垃圾回收通知时为空
+	private static final List<GarbageCollectorMXBean> notifyingCollectors = new ArrayList<GarbageCollectorMXBean>();
+	private static final AtomicLong handledGcCount = new AtomicLong();
+	// 测试用例结束时等待还没送达的垃圾回收通知的最长时间（毫微秒）
+	private static final long GC_NOTIFICATION_WAIT_NANOS = TimeUnit.MILLISECONDS
+			.toNanos(100);
+	static {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() != MemoryType.HEAP) {
+				continue;
+			}
+			if (pool.getName().contains("Eden")) {
+				edenHeapPools.add(pool);
+			} else {
+				retainedHeapPools.add(pool);
+			}
+		}
+		// 每次垃圾回收之后检查一遍正在执行的测试用例，不强制垃圾回收，也不占用看门狗线程。
+		// 不支持垃圾回收通知的虚拟机，只能等代码自己抛出OutOfMemoryError或者执行结束后再判断
+		NotificationListener listener = new GcListener();
+		for (GarbageCollectorMXBean collector : ManagementFactory
+				.getGarbageCollectorMXBeans()) {
+			if (collector instanceof NotificationEmitter) {
+				((NotificationEmitter) collector).addNotificationListener(
+						listener, null, null);
+				notifyingCollectors.add(collector);
+			}
+		}
+		// 注册之前的回收不会再有通知
+		handledGcCount.set(notifyingCollectionCount());
+	}
+	// 所有测试用例的超时都由这一个看门狗线程检查
+	private static final Watchdog watchdog = new Watchdog("itemWatchdog");
 
-	public ProblemCallable(Method mainMethod, Problem problem,
-			CacheOutputStream resultBuffer, ThreadInputStream threadSystemIn) {
-		this.mainMethod = mainMethod;
+	public ProblemCallable(EntryPoint entryPoint, Problem problem,
+			CacheOutputStream resultBuffer, ThreadInputStream threadSystemIn,
+			TestDataCache testDataCache, WorkerPool workerPool) {
+		this.entryPoint = entryPoint;
 		this.problem = problem;
 		this.resultBuffer = resultBuffer;
 		this.threadSystemIn = threadSystemIn;
-		run = Runtime.getRuntime();
+		this.testDataCache = testDataCache;
+		this.workerPool = workerPool;
 	}
 
 	@Override
 	public List<ProblemResultItem> call() throws Exception {
 		List<String> paths = problem.getInputDataFilePathList();
-		final List<ProblemResultItem> resultItems = new ArrayList<ProblemResultItem>();
+		resultItems = Collections
+				.synchronizedList(new ArrayList<ProblemResultItem>());
+		completedItems = new AtomicIntegerArray(paths.size());
 		countDownLatch = new CountDownLatch(paths.size());
-		// 为了内存使用比较准确，先大概的执行一次回收吧
-		run.gc();
 
 		for (int i = 0; i < paths.size(); i++) {
+			final int testIndex = i;
 			final String path = paths.get(i);
-			itemExecThreadPool.execute(new Runnable() {
+			final String outputPath = getOutputDataFilePath(i);
+			workerPool.execute(new Runnable() {
 				@Override
 				public void run() {
-					resultItems.add(process(path));
+					ProblemResultItem item = null;
+					try {
+						item = process(testIndex, path, outputPath);
+					} finally {
+						if (!check(testIndex, path, outputPath, item)) {
+							completeItem(testIndex, path, item);
+						}
+					}
 				}
 			});
 		}
@@ -80,86 +163,272 @@ public class ProblemCallable implements Callable<List<ProblemResultItem>> {
 		return resultItems;
 	}
 
-	private ProblemResultItem process(String inputFilePath) {
-		ProblemResultItem item = null;
-		ProblemItemCallable itemCallable = null;
-		long beginMemory = 0;
-		long beginTime = 0;
-		long endTime = 0;
-		long endMemory = 0;
-		Future<ProblemResultItem> submit = null;
+	/**
+	 * 给出一个测试用例的结果，每个测试用例只有第一次给出的结果有效
+	 * @param testIndex 测试用例下标
+	 * @param inputFilePath 测试数据路径
+	 * @param item 测试用例结果，为null时表示执行过程中出现了意外
+	 */
+	private void completeItem(int testIndex, String inputFilePath,
+			ProblemResultItem item) {
+		if (!completedItems.compareAndSet(testIndex, 0, 1)) {
+			return;
+		}
+		try {
+			if (item == null) {
+				item = new ProblemResultItem();
+				item.setNormal(false);
+				item.setMessage("执行测试用例时出现意外");
+				item.setVerdict(Verdict.SYSTEM_ERROR);
+				item.setInputFilePath(inputFilePath);
+			}
+			item.setTestIndex(testIndex);
+			if (!item.isNormal()
+					&& JudgeMode.FAIL_FAST.equals(problem.getJudgeMode())) {
+				abort();
+			}
+			if (resultItemListener != null) {
+				resultItemListener.onResultItem(item);
+			} else {
+				resultItems.add(item);
+			}
+		} finally {
+			// 无论怎么样，这里必须最后都要进行减一，不然将会一直阻塞线程，最终无法返回结果
+			// 要在结果加入列表之后再减一，否则可能会在结果加入之前就返回了
+			countDownLatch.countDown();
+		}
+	}
+
+	/**
+	 * 代码正常执行结束后，把输出交给答案检查器线程池检查，当前线程马上就可以去执行下一个测试用例，
+	 * 多个测试用例的检查也就同时进行了
+	 * @param testIndex 测试用例下标
+	 * @param inputFilePath 测试数据路径
+	 * @param answerFilePath 标准答案路径，可以为null
+	 * @param item 测试用例结果
+	 * @return 是否交给了答案检查器，是的话由答案检查器给出结果
+	 */
+	private boolean check(final int testIndex, final String inputFilePath,
+			final String answerFilePath, final ProblemResultItem item) {
+		if (item == null || item.getOutput() == null) {
+			return false;
+		}
+		if (checkerClass == null || !item.isNormal()
+				|| completedItems.get(testIndex) != 0) {
+			// 已经不通过了（比如超时），或者已经有结果了，不需要再检查
+			item.setOutput(null);
+			return false;
+		}
+		checkerPool.execute(new Runnable() {
+			@Override
+			public void run() {
+				ProblemResultItem checkedItem = null;
+				try {
+					runChecker(item, inputFilePath, answerFilePath);
+					checkedItem = item;
+				} finally {
+					item.setOutput(null);
+					completeItem(testIndex, inputFilePath, checkedItem);
+				}
+			}
+		});
+		return true;
+	}
 
+	/**
+	 * 在当前线程中执行答案检查器，检查器占用的CPU时间单独记录，不算在代码的执行时间内
+	 * @param item 测试用例结果，检查结果会设置到这里
+	 * @param inputFilePath 测试数据路径
+	 * @param answerFilePath 标准答案路径，可以为null
+	 */
+	private void runChecker(ProblemResultItem item, String inputFilePath,
+			String answerFilePath) {
+		long beginCpuTime = ProblemItemCallable.currentThreadCpuTime();
 		try {
-			itemCallable = new ProblemItemCallable(mainMethod, inputFilePath,
-					resultBuffer, threadSystemIn);
+			InputStream answer = null;
+			if (answerFilePath != null) {
+				answer = new ByteBufferInputStream(testDataCache.get(new File(
+						answerFilePath)));
+			}
+			Checker checker = checkerClass.getConstructor().newInstance();
+			CheckResult result = checker.check(new ByteBufferInputStream(
+					testDataCache.get(new File(inputFilePath))),
+					new ByteArrayInputStream(item.getOutput()), answer);
+			if (result != null && result.isAccepted()) {
+				item.setNormal(true);
+				item.setVerdict(Verdict.ACCEPTED);
+				item.setMessage(result.getMessage());
+			} else {
+				item.setNormal(false);
+				item.setVerdict(Verdict.WRONG_ANSWER);
+				item.setMessage(result == null || result.getMessage() == null ? "答案错误"
+						: result.getMessage());
+			}
+		} catch (Exception e) {
+			// 检查器是出题人提供的，它出错与提交的代码无关
+			item.setNormal(false);
+			item.setVerdict(Verdict.SYSTEM_ERROR);
+			item.setMessage("答案检查器出错：" + e);
+		} finally {
+			// 时间为毫微秒，要先转变为微秒再变为毫秒
+			long checkerCpuTime = ProblemItemCallable.currentThreadCpuTime()
+					- beginCpuTime;
+			item.setCheckerTime(checkerCpuTime / 1000 / 1000);
+		}
+	}
+
+	/**
+	 * 获取与测试数据对应的标准答案路径
+	 * @param index 测试数据下标
+	 * @return 标准答案路径，没有提供标准答案时返回null
+	 */
+	private String getOutputDataFilePath(int index) {
+		List<String> outputPaths = problem.getOutputDataFilePathList();
+		if (outputPaths == null || index >= outputPaths.size()) {
+			return null;
+		}
+		return outputPaths.get(index);
+	}
+
+	/**
+	 * 取消其余还没有执行完的测试用例，正在执行的线程会被终止，还没有开始的测试用例不会再执行
+	 */
+	private void abort() {
+		aborted = true;
+		for (ItemWatch itemWatch : runningItems) {
+			itemWatch.stop(Verdict.SKIPPED);
+		}
+	}
 
-			submit = itemGetThreadPool.submit(itemCallable);
-			beginMemory = run.totalMemory() - run.freeMemory();
-			beginTime = System.nanoTime();
+	/**
+	 * 创建被跳过的测试用例的结果
+	 * @param inputFilePath 测试数据路径
+	 * @return 测试用例结果
+	 */
+	private ProblemResultItem createSkippedItem(String inputFilePath) {
+		ProblemResultItem item = new ProblemResultItem();
+		item.setNormal(false);
+		item.setMessage("前面的测试用例未通过，已跳过");
+		item.setVerdict(Verdict.SKIPPED);
+		item.setInputFilePath(inputFilePath);
+		return item;
+	}
 
-			item = submit
-					.get(problem.getTimeLimit() + 2, TimeUnit.MILLISECONDS);
+	private ProblemResultItem process(int testIndex, String inputFilePath,
+			String outputFilePath) {
+		if (aborted) {
+			return createSkippedItem(inputFilePath);
+		}
+		ProblemResultItem item = null;
+		ProblemItemCallable itemCallable = null;
 
+		try {
+			itemCallable = new ProblemItemCallable(entryPoint, inputFilePath,
+					outputFilePath, problem, resultBuffer, threadSystemIn,
+					testDataCache);
+			item = execute(itemCallable, testIndex, inputFilePath);
 			if (item == null) {
-				killThread((FutureTask<ProblemResultItem>) submit);
-				throw new TimeoutException();
+				// 被其他不通过的测试用例取消了，执行到一半的结果没有意义
+				return createSkippedItem(inputFilePath);
 			}
-
-			endTime = System.nanoTime();
-			endMemory = run.totalMemory() - run.freeMemory();
 		} catch (Exception e) {
 			// 出现了意外，先关闭资源再说（如已经打开的流等）
-			itemCallable.colseResource();
-			killThread((FutureTask<ProblemResultItem>) submit);
+			if (itemCallable != null) {
+				itemCallable.colseResource();
+			}
 			item = new ProblemResultItem();
 			item.setNormal(false);
-			if (e instanceof CancellationException
-					|| e instanceof TimeoutException) {
-				// 超时了，会进来这里
-				item.setMessage("超时");
-			} else {
-				item.setMessage(e.getMessage());
-			}
-			endTime = System.nanoTime();
-			endMemory = run.totalMemory() - run.freeMemory();
+			item.setMessage(e.getMessage());
+			item.setVerdict(Verdict.SYSTEM_ERROR);
+		}
+		if (itemCallable != null) {
+			// 时间为毫微秒，要先转变为微秒再变为毫秒
+			item.setUseTime(itemCallable.getUseCpuTime() / 1000 / 1000);
+			item.setUseWallTime(itemCallable.getUseWallTime() / 1000 / 1000);
+			item.setAllocatedBytes(itemCallable.getAllocatedBytes());
 		}
-		// 时间为毫微秒，要先转变为微秒再变为毫秒
-		item.setUseTime((endTime - beginTime) / 1000 / 1000);
-		item.setUseMemory(endMemory - beginMemory);
 		item.setInputFilePath(inputFilePath);
-		if (item.getUseMemory() > problem.getMemoryLimit()) {
+		if (item.getUseTime() > problem.getTimeLimit() && item.isNormal()) {
 			item.setNormal(false);
-			item.setMessage("超出内存限制");
+			item.setMessage("超时");
+			item.setVerdict(Verdict.TIME_LIMIT_EXCEEDED);
 		}
-		// 无论怎么样，这里必须最后都要进行减一，不然将会一直阻塞线程，最终无法返回结果
-		countDownLatch.countDown();
 		return item;
 	}
 
 	/**
-	 * 需要注意的是，这里将会调用线程stop方法，因为只有这样才能强行终止超时的线程，而又因为这里并不需要保证什么原子性以及一致性的业务要求，
-	 * 所以用stop方法是没什么大问题的
-	 * 
-	 * @param submit
-	 * @throws NoSuchFieldException
-	 * @throws SecurityException
-	 * @throws IllegalArgumentException
-	 * @throws IllegalAccessException
+	 * 在当前线程中执行测试用例，由看门狗负责在超时或者超出内存限制的时候终止当前线程
+	 * @param itemCallable 测试用例
+	 * @param testIndex 测试用例下标
+	 * @param inputFilePath 测试数据路径
+	 * @return 测试用例执行结果，被其他不通过的测试用例取消时返回null
+	 * @throws Exception 执行出现意外
 	 */
-	@SuppressWarnings("deprecation")
-	private void killThread(FutureTask<ProblemResultItem> submit) {
+	private ProblemResultItem execute(ProblemItemCallable itemCallable,
+			int testIndex, String inputFilePath) throws Exception {
+		ItemWatch itemWatch = new ItemWatch(itemCallable, testIndex,
+				inputFilePath);
+		runningItems.add(itemWatch);
+		watchedItems.add(itemWatch);
+		ProblemResultItem item = null;
 		try {
-			submit.cancel(true);
-			// 利用反射，强行取出正在运行该任务的线程
-			Field runner = submit.getClass().getDeclaredField("runner");
-			runner.setAccessible(true);
-			Thread execThread = (Thread) runner.get(submit);
-			execThread.stop();
-			submit.cancel(true);
-		} catch (Exception e) {
-			System.err.println(e);
+			if (aborted) {
+				// 放入runningItems之前，其他测试用例可能已经取消过一遍了
+				return null;
+			}
+			itemWatch.start();
+			try {
+				item = itemCallable.call();
+			} catch (ThreadDeath death) {
+				itemCallable.onStopSignal();
+			} finally {
+				itemWatch.finish();
+			}
+		} finally {
+			runningItems.remove(itemWatch);
+			itemWatch.unwatch();
+		}
+		if (itemCallable.isStopped()) {
+			// 被终止过的线程可能还有没释放完的锁等残留状态，当前测试用例结束后就换一个新的线程
+			workerPool.retireCurrentWorker();
 		}
+		String stopReason = itemWatch.getStopReason();
+		if (stopReason == null) {
+			itemWatch.checkEndMemory(item);
+			return item;
+		}
+		if (Verdict.SKIPPED.equals(stopReason)) {
+			return null;
+		}
+		return itemWatch.createStoppedItem();
+	}
+
+	private ProblemResultItem createTimeLimitItem() {
+		ProblemResultItem item = new ProblemResultItem();
+		item.setNormal(false);
+		item.setMessage("超时");
+		item.setVerdict(Verdict.TIME_LIMIT_EXCEEDED);
+		return item;
+	}
+
+	/**
+	 * 设置答案检查器，题目使用答案检查器时调用
+	 * @param checkerClass 答案检查器
+	 * @param checkerPool 执行答案检查器的线程池
+	 */
+	public void setChecker(Class<? extends Checker> checkerClass,
+			WorkerPool checkerPool) {
+		this.checkerClass = checkerClass;
+		this.checkerPool = checkerPool;
+	}
+
+	public ProblemResultItemListener getResultItemListener() {
+		return resultItemListener;
+	}
 
+	public void setResultItemListener(
+			ProblemResultItemListener resultItemListener) {
+		this.resultItemListener = resultItemListener;
 	}
 
 	public Problem getProblem() {
@@ -169,4 +438,394 @@ public class ProblemCallable implements Callable<List<ProblemResultItem>> {
 	public void setProblem(Problem problem) {
 		this.problem = problem;
 	}
+
+	/**
+	 * 看门狗检查一个测试用例是否超时的任务。是否超时以执行线程占用的CPU时间为准，这样机器繁忙时，排队以及与其他线程竞争所花的时间不会被算作超时。
+	 * 但为了防止代码一直阻塞或者睡眠（几乎不占用CPU），执行时间超过时间限制的WALL_TIME_LIMIT_FACTOR倍时，同样算作超时。
+	 * 是否超出内存限制在每次垃圾回收之后由GcListener确认，看门狗每隔MEMORY_CHECK_NANOS检查一次确认的结果，超出内存限制时立即终止，而不是等执行结束后再判断
+	 */
+	private class ItemWatch implements WatchdogTask {
+		private final ProblemItemCallable itemCallable;
+		private final int testIndex;
+		private final String inputFilePath;
+		private final long timeLimitNanos;
+		private final long wallTimeLimitNanos;
+		private final long memoryLimit;
+		// 开始执行前堆中Eden区以外的使用量，完整的垃圾回收之后不会比回收之后的使用量大
+		private volatile long beginRetainedMemory;
+		// 开始执行前已经发生的垃圾回收次数，这些回收的通知不算在这个测试用例上
+		private volatile long beginGcCount = Long.MAX_VALUE;
+		// 执行期间已经结束的其他测试用例分配的内存总量，它们留在堆中的内存同样不能算在这个测试用例头上
+		private final AtomicLong finishedOthersAllocatedBytes = new AtomicLong();
+		// 垃圾回收之后确认超出内存限制时堆的增长量（已经扣除了其他测试用例可能占用的部分），为0时表示还没有确认超出
+		private volatile long exceededMemory = 0;
+		// 开始执行前Eden区的使用量，这些对象在开始之后的第一次回收中，可能被老年代中已经死掉的对象引用着一起晋升，完整的垃圾回收之后为0
+		private volatile long beginEdenMemory;
+		// 开始之后的第一次回收中晋升到Eden区以外、可能是开始执行前留下的垃圾的内存，不超过beginEdenMemory，完整的垃圾回收之后为0
+		private volatile long unconfirmedPromotedMemory = 0;
+		// 执行结束时代码占用的内存，没有被终止时才有
+		private long endMemory = 0;
+		private WatchdogTimeout timeout;
+		// 终止执行线程的原因，超时为TIME_LIMIT_EXCEEDED，超出内存限制为MEMORY_LIMIT_EXCEEDED，被取消为SKIPPED，只记录第一次的原因
+		private volatile String stopReason;
+		// 第一次终止执行线程的时间，以及是否已经放弃等待执行线程，只在看门狗线程中使用
+		private long firstStopTime = 0;
+		private boolean abandoned = false;
+
+		private ItemWatch(ProblemItemCallable itemCallable, int testIndex,
+				String inputFilePath) {
+			this.itemCallable = itemCallable;
+			this.testIndex = testIndex;
+			this.inputFilePath = inputFilePath;
+			timeLimitNanos = TimeUnit.MILLISECONDS.toNanos(problem
+					.getTimeLimit());
+			wallTimeLimitNanos = timeLimitNanos * WALL_TIME_LIMIT_FACTOR;
+			memoryLimit = problem.getMemoryLimit();
+		}
+
+		/**
+		 * 放入watchedItems之后、开始执行之前调用，CPU时间不会比时间走得快，所以超时的检查至少在时间限制之后，但内存需要更早开始检查。
+		 * 放入watchedItems之后才记录堆的使用量，这之后结束的其他测试用例都会被扣除
+		 */
+		private void start() {
+			beginGcCount = notifyingCollectionCount();
+			beginRetainedMemory = retainedHeapMemory();
+			beginEdenMemory = edenHeapMemory();
+			timeout = watchdog.schedule(this, nextCheckDelay(timeLimitNanos));
+		}
+
+		/**
+		 * 测试用例结束后调用，不再检查内存，并把它分配的内存总量记到其他还在执行的测试用例上
+		 */
+		private void unwatch() {
+			long allocatedBytes = Math.max(0, itemCallable.getAllocatedBytes());
+			for (ItemWatch other : watchedItems) {
+				if (other != this) {
+					other.finishedOthersAllocatedBytes.addAndGet(allocatedBytes);
+				}
+			}
+			watchedItems.remove(this);
+		}
+
+		/**
+		 * 在执行线程中调用，结束检查，并等待所有终止信号送达，之后再做一次清理
+		 */
+		private void finish() {
+			timeout.cancel();
+			itemCallable.awaitStopSignal();
+			if (itemCallable.isStopped()) {
+				itemCallable.cleanUp();
+			} else {
+				endMemory = measureEndMemory();
+			}
+		}
+
+		/**
+		 * 在执行线程中调用，计算执行结束时代码占用的内存。很快就结束的代码可能一次垃圾回收都没有遇到，
+		 * 很大的数组以及回收时晋升的对象却在Eden区以外，所以结束时还要以当前的堆为准再算一次，扣除可能是开始执行前留下的垃圾的部分。
+		 * 要先等已经发生的垃圾回收的通知都处理完，这一部分才是准确的。
+		 * 仍然留在Eden区中的内存分不清是不是垃圾，不强制垃圾回收就无法确认，不算在内
+		 * @return 代码占用的内存（字节），不会是负数
+		 */
+		private long measureEndMemory() {
+			awaitGcNotifications();
+			return Math.max(exceededMemory, retainedGrowth(retainedHeapMemory()
+					- unconfirmedPromotedMemory));
+		}
+
+		/**
+		 * 测试用例没有被终止时调用，记录代码占用的内存，超出内存限制时改为超出内存限制的结果
+		 * @param item 测试用例结果
+		 */
+		private void checkEndMemory(ProblemResultItem item) {
+			item.setUseMemory(Math.max(item.getUseMemory(), endMemory));
+			if (memoryLimit > 0 && endMemory > memoryLimit) {
+				item.setNormal(false);
+				item.setMessage("超出内存限制");
+				item.setVerdict(Verdict.MEMORY_LIMIT_EXCEEDED);
+			}
+		}
+
+		@Override
+		public long onTimeout() {
+			if (stopReason != null) {
+				// 已经终止过了，代码还在执行，说明ThreadDeath被代码自己捕获了
+				if (!abandoned
+						&& System.nanoTime() - firstStopTime > STOP_GIVE_UP_NANOS) {
+					abandon();
+				}
+				return stop(stopReason) ? STOP_RETRY_NANOS : 0;
+			}
+			long remainCpuTime = timeLimitNanos - itemCallable.getUseCpuTime();
+			long remainWallTime = wallTimeLimitNanos
+					- itemCallable.getUseWallTime();
+			if (remainCpuTime <= 0 || remainWallTime <= 0) {
+				firstStopTime = System.nanoTime();
+				return stop(Verdict.TIME_LIMIT_EXCEEDED) ? STOP_RETRY_NANOS
+						: 0;
+			}
+			if (exceededMemory > 0) {
+				firstStopTime = System.nanoTime();
+				return stop(Verdict.MEMORY_LIMIT_EXCEEDED) ? STOP_RETRY_NANOS
+						: 0;
+			}
+			// 时间到了，但CPU时间不一定用完了，等剩余的CPU时间之后再检查
+			return nextCheckDelay(Math.min(remainCpuTime, remainWallTime));
+		}
+
+		/**
+		 * @param remainTimeNanos 距离可能超时还有多久
+		 * @return 下一次检查的时间，需要检查内存时不超过MEMORY_CHECK_NANOS
+		 */
+		private long nextCheckDelay(long remainTimeNanos) {
+			if (memoryLimit <= 0) {
+				return remainTimeNanos;
+			}
+			return Math.min(remainTimeNanos, MEMORY_CHECK_NANOS);
+		}
+
+		/**
+		 * 只回收新生代之后调用。开始执行前留在Eden区中的对象在开始之后的第一次回收中就会被回收或者晋升，
+		 * 这一次晋升的部分不超过开始时Eden区的使用量，可能是垃圾，先记下来；之后晋升的都是执行期间分配的
+		 * @param gcCount 这是第几次垃圾回收
+		 * @param retainedMemory 回收之后堆中Eden区以外的使用量
+		 * @param promoted 晋升到Eden区以外的内存
+		 */
+		private void onMinorGc(long gcCount, long retainedMemory, long promoted) {
+			if (gcCount <= beginGcCount) {
+				return;
+			}
+			unconfirmedPromotedMemory += Math.min(Math.max(0, promoted),
+					beginEdenMemory);
+			beginEdenMemory = 0;
+			checkMemory(retainedMemory - unconfirmedPromotedMemory);
+		}
+
+		/**
+		 * 完整的垃圾回收之后调用，回收之后堆中只剩下存活的对象，开始执行前的使用量中已经被回收的垃圾不再算在基准中，
+		 * 开始执行前留下的垃圾也都已经回收了
+		 * @param gcCount 这是第几次垃圾回收
+		 * @param retainedMemory 回收之后堆中Eden区以外的使用量
+		 */
+		private void onMajorGc(long gcCount, long retainedMemory) {
+			if (gcCount <= beginGcCount) {
+				return;
+			}
+			beginRetainedMemory = Math.min(beginRetainedMemory, retainedMemory);
+			beginEdenMemory = 0;
+			unconfirmedPromotedMemory = 0;
+			checkMemory(retainedMemory);
+		}
+
+		/**
+		 * 垃圾回收之后调用，检查代码是否超出了内存限制，确认超出时记录下来，由看门狗终止执行线程
+		 * @param retainedMemory 垃圾回收之后堆中Eden区以外的使用量（已经扣除了可能是开始执行前留下的垃圾的部分）
+		 */
+		private void checkMemory(long retainedMemory) {
+			if (memoryLimit <= 0 || exceededMemory > 0
+					|| itemCallable.getAllocatedBytes() <= memoryLimit) {
+				return;
+			}
+			long growth = retainedGrowth(retainedMemory);
+			if (growth > memoryLimit) {
+				exceededMemory = growth;
+			}
+		}
+
+		/**
+		 * 计算代码占用的内存。以堆中Eden区以外的增长量为准，不断分配又马上丢弃的内存留在Eden区中，不会算进来。
+		 * 这个增长量是所有线程共用的，需要扣除执行期间其他测试用例开始以来分配的内存总量（它们占用的内存不会超过这个值），
+		 * 包括执行期间已经结束的测试用例，它们的内存在下一次完整的垃圾回收之前仍然在堆中；
+		 * 代码占用的内存也不会超过它自己分配的内存总量
+		 * @param retainedMemory 堆中Eden区以外的使用量
+		 * @return 代码占用的内存（字节），不会是负数
+		 */
+		private long retainedGrowth(long retainedMemory) {
+			long growth = retainedMemory - beginRetainedMemory
+					- finishedOthersAllocatedBytes.get();
+			for (ItemWatch other : watchedItems) {
+				if (other != this) {
+					growth -= Math.max(0, other.itemCallable.getAllocatedBytes());
+				}
+			}
+			long allocatedBytes = itemCallable.getAllocatedBytes();
+			if (allocatedBytes >= 0) {
+				growth = Math.min(growth, allocatedBytes);
+			}
+			return Math.max(0, growth);
+		}
+
+		/**
+		 * 创建被看门狗终止的测试用例的结果，被取消的测试用例除外
+		 * @return 测试用例结果
+		 */
+		private ProblemResultItem createStoppedItem() {
+			if (!Verdict.MEMORY_LIMIT_EXCEEDED.equals(stopReason)) {
+				return createTimeLimitItem();
+			}
+			ProblemResultItem item = new ProblemResultItem();
+			item.setNormal(false);
+			item.setMessage("超出内存限制");
+			item.setVerdict(Verdict.MEMORY_LIMIT_EXCEEDED);
+			item.setUseMemory(exceededMemory);
+			return item;
+		}
+
+		/**
+		 * 终止执行线程
+		 * @param reason 终止的原因
+		 * @return 代码还在执行，并且终止了执行线程
+		 */
+		private boolean stop(String reason) {
+			synchronized (this) {
+				if (stopReason == null && itemCallable.isRunning()) {
+					stopReason = reason;
+				}
+			}
+			try {
+				return itemCallable.stop();
+			} catch (Exception e) {
+				// 不支持终止线程的虚拟机会抛出异常，只能放弃等待执行线程
+				System.err.println(e);
+				if (!abandoned && itemCallable.isRunning()) {
+					abandon();
+				}
+				return false;
+			}
+		}
+
+		/**
+		 * 执行线程无法终止时，不再等它，直接给出结果，避免整道题一直拿不到结果。
+		 * 给出结果可能需要写回复，不能在看门狗线程中进行。执行线程会先被替换掉，线程池中始终有可用的线程来给出结果
+		 */
+		private void abandon() {
+			abandoned = true;
+			final ProblemResultItem item;
+			if (Verdict.SKIPPED.equals(stopReason)) {
+				item = createSkippedItem(inputFilePath);
+			} else {
+				item = createStoppedItem();
+				item.setUseTime(itemCallable.getUseCpuTime() / 1000 / 1000);
+				item.setUseWallTime(itemCallable.getUseWallTime() / 1000 / 1000);
+				item.setInputFilePath(inputFilePath);
+			}
+			workerPool.retire(itemCallable.getExecThread());
+			workerPool.execute(new Runnable() {
+				@Override
+				public void run() {
+					completeItem(testIndex, inputFilePath, item);
+				}
+			});
+		}
+
+		private String getStopReason() {
+			return itemCallable.isStopped() ? stopReason : null;
+		}
+	}
+
+	/**
+	 * @return 堆中Eden区以外的使用量
+	 */
+	private static long retainedHeapMemory() {
+		return usedMemory(retainedHeapPools);
+	}
+
+	/**
+	 * @return 堆中Eden区的使用量
+	 */
+	private static long edenHeapMemory() {
+		return usedMemory(edenHeapPools);
+	}
+
+	private static long usedMemory(List<MemoryPoolMXBean> pools) {
+		long used = 0;
+		for (MemoryPoolMXBean pool : pools) {
+			used += pool.getUsage().getUsed();
+		}
+		return used;
+	}
+
+	/**
+	 * 等待已经发生的垃圾回收的通知都处理完，通知是由虚拟机的另一个线程异步发送的。最多等GC_NOTIFICATION_WAIT_NANOS
+	 */
+	private static void awaitGcNotifications() {
+		long deadline = System.nanoTime() + GC_NOTIFICATION_WAIT_NANOS;
+		while (handledGcCount.get() < notifyingCollectionCount()
+				&& System.nanoTime() - deadline < 0) {
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+		}
+	}
+
+	/**
+	 * @return 发送垃圾回收通知的垃圾回收器的回收次数
+	 */
+	private static long notifyingCollectionCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean collector : notifyingCollectors) {
+			count += Math.max(0, collector.getCollectionCount());
+		}
+		return count;
+	}
+
+	/**
+	 * 监听垃圾回收，每次回收之后，以回收之后的堆为准检查所有正在执行的测试用例是否超出内存限制。
+	 * 只回收新生代时，老年代中已经死掉的对象（比如被终止的测试用例留下的列表）仍然会把它们引用的新生代对象当作存活的一起晋升，
+	 * 这些垃圾只可能是测试用例开始执行前留在Eden区中的对象，由各个测试用例在开始之后的第一次回收中扣除。
+	 * 在虚拟机发送通知的线程中执行，不占用看门狗线程，也不需要强制垃圾回收
+	 */
+	private static class GcListener implements NotificationListener {
+		private static final String MINOR_GC_ACTION = "end of minor GC";
+
+		@Override
+		public void handleNotification(Notification notification,
+				Object handback) {
+			if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION
+					.equals(notification.getType())) {
+				return;
+			}
+			try {
+				if (watchedItems.isEmpty()) {
+					return;
+				}
+				GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+						.from((CompositeData) notification.getUserData());
+				GcInfo gcInfo = info.getGcInfo();
+				long retainedMemory = retainedMemory(gcInfo
+						.getMemoryUsageAfterGc());
+				// 通知是按回收的顺序发送的
+				long gcCount = handledGcCount.get() + 1;
+				if (MINOR_GC_ACTION.equals(info.getGcAction())) {
+					long promoted = retainedMemory
+							- retainedMemory(gcInfo.getMemoryUsageBeforeGc());
+					for (ItemWatch itemWatch : watchedItems) {
+						itemWatch.onMinorGc(gcCount, retainedMemory, promoted);
+					}
+				} else {
+					for (ItemWatch itemWatch : watchedItems) {
+						itemWatch.onMajorGc(gcCount, retainedMemory);
+					}
+				}
+			} finally {
+				handledGcCount.incrementAndGet();
+			}
+		}
+
+		private static long retainedMemory(Map<String, MemoryUsage> usages) {
+			long retainedMemory = 0;
+			for (MemoryPoolMXBean pool : retainedHeapPools) {
+				MemoryUsage usage = usages.get(pool.getName());
+				if (usage != null) {
+					retainedMemory += usage.getUsed();
+				}
+			}
+			return retainedMemory;
+		}
+	}
+
+	/**
+	 * @return 看门狗正在检查的测试用例数
+	 */
+	public static int getWatchdogPendingCount() {
+		return watchdog.getPendingCount();
+	}
 }
@@ -1,69 +1,384 @@
 package cn.superman.sandbox.callable;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.io.PrintStream;
 import java.util.concurrent.Callable;
 
+import cn.superman.sandbox.constant.Verdict;
+import cn.superman.sandbox.core.entryPoint.EntryPoint;
+import cn.superman.sandbox.core.outputComparator.OutputComparator;
+import cn.superman.sandbox.core.outputComparator.OutputMismatchError;
+import cn.superman.sandbox.core.systemInStream.ByteBufferInputStream;
 import cn.superman.sandbox.core.systemInStream.ThreadInputStream;
 import cn.superman.sandbox.core.systemOutStream.CacheOutputStream;
+import cn.superman.sandbox.core.systemOutStream.OutputLimitExceededError;
+import cn.superman.sandbox.core.testDataCache.TestDataCache;
+import cn.superman.sandbox.dto.Problem;
 import cn.superman.sandbox.dto.ProblemResultItem;
 
 public class ProblemItemCallable implements Callable<ProblemResultItem> {
-	private Method mainMethod;
+	private EntryPoint entryPoint;
 	private CacheOutputStream resultBuffer;
-	private FileInputStream fileInputStream;
+	private InputStream inputStream;
 	private ThreadInputStream threadSystemIn;
+	// 输出比对器，为null时表示不在沙箱中比对答案
+	private OutputComparator comparator;
+	// 是否由答案检查器判断输出，为true时输出原样保留，交给答案检查器
+	private boolean checkOutput;
+	// 最多允许输出的字节数
+	private long outputLimit;
+	// 真正执行代码的线程，超时的时候需要通过它来计算CPU时间以及强行终止
+	private volatile Thread execThread;
+	// 开始执行时，执行线程已经占用的CPU时间（毫微秒）
+	private volatile long beginCpuTime;
+	// 开始执行时的时间（毫微秒）
+	private volatile long beginWallTime;
+	// 执行结束时的CPU时间以及时间，为-1时表示还没有执行结束
+	private volatile long endCpuTime = -1;
+	private volatile long endWallTime = -1;
+	// 开始执行以及执行结束时，执行线程已经分配的内存总量（字节），为-1时表示还没有记录
+	private volatile long beginAllocatedBytes = -1;
+	private volatile long endAllocatedBytes = -1;
+	// 看门狗终止执行线程的次数，以及执行线程已经收到的ThreadDeath数
+	private volatile int stopCount = 0;
+	private volatile int receivedStopCount = 0;
+	// 被终止后，等待ThreadDeath送达的时间上限（毫微秒），提交的代码可能自己捕获了ThreadDeath，这时不会再送达
+	private static final long STOP_SIGNAL_WAIT_NANOS = 10 * 1000 * 1000;
+	private static final ThreadMXBean threadMXBean = ManagementFactory
+			.getThreadMXBean();
+	// HotSpot提供的线程内存分配统计，其他虚拟机可能没有，此时为null
+	private static final com.sun.management.ThreadMXBean allocationMXBean;
+	static {
+		if (threadMXBean.isThreadCpuTimeSupported()
+				&& !threadMXBean.isThreadCpuTimeEnabled()) {
+			threadMXBean.setThreadCpuTimeEnabled(true);
+		}
+		com.sun.management.ThreadMXBean bean = null;
+		if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+			bean = (com.sun.management.ThreadMXBean) threadMXBean;
+			if (!bean.isThreadAllocatedMemorySupported()) {
+				bean = null;
+			} else if (!bean.isThreadAllocatedMemoryEnabled()) {
+				bean.setThreadAllocatedMemoryEnabled(true);
+			}
+		}
+		allocationMXBean = bean;
+	}
 
-	public ProblemItemCallable(Method mainMethod, String inputFilePath,
-			CacheOutputStream resultBuffer, ThreadInputStream threadSystemIn) {
-		this.mainMethod = mainMethod;
+	/**
+	 * @param entryPoint 代码入口
+	 * @param inputFilePath 测试数据路径
+	 * @param outputFilePath 标准答案路径，为null时不比对答案，直接返回输出结果
+	 * @param problem 题目，用于获取比对方式以及是否使用答案检查器
+	 * @param resultBuffer 输出流
+	 * @param threadSystemIn 输入流
+	 * @param testDataCache 测试数据缓存
+	 */
+	public ProblemItemCallable(EntryPoint entryPoint, String inputFilePath,
+			String outputFilePath, Problem problem,
+			CacheOutputStream resultBuffer, ThreadInputStream threadSystemIn,
+			TestDataCache testDataCache) {
+		this.entryPoint = entryPoint;
 		this.resultBuffer = resultBuffer;
 		this.threadSystemIn = threadSystemIn;
+		this.outputLimit = problem.getOutputLimit();
+		this.checkOutput = problem.getCheckerClassName() != null;
 		// 重定向输入流,注意路径不能包含中文名
 		File file = new File(inputFilePath);
 		if (!file.exists()) {
 			throw new RuntimeException("测试数据有问题");
 		}
 		try {
-			fileInputStream = new FileInputStream(file);
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
+			// 在开始计时之前就把测试数据准备好，读取测试数据的时间不算在代码的执行时间内，
+			// 测试数据由缓存提供，代码读取时不需要进行系统调用
+			inputStream = new ByteBufferInputStream(testDataCache.get(file));
+			if (outputFilePath != null && !checkOutput) {
+				comparator = OutputComparator.create(problem.getCompareMode(),
+						new ByteBufferInputStream(testDataCache.get(new File(
+								outputFilePath))), problem.getFloatEpsilon());
+			}
+		} catch (IOException e) {
+			colseResource();
+			throw new RuntimeException("测试数据有问题", e);
 		}
 	}
 
 	public ProblemResultItem call() throws Exception {
 		ProblemResultItem item = new ProblemResultItem();
 
+		execThread = Thread.currentThread();
+		beginWallTime = System.nanoTime();
+		beginCpuTime = currentThreadCpuTime();
+		beginAllocatedBytes = threadAllocatedBytes(execThread);
 		try {
-			threadSystemIn.setThreadIn(fileInputStream);
-			mainMethod.invoke(null, new Object[] { new String[0] });
+			if (entryPoint.isStandardStream()) {
+				threadSystemIn.setThreadIn(inputStream);
+			}
+			resultBuffer.setThreadOutputLimit(outputLimit);
+			if (comparator != null) {
+				resultBuffer.setThreadComparator(comparator);
+			}
+			// 每个测试用例单独的PrintStream，System.out也会转交给它，不需要与其他测试用例争用锁，
+			// 上一个测试用例被打断时残留在PrintStream中的内容也不会混进这个测试用例的输出，输出限制以及比对仍然由resultBuffer按线程处理
+			PrintStream outputStream = resultBuffer.newThreadPrintStream();
+			entryPoint.invoke(inputStream, outputStream);
+			outputStream.flush();
+			markFinished();
+			if (resultBuffer.isThreadOutputLimitExceeded()) {
+				// 代码自己捕获了OutputLimitExceededError并正常结束
+				throw new OutputLimitExceededError(outputLimit);
+			}
 
-			item.setResult(new String(resultBuffer.removeBytes(Thread
-					.currentThread().getId())));
-			item.setNormal(true);
+			if (comparator != null) {
+				boolean same = comparator.finish();
+				setCompareResult(item, same);
+			} else {
+				byte[] output = resultBuffer.removeBytes(Thread.currentThread()
+						.getId());
+				if (checkOutput) {
+					item.setOutput(output);
+				} else {
+					item.setResult(new String(output));
+				}
+				item.setVerdict(Verdict.FINISHED);
+				item.setNormal(true);
+			}
 
-		} catch (InvocationTargetException e) {
-			Throwable throwable = e.getTargetException();
-			if (throwable instanceof OutOfMemoryError) {
+		} catch (ThreadDeath death) {
+			// 被看门狗终止了，交给调用者根据终止的原因处理
+			throw death;
+		} catch (Throwable throwable) {
+			// 方法句柄不会包装代码抛出的异常
+			if (throwable instanceof OutputMismatchError) {
+				setCompareResult(item, false);
+			} else if (throwable instanceof OutputLimitExceededError) {
+				item.setMessage(throwable.getMessage());
+				item.setVerdict(Verdict.OUTPUT_LIMIT_EXCEEDED);
+				item.setNormal(false);
+			} else if (throwable instanceof OutOfMemoryError) {
 				item.setMessage("内存溢出");
+				item.setVerdict(Verdict.MEMORY_LIMIT_EXCEEDED);
+				item.setNormal(false);
 			} else {
 				item.setMessage(throwable.getMessage());
+				item.setVerdict(Verdict.RUNTIME_ERROR);
+				item.setNormal(false);
 			}
-			item.setNormal(false);
-		} catch (RuntimeException runtimeException) {
-			item.setMessage(runtimeException.getMessage());
-			item.setNormal(false);
 		} finally {
-			threadSystemIn.removeAndCloseThreadIn();
+			markFinished();
+			cleanUp();
 		}
 
 		return item;
 	}
 
+	/**
+	 * 记录执行结束时的CPU时间等信息，与stop互斥，标记结束之后就不会再被终止
+	 */
+	private synchronized void markFinished() {
+		if (endCpuTime < 0) {
+			endAllocatedBytes = threadAllocatedBytes(execThread);
+			endCpuTime = currentThreadCpuTime();
+			endWallTime = System.nanoTime();
+		}
+	}
+
+	/**
+	 * 清理执行线程上与这个测试用例有关的内容，必须在执行线程中调用，可以重复调用。
+	 * 执行线程被终止时，call中的清理可能只做了一半，需要等ThreadDeath送达之后再调用一次
+	 */
+	public void cleanUp() {
+		if (comparator != null) {
+			resultBuffer.removeThreadComparator();
+		}
+		resultBuffer.setThreadOutputLimit(0);
+		resultBuffer.removeThreadPrintStream();
+		// 出现意外时，输出没有被取走，不能留给下一个使用该线程的测试用例
+		resultBuffer.clearBytes();
+		colseResource();
+	}
+
+	/**
+	 * 需要注意的是，这里将会调用线程stop方法，因为只有这样才能强行终止超时的线程，而又因为这里并不需要保证什么原子性以及一致性的业务要求，
+	 * 所以用stop方法是没什么大问题的。只有代码还在执行时才会终止，执行结束之后执行线程会去执行别的测试用例
+	 * @return 是否终止了执行线程
+	 */
+	@SuppressWarnings("deprecation")
+	public synchronized boolean stop() {
+		if (!isRunning()) {
+			return false;
+		}
+		stopCount++;
+		execThread.stop();
+		return true;
+	}
+
+	/**
+	 * @return 执行线程是否被终止过
+	 */
+	public boolean isStopped() {
+		return stopCount > 0;
+	}
+
+	/**
+	 * 执行线程捕获到ThreadDeath时调用
+	 */
+	public void onStopSignal() {
+		receivedStopCount++;
+	}
+
+	/**
+	 * 在执行线程中调用，等待所有的ThreadDeath都送达，之后的代码就不会再被打断。
+	 * ThreadDeath是异步送达的，可能在代码执行结束之后才到，如果不等它，就可能打断后面的清理或者下一个测试用例
+	 */
+	public void awaitStopSignal() {
+		long deadline = System.nanoTime() + STOP_SIGNAL_WAIT_NANOS;
+		while (true) {
+			try {
+				while (receivedStopCount < stopCount
+						&& System.nanoTime() < deadline) {
+					Thread.yield();
+				}
+				return;
+			} catch (ThreadDeath death) {
+				receivedStopCount++;
+			}
+		}
+	}
+
+	/**
+	 * 获取当前线程已经占用的CPU时间，不支持统计CPU时间的虚拟机，则用时间代替
+	 * @return CPU时间（毫微秒）
+	 */
+	static long currentThreadCpuTime() {
+		if (threadMXBean.isThreadCpuTimeSupported()) {
+			return threadMXBean.getCurrentThreadCpuTime();
+		}
+		return System.nanoTime();
+	}
+
+	/**
+	 * 获取线程已经分配的内存总量
+	 * @param thread 线程
+	 * @return 内存总量（字节），不支持统计时返回-1
+	 */
+	private static long threadAllocatedBytes(Thread thread) {
+		if (allocationMXBean == null) {
+			return -1;
+		}
+		return allocationMXBean.getThreadAllocatedBytes(thread.getId());
+	}
+
+	/**
+	 * 获取代码已经分配的内存总量，执行中的话，就是到目前为止分配的内存总量。
+	 * 这个值只统计执行线程自己分配的内存，不受其他并行执行的测试用例影响，也不需要事先进行垃圾回收
+	 * @return 内存总量（字节），还没开始执行或者不支持统计时返回-1
+	 */
+	public long getAllocatedBytes() {
+		Thread thread = execThread;
+		long begin = beginAllocatedBytes;
+		if (thread == null || begin < 0) {
+			return -1;
+		}
+		long end = endAllocatedBytes;
+		if (end < 0) {
+			end = threadAllocatedBytes(thread);
+			// 线程已经结束了，会返回-1，此时以结束时记录的为准
+			if (end < 0) {
+				end = endAllocatedBytes;
+				if (end < 0) {
+					return -1;
+				}
+			}
+		}
+		return Math.max(0, end - begin);
+	}
+
+	/**
+	 * 获取代码已经占用的CPU时间，执行中的话，就是到目前为止占用的CPU时间
+	 * @return CPU时间（毫微秒），还没开始执行时返回0
+	 */
+	public long getUseCpuTime() {
+		Thread thread = execThread;
+		if (thread == null) {
+			return 0;
+		}
+		long end = endCpuTime;
+		if (end < 0) {
+			if (!threadMXBean.isThreadCpuTimeSupported()) {
+				return System.nanoTime() - beginCpuTime;
+			}
+			end = threadMXBean.getThreadCpuTime(thread.getId());
+			// 线程已经结束了，会返回-1，此时以结束时记录的为准
+			if (end < 0) {
+				end = endCpuTime;
+				if (end < 0) {
+					return 0;
+				}
+			}
+		}
+		return Math.max(0, end - beginCpuTime);
+	}
+
+	/**
+	 * 获取代码已经执行的时间，执行中的话，就是到目前为止执行的时间
+	 * @return 时间（毫微秒），还没开始执行时返回0
+	 */
+	public long getUseWallTime() {
+		if (execThread == null) {
+			return 0;
+		}
+		long end = endWallTime;
+		if (end < 0) {
+			end = System.nanoTime();
+		}
+		return end - beginWallTime;
+	}
+
+	/**
+	 * 是否正在执行代码
+	 * @return 已经开始执行且还没有结束时返回true
+	 */
+	public boolean isRunning() {
+		return execThread != null && endCpuTime < 0;
+	}
+
+	public Thread getExecThread() {
+		return execThread;
+	}
+
+	/**
+	 * 设置答案比对的结果，只返回判题结果、第一个不同之处以及输出摘要，不返回输出内容
+	 * @param item 测试用例结果
+	 * @param same 输出与标准答案是否一致
+	 */
+	private void setCompareResult(ProblemResultItem item, boolean same) {
+		item.setNormal(same);
+		if (same) {
+			item.setVerdict(Verdict.ACCEPTED);
+		} else {
+			item.setVerdict(Verdict.WRONG_ANSWER);
+			item.setMessage("答案错误");
+		}
+		item.setFirstDifferencePosition(comparator.getMismatchPosition());
+		item.setOutputDigest(comparator.getDigest());
+	}
+
 	public void colseResource() {
 		threadSystemIn.removeAndCloseThreadIn();
+		if (inputStream != null) {
+			try {
+				inputStream.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		if (comparator != null) {
+			comparator.close();
+		}
 	}
 }
@@ -0,0 +1,14 @@
+package cn.superman.sandbox.callable;
+
+import cn.superman.sandbox.dto.ProblemResultItem;
+
+/**
+ * 单个测试用例判完时的回调，用于逐个返回测试用例的结果
+ */
+public interface ProblemResultItemListener {
+	/**
+	 * 测试用例判完了，会在执行测试用例的线程中被调用，多个测试用例可能同时回调
+	 * @param item 测试用例的结果，已经设置好测试用例下标
+	 */
+	void onResultItem(ProblemResultItem item);
+}
@@ -0,0 +1,23 @@
+package cn.superman.sandbox.client;
+
+import cn.superman.sandbox.dto.ProblemResult;
+import cn.superman.sandbox.dto.ProblemResultItem;
+
+/**
+ * 判题过程的回调，在读取回复的线程中被调用，不能在回调中做耗时的操作
+ */
+public interface JudgeListener {
+	/**
+	 * 题目设置了逐个返回测试用例结果时，每个测试用例判完都会回调一次
+	 * @param runId 题目runId
+	 * @param item 测试用例结果
+	 */
+	void onResultItem(String runId, ProblemResultItem item);
+
+	/**
+	 * 判题结束，无论成功与否都会回调一次。批量判题时每道题回调一次，连接断开时再回调一次
+	 * @param result 判题结果，失败时为null；批量判题中的题目判题失败时，只有runId以及失败的原因
+	 * @param error 失败的原因，成功时为null
+	 */
+	void onComplete(ProblemResult result, Throwable error);
+}
@@ -0,0 +1,359 @@
+package cn.superman.sandbox.client;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.Gson;
+
+import cn.superman.sandbox.constant.CommunicationSignal;
+import cn.superman.sandbox.core.protocol.BinaryMessages;
+import cn.superman.sandbox.dto.Problem;
+import cn.superman.sandbox.dto.ProblemBatchResult;
+import cn.superman.sandbox.dto.ProblemResult;
+import cn.superman.sandbox.dto.Request;
+import cn.superman.sandbox.dto.Response;
+import cn.superman.sandbox.dto.SandBoxStatus;
+import cn.superman.sandbox.dto.SandboxMetricsSnapshot;
+
+/**
+ * 沙箱的客户端，使用二进制帧协议与沙箱通信。一个连接上可以同时有多个请求，回复通过signalId与请求对应，可以乱序返回
+ */
+public class SandboxClient implements Closeable {
+	private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+	// 关闭沙箱时，等待沙箱确认的时间（毫秒）
+	private static final long CLOSE_TIMEOUT_MILLIS = 1000;
+	private final Socket socket;
+	private final DataInputStream inputStream;
+	private final OutputStream outputStream;
+	// 写请求时使用的锁，保证请求不会在连接上交错
+	private final Object writeLock = new Object();
+	private final Gson gson = new Gson();
+	private final int version;
+	private final AtomicLong signalSequence = new AtomicLong();
+	// 已经发送但还没有收到回复的请求
+	private final Map<String, PendingRequest<?>> pendingRequests = new ConcurrentHashMap<String, PendingRequest<?>>();
+	private volatile boolean closed = false;
+
+	/**
+	 * 连接沙箱，并完成协议握手
+	 * @param host 沙箱所在主机
+	 * @param port 沙箱监听的端口
+	 * @param connectTimeoutMillis 连接超时时间（毫秒）
+	 * @throws IOException 无法连接或者沙箱不支持二进制帧协议
+	 */
+	public SandboxClient(final String host, final int port,
+			int connectTimeoutMillis) throws IOException {
+		socket = new Socket();
+		try {
+			socket.connect(new InetSocketAddress(host, port),
+					connectTimeoutMillis);
+			socket.setTcpNoDelay(true);
+			inputStream = new DataInputStream(new BufferedInputStream(
+					socket.getInputStream(), INPUT_BUFFER_SIZE));
+			outputStream = socket.getOutputStream();
+			version = BinaryMessages.handshake(inputStream, outputStream);
+			if (version < 1) {
+				throw new IOException("沙箱不支持的协议版本：" + version);
+			}
+		} catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+		Thread readThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				readResponses();
+			}
+		});
+		readThread.setName("sandboxClient " + host + ":" + port);
+		readThread.setDaemon(true);
+		readThread.start();
+	}
+
+	/**
+	 * 提交判题请求，不会等待判题结束
+	 * @param problem 题目
+	 * @param listener 判题过程的回调，可以为null
+	 * @return 判题结果
+	 * @throws IOException 连接已经断开
+	 */
+	public Future<ProblemResult> judge(Problem problem, JudgeListener listener)
+			throws IOException {
+		PendingRequest<ProblemResult> pendingRequest = new PendingRequest<ProblemResult>(
+				ProblemResult.class, listener);
+		send(CommunicationSignal.RequestSignal.REQUSET_JUDGED_PROBLEM,
+				gson.toJson(problem), pendingRequest);
+		return pendingRequest;
+	}
+
+	/**
+	 * 批量提交判题请求，所有题目只需要发送一个请求，不会等待判题结束。
+	 * 每道题判完都会回调一次listener的onComplete，判题失败时error不为null，result中只有runId以及失败的原因
+	 * @param problems 题目列表
+	 * @param listener 判题过程的回调，可以为null
+	 * @return 汇总结果，所有题目的结果都返回之后才会有
+	 * @throws IOException 连接已经断开
+	 */
+	public Future<ProblemBatchResult> judgeBatch(List<Problem> problems,
+			JudgeListener listener) throws IOException {
+		PendingRequest<ProblemBatchResult> pendingRequest = new PendingRequest<ProblemBatchResult>(
+				ProblemBatchResult.class, listener);
+		send(CommunicationSignal.RequestSignal.JUDGE_PROBLEM_BATCH,
+				gson.toJson(problems), pendingRequest);
+		return pendingRequest;
+	}
+
+	/**
+	 * 查询沙箱状态，沙箱会立即回复，不会排在判题后面
+	 * @return 沙箱状态
+	 * @throws IOException 连接已经断开
+	 */
+	public Future<SandBoxStatus> status() throws IOException {
+		PendingRequest<SandBoxStatus> pendingRequest = new PendingRequest<SandBoxStatus>(
+				SandBoxStatus.class, null);
+		send(CommunicationSignal.RequestSignal.SANDBOX_STATUS, null,
+				pendingRequest);
+		return pendingRequest;
+	}
+
+	/**
+	 * 获取沙箱的运行指标，沙箱会立即回复，不会排在判题后面
+	 * @return 运行指标
+	 * @throws IOException 连接已经断开
+	 */
+	public Future<SandboxMetricsSnapshot> metrics() throws IOException {
+		PendingRequest<SandboxMetricsSnapshot> pendingRequest = new PendingRequest<SandboxMetricsSnapshot>(
+				SandboxMetricsSnapshot.class, null);
+		send(CommunicationSignal.RequestSignal.METRICS, null, pendingRequest);
+		return pendingRequest;
+	}
+
+	/**
+	 * 查询沙箱是否所有判题槽位都被占用了
+	 * @return 所有判题槽位都被占用时为true
+	 * @throws IOException 连接已经断开
+	 */
+	public Future<Boolean> isBusy() throws IOException {
+		PendingRequest<Boolean> pendingRequest = new PendingRequest<Boolean>(
+				Boolean.class, null);
+		send(CommunicationSignal.RequestSignal.IS_BUSY, null, pendingRequest);
+		return pendingRequest;
+	}
+
+	/**
+	 * 关闭沙箱进程以及连接，沙箱收到请求后会直接退出，还没有返回的请求都会失败
+	 */
+	@Override
+	public void close() {
+		if (!closed) {
+			try {
+				PendingRequest<Object> pendingRequest = new PendingRequest<Object>(
+						Object.class, null);
+				send(CommunicationSignal.RequestSignal.CLOSE_SANDBOX, null,
+						pendingRequest);
+				pendingRequest.get(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (Exception e) {
+				// 沙箱可能已经退出了，直接关闭连接
+			}
+		}
+		disconnect(new IOException("连接已经关闭"));
+	}
+
+	/**
+	 * @return 连接是否已经断开
+	 */
+	public boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * @return 已经发送但还没有收到回复的请求数
+	 */
+	public int getPendingRequestCount() {
+		return pendingRequests.size();
+	}
+
+	public int getVersion() {
+		return version;
+	}
+
+	private void send(String command, String data,
+			PendingRequest<?> pendingRequest) throws IOException {
+		if (closed) {
+			throw new IOException("与沙箱的连接已经断开");
+		}
+		String signalId = Long.toString(signalSequence.incrementAndGet());
+		Request request = new Request();
+		request.setCommand(command);
+		request.setSignalId(signalId);
+		request.setData(data);
+		byte[] payload = BinaryMessages.encodeRequest(request);
+		// 先登记再发送，避免回复比登记先到
+		pendingRequests.put(signalId, pendingRequest);
+		try {
+			synchronized (writeLock) {
+				BinaryMessages.writeFrame(outputStream, payload);
+				outputStream.flush();
+			}
+		} catch (IOException e) {
+			pendingRequests.remove(signalId);
+			disconnect(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * 读取回复的线程，连接断开后所有还没有收到回复的请求都会失败
+	 */
+	private void readResponses() {
+		try {
+			byte[] frame = null;
+			while ((frame = BinaryMessages.readFrame(inputStream)) != null) {
+				dispatchResponse(BinaryMessages.decodeResponse(frame, version));
+			}
+			disconnect(new IOException("沙箱已经关闭了连接"));
+		} catch (IOException e) {
+			disconnect(e);
+		}
+	}
+
+	private void dispatchResponse(Response response) {
+		String signalId = response.getSignalId();
+		if (signalId == null) {
+			// IDLE之类的通知，多路复用时不需要根据它决定什么时候发送下一个请求
+			return;
+		}
+		if (CommunicationSignal.ResponseSignal.RESULT_ITEM.equals(response
+				.getResponseCommand())) {
+			PendingRequest<?> pendingRequest = pendingRequests.get(signalId);
+			if (pendingRequest != null) {
+				pendingRequest.resultItem((ProblemResult) response.getBody());
+			}
+			return;
+		}
+		if (CommunicationSignal.ResponseSignal.BATCH_RESULT.equals(response
+				.getResponseCommand())) {
+			PendingRequest<?> pendingRequest = pendingRequests.get(signalId);
+			if (pendingRequest != null) {
+				pendingRequest.batchResult((ProblemResult) response.getBody());
+			}
+			return;
+		}
+		PendingRequest<?> pendingRequest = pendingRequests.remove(signalId);
+		if (pendingRequest != null) {
+			pendingRequest.complete(response);
+		}
+	}
+
+	private void disconnect(IOException cause) {
+		closed = true;
+		try {
+			socket.close();
+		} catch (IOException e) {
+		}
+		List<String> signalIds = new ArrayList<String>(pendingRequests.keySet());
+		for (String signalId : signalIds) {
+			PendingRequest<?> pendingRequest = pendingRequests.remove(signalId);
+			if (pendingRequest != null) {
+				pendingRequest.fail(cause);
+			}
+		}
+	}
+
+	/**
+	 * 还没有收到回复的请求，收到回复后按类型解码回复内容
+	 */
+	private class PendingRequest<T> extends FutureTask<T> {
+		private final Class<T> type;
+		private final JudgeListener listener;
+
+		PendingRequest(Class<T> type, JudgeListener listener) {
+			super(new Callable<T>() {
+				@Override
+				public T call() throws Exception {
+					// 结果由回复设置，不会被执行
+					return null;
+				}
+			});
+			this.type = type;
+			this.listener = listener;
+		}
+
+		void resultItem(ProblemResult problemResult) {
+			if (listener == null || problemResult == null) {
+				return;
+			}
+			for (int i = 0; i < problemResult.getResultItems().size(); i++) {
+				listener.onResultItem(problemResult.getRunId(), problemResult
+						.getResultItems().get(i));
+			}
+		}
+
+		void batchResult(ProblemResult problemResult) {
+			if (listener == null || problemResult == null) {
+				return;
+			}
+			Throwable error = null;
+			if (problemResult.getErrorMessage() != null) {
+				error = new Exception(problemResult.getErrorMessage());
+			}
+			listener.onComplete(problemResult, error);
+		}
+
+		void complete(Response response) {
+			String responseCommand = response.getResponseCommand();
+			if (CommunicationSignal.ResponseSignal.ERROR
+					.equals(responseCommand)) {
+				fail(new Exception(response.getData()));
+				return;
+			}
+			T value = null;
+			try {
+				value = decode(response);
+			} catch (RuntimeException e) {
+				fail(e);
+				return;
+			}
+			set(value);
+			if (listener != null && value instanceof ProblemResult) {
+				// 批量判题的各道题已经逐个回调过了
+				listener.onComplete((ProblemResult) value, null);
+			}
+		}
+
+		void fail(Throwable cause) {
+			setException(cause);
+			if (listener != null) {
+				listener.onComplete(null, cause);
+			}
+		}
+
+		private T decode(Response response) {
+			String responseCommand = response.getResponseCommand();
+			Object value = null;
+			if (type == Boolean.class) {
+				value = CommunicationSignal.ResponseSignal.YES
+						.equals(responseCommand);
+			} else if (response.getBody() != null) {
+				value = response.getBody();
+			} else if (response.getData() != null && type != Object.class) {
+				value = gson.fromJson(response.getData(), type);
+			}
+			return type.cast(value);
+		}
+	}
+}
@@ -7,6 +7,10 @@ public final class CommunicationSignal {
         public final static String SANDBOX_STATUS = "SANDBOX_STATUS";
         public final static String IS_BUSY = "IS_BUSY";
         public final static String REQUSET_JUDGED_PROBLEM = "REQUSET_JUDGED_PROBLEM";
+        // 获取各阶段耗时、各判题结果数量等运行指标
+        public final static String METRICS = "METRICS";
+        // 批量判题，一个请求中包含多道题
+        public final static String JUDGE_PROBLEM_BATCH = "JUDGE_PROBLEM_BATCH";
     }
 
     public final static class ResponseSignal {
@@ -15,6 +19,10 @@ public final class CommunicationSignal {
         public final static String YES = "YES";
         public final static String IDLE = "IDLE";
         public final static String ERROR = "ERROR";
+        // 逐个返回测试用例结果时，单个测试用例的结果，所有测试用例的结果返回后，再以OK返回汇总结果
+        public final static String RESULT_ITEM = "RESULT_ITEM";
+        // 批量判题时，单道题的判题结果，所有题目的结果返回后，再以OK返回汇总
+        public final static String BATCH_RESULT = "BATCH_RESULT";
     }
 
 }
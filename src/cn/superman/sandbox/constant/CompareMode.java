@@ -0,0 +1,13 @@
+package cn.superman.sandbox.constant;
+
+/**
+ * 输出结果与标准答案的比对方式
+ */
+public final class CompareMode {
+	// 逐字节完全一致
+	public final static String EXACT = "EXACT";
+	// 忽略空白字符，按空白字符分隔后逐个比较
+	public final static String IGNORE_WHITESPACE = "IGNORE_WHITESPACE";
+	// 在IGNORE_WHITESPACE的基础上，两边都是数字时，误差在允许范围内即视为相同
+	public final static String FLOAT_EPSILON = "FLOAT_EPSILON";
+}
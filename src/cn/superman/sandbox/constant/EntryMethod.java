@@ -0,0 +1,11 @@
+package cn.superman.sandbox.constant;
+
+/**
+ * 提交代码的入口方法
+ */
+public final class EntryMethod {
+	// public static void main(String[] args)，从System.in读入，向System.out输出
+	public final static String MAIN = "MAIN";
+	// public static void solve(InputStream in, PrintStream out)，直接从参数读入、向参数输出，不经过System.in以及System.out
+	public final static String SOLVE = "SOLVE";
+}
@@ -0,0 +1,11 @@
+package cn.superman.sandbox.constant;
+
+/**
+ * 判题方式
+ */
+public final class JudgeMode {
+	// 所有测试用例都执行完，返回每个测试用例的结果（OI赛制）
+	public final static String FULL = "FULL";
+	// 第一个测试用例不通过时，取消其余还没有执行完的测试用例（ACM赛制）
+	public final static String FAIL_FAST = "FAIL_FAST";
+}
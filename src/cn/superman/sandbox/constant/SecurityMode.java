@@ -0,0 +1,13 @@
+package cn.superman.sandbox.constant;
+
+/**
+ * 限制提交代码的方式
+ */
+public final class SecurityMode {
+	// 执行时由SandboxSecurityManager检查每一次权限请求
+	public final static String SECURITY_MANAGER = "SECURITY_MANAGER";
+	// 加载时由BytecodeVerifier检查字节码，拒绝使用了禁止的API的类，不设置SecurityManager，执行时没有权限检查的开销
+	public final static String BYTECODE = "BYTECODE";
+	// 两种方式同时使用
+	public final static String BOTH = "BOTH";
+}
@@ -0,0 +1,21 @@
+package cn.superman.sandbox.constant;
+
+/**
+ * 压测语料中提交代码的类型
+ */
+public final class SubmissionKind {
+	// 计算密集，几乎没有输入输出
+	public final static String CPU_BOUND = "CPU_BOUND";
+	// 读入大量数据并输出大量结果
+	public final static String IO_HEAVY = "IO_HEAVY";
+	// 创建大量短命的对象
+	public final static String ALLOCATION_HEAVY = "ALLOCATION_HEAVY";
+	// 死循环，应该判为超时
+	public final static String TIME_LIMIT = "TIME_LIMIT";
+	// 一块一块地占用内存，直到超过内存限制，应该判为超出内存限制
+	public final static String MEMORY_LIMIT = "MEMORY_LIMIT";
+	// 申请的内存总量远超内存限制，但马上就丢弃，占用的不多，不能判为超出内存限制
+	public final static String MEMORY_CHURN = "MEMORY_CHURN";
+	// 不停输出，应该判为超出输出限制
+	public final static String OUTPUT_FLOOD = "OUTPUT_FLOOD";
+}
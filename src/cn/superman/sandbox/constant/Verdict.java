@@ -0,0 +1,19 @@
+package cn.superman.sandbox.constant;
+
+/**
+ * 测试用例的判题结果
+ */
+public final class Verdict {
+	// 代码正常执行结束，但没有在沙箱中比对答案
+	public final static String FINISHED = "FINISHED";
+	public final static String ACCEPTED = "ACCEPTED";
+	public final static String WRONG_ANSWER = "WRONG_ANSWER";
+	public final static String TIME_LIMIT_EXCEEDED = "TIME_LIMIT_EXCEEDED";
+	public final static String MEMORY_LIMIT_EXCEEDED = "MEMORY_LIMIT_EXCEEDED";
+	public final static String OUTPUT_LIMIT_EXCEEDED = "OUTPUT_LIMIT_EXCEEDED";
+	public final static String RUNTIME_ERROR = "RUNTIME_ERROR";
+	// 判题方式为FAIL_FAST时，前面已经有测试用例不通过，该测试用例没有执行或者执行到一半被取消了
+	public final static String SKIPPED = "SKIPPED";
+	// 沙箱自身出现问题（如测试数据不存在），与提交的代码无关
+	public final static String SYSTEM_ERROR = "SYSTEM_ERROR";
+}
@@ -1,32 +1,52 @@
 package cn.superman.sandbox.core;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.io.PrintStream;
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
-import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.List;
-import java.util.Scanner;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.gson.Gson;
 
 import cn.superman.sandbox.callable.ProblemCallable;
+import cn.superman.sandbox.callable.ProblemResultItemListener;
 import cn.superman.sandbox.constant.CommunicationSignal;
+import cn.superman.sandbox.constant.SecurityMode;
 import cn.superman.sandbox.constant.ConstantParameter;
+import cn.superman.sandbox.core.checker.Checker;
+import cn.superman.sandbox.core.checker.CheckerCache;
+import cn.superman.sandbox.core.entryPoint.EntryPoint;
+import cn.superman.sandbox.core.entryPoint.EntryPointCache;
+import cn.superman.sandbox.core.classLoader.BytecodeVerifier;
+import cn.superman.sandbox.core.classLoader.ClassLoaderRecycler;
 import cn.superman.sandbox.core.classLoader.SandboxClassLoader;
+import cn.superman.sandbox.core.metrics.SandboxMetrics;
+import cn.superman.sandbox.core.outputComparator.OutputComparator;
+import cn.superman.sandbox.core.protocol.JsonLineCodec;
+import cn.superman.sandbox.core.protocol.ProtocolCodec;
+import cn.superman.sandbox.core.protocol.ProtocolNegotiator;
+import cn.superman.sandbox.core.protocol.ResponseWriter;
 import cn.superman.sandbox.core.securityManager.SandboxSecurityManager;
 import cn.superman.sandbox.core.systemInStream.ThreadInputStream;
 import cn.superman.sandbox.core.systemOutStream.CacheOutputStream;
+import cn.superman.sandbox.core.systemOutStream.OutputChunkPool;
+import cn.superman.sandbox.core.systemOutStream.ThreadPrintStream;
+import cn.superman.sandbox.core.testDataCache.TestDataCache;
+import cn.superman.sandbox.core.warmUp.WarmUpJudge;
+import cn.superman.sandbox.core.workerPool.WorkerCleaner;
+import cn.superman.sandbox.core.workerPool.WorkerPool;
 import cn.superman.sandbox.dto.Problem;
+import cn.superman.sandbox.dto.ProblemBatchResult;
 import cn.superman.sandbox.dto.ProblemResult;
 import cn.superman.sandbox.dto.ProblemResultItem;
 import cn.superman.sandbox.dto.Request;
@@ -35,64 +55,52 @@ import cn.superman.sandbox.dto.SandBoxStatus;
 import cn.superman.sandbox.dto.SandboxInitData;
 
 public class Sandbox {
-	// 每加载超过100个类后，就替换一个新的ClassLoader
-	public static final int UPDATE_CLASSLOADER_GAP = 5;
-	// 记录一共加载过的类数量
-	private int loadClassCount = 0;
 	private SandboxInitData sandboxInitData;
 	private String pid = null;
 	private ServerSocket serverSocket;
 	private Socket communicateSocket;
 	private SandboxClassLoader sandboxClassLoader;
+	// 多个判题线程会同时加载入口类，替换类加载器时需要同步
+	private final Object classLoaderLock = new Object();
+	// 根据元空间的使用情况决定什么时候替换类加载器
+	private ClassLoaderRecycler classLoaderRecycler;
+	// 加载提交的类之前检查字节码，不检查字节码时为null
+	private BytecodeVerifier bytecodeVerifier;
 	private Gson gson = null;
+	// 回复的写出者，连接建立后协商确定通信使用的协议
+	private ResponseWriter responseWriter;
 	private MemoryMXBean systemMemoryBean = null;
 	private long beginStartTime = 0;
-	// 表示当前进程是否在忙，如果在忙的话，就表示当前正在判题(这是当前正在的忙情况，以后可能会增加更多的情况)
-	private boolean isBusy = false;
-	private ProblemCallable problemCallable;
+	// 从虚拟机启动到可以判题所花的时间、其中预热判题所花的时间以及第一道题判完的时间（毫秒）
+	private long startupTime = 0;
+	private long warmUpTime = 0;
+	private volatile long firstJudgeFinishTime = -1;
+	// 等待外界连接所花的时间（毫秒），不算在启动时间中
+	private long connectWaitTime = 0;
+	// 重定向之前的标准输出，用于向外界输出提示信息
+	private PrintStream consoleOut = System.out;
+	// 判题槽位，每个槽位记录当前正在判的题目runId，为null时表示该槽位空闲
+	private String[] slotRunIds;
+	// 正在判题的槽位数，大于0就表示当前正在判题(这是当前正在的忙情况，以后可能会增加更多的情况)
+	private int busySlotCount = 0;
 	// 用于重定向输出流，即代码输出的结果，将会输出到这个缓冲区中
-	private volatile CacheOutputStream resultBuffer = new CacheOutputStream();
+	private volatile CacheOutputStream resultBuffer;
 	private volatile ThreadInputStream systemThreadIn = new ThreadInputStream();
-	// 用一个线程池去处理每个判题请求
-	private ExecutorService problemThreadPool = Executors
-			.newSingleThreadExecutor(new ThreadFactory() {
-
-				@Override
-				public Thread newThread(Runnable r) {
-					Thread thread = new Thread(r);
-					thread.setName("problemThreadPool");
-					thread.setUncaughtExceptionHandler(new UncaughtExceptionHandler() {
-
-						@Override
-						public void uncaughtException(Thread t, Throwable e) {
-							writeResponse(null,
-									CommunicationSignal.ResponseSignal.ERROR,
-									null, e.getMessage());
-						}
-					});
-					return thread;
-				}
-			});
-	// 用一个线程池去等待每个判题请求的结果返回
-	private ExecutorService problemResultThreadPool = Executors
-			.newSingleThreadExecutor(new ThreadFactory() {
-
-				@Override
-				public Thread newThread(Runnable r) {
-					Thread thread = new Thread(r);
-					thread.setName("problemResultThreadPool");
-					thread.setUncaughtExceptionHandler(new UncaughtExceptionHandler() {
-
-						@Override
-						public void uncaughtException(Thread t, Throwable e) {
-							writeResponse(null,
-									CommunicationSignal.ResponseSignal.ERROR,
-									null, e.getMessage());
-						}
-					});
-					return thread;
-				}
-			});
+	// 进程内共享的测试数据缓存
+	private TestDataCache testDataCache;
+	// 执行测试用例的线程池，所有判题槽位共用
+	private WorkerPool workerPool;
+	// 答案检查器缓存以及执行答案检查器的线程池，没有配置答案检查器目录时为null
+	private CheckerCache checkerCache;
+	private WorkerPool checkerPool;
+	// 每个入口类的代码入口只查找一次
+	private final EntryPointCache entryPointCache = new EntryPointCache();
+	// 用一个线程池去处理每个判题请求，线程数与判题槽位数一致，判完的线程直接返回结果，所以结果可能乱序返回
+	private ExecutorService problemThreadPool;
+	// 已经收到但还没有返回结果的判题请求数
+	private final AtomicInteger inFlightJudgeCount = new AtomicInteger();
+	// 各阶段耗时、各判题结果数量等运行指标
+	private SandboxMetrics metrics;
 
 	public static void main(String[] args) {
 		new Sandbox(args);
@@ -111,10 +119,20 @@ public class Sandbox {
 		getPid();
 		// 沙箱环境准备
 		SandboxInitData sandboxInitData = prepareBuildingNeed(args[0]);
-		// 打开用于与外界沟通的通道
-		openServerSocketWaitToConnect(sandboxInitData.getPort());
-		// 确保能与外界沟通之后，才开始准备执行class文件的环境
-		buildEnvironment(sandboxInitData);
+		if (sandboxInitData.getWarmUpJudgeCount() > 0) {
+			// 预热模式：先准备好执行class文件的环境并预热，再打开通道，外界连上之后第一道题就不需要再承担初始化的开销
+			buildEnvironment(sandboxInitData);
+			warmUp(sandboxInitData.getWarmUpJudgeCount());
+			openServerSocketWaitToConnect(sandboxInitData.getPort());
+		} else {
+			// 打开用于与外界沟通的通道
+			openServerSocketWaitToConnect(sandboxInitData.getPort());
+			// 确保能与外界沟通之后，才开始准备执行class文件的环境
+			buildEnvironment(sandboxInitData);
+		}
+		startupTime = System.currentTimeMillis()
+				- ManagementFactory.getRuntimeMXBean().getStartTime()
+				- connectWaitTime;
 		// 等外界与沙箱，通过socket沟通上之后，就会进行业务上的沟通
 		service();
 
@@ -151,9 +169,15 @@ public class Sandbox {
 
 		try {
 			serverSocket = new ServerSocket(port);
-			System.out.println("sandbox" + port + "wait");
+			consoleOut.println("sandbox" + port + "wait");
+			long beginWaitTime = System.currentTimeMillis();
 			communicateSocket = serverSocket.accept();
-			System.out.println("pid:" + pid);
+			connectWaitTime = System.currentTimeMillis() - beginWaitTime;
+			// 还没有确定协议时出现了意外，使用原有的JSON行协议回复
+			responseWriter = new ResponseWriter(
+					communicateSocket.getOutputStream(), new JsonLineCodec(
+							null, gson));
+			consoleOut.println("pid:" + pid);
 			// 只与外部建立一个沟通的连接
 			serverSocket.close();
 		} catch (IOException e) {
@@ -167,31 +191,179 @@ public class Sandbox {
 	 * @param sandboxInitData 沙箱初始化信息
 	 */
 	private void buildEnvironment(SandboxInitData sandboxInitData) {
+		int slotCount = Math.max(1, sandboxInitData.getConcurrentJudgeCount());
+		slotRunIds = new String[slotCount];
+		problemThreadPool = Executors.newFixedThreadPool(slotCount,
+				createThreadFactory("problemThreadPool"));
+		String securityMode = sandboxInitData.getSecurityMode();
+		if (SecurityMode.BYTECODE.equals(securityMode)
+				|| SecurityMode.BOTH.equals(securityMode)) {
+			bytecodeVerifier = new BytecodeVerifier();
+		}
 		sandboxClassLoader = new SandboxClassLoader(
-				sandboxInitData.getClassFileRootPath());
+				sandboxInitData.getClassFileRootPath(), null, bytecodeVerifier);
+		classLoaderRecycler = new ClassLoaderRecycler(
+				sandboxInitData.getMetaspaceGrowthLimit(),
+				sandboxInitData.getMaxClassCountPerClassLoader(),
+				new ClassLoaderRecycler.IdleState() {
+					@Override
+					public boolean isIdle() {
+						return Sandbox.this.isIdle();
+					}
+				});
+		resultBuffer = new CacheOutputStream(new OutputChunkPool(
+				OutputChunkPool.DEFAULT_CHUNK_SIZE,
+				sandboxInitData.isDirectOutputBuffer(),
+				OutputChunkPool.DEFAULT_MAX_POOLED_CHUNKS));
+		testDataCache = new TestDataCache(
+				sandboxInitData.getTestDataCacheBytes());
+		// 线程在设置权限之前就全部创建好，每执行完一个测试用例都清掉线程上的输入输出流，不留给下一个测试用例
+		WorkerCleaner workerCleaner = new WorkerCleaner() {
+			@Override
+			public void clean() {
+				resultBuffer.removeThreadBuffer();
+				systemThreadIn.removeAndCloseThreadIn();
+			}
+		};
+		workerPool = new WorkerPool("testCaseWorker",
+				sandboxInitData.getTestCaseWorkerCount(),
+				sandboxInitData.getTestCaseStackSize(), workerCleaner);
+		if (sandboxInitData.getCheckerClassRootPath() != null) {
+			checkerCache = new CheckerCache(
+					sandboxInitData.getCheckerClassRootPath());
+			checkerPool = new WorkerPool("checkerWorker",
+					sandboxInitData.getCheckerWorkerCount(), 0, workerCleaner);
+		}
+		metrics = new SandboxMetrics(classLoaderRecycler,
+				(ThreadPoolExecutor) problemThreadPool, workerPool);
+		try {
+			metrics.register();
+		} catch (Exception e) {
+			// 无法通过JMX获取指标，不影响METRICS请求
+			System.err.println("无法注册运行指标MBean：" + e.getMessage());
+		}
 		beginStartTime = System.currentTimeMillis();
 		// 重定向输出流
-		System.setOut(new PrintStream(resultBuffer));
+		System.setOut(new ThreadPrintStream(resultBuffer));
 		// 重定向输入流
 		System.setIn(systemThreadIn);
 	}
 
+	/**
+	 * 预热判题，让判题相关的类提前加载并被JIT编译
+	 * @param judgeCount 预热判题的次数
+	 */
+	private void warmUp(int judgeCount) {
+		long begin = System.currentTimeMillis();
+		try {
+			new WarmUpJudge(gson, resultBuffer, systemThreadIn, testDataCache,
+					workerPool, entryPointCache).run(judgeCount);
+		} catch (Exception e) {
+			// 预热失败不影响正常判题，只是第一道题会慢一点
+			System.err.println("预热判题失败：" + e.getMessage());
+		}
+		warmUpTime = System.currentTimeMillis() - begin;
+	}
+
+	/**
+	 * 创建线程工厂，线程出现未捕获的异常时，会反馈给外界
+	 * @param name 线程名前缀
+	 * @return 线程工厂
+	 */
+	private ThreadFactory createThreadFactory(final String name) {
+		return new ThreadFactory() {
+			private int threadCount = 0;
+
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread thread = new Thread(r);
+				thread.setName(name + " " + threadCount++);
+				thread.setUncaughtExceptionHandler(new UncaughtExceptionHandler() {
+
+					@Override
+					public void uncaughtException(Thread t, Throwable e) {
+						writeResponse(null,
+								CommunicationSignal.ResponseSignal.ERROR, null,
+								e.getMessage());
+					}
+				});
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * 占用一个空闲的判题槽位
+	 * @param runId 题目runId
+	 * @return 槽位下标，没有空闲槽位时返回-1
+	 */
+	private synchronized int occupySlot(String runId) {
+		for (int i = 0; i < slotRunIds.length; i++) {
+			if (slotRunIds[i] == null) {
+				// runId可能为null，这里用空串占位，保证槽位被占用
+				slotRunIds[i] = runId == null ? "" : runId;
+				busySlotCount++;
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * 释放判题槽位
+	 * @param slot 槽位下标
+	 */
+	private synchronized void releaseSlot(int slot) {
+		if (slot < 0 || slotRunIds[slot] == null) {
+			return;
+		}
+		slotRunIds[slot] = null;
+		busySlotCount--;
+		if (busySlotCount == 0) {
+			// 空闲时才回收旧的类加载器，避免影响判题
+			classLoaderRecycler.onIdle();
+		}
+	}
+
+	/**
+	 * 是否所有判题槽位都空闲，且没有排队的题目
+	 * @return 空闲时返回true
+	 */
+	private synchronized boolean isIdle() {
+		return busySlotCount == 0
+				&& ((ThreadPoolExecutor) problemThreadPool).getQueue()
+						.isEmpty();
+	}
+
+	/**
+	 * 是否所有判题槽位都被占用了
+	 * @return 没有空闲槽位时返回true
+	 */
+	private synchronized boolean isBusy() {
+		return busySlotCount >= slotRunIds.length;
+	}
+
 	/**
 	 * 系统服务函数
 	 */
 	private void service() {
 		try {
-			Scanner scanner = new Scanner(communicateSocket.getInputStream());
-			// 必须建立了连接和流之后，才能设置这里的权限
-			System.setSecurityManager(new SandboxSecurityManager());
-			String data = null;
-			while (scanner.hasNext()) {
-				// 每一次交流，都是一行一行的形式交流，即本次沟通内容发送完之后，发送方会在最后，加上一个"\n"，表示发送完了这条消息
-				data = scanner.nextLine();
-				Request request = gson.fromJson(data, Request.class);
+			// 根据外界发送的第一条消息确定协议：原有的JSON行协议，或者长度前缀的二进制帧协议
+			ProtocolCodec protocolCodec = ProtocolNegotiator.negotiate(
+					communicateSocket.getInputStream(),
+					communicateSocket.getOutputStream(), gson);
+			responseWriter.setProtocolCodec(protocolCodec);
+			// 设置权限之后，就无法再加载摘要算法了，所以先准备好
+			OutputComparator.prepare();
+			// 必须建立了连接和流之后，才能设置这里的权限。只检查字节码时不设置，执行时就没有权限检查的开销
+			if (!SecurityMode.BYTECODE.equals(sandboxInitData
+					.getSecurityMode())) {
+				System.setSecurityManager(new SandboxSecurityManager());
+			}
+			Request request = null;
+			while ((request = protocolCodec.readRequest()) != null) {
 				dispatchRequest(request);
 			}
-			scanner.close();
 		} catch (Exception e) {
 			writeResponse(null, CommunicationSignal.ResponseSignal.ERROR, null,
 					e.getMessage());
@@ -212,20 +384,20 @@ public class Sandbox {
 			feedbackSandboxStatusService(request.getSignalId());
 		} else if (CommunicationSignal.RequestSignal.REQUSET_JUDGED_PROBLEM
 				.equals(request.getCommand())) {
-			if (loadClassCount >= UPDATE_CLASSLOADER_GAP) {
-				loadClassCount = 0;
-				// 重置类加载器，使得原有已经加载进内存的过期的类，可以得以释放
-				sandboxClassLoader = new SandboxClassLoader(
-						sandboxInitData.getClassFileRootPath());
-				System.gc();
-			}
-			Future<List<ProblemResultItem>> processProblem = processProblem(request
-					.getData());
-			returnJudgedProblemResult(request.getSignalId(), processProblem);
-			loadClassCount++;
+			// 读请求的线程只负责提交，不等待判题，所以外界不需要等IDLE就可以继续发送请求，状态查询也不会排在判题后面
+			processProblem(request.getSignalId(), request.getData());
+		} else if (CommunicationSignal.RequestSignal.JUDGE_PROBLEM_BATCH
+				.equals(request.getCommand())) {
+			processProblemBatch(request.getSignalId(), request.getData());
 		} else if (CommunicationSignal.RequestSignal.IS_BUSY.equals(request
 				.getCommand())) {
 			checkBusy(request.getSignalId());
+		} else if (CommunicationSignal.RequestSignal.METRICS.equals(request
+				.getCommand())) {
+			writeResponse(request.getSignalId(),
+					CommunicationSignal.ResponseSignal.OK,
+					CommunicationSignal.RequestSignal.METRICS,
+					metrics.getSnapshot());
 		}
 	}
 
@@ -252,7 +424,42 @@ public class Sandbox {
 		SandBoxStatus sandBoxStatus = new SandBoxStatus();
 		sandBoxStatus.setPid(pid);
 		sandBoxStatus.setBeginStartTime(beginStartTime);
-		sandBoxStatus.setBusy(isBusy);
+		sandBoxStatus.setStartupTime(startupTime);
+		sandBoxStatus.setWarmUpTime(warmUpTime);
+		if (firstJudgeFinishTime >= 0) {
+			sandBoxStatus.setTimeToFirstJudge(firstJudgeFinishTime
+					- ManagementFactory.getRuntimeMXBean().getStartTime());
+		}
+		synchronized (this) {
+			sandBoxStatus.setBusy(busySlotCount >= slotRunIds.length);
+			sandBoxStatus.setSlotCount(slotRunIds.length);
+			sandBoxStatus.setBusySlotCount(busySlotCount);
+			sandBoxStatus.setSlotRunIds(new ArrayList<String>(Arrays
+					.asList(slotRunIds)));
+		}
+		sandBoxStatus.setInFlightJudgeCount(inFlightJudgeCount.get());
+		sandBoxStatus.setLoadedClassCount(classLoaderRecycler
+				.getLoadedClassCount());
+		sandBoxStatus.setMetaspaceUsed(classLoaderRecycler.getMetaspaceUsed());
+		sandBoxStatus.setClassLoaderRecycleCount(classLoaderRecycler
+				.getRecycleCount());
+		sandBoxStatus.setPendingClassLoaderCount(classLoaderRecycler
+				.getPendingClassLoaderCount());
+		sandBoxStatus.setUnloadedClassLoaderCount(classLoaderRecycler
+				.getUnloadedClassLoaderCount());
+		if (bytecodeVerifier != null) {
+			sandBoxStatus.setVerifiedBytecodeCount(bytecodeVerifier
+					.getVerifiedCount());
+			sandBoxStatus.setRejectedBytecodeCount(bytecodeVerifier
+					.getRejectedCount());
+		}
+		sandBoxStatus.setTestDataCacheHitCount(testDataCache.getHitCount());
+		sandBoxStatus.setTestDataCacheMissCount(testDataCache.getMissCount());
+		sandBoxStatus.setTestDataCacheEvictionCount(testDataCache
+				.getEvictionCount());
+		sandBoxStatus.setTestDataCacheFileCount(testDataCache
+				.getCachedFileCount());
+		sandBoxStatus.setTestDataCacheBytes(testDataCache.getCachedBytes());
 		// 由堆内存和非堆内存组成
 		long useMemory = systemMemoryBean.getHeapMemoryUsage().getUsed()
 				+ systemMemoryBean.getNonHeapMemoryUsage().getUsed();
@@ -262,119 +469,368 @@ public class Sandbox {
 				+ systemMemoryBean.getNonHeapMemoryUsage().getMax();
 		sandBoxStatus.setMaxMemory(maxMemory);
 		writeResponse(signalId, CommunicationSignal.ResponseSignal.OK,
-				CommunicationSignal.RequestSignal.SANDBOX_STATUS,
-				gson.toJson(sandBoxStatus));
+				CommunicationSignal.RequestSignal.SANDBOX_STATUS, sandBoxStatus);
 
 	}
 
 	/**
-	 * 进行项目处理
+	 * 进行项目处理，解析题目、加载入口类以及判题都在判题线程中进行，判完后由判题线程直接返回结果
+	 * @param signalId 信号，结果通过signalId与请求对应上
 	 * @param problemJson 题目内容的JSON格式
-	 * @return 题目处理结果
 	 */
-	private Future<List<ProblemResultItem>> processProblem(String problemJson) {
-		Problem problem = gson.fromJson(problemJson, Problem.class);
+	private void processProblem(final String signalId, final String problemJson) {
+		inFlightJudgeCount.incrementAndGet();
+		metrics.recordReceived();
+		final long receiveTime = System.nanoTime();
 		try {
-			Class<?> mainClass = sandboxClassLoader.loadSandboxClass(problem
-					.getClassFileName());
-			Method mainMethod = mainClass.getMethod("main", String[].class);
-			if (!Modifier.isStatic(mainMethod.getModifiers()))
-				throw new Exception("main方法不是静态方法");
-
-			mainMethod.setAccessible(true);
-			problemCallable = new ProblemCallable(mainMethod, problem,
-					resultBuffer, systemThreadIn);
-			Future<List<ProblemResultItem>> submit = problemThreadPool
-					.submit(problemCallable);
-			isBusy = true;
-			mainClass = null;
-			return submit;
-		} catch (ClassNotFoundException e) {
-			writeResponse(null, CommunicationSignal.ResponseSignal.ERROR, null,
+			problemThreadPool.execute(new Runnable() {
+				@Override
+				public void run() {
+					metrics.recordQueueWait(System.nanoTime() - receiveTime);
+					try {
+						long beginTime = System.nanoTime();
+						Problem problem = gson.fromJson(problemJson,
+								Problem.class);
+						metrics.recordParse(System.nanoTime() - beginTime);
+						ProblemResult problemResult = judgeProblem(
+								signalId,
+								CommunicationSignal.RequestSignal.REQUSET_JUDGED_PROBLEM,
+								problem);
+						if (firstJudgeFinishTime < 0) {
+							firstJudgeFinishTime = System.currentTimeMillis();
+						}
+						long writeTime = System.nanoTime();
+						writeResponse(
+								signalId,
+								CommunicationSignal.ResponseSignal.OK,
+								CommunicationSignal.RequestSignal.REQUSET_JUDGED_PROBLEM,
+								problemResult);
+						long finishTime = System.nanoTime();
+						metrics.recordResponseWrite(finishTime - writeTime);
+						metrics.recordCompleted(finishTime - receiveTime);
+					} catch (Exception e) {
+						metrics.recordFailed();
+						writeResponse(
+								signalId,
+								CommunicationSignal.ResponseSignal.ERROR,
+								CommunicationSignal.RequestSignal.REQUSET_JUDGED_PROBLEM,
+								e.getMessage());
+					} finally {
+						inFlightJudgeCount.decrementAndGet();
+					}
+					// 通知对方，主动告诉对方，自己已经有空闲的槽位了，已经准备好下一次判题
+					writeResponse(null,
+							CommunicationSignal.ResponseSignal.IDLE, null,
+							null);
+				}
+			});
+		} catch (RuntimeException e) {
+			inFlightJudgeCount.decrementAndGet();
+			metrics.recordFailed();
+			writeResponse(signalId, CommunicationSignal.ResponseSignal.ERROR,
+					CommunicationSignal.RequestSignal.REQUSET_JUDGED_PROBLEM,
 					e.getMessage());
-		} catch (Exception e) {
-			writeResponse(null, CommunicationSignal.ResponseSignal.ERROR, null,
+		}
+	}
+
+	/**
+	 * 批量判题，整个请求只解析一次JSON，各道题在判题线程池中排队，与单独提交的题目一样占用判题槽位。
+	 * 每道题判完就以BATCH_RESULT返回结果，判题失败的原因也放在结果中；全部判完后再以OK返回汇总，
+	 * 最后只发送一次IDLE，外界不需要每道题都来回一次，也不需要在中间查询是否繁忙
+	 * @param signalId 信号，各道题的结果以及汇总都通过它与请求对应上
+	 * @param batchJson 题目列表的JSON格式
+	 */
+	private void processProblemBatch(String signalId, String batchJson) {
+		long beginTime = System.nanoTime();
+		Problem[] problems;
+		try {
+			problems = gson.fromJson(batchJson, Problem[].class);
+		} catch (RuntimeException e) {
+			writeResponse(signalId, CommunicationSignal.ResponseSignal.ERROR,
+					CommunicationSignal.RequestSignal.JUDGE_PROBLEM_BATCH,
 					e.getMessage());
+			return;
+		}
+		if (problems == null) {
+			problems = new Problem[0];
 		}
-		return null;
+		metrics.recordParse(System.nanoTime() - beginTime);
+		// 使用相同测试数据的题目（如同一道题的重判）挨着判，测试数据缓存的命中率更高
+		Arrays.sort(problems, new Comparator<Problem>() {
+			@Override
+			public int compare(Problem o1, Problem o2) {
+				return getFirstInputPath(o1).compareTo(getFirstInputPath(o2));
+			}
+		});
+		ProblemBatch batch = new ProblemBatch(signalId, problems.length);
+		if (problems.length == 0) {
+			batch.finish();
+			return;
+		}
+		for (Problem problem : problems) {
+			judgeBatchProblem(batch, problem);
+		}
+	}
+
+	private static String getFirstInputPath(Problem problem) {
+		if (problem == null || problem.getInputDataFilePathList() == null
+				|| problem.getInputDataFilePathList().isEmpty()) {
+			return "";
+		}
+		String path = problem.getInputDataFilePathList().get(0);
+		return path == null ? "" : path;
 	}
 
 	/**
-	 * 检查沙箱是否正忙
-	 * @param signalId 信号量
+	 * 把批量判题中的一道题提交到判题线程池
+	 * @param batch 批量判题请求
+	 * @param problem 题目
 	 */
-	private void checkBusy(String signalId) {
-		String responseCommand = null;
+	private void judgeBatchProblem(final ProblemBatch batch,
+			final Problem problem) {
+		inFlightJudgeCount.incrementAndGet();
+		metrics.recordReceived();
+		final long receiveTime = System.nanoTime();
+		try {
+			problemThreadPool.execute(new Runnable() {
+				@Override
+				public void run() {
+					// 无论判题出现什么问题，这道题都要算作已经结束，否则批量判题的汇总结果永远不会返回
+					boolean failed = true;
+					try {
+						metrics.recordQueueWait(System.nanoTime() - receiveTime);
+						ProblemResult problemResult;
+						try {
+							problemResult = judgeProblem(batch.signalId,
+									CommunicationSignal.RequestSignal.JUDGE_PROBLEM_BATCH,
+									problem);
+							failed = false;
+							if (firstJudgeFinishTime < 0) {
+								firstJudgeFinishTime = System.currentTimeMillis();
+							}
+						} catch (Throwable e) {
+							metrics.recordFailed();
+							problemResult = createFailedResult(problem,
+									e.getMessage());
+						}
+						long writeTime = System.nanoTime();
+						writeResponse(batch.signalId,
+								CommunicationSignal.ResponseSignal.BATCH_RESULT,
+								CommunicationSignal.RequestSignal.JUDGE_PROBLEM_BATCH,
+								problemResult);
+						if (!failed) {
+							long finishTime = System.nanoTime();
+							metrics.recordResponseWrite(finishTime - writeTime);
+							metrics.recordCompleted(finishTime - receiveTime);
+						}
+					} finally {
+						inFlightJudgeCount.decrementAndGet();
+						batch.onProblemFinished(failed);
+					}
+				}
+			});
+		} catch (RuntimeException e) {
+			inFlightJudgeCount.decrementAndGet();
+			metrics.recordFailed();
+			writeResponse(batch.signalId,
+					CommunicationSignal.ResponseSignal.BATCH_RESULT,
+					CommunicationSignal.RequestSignal.JUDGE_PROBLEM_BATCH,
+					createFailedResult(problem, e.getMessage()));
+			batch.onProblemFinished(true);
+		}
+	}
 
-		if (isBusy) {
-			responseCommand = CommunicationSignal.ResponseSignal.YES;
-		} else {
-			responseCommand = CommunicationSignal.ResponseSignal.NO;
+	/**
+	 * 创建批量判题中判题失败的题目的结果
+	 * @param problem 题目
+	 * @param errorMessage 失败的原因
+	 * @return 判题结果
+	 */
+	private ProblemResult createFailedResult(Problem problem,
+			String errorMessage) {
+		ProblemResult problemResult = new ProblemResult();
+		if (problem != null) {
+			problemResult.setRunId(problem.getRunId());
+			if (problem.getInputDataFilePathList() != null) {
+				problemResult.setTestCount(problem.getInputDataFilePathList()
+						.size());
+			}
 		}
+		problemResult.setErrorMessage(errorMessage == null ? "判题失败"
+				: errorMessage);
+		return problemResult;
+	}
 
-		writeResponse(signalId, responseCommand,
-				CommunicationSignal.RequestSignal.IS_BUSY, null);
+	/**
+	 * 判一道题
+	 * @param signalId 信号，逐个返回测试用例结果时使用
+	 * @param requestCommand 判题请求的命令，逐个返回测试用例结果时使用
+	 * @param problem 题目
+	 * @return 题目处理结果，逐个返回测试用例结果时，只包含汇总信息
+	 * @throws Exception 题目内容有问题或者入口类无法加载
+	 */
+	private ProblemResult judgeProblem(String signalId, String requestCommand,
+			Problem problem) throws Exception {
+		if (problem == null) {
+			throw new Exception("题目内容为空");
+		}
+		if (problem.getInputDataFilePathList() == null) {
+			throw new Exception("测试数据路径为空");
+		}
+		long loadBeginTime = System.nanoTime();
+		Class<?> mainClass = loadMainClass(problem);
+		EntryPoint entryPoint = entryPointCache.get(mainClass,
+				problem.getEntryMethod());
+		metrics.recordClassLoad(System.nanoTime() - loadBeginTime);
+		// 每个判题请求都有自己的ProblemCallable，输入输出流本身是按线程区分的，所以多个题目同时判也不会相互干扰
+		ProblemCallable problemCallable = new ProblemCallable(entryPoint,
+				problem, resultBuffer, systemThreadIn, testDataCache,
+				workerPool);
+		if (problem.getCheckerClassName() != null) {
+			problemCallable.setChecker(loadChecker(problem), checkerPool);
+		}
+		if (problem.isStreamResult()) {
+			problemCallable
+					.setResultItemListener(createResultItemListener(signalId,
+							requestCommand, problem));
+		}
+		int slot = occupySlot(problem.getRunId());
+		try {
+			ProblemResult problemResult = new ProblemResult();
+			problemResult.setRunId(problem.getRunId());
+			long executeBeginTime = System.nanoTime();
+			problemResult.setResultItems(problemCallable.call());
+			metrics.recordExecute(System.nanoTime() - executeBeginTime);
+			// 逐个返回时，测试用例已经在回调中记录过了
+			for (ProblemResultItem item : problemResult.getResultItems()) {
+				metrics.recordTestCase(item);
+			}
+			problemResult.setTestCount(problem.getInputDataFilePathList()
+					.size());
+			return problemResult;
+		} finally {
+			releaseSlot(slot);
+		}
 	}
 
 	/**
-	 * 返回题目运行结果
+	 * 创建逐个返回测试用例结果的回调，每个测试用例的结果单独作为一个RESULT_ITEM回复，带上runId以及测试用例下标
 	 * @param signalId 信号
-	 * @param processProblem 题目运行结果
+	 * @param requestCommand 判题请求的命令
+	 * @param problem 题目
+	 * @return 回调
 	 */
-	private void returnJudgedProblemResult(final String signalId,
-			final Future<List<ProblemResultItem>> processProblem) {
-		problemResultThreadPool.execute(new Runnable() {
+	private ProblemResultItemListener createResultItemListener(
+			final String signalId, final String requestCommand,
+			final Problem problem) {
+		return new ProblemResultItemListener() {
 			@Override
-			public void run() {
-				if (processProblem != null) {
-					try {
-						List<ProblemResultItem> resultItems = processProblem
-								.get();
-						Problem problem = problemCallable.getProblem();
-						ProblemResult problemResult = new ProblemResult();
-						problemResult.setRunId(problem.getRunId());
-						problemResult.setResultItems(resultItems);
+			public void onResultItem(ProblemResultItem item) {
+				metrics.recordTestCase(item);
+				ProblemResult problemResult = new ProblemResult();
+				problemResult.setRunId(problem.getRunId());
+				problemResult.getResultItems().add(item);
+				problemResult.setTestCount(problem.getInputDataFilePathList()
+						.size());
+				writeResponse(signalId,
+						CommunicationSignal.ResponseSignal.RESULT_ITEM,
+						requestCommand, problemResult);
+			}
+		};
+	}
 
-						writeResponse(
-								signalId,
-								CommunicationSignal.ResponseSignal.OK,
-								CommunicationSignal.RequestSignal.REQUSET_JUDGED_PROBLEM,
-								gson.toJson(problemResult));
-						isBusy = false;
-						problemCallable = null;
+	/**
+	 * 获取题目使用的答案检查器
+	 * @param problem 题目
+	 * @return 答案检查器
+	 * @throws Exception 没有配置答案检查器目录，或者找不到答案检查器
+	 */
+	private Class<? extends Checker> loadChecker(Problem problem)
+			throws Exception {
+		if (checkerCache == null) {
+			throw new Exception("沙箱没有配置答案检查器目录，无法使用答案检查器");
+		}
+		return checkerCache.get(problem.getCheckerClassName());
+	}
 
-						// 通知对方，主动告诉对方，自己已经空闲了，已经准备好下一次判题
-						writeResponse(null,
-								CommunicationSignal.ResponseSignal.IDLE, null,
-								null);
-					} catch (Exception e) {
-						writeResponse(null,
-								CommunicationSignal.ResponseSignal.ERROR, null,
-								e.getMessage());
-					}
-				}
+	/**
+	 * 加载题目的入口类
+	 * @param problem 题目
+	 * @return 入口类
+	 * @throws ClassNotFoundException 找不到类或者字节码有问题
+	 */
+	private Class<?> loadMainClass(Problem problem)
+			throws ClassNotFoundException {
+		if (problem.getJarFilePath() != null) {
+			// jar包中的类可能与其他提交的类重名，所以每个jar包提交单独使用一个类加载器，判完题后就可以被回收
+			SandboxClassLoader jarClassLoader = new SandboxClassLoader(
+					sandboxInitData.getClassFileRootPath(),
+					problem.getJarFilePath(), bytecodeVerifier);
+			classLoaderRecycler.retire(jarClassLoader, false);
+			return jarClassLoader.loadSandboxClass(problem.getClassFileName());
+		}
+		SandboxClassLoader classLoader;
+		synchronized (classLoaderLock) {
+			if (classLoaderRecycler.shouldRecycle(sandboxClassLoader)) {
+				// 重置类加载器，使得原有已经加载进内存的过期的类，可以得以释放，回收会在空闲时进行
+				renewSandboxClassLoader();
+			} else if (sandboxClassLoader.isOutdated(problem
+					.getClassFileName())) {
+				// class文件已经被替换了（如重新编译后重判），已经加载的旧类无法替换，只能换一个新的类加载器
+				renewSandboxClassLoader();
 			}
-		});
+			classLoader = sandboxClassLoader;
+		}
+		// 同一个类加载器对同一个类的加载本身是同步的，不同的类可以同时加载
+		return classLoader.loadSandboxClass(problem.getClassFileName());
+	}
+
+	/**
+	 * 换一个新的类加载器，旧的类加载器交给classLoaderRecycler跟踪回收
+	 */
+	private void renewSandboxClassLoader() {
+		classLoaderRecycler.retire(sandboxClassLoader, true);
+		sandboxClassLoader = new SandboxClassLoader(
+				sandboxInitData.getClassFileRootPath(), null, bytecodeVerifier);
 	}
 
 	/**
-	 * 发送回复
+	 * 检查沙箱是否正忙
+	 * @param signalId 信号量
+	 */
+	private void checkBusy(String signalId) {
+		String responseCommand = null;
+
+		if (isBusy()) {
+			responseCommand = CommunicationSignal.ResponseSignal.YES;
+		} else {
+			responseCommand = CommunicationSignal.ResponseSignal.NO;
+		}
+
+		writeResponse(signalId, responseCommand,
+				CommunicationSignal.RequestSignal.IS_BUSY, null);
+	}
+
+	/**
+	 * 发送回复，多个判题结果可能同时乱序返回，由responseWriter保证内容不会在socket上交错
 	 * @param signalId 信号
 	 * @param responseCommand 回复的命令
 	 * @param requestCommand 请求的命令
-	 * @param data 数据
+	 * @param data 数据，字符串直接发送，其他对象由通信协议负责编码
 	 */
 	private void writeResponse(String signalId, String responseCommand,
-			String requestCommand, String data) {
+			String requestCommand, Object data) {
 		try {
-			OutputStream outputStream = communicateSocket.getOutputStream();
 			Response response = new Response();
 			response.setSignalId(signalId);
 			response.setResponseCommand(responseCommand);
 			response.setRequestCommand(requestCommand);
-			response.setData(data);
-			outputStream
-					.write((gson.toJson(response) + "\n").getBytes("UTF-8"));
+			if (data instanceof String) {
+				response.setData((String) data);
+			} else {
+				response.setBody(data);
+			}
+			responseWriter.write(response);
 		} catch (IOException e) {
 			System.err.println(e.getMessage());
 			throw new RuntimeException("无法对外输出数据");
@@ -392,4 +848,47 @@ public class Sandbox {
 		}
 		System.exit(ConstantParameter.EXIT_VALUE);
 	}
+
+	/**
+	 * 正在进行的批量判题请求，最后一道题判完时返回汇总结果
+	 */
+	private class ProblemBatch {
+		private final String signalId;
+		private final int problemCount;
+		private final AtomicInteger remainingCount;
+		private final AtomicInteger failedCount = new AtomicInteger();
+
+		private ProblemBatch(String signalId, int problemCount) {
+			this.signalId = signalId;
+			this.problemCount = problemCount;
+			remainingCount = new AtomicInteger(problemCount);
+		}
+
+		/**
+		 * 一道题判完，并且结果已经返回了
+		 * @param failed 是否判题失败
+		 */
+		private void onProblemFinished(boolean failed) {
+			if (failed) {
+				failedCount.incrementAndGet();
+			}
+			if (remainingCount.decrementAndGet() == 0) {
+				finish();
+			}
+		}
+
+		/**
+		 * 返回汇总结果，并通知对方已经有空闲的槽位了
+		 */
+		private void finish() {
+			ProblemBatchResult batchResult = new ProblemBatchResult();
+			batchResult.setProblemCount(problemCount);
+			batchResult.setFailedCount(failedCount.get());
+			writeResponse(signalId, CommunicationSignal.ResponseSignal.OK,
+					CommunicationSignal.RequestSignal.JUDGE_PROBLEM_BATCH,
+					batchResult);
+			writeResponse(null, CommunicationSignal.ResponseSignal.IDLE,
+					null, null);
+		}
+	}
 }
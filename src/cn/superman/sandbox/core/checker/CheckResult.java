@@ -0,0 +1,31 @@
+package cn.superman.sandbox.core.checker;
+
+/**
+ * 答案检查器的检查结果
+ */
+public class CheckResult {
+	private final boolean accepted;
+	// 返回给外界的说明，比如答案错在哪里，可以为null
+	private final String message;
+
+	public CheckResult(boolean accepted, String message) {
+		this.accepted = accepted;
+		this.message = message;
+	}
+
+	public static CheckResult accepted() {
+		return new CheckResult(true, null);
+	}
+
+	public static CheckResult wrongAnswer(String message) {
+		return new CheckResult(false, message);
+	}
+
+	public boolean isAccepted() {
+		return accepted;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+}
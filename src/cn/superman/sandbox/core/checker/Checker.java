@@ -0,0 +1,21 @@
+package cn.superman.sandbox.core.checker;
+
+import java.io.InputStream;
+
+/**
+ * 答案检查器（special judge），用于有多个正确答案的题目。由出题人实现，放在沙箱的答案检查器目录中，
+ * 需要有公开的无参构造方法。每检查一个测试用例都会创建一个新的实例，多个测试用例会同时检查，
+ * 所以实现类不要使用可变的静态变量
+ */
+public interface Checker {
+	/**
+	 * 检查代码的输出
+	 * @param input 测试数据
+	 * @param output 代码的输出
+	 * @param answer 标准答案，题目没有提供标准答案时为null
+	 * @return 检查结果
+	 * @throws Exception 检查器自身出错，测试用例会被判为SYSTEM_ERROR
+	 */
+	CheckResult check(InputStream input, InputStream output,
+			InputStream answer) throws Exception;
+}
@@ -0,0 +1,101 @@
+package cn.superman.sandbox.core.checker;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 加载并缓存答案检查器。检查器来自外界配置的答案检查器目录，而不是提交代码的目录，由出题人提供，是可信的，
+ * 所以不经过SandboxClassLoader，也不会随着提交代码的类加载器一起被回收。
+ * 每个检查器只加载一次，之后的提交直接使用；class文件被替换之后，用新的类加载器重新加载
+ */
+public class CheckerCache {
+	private final File rootDirectory;
+	private final URL rootUrl;
+	// 检查器类名 -> 已经加载的检查器
+	private final ConcurrentMap<String, CachedChecker> checkers = new ConcurrentHashMap<String, CachedChecker>();
+
+	/**
+	 * @param checkerClassRootPath 答案检查器目录，按包名对应的子目录存放class文件
+	 */
+	public CheckerCache(String checkerClassRootPath) {
+		rootDirectory = new File(checkerClassRootPath);
+		try {
+			rootUrl = rootDirectory.toURI().toURL();
+		} catch (MalformedURLException e) {
+			throw new IllegalArgumentException("答案检查器目录不正确："
+					+ checkerClassRootPath, e);
+		}
+	}
+
+	/**
+	 * 获取答案检查器，还没有加载或者class文件已经被替换时才会加载
+	 * @param className 检查器的完整类名
+	 * @return 检查器的类
+	 * @throws ClassNotFoundException 找不到检查器，或者检查器没有实现Checker接口
+	 */
+	public Class<? extends Checker> get(String className)
+			throws ClassNotFoundException {
+		long lastModified = getClassFile(className).lastModified();
+		CachedChecker cached = checkers.get(className);
+		if (cached != null && cached.lastModified == lastModified) {
+			return cached.checkerClass;
+		}
+		synchronized (this) {
+			cached = checkers.get(className);
+			if (cached != null && cached.lastModified == lastModified) {
+				return cached.checkerClass;
+			}
+			cached = new CachedChecker(load(className), lastModified);
+			checkers.put(className, cached);
+			return cached.checkerClass;
+		}
+	}
+
+	/**
+	 * 每次加载都使用新的类加载器，旧的检查器不再被使用后，连同它的类加载器一起被回收
+	 */
+	private Class<? extends Checker> load(String className)
+			throws ClassNotFoundException {
+		URLClassLoader classLoader = new URLClassLoader(new URL[] { rootUrl },
+				Checker.class.getClassLoader());
+		Class<?> loadedClass = classLoader.loadClass(className);
+		if (!Checker.class.isAssignableFrom(loadedClass)) {
+			throw new ClassNotFoundException(className + "没有实现"
+					+ Checker.class.getName());
+		}
+		try {
+			loadedClass.getConstructor();
+		} catch (NoSuchMethodException e) {
+			throw new ClassNotFoundException(className + "没有公开的无参构造方法", e);
+		}
+		return loadedClass.asSubclass(Checker.class);
+	}
+
+	private File getClassFile(String className) {
+		return new File(rootDirectory, className.replace('.',
+				File.separatorChar) + ".class");
+	}
+
+	/**
+	 * @return 已经加载的检查器数量
+	 */
+	public int getCheckerCount() {
+		return checkers.size();
+	}
+
+	private static class CachedChecker {
+		private final Class<? extends Checker> checkerClass;
+		// 加载时class文件的修改时间
+		private final long lastModified;
+
+		private CachedChecker(Class<? extends Checker> checkerClass,
+				long lastModified) {
+			this.checkerClass = checkerClass;
+			this.lastModified = lastModified;
+		}
+	}
+}
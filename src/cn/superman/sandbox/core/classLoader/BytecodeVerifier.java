@@ -0,0 +1,398 @@
+package cn.superman.sandbox.core.classLoader;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import cn.superman.sandbox.core.classLoader.ClassBytecodeCache.Bytecode;
+
+/**
+ * 在定义提交的类之前检查字节码，类引用了禁止使用的API（线程、进程、网络、写文件、反射等）时直接拒绝加载，
+ * 不需要SecurityManager在执行时检查每一次权限请求。
+ * 代码能调用的类、方法以及字段都必须出现在常量池中（lambda、方法引用、字符串拼接的引导方法也不例外），所以只需要扫描常量池，不需要分析方法体。
+ * 答案检查器以及沙箱自己的类不经过SandboxClassLoader，不受影响
+ */
+public class BytecodeVerifier {
+	// 最多记录多少份已经通过检查的字节码
+	private static final int MAX_VERIFIED_HASHES = 65536;
+	// 不允许使用的类，以/结尾的表示整个包，其余的包括它的内部类
+	private static final String[] DENIED_CLASSES = { "java/lang/Thread",
+			"java/lang/ThreadGroup", "java/lang/Process",
+			"java/lang/ProcessBuilder", "java/lang/ProcessHandle",
+			"java/lang/ClassLoader", "java/lang/SecurityManager",
+			"java/lang/Module", "java/lang/ModuleLayer",
+			"java/lang/ref/Cleaner", "java/lang/reflect/",
+			"java/lang/invoke/", "java/lang/management/",
+			"java/lang/instrument/", "java/io/FileOutputStream",
+			"java/io/FileWriter", "java/io/RandomAccessFile",
+			"java/io/FileDescriptor", "java/io/ObjectInputStream",
+			"java/net/", "java/nio/channels/", "java/nio/file/",
+			"java/util/Timer", "java/util/ServiceLoader",
+			"java/util/concurrent/Executors",
+			"java/util/concurrent/ThreadPoolExecutor",
+			"java/util/concurrent/ScheduledThreadPoolExecutor",
+			"java/util/concurrent/ForkJoinPool",
+			"java/util/concurrent/ForkJoinTask",
+			"java/util/concurrent/RecursiveAction",
+			"java/util/concurrent/RecursiveTask",
+			"java/util/concurrent/CountedCompleter",
+			"java/util/concurrent/CompletableFuture",
+			"java/util/concurrent/SubmissionPublisher", "java/util/logging/",
+			"java/util/prefs/", "java/security/AccessController",
+			"java/security/Policy", "java/security/Security", "java/rmi/",
+			"java/sql/", "java/beans/", "java/awt/", "java/applet/",
+			"javax/", "sun/", "com/sun/", "jdk/", "com/google/gson/",
+			"cn/superman/sandbox/" };
+	// DENIED_CLASSES中的例外：lambda、方法引用、字符串拼接以及序列化lambda编译出来的常量池会引用这些类
+	private static final String[] ALLOWED_CLASSES = {
+			"java/lang/reflect/Array", "java/lang/invoke/MethodHandles",
+			"java/lang/invoke/LambdaMetafactory",
+			"java/lang/invoke/StringConcatFactory",
+			"java/lang/invoke/SerializedLambda" };
+	// 不允许使用的方法或字段：所属的类（以/结尾的表示整个包，*表示任意类）、名字、描述符前缀（为null时表示任意描述符）
+	private static final String[][] DENIED_MEMBERS = {
+			{ "java/lang/System", "exit", null },
+			{ "java/lang/System", "setIn", null },
+			{ "java/lang/System", "setOut", null },
+			{ "java/lang/System", "setErr", null },
+			{ "java/lang/System", "setSecurityManager", null },
+			{ "java/lang/System", "setProperty", null },
+			{ "java/lang/System", "setProperties", null },
+			{ "java/lang/System", "clearProperty", null },
+			{ "java/lang/System", "load", null },
+			{ "java/lang/System", "loadLibrary", null },
+			{ "java/lang/System", "inheritedChannel", null },
+			{ "java/lang/Runtime", "exec", null },
+			{ "java/lang/Runtime", "exit", null },
+			{ "java/lang/Runtime", "halt", null },
+			{ "java/lang/Runtime", "load", null },
+			{ "java/lang/Runtime", "loadLibrary", null },
+			{ "java/lang/Runtime", "addShutdownHook", null },
+			{ "java/lang/Runtime", "removeShutdownHook", null },
+			// 通过反射访问系统类
+			{ "java/lang/Class", "forName", null },
+			{ "java/lang/Class", "newInstance", null },
+			{ "java/lang/Class", "getClassLoader", null },
+			{ "java/lang/Class", "getProtectionDomain", null },
+			{ "java/lang/Class", "getModule", null },
+			{ "java/lang/Class", "getMethod", null },
+			{ "java/lang/Class", "getMethods", null },
+			{ "java/lang/Class", "getField", null },
+			{ "java/lang/Class", "getFields", null },
+			{ "java/lang/Class", "getConstructor", null },
+			{ "java/lang/Class", "getConstructors", null },
+			{ "java/lang/Class", "getDeclaredMethod", null },
+			{ "java/lang/Class", "getDeclaredMethods", null },
+			{ "java/lang/Class", "getDeclaredField", null },
+			{ "java/lang/Class", "getDeclaredFields", null },
+			{ "java/lang/Class", "getDeclaredConstructor", null },
+			{ "java/lang/Class", "getDeclaredConstructors", null },
+			{ "java/lang/Class", "getEnclosingMethod", null },
+			{ "java/lang/Class", "getEnclosingConstructor", null },
+			{ "java/lang/Class", "getRecordComponents", null },
+			// MethodHandles只允许出现在lambda的常量池中，不允许查找方法
+			{ "java/lang/invoke/MethodHandles", null, null },
+			// 写文件，读文件是允许的
+			{ "java/io/File", "delete", null },
+			{ "java/io/File", "deleteOnExit", null },
+			{ "java/io/File", "createNewFile", null },
+			{ "java/io/File", "createTempFile", null },
+			{ "java/io/File", "mkdir", null },
+			{ "java/io/File", "mkdirs", null },
+			{ "java/io/File", "renameTo", null },
+			{ "java/io/File", "setReadOnly", null },
+			{ "java/io/File", "setReadable", null },
+			{ "java/io/File", "setWritable", null },
+			{ "java/io/File", "setExecutable", null },
+			{ "java/io/File", "setLastModified", null },
+			{ "java/io/PrintStream", "<init>", "(Ljava/lang/String;" },
+			{ "java/io/PrintStream", "<init>", "(Ljava/io/File;" },
+			{ "java/io/PrintWriter", "<init>", "(Ljava/lang/String;" },
+			{ "java/io/PrintWriter", "<init>", "(Ljava/io/File;" },
+			{ "java/util/Formatter", "<init>", "(Ljava/lang/String;" },
+			{ "java/util/Formatter", "<init>", "(Ljava/io/File;" },
+			// 并行流、并行的数组操作以及ConcurrentHashMap带并行阈值的批量操作会在公共线程池中执行，
+			// 不受看门狗控制，占用的CPU时间以及分配的内存也不会算在执行线程上
+			{ "java/util/stream/", "parallel", null },
+			{ "java/util/stream/StreamSupport", null, null },
+			{ "java/util/concurrent/ConcurrentHashMap", null, "(J" },
+			{ "*", "parallelStream", null },
+			{ "*", "parallelSort", null },
+			{ "*", "parallelSetAll", null },
+			{ "*", "parallelPrefix", null } };
+	// 不允许继承的类，DENIED_MEMBERS中按所属的类禁止的方法，通过子类调用时所属的类就变成了子类
+	private static final String[] DENIED_SUPER_CLASSES = { "java/io/File",
+			"java/util/concurrent/ConcurrentHashMap" };
+	private static final int ACC_STATIC = 0x0008;
+
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_FLOAT = 4;
+	private static final int CONSTANT_LONG = 5;
+	private static final int CONSTANT_DOUBLE = 6;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_STRING = 8;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_INTERFACE_METHODREF = 11;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+	private static final int CONSTANT_METHOD_HANDLE = 15;
+	private static final int CONSTANT_METHOD_TYPE = 16;
+	private static final int CONSTANT_DYNAMIC = 17;
+	private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+	private static final int CONSTANT_MODULE = 19;
+	private static final int CONSTANT_PACKAGE = 20;
+
+	// 已经通过检查的字节码哈希值，同一份字节码被新的类加载器重新加载时不需要再检查
+	private final LinkedHashMap<String, Boolean> verifiedHashes = new LinkedHashMap<String, Boolean>(
+			16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+			return size() > MAX_VERIFIED_HASHES;
+		}
+	};
+	private long verifiedCount = 0;
+	private long rejectedCount = 0;
+
+	/**
+	 * 检查字节码，通过检查的字节码会被记住
+	 * @param name 类名
+	 * @param bytecode 字节码
+	 * @throws VerifyError 引用了禁止使用的API，或者字节码格式不正确
+	 */
+	public void verify(String name, Bytecode bytecode) {
+		synchronized (verifiedHashes) {
+			if (verifiedHashes.containsKey(bytecode.getHash())) {
+				return;
+			}
+		}
+		String violation;
+		try {
+			violation = findViolation(bytecode.getBytes());
+		} catch (IOException e) {
+			violation = "无法解析的字节码";
+		} catch (RuntimeException e) {
+			// 常量池中的下标不正确
+			violation = "无法解析的字节码";
+		}
+		synchronized (verifiedHashes) {
+			if (violation != null) {
+				rejectedCount++;
+				throw new VerifyError(name + "使用了禁止使用的API：" + violation);
+			}
+			verifiedCount++;
+			verifiedHashes.put(bytecode.getHash(), Boolean.TRUE);
+		}
+	}
+
+	/**
+	 * 扫描常量池，找出第一个禁止使用的类或者方法
+	 * @return 禁止使用的类或者方法，没有时返回null
+	 */
+	private static String findViolation(byte[] classBytes) throws IOException {
+		DataInputStream input = new DataInputStream(new ByteArrayInputStream(
+				classBytes));
+		if (input.readInt() != 0xCAFEBABE) {
+			throw new IOException("不是class文件");
+		}
+		// 次版本号以及主版本号
+		input.readUnsignedShort();
+		input.readUnsignedShort();
+		int count = input.readUnsignedShort();
+		int[] tags = new int[count];
+		String[] utf8s = new String[count];
+		// 类、方法引用、名字和描述符中引用的常量下标
+		int[] firstIndexes = new int[count];
+		int[] secondIndexes = new int[count];
+		for (int i = 1; i < count; i++) {
+			int tag = input.readUnsignedByte();
+			tags[i] = tag;
+			switch (tag) {
+			case CONSTANT_UTF8:
+				utf8s[i] = input.readUTF();
+				break;
+			case CONSTANT_INTEGER:
+			case CONSTANT_FLOAT:
+				input.readInt();
+				break;
+			case CONSTANT_LONG:
+			case CONSTANT_DOUBLE:
+				input.readLong();
+				// 占用两个常量池位置
+				i++;
+				break;
+			case CONSTANT_CLASS:
+			case CONSTANT_STRING:
+			case CONSTANT_METHOD_TYPE:
+			case CONSTANT_MODULE:
+			case CONSTANT_PACKAGE:
+				firstIndexes[i] = input.readUnsignedShort();
+				break;
+			case CONSTANT_FIELDREF:
+			case CONSTANT_METHODREF:
+			case CONSTANT_INTERFACE_METHODREF:
+			case CONSTANT_NAME_AND_TYPE:
+			case CONSTANT_DYNAMIC:
+			case CONSTANT_INVOKE_DYNAMIC:
+				firstIndexes[i] = input.readUnsignedShort();
+				secondIndexes[i] = input.readUnsignedShort();
+				break;
+			case CONSTANT_METHOD_HANDLE:
+				input.readUnsignedByte();
+				firstIndexes[i] = input.readUnsignedShort();
+				break;
+			default:
+				throw new IOException("未知的常量类型：" + tag);
+			}
+		}
+
+		for (int i = 1; i < count; i++) {
+			String violation = null;
+			if (tags[i] == CONSTANT_CLASS) {
+				String className = elementClassName(utf8s[firstIndexes[i]]);
+				if (className != null && isDeniedClass(className)) {
+					violation = className;
+				}
+			} else if (tags[i] == CONSTANT_FIELDREF
+					|| tags[i] == CONSTANT_METHODREF
+					|| tags[i] == CONSTANT_INTERFACE_METHODREF) {
+				String owner = utf8s[firstIndexes[firstIndexes[i]]];
+				int nameAndType = secondIndexes[i];
+				String memberName = utf8s[firstIndexes[nameAndType]];
+				String descriptor = utf8s[secondIndexes[nameAndType]];
+				if (isDeniedMember(owner, memberName, descriptor)) {
+					violation = owner + "." + memberName;
+				}
+			}
+			if (violation != null) {
+				return violation.replace('/', '.');
+			}
+		}
+
+		// 访问标志以及类本身
+		input.readUnsignedShort();
+		input.readUnsignedShort();
+		int superClass = input.readUnsignedShort();
+		if (superClass != 0) {
+			String superClassName = utf8s[firstIndexes[superClass]];
+			for (String denied : DENIED_SUPER_CLASSES) {
+				if (denied.equals(superClassName)) {
+					return "继承" + superClassName.replace('/', '.');
+				}
+			}
+		}
+		// 接口以及字段
+		int interfaceCount = input.readUnsignedShort();
+		for (int i = 0; i < interfaceCount; i++) {
+			input.readUnsignedShort();
+		}
+		int fieldCount = input.readUnsignedShort();
+		for (int i = 0; i < fieldCount; i++) {
+			input.readUnsignedShort();
+			input.readUnsignedShort();
+			input.readUnsignedShort();
+			skipAttributes(input);
+		}
+		// finalize会在虚拟机的Finalizer线程中执行，不受看门狗控制
+		int methodCount = input.readUnsignedShort();
+		for (int i = 0; i < methodCount; i++) {
+			int accessFlags = input.readUnsignedShort();
+			String methodName = utf8s[input.readUnsignedShort()];
+			String descriptor = utf8s[input.readUnsignedShort()];
+			if ((accessFlags & ACC_STATIC) == 0
+					&& "finalize".equals(methodName)
+					&& "()V".equals(descriptor)) {
+				return "重写finalize";
+			}
+			skipAttributes(input);
+		}
+		return null;
+	}
+
+	private static void skipAttributes(DataInputStream input)
+			throws IOException {
+		int attributeCount = input.readUnsignedShort();
+		for (int i = 0; i < attributeCount; i++) {
+			input.readUnsignedShort();
+			int length = input.readInt();
+			if (input.skipBytes(length) != length) {
+				throw new IOException("class文件不完整");
+			}
+		}
+	}
+
+	/**
+	 * 数组类型取出元素的类名
+	 * @return 类名，基本类型的数组返回null
+	 */
+	private static String elementClassName(String className) {
+		if (!className.startsWith("[")) {
+			return className;
+		}
+		int begin = className.lastIndexOf('[') + 1;
+		if (className.charAt(begin) != 'L') {
+			return null;
+		}
+		return className.substring(begin + 1, className.length() - 1);
+	}
+
+	private static boolean isDeniedClass(String className) {
+		for (String allowed : ALLOWED_CLASSES) {
+			if (matchesClass(allowed, className)) {
+				return false;
+			}
+		}
+		for (String denied : DENIED_CLASSES) {
+			if (matchesClass(denied, className)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isDeniedMember(String owner, String memberName,
+			String descriptor) {
+		for (String[] denied : DENIED_MEMBERS) {
+			if ((denied[0].equals("*") || matchesClass(denied[0], owner))
+					&& (denied[1] == null || denied[1].equals(memberName))
+					&& (denied[2] == null || descriptor.startsWith(denied[2]))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param pattern 以/结尾时表示整个包，否则表示这个类以及它的内部类
+	 */
+	private static boolean matchesClass(String pattern, String className) {
+		if (pattern.endsWith("/")) {
+			return className.startsWith(pattern);
+		}
+		return className.equals(pattern)
+				|| (className.startsWith(pattern) && className.charAt(pattern
+						.length()) == '$');
+	}
+
+	/**
+	 * @return 通过检查的次数，不包括已经记住的字节码
+	 */
+	public long getVerifiedCount() {
+		synchronized (verifiedHashes) {
+			return verifiedCount;
+		}
+	}
+
+	/**
+	 * @return 被拒绝加载的次数
+	 */
+	public long getRejectedCount() {
+		synchronized (verifiedHashes) {
+			return rejectedCount;
+		}
+	}
+}
@@ -0,0 +1,213 @@
+package cn.superman.sandbox.core.classLoader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+/**
+ * 字节码缓存，字节码按内容的哈希值缓存，同一份字节码只保存一份。
+ * 另外记录每个文件（以路径、修改时间和大小区分）对应的哈希值，重判或者重复加载同一个类时，只需要查看文件信息，不需要再读取文件
+ */
+public class ClassBytecodeCache {
+	// 默认缓存的字节码总量上限
+	public static final long DEFAULT_MAX_CACHED_BYTES = 64L * 1024 * 1024;
+	// 最多记录多少个文件对应的哈希值
+	private static final int MAX_FILE_KEYS = 65536;
+	// 获取摘要算法需要加载安全提供者，沙箱设置了权限之后就没有权限加载了，所以事先创建好，之后通过克隆获取
+	private static final MessageDigest DIGEST_PROTOTYPE;
+	static {
+		try {
+			DIGEST_PROTOTYPE = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	private final long maxCachedBytes;
+	private long cachedBytes = 0;
+	// 文件 -> 字节码哈希值
+	private final LinkedHashMap<String, String> fileHashes = new LinkedHashMap<String, String>(
+			16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+			return size() > MAX_FILE_KEYS;
+		}
+	};
+	// 字节码哈希值 -> 字节码，按访问顺序排列，最久没有使用的在最前面
+	private final LinkedHashMap<String, byte[]> bytecodes = new LinkedHashMap<String, byte[]>(
+			16, 0.75f, true);
+	private long hitCount = 0;
+	private long missCount = 0;
+
+	public ClassBytecodeCache(long maxCachedBytes) {
+		this.maxCachedBytes = maxCachedBytes;
+	}
+
+	/**
+	 * 获取class文件中的字节码
+	 * @param classFile class文件
+	 * @return 字节码，文件不存在时返回null
+	 * @throws IOException 文件读取失败
+	 */
+	public Bytecode getFromFile(File classFile) throws IOException {
+		if (!classFile.isFile()) {
+			return null;
+		}
+		String fileKey = classFile.getAbsolutePath() + "|"
+				+ classFile.lastModified() + "|" + classFile.length();
+		Bytecode bytecode = getCached(fileKey);
+		if (bytecode != null) {
+			return bytecode;
+		}
+		// 一次性读取整个文件
+		return put(fileKey, Files.readAllBytes(classFile.toPath()));
+	}
+
+	/**
+	 * 获取jar包中的字节码
+	 * @param jarFile jar包
+	 * @param entryName class文件在jar包中的路径
+	 * @return 字节码，jar包或class文件不存在时返回null
+	 * @throws IOException 文件读取失败
+	 */
+	public Bytecode getFromJar(File jarFile, String entryName)
+			throws IOException {
+		if (!jarFile.isFile()) {
+			return null;
+		}
+		String fileKey = jarFile.getAbsolutePath() + "|"
+				+ jarFile.lastModified() + "|" + jarFile.length() + "!"
+				+ entryName;
+		Bytecode bytecode = getCached(fileKey);
+		if (bytecode != null) {
+			return bytecode;
+		}
+		JarFile jar = new JarFile(jarFile);
+		try {
+			ZipEntry entry = jar.getEntry(entryName);
+			if (entry == null) {
+				return null;
+			}
+			InputStream inputStream = jar.getInputStream(entry);
+			try {
+				return put(fileKey, readFully(inputStream, entry.getSize()));
+			} finally {
+				inputStream.close();
+			}
+		} finally {
+			jar.close();
+		}
+	}
+
+	private synchronized Bytecode getCached(String fileKey) {
+		String hash = fileHashes.get(fileKey);
+		if (hash != null) {
+			byte[] bytes = bytecodes.get(hash);
+			if (bytes != null) {
+				hitCount++;
+				return new Bytecode(hash, bytes);
+			}
+		}
+		missCount++;
+		return null;
+	}
+
+	private Bytecode put(String fileKey, byte[] bytes) {
+		String hash = hash(bytes);
+		synchronized (this) {
+			fileHashes.put(fileKey, hash);
+			byte[] cached = bytecodes.get(hash);
+			if (cached != null) {
+				// 内容一样的字节码只保存一份
+				return new Bytecode(hash, cached);
+			}
+			if (bytes.length <= maxCachedBytes) {
+				bytecodes.put(hash, bytes);
+				cachedBytes += bytes.length;
+				Iterator<byte[]> iterator = bytecodes.values().iterator();
+				while (cachedBytes > maxCachedBytes && iterator.hasNext()) {
+					byte[] eldest = iterator.next();
+					if (eldest == bytes) {
+						continue;
+					}
+					cachedBytes -= eldest.length;
+					iterator.remove();
+				}
+			}
+		}
+		return new Bytecode(hash, bytes);
+	}
+
+	private static byte[] readFully(InputStream inputStream, long size)
+			throws IOException {
+		byte[] bytes = new byte[size >= 0 ? (int) size : 8192];
+		int length = 0;
+		int count;
+		while ((count = inputStream.read(bytes, length, bytes.length
+				- length)) > 0) {
+			length += count;
+			if (length == bytes.length) {
+				if (size >= 0) {
+					break;
+				}
+				bytes = Arrays.copyOf(bytes, bytes.length * 2);
+			}
+		}
+		return length == bytes.length ? bytes : Arrays.copyOf(bytes, length);
+	}
+
+	private static String hash(byte[] bytes) {
+		MessageDigest digest;
+		try {
+			digest = (MessageDigest) DIGEST_PROTOTYPE.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new RuntimeException(e);
+		}
+		byte[] result = digest.digest(bytes);
+		StringBuilder builder = new StringBuilder(result.length * 2);
+		for (byte b : result) {
+			builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+			builder.append(Character.forDigit(b & 0xF, 16));
+		}
+		return builder.toString();
+	}
+
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * 字节码以及它的哈希值
+	 */
+	public static class Bytecode {
+		private final String hash;
+		private final byte[] bytes;
+
+		private Bytecode(String hash, byte[] bytes) {
+			this.hash = hash;
+			this.bytes = bytes;
+		}
+
+		public String getHash() {
+			return hash;
+		}
+
+		public byte[] getBytes() {
+			return bytes;
+		}
+	}
+}
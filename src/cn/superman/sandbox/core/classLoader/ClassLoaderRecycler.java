@@ -0,0 +1,189 @@
+package cn.superman.sandbox.core.classLoader;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 类加载器回收策略。根据元空间的实际增长以及类加载器已经定义的类数量，决定什么时候换一个新的类加载器，
+ * 使得旧的类加载器以及它加载的类可以被卸载。
+ * 旧的类加载器通过弱引用跟踪，确认它真的被回收了；需要主动进行垃圾回收时，只在沙箱空闲时在后台线程中进行，不会阻塞判题
+ */
+public class ClassLoaderRecycler {
+	// 默认的类加载器创建后元空间的增长上限
+	public static final long DEFAULT_METASPACE_GROWTH_LIMIT = 32L * 1024 * 1024;
+	// 默认的单个类加载器最多定义的类数量
+	public static final int DEFAULT_MAX_CLASS_COUNT = 1000;
+	// 两次主动垃圾回收之间的最小间隔（毫秒）
+	private static final long MIN_GC_INTERVAL = 5000;
+	private final long metaspaceGrowthLimit;
+	private final int maxClassCount;
+	private final IdleState idleState;
+	// 存放类元数据的内存池（元空间，或者老版本虚拟机的永久代），找不到时为null
+	private final MemoryPoolMXBean metaspacePool;
+	private final ClassLoadingMXBean classLoadingBean;
+	// 当前类加载器创建时元空间的使用量
+	private volatile long metaspaceBaseline;
+	private final ReferenceQueue<SandboxClassLoader> unloadedQueue = new ReferenceQueue<SandboxClassLoader>();
+	// 已经替换下来但还没有被回收的类加载器，需要持有弱引用本身，否则弱引用会先被回收掉
+	private final Set<Reference<SandboxClassLoader>> retiredLoaders = Collections
+			.synchronizedSet(new HashSet<Reference<SandboxClassLoader>>());
+	private final AtomicLong recycleCount = new AtomicLong();
+	private final AtomicLong unloadedCount = new AtomicLong();
+	private final AtomicBoolean collectScheduled = new AtomicBoolean();
+	private volatile long lastGcTime = 0;
+	private final ExecutorService collectThreadPool = Executors
+			.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r);
+					thread.setName("classLoaderRecycler");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	/**
+	 * 沙箱是否空闲
+	 */
+	public interface IdleState {
+		boolean isIdle();
+	}
+
+	/**
+	 * @param metaspaceGrowthLimit 类加载器创建后，元空间增长超过这个值（字节）就替换类加载器
+	 * @param maxClassCount 类加载器定义的类超过这个数量就替换类加载器
+	 * @param idleState 沙箱是否空闲
+	 */
+	public ClassLoaderRecycler(long metaspaceGrowthLimit, int maxClassCount,
+			IdleState idleState) {
+		this.metaspaceGrowthLimit = metaspaceGrowthLimit;
+		this.maxClassCount = maxClassCount;
+		this.idleState = idleState;
+		MemoryPoolMXBean pool = null;
+		for (MemoryPoolMXBean bean : ManagementFactory.getMemoryPoolMXBeans()) {
+			String name = bean.getName();
+			if (name.equals("Metaspace") || name.endsWith("Perm Gen")) {
+				pool = bean;
+				break;
+			}
+		}
+		metaspacePool = pool;
+		classLoadingBean = ManagementFactory.getClassLoadingMXBean();
+		metaspaceBaseline = getMetaspaceUsed();
+	}
+
+	/**
+	 * 判断是否需要替换当前的类加载器
+	 * @param classLoader 当前的类加载器
+	 * @return 需要替换时返回true
+	 */
+	public boolean shouldRecycle(SandboxClassLoader classLoader) {
+		if (classLoader.getDefinedClassCount() == 0) {
+			return false;
+		}
+		if (classLoader.getDefinedClassCount() >= maxClassCount) {
+			return true;
+		}
+		long metaspaceUsed = getMetaspaceUsed();
+		return metaspaceUsed >= 0
+				&& metaspaceUsed - metaspaceBaseline >= metaspaceGrowthLimit;
+	}
+
+	/**
+	 * 替换下来的类加载器交给这里跟踪，直到确认它被回收
+	 * @param classLoader 替换下来的类加载器
+	 * @param shared 是否是共享的类加载器，是的话算作一次回收，并重新记录元空间的使用量
+	 */
+	public void retire(SandboxClassLoader classLoader, boolean shared) {
+		pollUnloaded();
+		retiredLoaders.add(new WeakReference<SandboxClassLoader>(classLoader,
+				unloadedQueue));
+		if (shared) {
+			recycleCount.incrementAndGet();
+			metaspaceBaseline = getMetaspaceUsed();
+		}
+	}
+
+	/**
+	 * 沙箱空闲时调用，如果还有没被回收的类加载器，就在后台线程中进行一次垃圾回收
+	 */
+	public void onIdle() {
+		pollUnloaded();
+		if (retiredLoaders.isEmpty()
+				|| System.currentTimeMillis() - lastGcTime < MIN_GC_INTERVAL
+				|| !collectScheduled.compareAndSet(false, true)) {
+			return;
+		}
+		collectThreadPool.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					// 排队期间可能又开始判题了，这时就不回收了，等下次空闲
+					if (idleState.isIdle() && !retiredLoaders.isEmpty()) {
+						lastGcTime = System.currentTimeMillis();
+						System.gc();
+						pollUnloaded();
+					}
+				} finally {
+					collectScheduled.set(false);
+				}
+			}
+		});
+	}
+
+	/**
+	 * 统计已经被回收的类加载器
+	 */
+	private void pollUnloaded() {
+		Reference<? extends SandboxClassLoader> reference;
+		while ((reference = unloadedQueue.poll()) != null) {
+			if (retiredLoaders.remove(reference)) {
+				unloadedCount.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * @return 元空间的使用量（字节），找不到元空间时返回-1
+	 */
+	public long getMetaspaceUsed() {
+		if (metaspacePool == null) {
+			return -1;
+		}
+		return metaspacePool.getUsage().getUsed();
+	}
+
+	public int getLoadedClassCount() {
+		return classLoadingBean.getLoadedClassCount();
+	}
+
+	public long getUnloadedClassCount() {
+		return classLoadingBean.getUnloadedClassCount();
+	}
+
+	public long getRecycleCount() {
+		return recycleCount.get();
+	}
+
+	public long getUnloadedClassLoaderCount() {
+		pollUnloaded();
+		return unloadedCount.get();
+	}
+
+	public int getPendingClassLoaderCount() {
+		pollUnloaded();
+		return retiredLoaders.size();
+	}
+}
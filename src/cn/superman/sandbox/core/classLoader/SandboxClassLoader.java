@@ -1,41 +1,132 @@
 package cn.superman.sandbox.core.classLoader;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import cn.superman.sandbox.core.classLoader.ClassBytecodeCache.Bytecode;
+
+/**
+ * 加载提交的代码，类可以位于class文件根目录下（按包名对应的子目录存放），也可以位于提交的jar包中，
+ * 因此内部类、辅助类以及带包名的代码都可以正常加载
+ */
 public class SandboxClassLoader extends ClassLoader {
+	// 所有类加载器共享的字节码缓存
+	private static final ClassBytecodeCache bytecodeCache = new ClassBytecodeCache(
+			ClassBytecodeCache.DEFAULT_MAX_CACHED_BYTES);
 	private String classPath = null;
+	// 提交的jar包，可以为null
+	private File jarFile = null;
+	// 已经定义的类 -> 定义时字节码的哈希值
+	private Map<String, String> definedClassHashes = new ConcurrentHashMap<String, String>();
+	// 定义类之前检查字节码，为null时不检查
+	private BytecodeVerifier verifier = null;
 
 	public SandboxClassLoader(String classPath) {
+		this(classPath, null);
+	}
+
+	/**
+	 * @param classPath class文件根目录
+	 * @param jarFilePath 提交的jar包路径，为null时只从class文件根目录中加载
+	 */
+	public SandboxClassLoader(String classPath, String jarFilePath) {
+		this(classPath, jarFilePath, null);
+	}
+
+	/**
+	 * @param classPath class文件根目录
+	 * @param jarFilePath 提交的jar包路径，为null时只从class文件根目录中加载
+	 * @param verifier 字节码检查器，为null时不检查字节码
+	 */
+	public SandboxClassLoader(String classPath, String jarFilePath,
+			BytecodeVerifier verifier) {
 		super();
+		this.verifier = verifier;
 		this.classPath = classPath;
+		if (jarFilePath != null) {
+			this.jarFile = new File(jarFilePath);
+		}
 	}
 
 	@Override
 	protected Class<?> findClass(String name) throws ClassNotFoundException {
-		return loadSandboxClass(name);
+		Bytecode bytecode;
+		try {
+			bytecode = readBytecode(name);
+		} catch (IOException e) {
+			throw new ClassNotFoundException(name, e);
+		}
+		if (bytecode == null) {
+			throw new ClassNotFoundException(name);
+		}
+		if (verifier != null) {
+			verifier.verify(name, bytecode);
+		}
+		byte[] classByte = bytecode.getBytes();
+		Class<?> clazz = defineClass(name, classByte, 0, classByte.length);
+		definedClassHashes.put(name, bytecode.getHash());
+		return clazz;
 	}
 
+	/**
+	 * 加载提交的类，已经加载过的类直接返回，不需要重新读取和解析
+	 * @param name 类名
+	 * @return 类
+	 * @throws ClassNotFoundException 找不到类或者字节码有问题
+	 */
 	public Class<?> loadSandboxClass(String name) throws ClassNotFoundException {
-		String classFilePath = classPath + File.separator + name + ".class";
-		FileInputStream inputStream = null;
-		try {
-			File file = new File(classFilePath);
-			inputStream = new FileInputStream(file);
-			byte[] classByte = new byte[(int) file.length()];
-			inputStream.read(classByte);
-
-			return defineClass(name, classByte, 0, classByte.length);
-		} catch (Exception e) {
-			e.printStackTrace();
-		} finally {
+		synchronized (getClassLoadingLock(name)) {
+			Class<?> clazz = findLoadedClass(name);
+			if (clazz != null) {
+				return clazz;
+			}
 			try {
-				inputStream.close();
-			} catch (IOException e) {
+				return findClass(name);
+			} catch (LinkageError e) {
+				// 带上原因，字节码没有通过检查时，外界可以知道是使用了哪个API
+				throw new ClassNotFoundException(e.getMessage() != null ? e
+						.getMessage() : name, e);
 			}
 		}
+	}
+
+	/**
+	 * 检查已经加载的类，对应的class文件是否已经被替换了（比如重新编译后重判），被替换的话就需要用新的类加载器加载
+	 * @param name 类名
+	 * @return 类已经加载过，且现在的字节码与加载时不一样时返回true
+	 */
+	public boolean isOutdated(String name) {
+		String hash = definedClassHashes.get(name);
+		if (hash == null) {
+			return false;
+		}
+		try {
+			Bytecode bytecode = readBytecode(name);
+			return bytecode == null || !hash.equals(bytecode.getHash());
+		} catch (IOException e) {
+			return true;
+		}
+	}
 
-		return null;
+	/**
+	 * @return 这个类加载器已经定义的类的数量
+	 */
+	public int getDefinedClassCount() {
+		return definedClassHashes.size();
+	}
+
+	/**
+	 * 读取字节码，先从class文件根目录中查找，再从jar包中查找
+	 */
+	private Bytecode readBytecode(String name) throws IOException {
+		String relativePath = name.replace('.', '/') + ".class";
+		Bytecode bytecode = bytecodeCache.getFromFile(new File(classPath,
+				relativePath.replace('/', File.separatorChar)));
+		if (bytecode == null && jarFile != null) {
+			bytecode = bytecodeCache.getFromJar(jarFile, relativePath);
+		}
+		return bytecode;
 	}
 }
@@ -0,0 +1,34 @@
+package cn.superman.sandbox.core.entryPoint;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+
+/**
+ * 解析好的代码入口，不同的入口方法都被统一成(InputStream, PrintStream)void的方法句柄，执行时不需要再反射，也不需要分配参数数组
+ */
+public final class EntryPoint {
+	private final MethodHandle handle;
+	// 为true时代码从System.in读入、向System.out输出，需要把当前线程的输入输出重定向到测试数据以及输出缓存；
+	// 为false时代码直接使用传入的输入输出流
+	private final boolean standardStream;
+
+	EntryPoint(MethodHandle handle, boolean standardStream) {
+		this.handle = handle;
+		this.standardStream = standardStream;
+	}
+
+	/**
+	 * 执行代码，代码抛出的异常原样抛出，不会被包装
+	 * @param in 输入流，使用标准输入输出的入口会忽略它
+	 * @param out 输出流，使用标准输入输出的入口会忽略它
+	 * @throws Throwable 代码抛出的异常
+	 */
+	public void invoke(InputStream in, PrintStream out) throws Throwable {
+		handle.invokeExact(in, out);
+	}
+
+	public boolean isStandardStream() {
+		return standardStream;
+	}
+}
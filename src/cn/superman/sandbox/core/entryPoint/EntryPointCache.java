@@ -0,0 +1,114 @@
+package cn.superman.sandbox.core.entryPoint;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import cn.superman.sandbox.constant.EntryMethod;
+
+/**
+ * 缓存每个入口类的代码入口，同一个类只在第一次判题时反射查找入口方法，之后的提交以及重判直接使用。
+ * 缓存的入口保存在类自身上（ClassValue），类加载器被回收时随着类一起释放，不会阻止类的卸载
+ */
+public class EntryPointCache {
+	private static final MethodType ENTRY_TYPE = MethodType.methodType(
+			void.class, InputStream.class, PrintStream.class);
+	private static final String[] NO_ARGS = new String[0];
+	private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+	private final ClassValue<Resolution> mainEntryPoints = new ClassValue<Resolution>() {
+		@Override
+		protected Resolution computeValue(Class<?> type) {
+			try {
+				return new Resolution(resolveMain(type), null);
+			} catch (Exception e) {
+				return new Resolution(null, e.getMessage());
+			}
+		}
+	};
+	private final ClassValue<Resolution> solveEntryPoints = new ClassValue<Resolution>() {
+		@Override
+		protected Resolution computeValue(Class<?> type) {
+			try {
+				return new Resolution(resolveSolve(type), null);
+			} catch (Exception e) {
+				return new Resolution(null, e.getMessage());
+			}
+		}
+	};
+
+	/**
+	 * 获取入口类的代码入口，找不到入口方法的结果同样会被缓存
+	 * @param mainClass 入口类
+	 * @param entryMethod 入口方法，见EntryMethod，为空时使用main方法
+	 * @return 代码入口
+	 * @throws Exception 入口方法不存在或者不符合要求
+	 */
+	public EntryPoint get(Class<?> mainClass, String entryMethod)
+			throws Exception {
+		Resolution resolution;
+		if (entryMethod == null || EntryMethod.MAIN.equals(entryMethod)) {
+			resolution = mainEntryPoints.get(mainClass);
+		} else if (EntryMethod.SOLVE.equals(entryMethod)) {
+			resolution = solveEntryPoints.get(mainClass);
+		} else {
+			throw new Exception("不支持的入口方法：" + entryMethod);
+		}
+		if (resolution.entryPoint == null) {
+			throw new Exception(resolution.errorMessage);
+		}
+		return resolution.entryPoint;
+	}
+
+	/**
+	 * main方法的参数固定为空数组，并忽略传入的输入输出流
+	 */
+	private EntryPoint resolveMain(Class<?> type) throws Exception {
+		Method method = findStaticMethod(type, "main", String[].class);
+		MethodHandle handle = MethodHandles.insertArguments(
+				lookup.unreflect(method), 0, (Object) NO_ARGS);
+		handle = MethodHandles.dropArguments(handle, 0,
+				ENTRY_TYPE.parameterList());
+		return new EntryPoint(handle.asType(ENTRY_TYPE), true);
+	}
+
+	/**
+	 * solve方法的返回值会被忽略
+	 */
+	private EntryPoint resolveSolve(Class<?> type) throws Exception {
+		Method method = findStaticMethod(type, "solve",
+				ENTRY_TYPE.parameterArray());
+		return new EntryPoint(lookup.unreflect(method).asType(ENTRY_TYPE),
+				false);
+	}
+
+	private Method findStaticMethod(Class<?> type, String name,
+			Class<?>... parameterTypes) throws Exception {
+		Method method;
+		try {
+			method = type.getMethod(name, parameterTypes);
+		} catch (NoSuchMethodException e) {
+			throw new Exception("找不到" + name + "方法");
+		}
+		if (!Modifier.isStatic(method.getModifiers())) {
+			throw new Exception(name + "方法不是静态方法");
+		}
+		// 入口类本身可能不是public的
+		method.setAccessible(true);
+		return method;
+	}
+
+	private static class Resolution {
+		private final EntryPoint entryPoint;
+		// 找不到入口方法的原因
+		private final String errorMessage;
+
+		private Resolution(EntryPoint entryPoint, String errorMessage) {
+			this.entryPoint = entryPoint;
+			this.errorMessage = errorMessage;
+		}
+	}
+}
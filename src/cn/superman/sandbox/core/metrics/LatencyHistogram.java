@@ -0,0 +1,87 @@
+package cn.superman.sandbox.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import cn.superman.sandbox.dto.HistogramSnapshot;
+
+/**
+ * 按2的幂划分区间的耗时直方图，记录时只有几次原子操作，不需要加锁，可以在判题的路径上使用。
+ * 百分位数只精确到所在的区间，对于判断时间花在哪里已经足够
+ */
+public class LatencyHistogram {
+	// 第i个区间为[2^(i-1), 2^i)，long的范围内最多64个区间
+	private static final int BUCKET_COUNT = 64;
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * 记录一次耗时
+	 * @param nanos 耗时（毫微秒），小于0时按0处理
+	 */
+	public void record(long nanos) {
+		if (nanos < 0) {
+			nanos = 0;
+		}
+		buckets.incrementAndGet(BUCKET_COUNT - Long.numberOfLeadingZeros(nanos));
+		count.increment();
+		sum.add(nanos);
+		long current = max.get();
+		while (nanos > current && !max.compareAndSet(current, nanos)) {
+			current = max.get();
+		}
+	}
+
+	/**
+	 * @return 当前的统计结果，统计过程中仍然可以记录，结果不保证是同一时刻的
+	 */
+	public HistogramSnapshot snapshot() {
+		long[] counts = new long[BUCKET_COUNT];
+		int length = 0;
+		long total = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+			if (counts[i] > 0) {
+				length = i + 1;
+			}
+		}
+		long[] trimmed = new long[length];
+		System.arraycopy(counts, 0, trimmed, 0, length);
+		HistogramSnapshot snapshot = new HistogramSnapshot();
+		snapshot.setCount(total);
+		snapshot.setSum(sum.sum());
+		snapshot.setMax(max.get());
+		snapshot.setMean(total == 0 ? 0 : snapshot.getSum() / total);
+		snapshot.setP50(percentile(counts, total, 0.5, snapshot.getMax()));
+		snapshot.setP90(percentile(counts, total, 0.9, snapshot.getMax()));
+		snapshot.setP99(percentile(counts, total, 0.99, snapshot.getMax()));
+		snapshot.setP999(percentile(counts, total, 0.999, snapshot.getMax()));
+		snapshot.setBuckets(trimmed);
+		return snapshot;
+	}
+
+	/**
+	 * @return 百分位数所在区间的上界，不会超过最大值
+	 */
+	private static long percentile(long[] counts, long total, double quantile,
+			long max) {
+		if (total == 0) {
+			return 0;
+		}
+		long threshold = (long) Math.ceil(total * quantile);
+		long accumulated = 0;
+		for (int i = 0; i < counts.length; i++) {
+			accumulated += counts[i];
+			if (accumulated >= threshold) {
+				long upperBound = i == 0 ? 0 : (i == 63 ? Long.MAX_VALUE
+						: (1L << i) - 1);
+				return Math.min(upperBound, max);
+			}
+		}
+		return max;
+	}
+}
@@ -0,0 +1,178 @@
+package cn.superman.sandbox.core.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import cn.superman.sandbox.callable.ProblemCallable;
+import cn.superman.sandbox.core.classLoader.ClassLoaderRecycler;
+import cn.superman.sandbox.core.workerPool.WorkerPool;
+import cn.superman.sandbox.dto.ProblemResultItem;
+import cn.superman.sandbox.dto.SandboxMetricsSnapshot;
+
+/**
+ * 沙箱的运行指标。判题过程中只做计数以及直方图记录，都是不加锁的原子操作；
+ * 线程池、类加载器以及垃圾收集的情况只在获取指标时才去读取，不会给判题增加开销
+ */
+public class SandboxMetrics implements SandboxMetricsMXBean {
+	public static final String OBJECT_NAME = "cn.superman.sandbox:type=SandboxMetrics";
+	private final long startTime = System.currentTimeMillis();
+	private final ClassLoaderRecycler classLoaderRecycler;
+	private final ThreadPoolExecutor problemThreadPool;
+	private final WorkerPool workerPool;
+	private final LongAdder receivedJudgeCount = new LongAdder();
+	private final LongAdder completedJudgeCount = new LongAdder();
+	private final LongAdder failedJudgeCount = new LongAdder();
+	private final LongAdder testCaseCount = new LongAdder();
+	private final ConcurrentMap<String, LongAdder> verdictCounts = new ConcurrentHashMap<String, LongAdder>();
+	private final LatencyHistogram queueWaitLatency = new LatencyHistogram();
+	private final LatencyHistogram parseLatency = new LatencyHistogram();
+	private final LatencyHistogram classLoadLatency = new LatencyHistogram();
+	private final LatencyHistogram executeLatency = new LatencyHistogram();
+	private final LatencyHistogram responseWriteLatency = new LatencyHistogram();
+	private final LatencyHistogram judgeLatency = new LatencyHistogram();
+	private final LatencyHistogram testCaseCpuTime = new LatencyHistogram();
+	private final LatencyHistogram testCaseWallTime = new LatencyHistogram();
+	private final LatencyHistogram checkerTime = new LatencyHistogram();
+
+	public SandboxMetrics(ClassLoaderRecycler classLoaderRecycler,
+			ThreadPoolExecutor problemThreadPool, WorkerPool workerPool) {
+		this.classLoaderRecycler = classLoaderRecycler;
+		this.problemThreadPool = problemThreadPool;
+		this.workerPool = workerPool;
+	}
+
+	/**
+	 * 注册到虚拟机的MBeanServer，必须在设置权限之前调用。
+	 * 设置权限之后，外界通过JMX连接需要的权限都会被拒绝，所以沙箱的指标一般通过METRICS请求获取
+	 * @throws JMException 注册失败
+	 */
+	public void register() throws JMException {
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+				new ObjectName(OBJECT_NAME));
+	}
+
+	public void recordReceived() {
+		receivedJudgeCount.increment();
+	}
+
+	public void recordQueueWait(long nanos) {
+		queueWaitLatency.record(nanos);
+	}
+
+	public void recordParse(long nanos) {
+		parseLatency.record(nanos);
+	}
+
+	public void recordClassLoad(long nanos) {
+		classLoadLatency.record(nanos);
+	}
+
+	public void recordExecute(long nanos) {
+		executeLatency.record(nanos);
+	}
+
+	public void recordResponseWrite(long nanos) {
+		responseWriteLatency.record(nanos);
+	}
+
+	/**
+	 * 记录一个成功返回结果的判题请求
+	 * @param nanos 从收到请求到写出结果的耗时
+	 */
+	public void recordCompleted(long nanos) {
+		completedJudgeCount.increment();
+		judgeLatency.record(nanos);
+	}
+
+	public void recordFailed() {
+		failedJudgeCount.increment();
+	}
+
+	/**
+	 * 记录一个测试用例的结果
+	 * @param item 测试用例结果
+	 */
+	public void recordTestCase(ProblemResultItem item) {
+		testCaseCount.increment();
+		String verdict = String.valueOf(item.getVerdict());
+		LongAdder count = verdictCounts.get(verdict);
+		if (count == null) {
+			LongAdder newCount = new LongAdder();
+			count = verdictCounts.putIfAbsent(verdict, newCount);
+			if (count == null) {
+				count = newCount;
+			}
+		}
+		count.increment();
+		testCaseCpuTime.record(TimeUnit.MILLISECONDS.toNanos(item
+				.getUseTime()));
+		testCaseWallTime.record(TimeUnit.MILLISECONDS.toNanos(item
+				.getUseWallTime()));
+		if (item.getCheckerTime() >= 0) {
+			checkerTime.record(TimeUnit.MILLISECONDS.toNanos(item
+					.getCheckerTime()));
+		}
+	}
+
+	@Override
+	public SandboxMetricsSnapshot getSnapshot() {
+		SandboxMetricsSnapshot snapshot = new SandboxMetricsSnapshot();
+		snapshot.setUptime(System.currentTimeMillis() - startTime);
+		snapshot.setReceivedJudgeCount(receivedJudgeCount.sum());
+		snapshot.setCompletedJudgeCount(completedJudgeCount.sum());
+		snapshot.setFailedJudgeCount(failedJudgeCount.sum());
+		snapshot.setQueueWaitLatency(queueWaitLatency.snapshot());
+		snapshot.setParseLatency(parseLatency.snapshot());
+		snapshot.setClassLoadLatency(classLoadLatency.snapshot());
+		snapshot.setExecuteLatency(executeLatency.snapshot());
+		snapshot.setResponseWriteLatency(responseWriteLatency.snapshot());
+		snapshot.setJudgeLatency(judgeLatency.snapshot());
+		snapshot.setTestCaseCount(testCaseCount.sum());
+		Map<String, Long> counts = new HashMap<String, Long>();
+		for (Map.Entry<String, LongAdder> entry : verdictCounts.entrySet()) {
+			counts.put(entry.getKey(), entry.getValue().sum());
+		}
+		snapshot.setVerdictCounts(counts);
+		snapshot.setTestCaseCpuTime(testCaseCpuTime.snapshot());
+		snapshot.setTestCaseWallTime(testCaseWallTime.snapshot());
+		snapshot.setCheckerTime(checkerTime.snapshot());
+		snapshot.setClassLoaderRecycleCount(classLoaderRecycler
+				.getRecycleCount());
+		snapshot.setPendingClassLoaderCount(classLoaderRecycler
+				.getPendingClassLoaderCount());
+		snapshot.setUnloadedClassLoaderCount(classLoaderRecycler
+				.getUnloadedClassLoaderCount());
+		snapshot.setProblemThreadPoolSize(problemThreadPool.getPoolSize());
+		snapshot.setProblemThreadPoolActiveCount(problemThreadPool
+				.getActiveCount());
+		snapshot.setProblemThreadPoolQueueSize(problemThreadPool.getQueue()
+				.size());
+		snapshot.setTestCaseWorkerCount(workerPool.getWorkerCount());
+		snapshot.setTestCaseWorkerActiveCount(workerPool.getActiveCount());
+		snapshot.setTestCaseQueueSize(workerPool.getQueueSize());
+		snapshot.setReplacedWorkerCount(workerPool.getReplacedCount());
+		snapshot.setWatchdogPendingCount(ProblemCallable
+				.getWatchdogPendingCount());
+		long gcCount = 0;
+		long gcTime = 0;
+		for (GarbageCollectorMXBean gcBean : ManagementFactory
+				.getGarbageCollectorMXBeans()) {
+			// 不支持统计的收集器返回-1
+			gcCount += Math.max(0, gcBean.getCollectionCount());
+			gcTime += Math.max(0, gcBean.getCollectionTime());
+		}
+		snapshot.setGcCount(gcCount);
+		snapshot.setGcTime(gcTime);
+		return snapshot;
+	}
+}
@@ -0,0 +1,13 @@
+package cn.superman.sandbox.core.metrics;
+
+import cn.superman.sandbox.dto.SandboxMetricsSnapshot;
+
+/**
+ * 沙箱运行指标的JMX接口，与METRICS请求返回的内容一致
+ */
+public interface SandboxMetricsMXBean {
+	/**
+	 * @return 当前的运行指标
+	 */
+	SandboxMetricsSnapshot getSnapshot();
+}
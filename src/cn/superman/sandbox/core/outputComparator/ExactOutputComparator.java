@@ -0,0 +1,59 @@
+package cn.superman.sandbox.core.outputComparator;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 逐字节比对，输出必须与标准答案完全一致
+ */
+public class ExactOutputComparator extends OutputComparator {
+	private byte[] expectedBuffer = new byte[8192];
+	private int expectedPos = 0;
+	private int expectedLimit = 0;
+
+	public ExactOutputComparator(InputStream expectedIn) {
+		super(expectedIn);
+	}
+
+	@Override
+	protected void compare(byte[] b, int off, int len) throws IOException {
+		int end = off + len;
+		while (off < end) {
+			if (expectedPos == expectedLimit && !fillExpected()) {
+				// 标准答案已经结束了，但还有输出
+				mismatchPosition = outputLength + len - (end - off);
+				return;
+			}
+			int count = Math.min(end - off, expectedLimit - expectedPos);
+			for (int i = 0; i < count; i++) {
+				if (b[off + i] != expectedBuffer[expectedPos + i]) {
+					mismatchPosition = outputLength + len - (end - off) + i;
+					return;
+				}
+			}
+			off += count;
+			expectedPos += count;
+		}
+	}
+
+	@Override
+	protected void compareRemaining() throws IOException {
+		// 输出已经结束了，但标准答案还有内容
+		if (expectedPos < expectedLimit || fillExpected()) {
+			mismatchPosition = outputLength;
+		}
+	}
+
+	private boolean fillExpected() throws IOException {
+		int count = expectedIn.read(expectedBuffer);
+		while (count == 0) {
+			count = expectedIn.read(expectedBuffer);
+		}
+		if (count < 0) {
+			return false;
+		}
+		expectedPos = 0;
+		expectedLimit = count;
+		return true;
+	}
+}
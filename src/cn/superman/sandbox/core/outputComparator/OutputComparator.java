@@ -0,0 +1,151 @@
+package cn.superman.sandbox.core.outputComparator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import cn.superman.sandbox.constant.CompareMode;
+
+/**
+ * 输出比对器，代码每输出一部分内容，就马上与标准答案进行比对，并不需要把整个输出缓存下来。
+ * 同时会计算输出内容的摘要，方便外界在不传输输出内容的情况下识别输出
+ */
+public abstract class OutputComparator {
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	// 获取摘要算法需要加载安全提供者，沙箱设置了权限之后就没有权限加载了，所以事先创建好，之后通过克隆获取
+	private static final MessageDigest DIGEST_PROTOTYPE;
+	static {
+		try {
+			DIGEST_PROTOTYPE = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	protected InputStream expectedIn;
+	// 已经比对过的输出字节数
+	protected long outputLength = 0;
+	// 第一个不同之处在输出中的位置，为-1时表示还没有发现不同
+	protected long mismatchPosition = -1;
+	private MessageDigest digest;
+	// 单字节输出时复用，避免每输出一个字节都要分配一次内存
+	private byte[] singleByte = new byte[1];
+
+	protected OutputComparator(InputStream expectedIn) {
+		this.expectedIn = expectedIn;
+		try {
+			digest = (MessageDigest) DIGEST_PROTOTYPE.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * 在沙箱设置权限之前调用，确保比对器需要的资源已经准备好
+	 */
+	public static void prepare() {
+		DIGEST_PROTOTYPE.reset();
+	}
+
+	/**
+	 * 根据比对方式创建比对器
+	 * @param compareMode 比对方式，为null时按完全一致比对
+	 * @param expectedIn 标准答案
+	 * @param epsilon 浮点数允许的误差，只有FLOAT_EPSILON方式才会用到
+	 * @return 比对器
+	 */
+	public static OutputComparator create(String compareMode,
+			InputStream expectedIn, double epsilon) {
+		if (compareMode == null || CompareMode.EXACT.equals(compareMode)) {
+			return new ExactOutputComparator(expectedIn);
+		} else if (CompareMode.IGNORE_WHITESPACE.equals(compareMode)) {
+			return new TokenOutputComparator(expectedIn, false, epsilon);
+		} else if (CompareMode.FLOAT_EPSILON.equals(compareMode)) {
+			return new TokenOutputComparator(expectedIn, true, epsilon);
+		}
+		throw new IllegalArgumentException("不支持的比对方式" + compareMode);
+	}
+
+	/**
+	 * 比对一段输出，发现不同时抛出OutputMismatchError，以便立即终止代码的执行
+	 * @param b 输出内容
+	 * @param off 起始位置
+	 * @param len 长度
+	 */
+	public void write(byte[] b, int off, int len) {
+		if (mismatchPosition >= 0) {
+			throw new OutputMismatchError(mismatchPosition);
+		}
+		digest.update(b, off, len);
+		try {
+			compare(b, off, len);
+		} catch (IOException e) {
+			throw new RuntimeException("无法读取标准答案", e);
+		}
+		outputLength += len;
+		if (mismatchPosition >= 0) {
+			throw new OutputMismatchError(mismatchPosition);
+		}
+	}
+
+	/**
+	 * 比对一个字节的输出
+	 * @param b 输出内容
+	 */
+	public void write(int b) {
+		singleByte[0] = (byte) b;
+		write(singleByte, 0, 1);
+	}
+
+	/**
+	 * 代码执行结束后调用，比对剩下的内容
+	 * @return 输出与标准答案一致时返回true
+	 */
+	public boolean finish() {
+		if (mismatchPosition < 0) {
+			try {
+				compareRemaining();
+			} catch (IOException e) {
+				throw new RuntimeException("无法读取标准答案", e);
+			}
+		}
+		return mismatchPosition < 0;
+	}
+
+	/**
+	 * 比对一段输出，发现不同时需要设置mismatchPosition
+	 */
+	protected abstract void compare(byte[] b, int off, int len)
+			throws IOException;
+
+	/**
+	 * 输出结束，比对剩下的内容，发现不同时需要设置mismatchPosition
+	 */
+	protected abstract void compareRemaining() throws IOException;
+
+	public long getMismatchPosition() {
+		return mismatchPosition;
+	}
+
+	/**
+	 * 获取已经比对过的输出内容的MD5摘要，发现不同后，只包含到发现不同为止的输出
+	 * @return 十六进制的摘要
+	 */
+	public String getDigest() {
+		byte[] bytes = digest.digest();
+		char[] chars = new char[bytes.length * 2];
+		for (int i = 0; i < bytes.length; i++) {
+			chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+			chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+		}
+		return new String(chars);
+	}
+
+	public void close() {
+		try {
+			expectedIn.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
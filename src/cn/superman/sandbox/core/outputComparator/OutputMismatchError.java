@@ -0,0 +1,13 @@
+package cn.superman.sandbox.core.outputComparator;
+
+/**
+ * 输出结果与标准答案不一致时抛出，用于立即终止正在执行的代码。
+ * 使用Error而不是Exception，是因为PrintStream会吞掉输出过程中的IOException
+ */
+public class OutputMismatchError extends Error {
+	private static final long serialVersionUID = 1L;
+
+	public OutputMismatchError(long position) {
+		super("答案错误，第一个不同之处位于输出的第" + position + "个字节");
+	}
+}
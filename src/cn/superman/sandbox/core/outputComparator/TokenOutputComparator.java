@@ -0,0 +1,126 @@
+package cn.superman.sandbox.core.outputComparator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * 忽略空白字符的比对，输出与标准答案都按空白字符分隔成一个个单词后逐个比较。
+ * 开启浮点数比较时，两边都是数字的单词，绝对误差或相对误差不超过epsilon即视为相同。
+ * 标准答案是逐字节读取的，传入的输入流需要自带缓冲
+ */
+public class TokenOutputComparator extends OutputComparator {
+	private boolean floatCompare;
+	private double epsilon;
+	// 当前正在读取的输出单词
+	private byte[] token = new byte[64];
+	private int tokenLength = 0;
+	// 当前输出单词在输出中的起始位置
+	private long tokenPosition = 0;
+	private byte[] expectedToken = new byte[64];
+	private int expectedTokenLength = 0;
+
+	public TokenOutputComparator(InputStream expectedIn, boolean floatCompare,
+			double epsilon) {
+		super(expectedIn);
+		this.floatCompare = floatCompare;
+		this.epsilon = epsilon;
+	}
+
+	@Override
+	protected void compare(byte[] b, int off, int len) throws IOException {
+		for (int i = 0; i < len; i++) {
+			byte c = b[off + i];
+			if (isWhitespace(c)) {
+				if (tokenLength > 0 && !compareToken()) {
+					return;
+				}
+			} else {
+				if (tokenLength == 0) {
+					tokenPosition = outputLength + i;
+				}
+				if (tokenLength == token.length) {
+					token = Arrays.copyOf(token, token.length * 2);
+				}
+				token[tokenLength++] = c;
+			}
+		}
+	}
+
+	@Override
+	protected void compareRemaining() throws IOException {
+		if (tokenLength > 0 && !compareToken()) {
+			return;
+		}
+		// 输出已经结束了，但标准答案还有内容
+		if (readExpectedToken()) {
+			mismatchPosition = outputLength;
+		}
+	}
+
+	/**
+	 * 比较当前的输出单词与标准答案的下一个单词
+	 * @return 相同时返回true
+	 */
+	private boolean compareToken() throws IOException {
+		boolean same = readExpectedToken() && isSameToken();
+		if (!same) {
+			mismatchPosition = tokenPosition;
+		}
+		tokenLength = 0;
+		return same;
+	}
+
+	private boolean isSameToken() {
+		if (tokenLength == expectedTokenLength) {
+			boolean same = true;
+			for (int i = 0; i < tokenLength && same; i++) {
+				same = token[i] == expectedToken[i];
+			}
+			if (same) {
+				return true;
+			}
+		}
+		if (!floatCompare) {
+			return false;
+		}
+		try {
+			double actual = Double.parseDouble(new String(token, 0,
+					tokenLength, "ISO-8859-1"));
+			double expected = Double.parseDouble(new String(expectedToken, 0,
+					expectedTokenLength, "ISO-8859-1"));
+			double diff = Math.abs(actual - expected);
+			return diff <= epsilon
+					|| diff <= epsilon * Math.abs(expected);
+		} catch (Exception e) {
+			// 不是数字
+			return false;
+		}
+	}
+
+	/**
+	 * 读取标准答案的下一个单词
+	 * @return 标准答案已经没有单词时返回false
+	 */
+	private boolean readExpectedToken() throws IOException {
+		expectedTokenLength = 0;
+		int c = expectedIn.read();
+		while (c >= 0 && isWhitespace((byte) c)) {
+			c = expectedIn.read();
+		}
+		while (c >= 0 && !isWhitespace((byte) c)) {
+			if (expectedTokenLength == expectedToken.length) {
+				expectedToken = Arrays.copyOf(expectedToken,
+						expectedToken.length * 2);
+			}
+			expectedToken[expectedTokenLength++] = (byte) c;
+			c = expectedIn.read();
+		}
+		return expectedTokenLength > 0;
+	}
+
+	private static boolean isWhitespace(byte c) {
+		return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f'
+				|| c == 0x0B;
+	}
+}
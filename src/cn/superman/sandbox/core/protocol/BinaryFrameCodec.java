@@ -0,0 +1,75 @@
+package cn.superman.sandbox.core.protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.google.gson.Gson;
+
+import cn.superman.sandbox.dto.ProblemResult;
+import cn.superman.sandbox.dto.Request;
+import cn.superman.sandbox.dto.Response;
+
+/**
+ * 长度前缀的二进制帧协议，每个帧由4个字节的长度以及紧随其后的内容组成，内容中可以包含任意字符（包括换行）。
+ * 判题结果使用紧凑的二进制编码，不需要先转成JSON字符串再嵌套到回复的JSON中
+ */
+public class BinaryFrameCodec implements ProtocolCodec {
+	private DataInputStream inputStream;
+	private Gson gson;
+	private int version;
+
+	public BinaryFrameCodec(InputStream inputStream, Gson gson, int version) {
+		this.inputStream = new DataInputStream(inputStream);
+		this.gson = gson;
+		this.version = version;
+	}
+
+	@Override
+	public Request readRequest() throws IOException {
+		byte[] frame = BinaryMessages.readFrame(inputStream);
+		if (frame == null) {
+			return null;
+		}
+		return BinaryMessages.decodeRequest(frame);
+	}
+
+	@Override
+	public byte[] encodeResponse(Response response) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		DataOutputStream out = new DataOutputStream(bytes);
+		// 先占4个字节的位置，写完内容之后再填上长度，避免内容被复制两次
+		out.writeInt(0);
+		Object body = response.getBody();
+		if (body instanceof ProblemResult) {
+			BinaryMessages.writeResponseHeader(out, response,
+					BinaryMessages.BODY_PROBLEM_RESULT);
+			BinaryMessages.writeProblemResult(out, (ProblemResult) body,
+					version);
+		} else {
+			String data = body != null ? gson.toJson(body) : response
+					.getData();
+			BinaryMessages.writeResponseHeader(out, response,
+					data == null ? BinaryMessages.BODY_NONE
+							: BinaryMessages.BODY_STRING);
+			if (data != null) {
+				BinaryMessages.writeString(out, data);
+			}
+		}
+		out.flush();
+		byte[] frame = bytes.toByteArray();
+		int length = frame.length - 4;
+		frame[0] = (byte) (length >>> 24);
+		frame[1] = (byte) (length >>> 16);
+		frame[2] = (byte) (length >>> 8);
+		frame[3] = (byte) length;
+		return frame;
+	}
+
+	@Override
+	public int getVersion() {
+		return version;
+	}
+}
@@ -0,0 +1,274 @@
+package cn.superman.sandbox.core.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import cn.superman.sandbox.dto.ProblemResult;
+import cn.superman.sandbox.dto.ProblemResultItem;
+import cn.superman.sandbox.dto.Request;
+import cn.superman.sandbox.dto.Response;
+
+/**
+ * 二进制帧协议的消息格式，沙箱和外界（如SandboxClient）共用。
+ * 字符串编码为4个字节的长度加UTF-8内容，长度为-1表示null；新增字段只能追加在末尾，并提升协议版本
+ */
+public final class BinaryMessages {
+	// 建立连接后，外界先发送魔数和自己支持的最高协议版本，沙箱回复魔数和双方都支持的协议版本
+	public static final byte[] MAGIC = { 'O', 'J', 'S', 'B' };
+	// 沙箱支持的最高协议版本，版本2在判题结果中追加了测试用例总数，在测试用例结果中追加了测试用例下标，
+	// 版本3在测试用例结果中追加了答案检查器的耗时，版本4在判题结果中追加了判题失败的原因
+	public static final int VERSION = 4;
+	// 单个帧的最大长度，防止错误的数据导致分配过大的内存
+	public static final int MAX_FRAME_LENGTH = 512 * 1024 * 1024;
+	// 消息体的类型
+	public static final byte BODY_NONE = 0;
+	public static final byte BODY_STRING = 1;
+	public static final byte BODY_PROBLEM_RESULT = 2;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private BinaryMessages() {
+	}
+
+	/**
+	 * 读取一个帧
+	 * @return 帧的内容，连接已经关闭时返回null
+	 */
+	public static byte[] readFrame(DataInputStream in) throws IOException {
+		int first = in.read();
+		if (first < 0) {
+			return null;
+		}
+		int length = (first << 24) | (in.readUnsignedByte() << 16)
+				| (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+		if (length < 0 || length > MAX_FRAME_LENGTH) {
+			throw new IOException("帧长度不正确：" + length);
+		}
+		byte[] frame = new byte[length];
+		in.readFully(frame);
+		return frame;
+	}
+
+	/**
+	 * 写出一个帧，长度与内容一次性写出
+	 */
+	public static void writeFrame(OutputStream out, byte[] payload)
+			throws IOException {
+		byte[] frame = new byte[payload.length + 4];
+		frame[0] = (byte) (payload.length >>> 24);
+		frame[1] = (byte) (payload.length >>> 16);
+		frame[2] = (byte) (payload.length >>> 8);
+		frame[3] = (byte) payload.length;
+		System.arraycopy(payload, 0, frame, 4, payload.length);
+		out.write(frame);
+	}
+
+	public static byte[] encodeRequest(Request request) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+		DataOutputStream out = new DataOutputStream(bytes);
+		writeString(out, request.getCommand());
+		writeString(out, request.getSignalId());
+		if (request.getData() == null) {
+			out.writeByte(BODY_NONE);
+		} else {
+			out.writeByte(BODY_STRING);
+			writeString(out, request.getData());
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	public static Request decodeRequest(byte[] frame) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				frame));
+		Request request = new Request();
+		request.setCommand(readString(in));
+		request.setSignalId(readString(in));
+		byte bodyType = in.readByte();
+		if (bodyType == BODY_STRING) {
+			request.setData(readString(in));
+		} else if (bodyType != BODY_NONE) {
+			throw new IOException("不支持的请求内容类型：" + bodyType);
+		}
+		return request;
+	}
+
+	static void writeResponseHeader(DataOutputStream out, Response response,
+			byte bodyType) throws IOException {
+		writeString(out, response.getRequestCommand());
+		writeString(out, response.getResponseCommand());
+		writeString(out, response.getSignalId());
+		out.writeByte(bodyType);
+	}
+
+	/**
+	 * 解码回复，判题结果会直接解码为ProblemResult放到body中，不会经过JSON字符串
+	 * @param version 协商好的协议版本
+	 */
+	public static Response decodeResponse(byte[] frame, int version)
+			throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				frame));
+		Response response = new Response();
+		response.setRequestCommand(readString(in));
+		response.setResponseCommand(readString(in));
+		response.setSignalId(readString(in));
+		byte bodyType = in.readByte();
+		if (bodyType == BODY_STRING) {
+			response.setData(readString(in));
+		} else if (bodyType == BODY_PROBLEM_RESULT) {
+			response.setBody(readProblemResult(in, version));
+		} else if (bodyType != BODY_NONE) {
+			throw new IOException("不支持的回复内容类型：" + bodyType);
+		}
+		return response;
+	}
+
+	static void writeProblemResult(DataOutputStream out,
+			ProblemResult problemResult, int version) throws IOException {
+		writeString(out, problemResult.getRunId());
+		List<ProblemResultItem> items = problemResult.getResultItems();
+		int size = items == null ? 0 : items.size();
+		out.writeInt(size);
+		for (int i = 0; i < size; i++) {
+			writeProblemResultItem(out, items.get(i), version);
+		}
+		if (version >= 2) {
+			out.writeInt(problemResult.getTestCount());
+		}
+		if (version >= 4) {
+			writeString(out, problemResult.getErrorMessage());
+		}
+	}
+
+	static ProblemResult readProblemResult(DataInputStream in, int version)
+			throws IOException {
+		ProblemResult problemResult = new ProblemResult();
+		problemResult.setRunId(readString(in));
+		int size = in.readInt();
+		List<ProblemResultItem> items = new ArrayList<ProblemResultItem>(size);
+		for (int i = 0; i < size; i++) {
+			items.add(readProblemResultItem(in, version));
+		}
+		problemResult.setResultItems(items);
+		if (version >= 2) {
+			problemResult.setTestCount(in.readInt());
+		}
+		if (version >= 4) {
+			problemResult.setErrorMessage(readString(in));
+		}
+		return problemResult;
+	}
+
+	static void writeProblemResultItem(DataOutputStream out,
+			ProblemResultItem item, int version) throws IOException {
+		out.writeLong(item.getUseTime());
+		out.writeLong(item.getUseWallTime());
+		out.writeLong(item.getUseMemory());
+		out.writeLong(item.getAllocatedBytes());
+		writeString(out, item.getResult());
+		writeString(out, item.getVerdict());
+		out.writeLong(item.getFirstDifferencePosition());
+		writeString(out, item.getOutputDigest());
+		writeString(out, item.getMessage());
+		out.writeBoolean(item.isNormal());
+		writeString(out, item.getInputFilePath());
+		if (version >= 2) {
+			out.writeInt(item.getTestIndex());
+		}
+		if (version >= 3) {
+			out.writeLong(item.getCheckerTime());
+		}
+	}
+
+	static ProblemResultItem readProblemResultItem(DataInputStream in,
+			int version) throws IOException {
+		ProblemResultItem item = new ProblemResultItem();
+		item.setUseTime(in.readLong());
+		item.setUseWallTime(in.readLong());
+		item.setUseMemory(in.readLong());
+		item.setAllocatedBytes(in.readLong());
+		item.setResult(readString(in));
+		item.setVerdict(readString(in));
+		item.setFirstDifferencePosition(in.readLong());
+		item.setOutputDigest(readString(in));
+		item.setMessage(readString(in));
+		item.setNormal(in.readBoolean());
+		item.setInputFilePath(readString(in));
+		if (version >= 2) {
+			item.setTestIndex(in.readInt());
+		}
+		if (version >= 3) {
+			item.setCheckerTime(in.readLong());
+		}
+		return item;
+	}
+
+	static void writeString(DataOutputStream out, String value)
+			throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		if (length > MAX_FRAME_LENGTH) {
+			throw new IOException("字符串长度不正确：" + length);
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	/**
+	 * 外界建立连接后发起握手
+	 * @param in 连接的输入流
+	 * @param out 连接的输出流
+	 * @return 双方协商好的协议版本
+	 */
+	public static int handshake(DataInputStream in, OutputStream out)
+			throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(8);
+		DataOutputStream data = new DataOutputStream(bytes);
+		data.write(MAGIC);
+		data.writeInt(VERSION);
+		out.write(bytes.toByteArray());
+		out.flush();
+		byte[] magic = new byte[MAGIC.length];
+		in.readFully(magic);
+		for (int i = 0; i < MAGIC.length; i++) {
+			if (magic[i] != MAGIC[i]) {
+				throw new IOException("对方不支持二进制帧协议");
+			}
+		}
+		return in.readInt();
+	}
+
+	static void readMagicRemaining(InputStream in) throws IOException {
+		for (int i = 1; i < MAGIC.length; i++) {
+			int b = in.read();
+			if (b < 0) {
+				throw new EOFException();
+			}
+			if (b != MAGIC[i]) {
+				throw new IOException("无法识别的协议");
+			}
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package cn.superman.sandbox.core.protocol;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import com.google.gson.Gson;
+
+import cn.superman.sandbox.dto.Request;
+import cn.superman.sandbox.dto.Response;
+
+/**
+ * 原有的JSON行协议，每条消息都是一行JSON，发送完之后，发送方会在最后加上一个"\n"，表示发送完了这条消息
+ */
+public class JsonLineCodec implements ProtocolCodec {
+	private BufferedReader reader;
+	private Gson gson;
+
+	/**
+	 * @param inputStream 连接的输入流，为null时只能用于编码回复
+	 * @param gson JSON编解码
+	 */
+	public JsonLineCodec(InputStream inputStream, Gson gson) {
+		this.gson = gson;
+		if (inputStream == null) {
+			return;
+		}
+		try {
+			this.reader = new BufferedReader(new InputStreamReader(
+					inputStream, "UTF-8"));
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public Request readRequest() throws IOException {
+		String data = reader.readLine();
+		while (data != null && data.trim().isEmpty()) {
+			data = reader.readLine();
+		}
+		if (data == null) {
+			return null;
+		}
+		return gson.fromJson(data, Request.class);
+	}
+
+	@Override
+	public byte[] encodeResponse(Response response) throws IOException {
+		if (response.getBody() != null) {
+			response.setData(gson.toJson(response.getBody()));
+		}
+		return (gson.toJson(response) + "\n").getBytes("UTF-8");
+	}
+
+	@Override
+	public int getVersion() {
+		return 0;
+	}
+}
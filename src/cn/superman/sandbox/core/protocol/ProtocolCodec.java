@@ -0,0 +1,31 @@
+package cn.superman.sandbox.core.protocol;
+
+import java.io.IOException;
+
+import cn.superman.sandbox.dto.Request;
+import cn.superman.sandbox.dto.Response;
+
+/**
+ * 沙箱与外界通信的编解码方式
+ */
+public interface ProtocolCodec {
+	/**
+	 * 读取下一个请求，会一直阻塞到读取完整个请求为止
+	 * @return 请求，连接已经关闭时返回null
+	 * @throws IOException 读取失败或者内容格式有问题
+	 */
+	Request readRequest() throws IOException;
+
+	/**
+	 * 把回复编码成可以直接写到连接上的完整消息，编码不需要同步，写的时候一次性写出，保证消息不会交错
+	 * @param response 回复，response.getBody()不为null时，优先对body进行编码
+	 * @return 完整消息
+	 * @throws IOException 编码失败
+	 */
+	byte[] encodeResponse(Response response) throws IOException;
+
+	/**
+	 * @return 协议版本，JSON行协议为0
+	 */
+	int getVersion();
+}
@@ -0,0 +1,60 @@
+package cn.superman.sandbox.core.protocol;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+
+import com.google.gson.Gson;
+
+/**
+ * 建立连接后确定使用的协议：外界先发送魔数的话，使用二进制帧协议，并协商协议版本；否则使用原有的JSON行协议
+ */
+public final class ProtocolNegotiator {
+	private static final int INPUT_BUFFER_SIZE = 64 * 1024;
+
+	private ProtocolNegotiator() {
+	}
+
+	/**
+	 * 确定使用的协议，会阻塞到外界发送第一个字节为止
+	 * @param inputStream 连接的输入流
+	 * @param outputStream 连接的输出流，用于回复协商结果
+	 * @param gson JSON编解码
+	 * @return 协议编解码器
+	 * @throws IOException 连接出现问题或者协议无法识别
+	 */
+	public static ProtocolCodec negotiate(InputStream inputStream,
+			OutputStream outputStream, Gson gson) throws IOException {
+		PushbackInputStream in = new PushbackInputStream(
+				new BufferedInputStream(inputStream, INPUT_BUFFER_SIZE), 1);
+		int first = in.read();
+		if (first < 0) {
+			throw new EOFException("连接已经关闭");
+		}
+		if (first != BinaryMessages.MAGIC[0]) {
+			// JSON行协议，第一个字节是消息的一部分，需要放回去
+			in.unread(first);
+			return new JsonLineCodec(in, gson);
+		}
+		BinaryMessages.readMagicRemaining(in);
+		DataInputStream dataIn = new DataInputStream(in);
+		int clientVersion = dataIn.readInt();
+		int version = Math.min(clientVersion, BinaryMessages.VERSION);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(8);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.write(BinaryMessages.MAGIC);
+		out.writeInt(version);
+		outputStream.write(bytes.toByteArray());
+		outputStream.flush();
+		if (version < 1) {
+			throw new IOException("不支持的协议版本：" + clientVersion);
+		}
+		return new BinaryFrameCodec(in, gson, version);
+	}
+}
@@ -0,0 +1,49 @@
+package cn.superman.sandbox.core.protocol;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import cn.superman.sandbox.dto.Response;
+
+/**
+ * 回复的写出者，多个线程可以同时写回复（判题结果可以乱序返回），每条回复都是先完整编码，再一次性写出，保证消息在连接上不会交错
+ */
+public class ResponseWriter {
+	private final OutputStream outputStream;
+	private final Object writeLock = new Object();
+	private volatile ProtocolCodec protocolCodec;
+
+	/**
+	 * @param outputStream 连接的输出流
+	 * @param protocolCodec 协议编解码器，还没有协商好协议时可以先用JSON行协议
+	 */
+	public ResponseWriter(OutputStream outputStream, ProtocolCodec protocolCodec) {
+		this.outputStream = outputStream;
+		this.protocolCodec = protocolCodec;
+	}
+
+	/**
+	 * 写出一条回复，编码在锁外进行，只有写出的过程是互斥的，避免大的判题结果编码时阻塞其他回复
+	 * @param response 回复
+	 * @throws IOException 编码失败或者连接出现问题
+	 */
+	public void write(Response response) throws IOException {
+		byte[] bytes = protocolCodec.encodeResponse(response);
+		synchronized (writeLock) {
+			outputStream.write(bytes);
+			outputStream.flush();
+		}
+	}
+
+	public ProtocolCodec getProtocolCodec() {
+		return protocolCodec;
+	}
+
+	/**
+	 * 协议协商完成后切换编解码器
+	 * @param protocolCodec 协议编解码器
+	 */
+	public void setProtocolCodec(ProtocolCodec protocolCodec) {
+		this.protocolCodec = protocolCodec;
+	}
+}
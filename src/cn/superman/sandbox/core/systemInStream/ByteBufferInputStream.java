@@ -0,0 +1,59 @@
+package cn.superman.sandbox.core.systemInStream;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * 基于ByteBuffer的输入流，测试数据事先全部加载到内存中，读取时不需要再进行系统调用。
+ * 每个输入流只会被一个线程使用，所以不需要像ByteArrayInputStream那样加锁
+ */
+public class ByteBufferInputStream extends InputStream {
+	private final ByteBuffer buffer;
+
+	/**
+	 * @param buffer 测试数据，读取的是从position到limit之间的内容，不会影响传入的buffer
+	 */
+	public ByteBufferInputStream(ByteBuffer buffer) {
+		this.buffer = buffer.duplicate();
+	}
+
+	@Override
+	public int read() {
+		if (!buffer.hasRemaining()) {
+			return -1;
+		}
+		return buffer.get() & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if ((off | len | (b.length - (len + off)) | (off + len)) < 0) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (len == 0) {
+			return 0;
+		}
+		int remaining = buffer.remaining();
+		if (remaining == 0) {
+			return -1;
+		}
+		int count = Math.min(len, remaining);
+		buffer.get(b, off, count);
+		return count;
+	}
+
+	@Override
+	public long skip(long n) {
+		if (n <= 0) {
+			return 0;
+		}
+		int count = (int) Math.min(n, buffer.remaining());
+		buffer.position(buffer.position() + count);
+		return count;
+	}
+
+	@Override
+	public int available() {
+		return buffer.remaining();
+	}
+}
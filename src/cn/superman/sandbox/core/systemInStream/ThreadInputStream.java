@@ -11,6 +11,29 @@ public class ThreadInputStream extends InputStream {
 		return localIn.get().read();
 	}
 
+	/**
+	 * 批量读取，Scanner、BufferedReader等都是通过这个方法读取的，一次读取只需要获取一次线程的输入流
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		return localIn.get().read(b, off, len);
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		return localIn.get().skip(n);
+	}
+
+	@Override
+	public int available() throws IOException {
+		return localIn.get().available();
+	}
+
+	/**
+	 * 设置当前线程的输入流，输入流需要自带缓冲（如ByteBufferInputStream、BufferedInputStream），
+	 * 否则代码的每次读取都会变成一次系统调用
+	 * @param in 输入流
+	 */
 	public void setThreadIn(InputStream in) {
 		localIn.set(in);
 	}
@@ -1,34 +1,118 @@
 package cn.superman.sandbox.core.systemOutStream;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.PrintStream;
+
+import cn.superman.sandbox.core.outputComparator.OutputComparator;
 
 public class CacheOutputStream extends OutputStream {
+	private final OutputChunkPool chunkPool;
 
-	private volatile ThreadLocal<ByteArrayOutputStream> localBytesCache = new ThreadLocal<ByteArrayOutputStream>() {
+	private volatile ThreadLocal<ThreadOutputBuffer> localBytesCache = new ThreadLocal<ThreadOutputBuffer>() {
 		@Override
-		protected ByteArrayOutputStream initialValue() {
-			return new ByteArrayOutputStream();
+		protected ThreadOutputBuffer initialValue() {
+			return new ThreadOutputBuffer(chunkPool);
 		}
 
 	};
 
+	public CacheOutputStream() {
+		this(new OutputChunkPool());
+	}
+
+	public CacheOutputStream(OutputChunkPool chunkPool) {
+		this.chunkPool = chunkPool;
+	}
+
 	@Override
 	public void write(int b) throws IOException {
-		ByteArrayOutputStream byteBufferStream = localBytesCache.get();
-		byteBufferStream.write(b);
+		localBytesCache.get().write(b);
 	}
 
-	public byte[] removeBytes(long threadId) {
-		ByteArrayOutputStream byteBufferStream = localBytesCache.get();
+	/**
+	 * 批量输出，PrintStream输出字符串时会调用这个方法，一次输出只需要获取一次线程的缓冲
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if ((off | len | (b.length - (len + off)) | (off + len)) < 0) {
+			throw new IndexOutOfBoundsException();
+		}
+		localBytesCache.get().write(b, off, len);
+	}
+
+	public void setThreadComparator(OutputComparator comparator) {
+		localBytesCache.get().setComparator(comparator);
+	}
+
+	public void removeThreadComparator() {
+		localBytesCache.get().setComparator(null);
+	}
+
+	/**
+	 * 设置当前线程最多允许输出的字节数，超出时会抛出OutputLimitExceededError
+	 * @param outputLimit 最多允许输出的字节数，小于等于0时表示不限制
+	 */
+	public void setThreadOutputLimit(long outputLimit) {
+		localBytesCache.get().setOutputLimit(outputLimit);
+	}
+
+	/**
+	 * @return 当前线程是否超出过输出限制，重新设置输出限制之前一直有效
+	 */
+	public boolean isThreadOutputLimitExceeded() {
+		return localBytesCache.get().isOutputLimitExceeded();
+	}
 
-		if (byteBufferStream == null) {
-			return new byte[0];
+	/**
+	 * 获取当前线程自己的PrintStream，还没有的话就创建一个
+	 * @return 输出到这个输出流的PrintStream
+	 */
+	public PrintStream getThreadPrintStream() {
+		ThreadOutputBuffer buffer = localBytesCache.get();
+		PrintStream printStream = buffer.getPrintStream();
+		if (printStream == null) {
+			printStream = new PrintStream(this);
+			buffer.setPrintStream(printStream);
 		}
-		byte[] result = byteBufferStream.toByteArray();
+		return printStream;
+	}
+
+	/**
+	 * 为当前线程创建新的PrintStream，测试用例开始执行时调用。
+	 * 上一个测试用例被异常打断时，旧的PrintStream中可能残留着没有输出的字符，不能带到这个测试用例的输出里
+	 * @return 新的PrintStream
+	 */
+	public PrintStream newThreadPrintStream() {
+		PrintStream printStream = new PrintStream(this);
+		localBytesCache.get().setPrintStream(printStream);
+		return printStream;
+	}
+
+	/**
+	 * 丢弃当前线程的PrintStream，连同其中残留的内容
+	 */
+	public void removeThreadPrintStream() {
+		localBytesCache.get().setPrintStream(null);
+	}
+
+	public byte[] removeBytes(long threadId) {
 		// 因为这个可能以后还可以重用（因为线程时有反复重用的，所以这里只需要将里面的内容清空就可以了）
-		byteBufferStream.reset();
-		return result;
+		return localBytesCache.get().removeBytes();
+	}
+
+	/**
+	 * 清空当前线程缓存的输出内容，代码执行出现意外时，没有被取走的输出不能留给下一个使用该线程的测试用例
+	 */
+	public void clearBytes() {
+		localBytesCache.get().clear();
+	}
+
+	/**
+	 * 清空并移除当前线程的输出缓冲，缓冲块会归还给缓冲块池继续使用，线程不再执行测试用例之前调用
+	 */
+	public void removeThreadBuffer() {
+		localBytesCache.get().clear();
+		localBytesCache.remove();
 	}
 }
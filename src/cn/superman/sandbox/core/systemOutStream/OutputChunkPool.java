@@ -0,0 +1,71 @@
+package cn.superman.sandbox.core.systemOutStream;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 固定大小的输出缓冲块池，所有线程的输出缓冲都从这里获取缓冲块，用完之后归还，避免每个测试用例都重新分配缓冲区。
+ * 可以选择使用堆外内存，这样大量的输出不会增加堆的负担
+ */
+public class OutputChunkPool {
+	// 默认每个缓冲块的大小
+	public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+	// 默认池中最多保留的缓冲块数量
+	public static final int DEFAULT_MAX_POOLED_CHUNKS = 256;
+	private final int chunkSize;
+	private final boolean direct;
+	private final int maxPooledChunks;
+	private final ConcurrentLinkedQueue<ByteBuffer> chunks = new ConcurrentLinkedQueue<ByteBuffer>();
+	private final AtomicInteger pooledCount = new AtomicInteger();
+
+	public OutputChunkPool() {
+		this(DEFAULT_CHUNK_SIZE, false, DEFAULT_MAX_POOLED_CHUNKS);
+	}
+
+	/**
+	 * @param chunkSize 每个缓冲块的大小
+	 * @param direct 是否使用堆外内存
+	 * @param maxPooledChunks 池中最多保留的缓冲块数量，超过的缓冲块归还时直接丢弃
+	 */
+	public OutputChunkPool(int chunkSize, boolean direct, int maxPooledChunks) {
+		this.chunkSize = chunkSize;
+		this.direct = direct;
+		this.maxPooledChunks = maxPooledChunks;
+	}
+
+	/**
+	 * 获取一个已经清空的缓冲块
+	 * @return 缓冲块
+	 */
+	public ByteBuffer acquire() {
+		ByteBuffer chunk = chunks.poll();
+		if (chunk != null) {
+			pooledCount.decrementAndGet();
+			return chunk;
+		}
+		return direct ? ByteBuffer.allocateDirect(chunkSize) : ByteBuffer
+				.allocate(chunkSize);
+	}
+
+	/**
+	 * 归还缓冲块
+	 * @param chunk 缓冲块
+	 */
+	public void release(ByteBuffer chunk) {
+		chunk.clear();
+		if (pooledCount.incrementAndGet() <= maxPooledChunks) {
+			chunks.offer(chunk);
+		} else {
+			pooledCount.decrementAndGet();
+		}
+	}
+
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	public int getPooledCount() {
+		return pooledCount.get();
+	}
+}
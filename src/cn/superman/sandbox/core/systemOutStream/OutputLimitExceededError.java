@@ -0,0 +1,13 @@
+package cn.superman.sandbox.core.systemOutStream;
+
+/**
+ * 输出超出限制时抛出，用于立即终止正在执行的代码。
+ * 使用Error而不是Exception，是因为PrintStream会吞掉输出过程中的IOException
+ */
+public class OutputLimitExceededError extends Error {
+	private static final long serialVersionUID = 1L;
+
+	public OutputLimitExceededError(long outputLimit) {
+		super("输出超出限制，最多只能输出" + outputLimit + "个字节");
+	}
+}
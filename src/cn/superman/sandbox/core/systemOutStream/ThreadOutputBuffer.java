@@ -0,0 +1,125 @@
+package cn.superman.sandbox.core.systemOutStream;
+
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import cn.superman.sandbox.core.outputComparator.OutputComparator;
+
+/**
+ * 单个线程的输出缓冲，由若干个从缓冲块池中获取的缓冲块组成，输出总量受输出限制约束
+ */
+class ThreadOutputBuffer {
+	private final OutputChunkPool chunkPool;
+	private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+	// 当前正在写入的缓冲块
+	private ByteBuffer current;
+	// 已经输出的字节数，包括交给比对器的部分
+	private long size = 0;
+	// 最多允许输出的字节数，小于等于0时表示不限制
+	private long outputLimit = 0;
+	// 设置了比对器时，输出内容不再缓存，而是直接交给比对器与标准答案比对
+	private OutputComparator comparator;
+	// 是否已经超出过输出限制，代码自己捕获了OutputLimitExceededError之后正常结束，也要按输出超限处理
+	private boolean outputLimitExceeded = false;
+	// 线程自己的PrintStream，System.out会把输出转交给它，为null时表示还没有创建
+	private PrintStream printStream;
+
+	ThreadOutputBuffer(OutputChunkPool chunkPool) {
+		this.chunkPool = chunkPool;
+	}
+
+	void write(byte[] b, int off, int len) {
+		if (outputLimit > 0 && size + len > outputLimit) {
+			outputLimitExceeded = true;
+			throw new OutputLimitExceededError(outputLimit);
+		}
+		size += len;
+		if (comparator != null) {
+			comparator.write(b, off, len);
+			return;
+		}
+		while (len > 0) {
+			if (current == null || !current.hasRemaining()) {
+				current = chunkPool.acquire();
+				chunks.add(current);
+			}
+			int count = Math.min(len, current.remaining());
+			current.put(b, off, count);
+			off += count;
+			len -= count;
+		}
+	}
+
+	void write(int b) {
+		if (outputLimit > 0 && size + 1 > outputLimit) {
+			outputLimitExceeded = true;
+			throw new OutputLimitExceededError(outputLimit);
+		}
+		size++;
+		if (comparator != null) {
+			comparator.write(b);
+			return;
+		}
+		if (current == null || !current.hasRemaining()) {
+			current = chunkPool.acquire();
+			chunks.add(current);
+		}
+		current.put((byte) b);
+	}
+
+	/**
+	 * 取出缓存的输出内容，并清空缓冲
+	 * @return 输出内容
+	 */
+	byte[] removeBytes() {
+		int length = 0;
+		for (ByteBuffer chunk : chunks) {
+			length += chunk.position();
+		}
+		byte[] result = new byte[length];
+		int offset = 0;
+		for (ByteBuffer chunk : chunks) {
+			int count = chunk.position();
+			chunk.flip();
+			chunk.get(result, offset, count);
+			offset += count;
+		}
+		clear();
+		return result;
+	}
+
+	/**
+	 * 清空缓冲，缓冲块归还给缓冲块池
+	 */
+	void clear() {
+		for (ByteBuffer chunk : chunks) {
+			chunkPool.release(chunk);
+		}
+		chunks.clear();
+		current = null;
+		size = 0;
+	}
+
+	void setOutputLimit(long outputLimit) {
+		this.outputLimit = outputLimit;
+		outputLimitExceeded = false;
+	}
+
+	boolean isOutputLimitExceeded() {
+		return outputLimitExceeded;
+	}
+
+	PrintStream getPrintStream() {
+		return printStream;
+	}
+
+	void setPrintStream(PrintStream printStream) {
+		this.printStream = printStream;
+	}
+
+	void setComparator(OutputComparator comparator) {
+		this.comparator = comparator;
+	}
+}
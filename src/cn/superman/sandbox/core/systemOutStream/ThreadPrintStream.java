@@ -0,0 +1,185 @@
+package cn.superman.sandbox.core.systemOutStream;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * 代替System.out的PrintStream，所有的输出都转交给当前线程自己的PrintStream。
+ * PrintStream内部有字符缓冲以及编码器，输出超出限制、答案错误或者被终止时，异常会在编码到一半时抛出，
+ * 残留的字符和字节如果留在所有线程共用的PrintStream中，就会被下一个输出的线程带到它自己的输出里，
+ * 所以每个线程使用自己的PrintStream，并且每个测试用例开始时都重新创建（见CacheOutputStream.newThreadPrintStream）
+ */
+public class ThreadPrintStream extends PrintStream {
+	private final CacheOutputStream resultBuffer;
+
+	public ThreadPrintStream(CacheOutputStream resultBuffer) {
+		super(resultBuffer);
+		this.resultBuffer = resultBuffer;
+	}
+
+	private PrintStream out() {
+		return resultBuffer.getThreadPrintStream();
+	}
+
+	@Override
+	public void flush() {
+		out().flush();
+	}
+
+	@Override
+	public void close() {
+		out().close();
+	}
+
+	@Override
+	public boolean checkError() {
+		return out().checkError();
+	}
+
+	@Override
+	public void write(int b) {
+		out().write(b);
+	}
+
+	@Override
+	public void write(byte[] buf, int off, int len) {
+		out().write(buf, off, len);
+	}
+
+	@Override
+	public void print(boolean b) {
+		out().print(b);
+	}
+
+	@Override
+	public void print(char c) {
+		out().print(c);
+	}
+
+	@Override
+	public void print(int i) {
+		out().print(i);
+	}
+
+	@Override
+	public void print(long l) {
+		out().print(l);
+	}
+
+	@Override
+	public void print(float f) {
+		out().print(f);
+	}
+
+	@Override
+	public void print(double d) {
+		out().print(d);
+	}
+
+	@Override
+	public void print(char[] s) {
+		out().print(s);
+	}
+
+	@Override
+	public void print(String s) {
+		out().print(s);
+	}
+
+	@Override
+	public void print(Object obj) {
+		out().print(obj);
+	}
+
+	@Override
+	public void println() {
+		out().println();
+	}
+
+	@Override
+	public void println(boolean x) {
+		out().println(x);
+	}
+
+	@Override
+	public void println(char x) {
+		out().println(x);
+	}
+
+	@Override
+	public void println(int x) {
+		out().println(x);
+	}
+
+	@Override
+	public void println(long x) {
+		out().println(x);
+	}
+
+	@Override
+	public void println(float x) {
+		out().println(x);
+	}
+
+	@Override
+	public void println(double x) {
+		out().println(x);
+	}
+
+	@Override
+	public void println(char[] x) {
+		out().println(x);
+	}
+
+	@Override
+	public void println(String x) {
+		out().println(x);
+	}
+
+	@Override
+	public void println(Object x) {
+		out().println(x);
+	}
+
+	@Override
+	public PrintStream printf(String format, Object... args) {
+		out().printf(format, args);
+		return this;
+	}
+
+	@Override
+	public PrintStream printf(Locale l, String format, Object... args) {
+		out().printf(l, format, args);
+		return this;
+	}
+
+	@Override
+	public PrintStream format(String format, Object... args) {
+		out().format(format, args);
+		return this;
+	}
+
+	@Override
+	public PrintStream format(Locale l, String format, Object... args) {
+		out().format(l, format, args);
+		return this;
+	}
+
+	@Override
+	public PrintStream append(CharSequence csq) {
+		out().append(csq);
+		return this;
+	}
+
+	@Override
+	public PrintStream append(CharSequence csq, int start, int end) {
+		out().append(csq, start, end);
+		return this;
+	}
+
+	@Override
+	public PrintStream append(char c) {
+		out().append(c);
+		return this;
+	}
+}
@@ -0,0 +1,200 @@
+package cn.superman.sandbox.core.testDataCache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内共享的测试数据缓存，比赛时大量提交会反复读取同样的几百个测试数据文件，缓存起来就不需要每次都重新读取了。
+ * 以文件路径为键，文件修改时间和大小变化时视为新的文件，重新读取。缓存总量超过上限时，淘汰最久没有使用的文件
+ */
+public class TestDataCache {
+	// 默认的缓存总量上限
+	public static final long DEFAULT_MAX_CACHED_BYTES = 256L * 1024 * 1024;
+	// 不小于这个大小的文件使用内存映射，小文件直接读入堆中更划算
+	private static final long MAP_THRESHOLD = 1024 * 1024;
+	private final long maxCachedBytes;
+	private long cachedBytes = 0;
+	// 按访问顺序排列，最久没有使用的在最前面
+	private final LinkedHashMap<String, CachedFile> cachedFiles = new LinkedHashMap<String, CachedFile>(
+			16, 0.75f, true);
+	// 正在读取的文件，以及它们读取时的修改时间和大小
+	private final Map<String, FutureTask<CachedFile>> loadingTasks = new HashMap<String, FutureTask<CachedFile>>();
+	private final Map<String, CachedFile> loadingFiles = new HashMap<String, CachedFile>();
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	/**
+	 * @param maxCachedBytes 缓存总量上限（字节），超过上限的单个文件不会被缓存
+	 */
+	public TestDataCache(long maxCachedBytes) {
+		this.maxCachedBytes = maxCachedBytes;
+	}
+
+	/**
+	 * 获取文件内容
+	 * @param file 文件
+	 * @return 只读的文件内容，每次调用返回的都是独立的ByteBuffer，可以在不同线程中同时使用
+	 * @throws IOException 文件读取失败
+	 */
+	public ByteBuffer get(final File file) throws IOException {
+		String path = file.getAbsolutePath();
+		final long lastModified = file.lastModified();
+		final long length = file.length();
+		FutureTask<CachedFile> loadingTask = null;
+		boolean loadByMe = false;
+		synchronized (this) {
+			CachedFile cachedFile = cachedFiles.get(path);
+			if (cachedFile != null
+					&& cachedFile.isSameFile(lastModified, length)) {
+				hitCount.incrementAndGet();
+				return cachedFile.content.duplicate();
+			}
+			// 同一个文件正在被其他线程读取的话，等它读取完就可以了，避免同一个文件被同时读取多次
+			loadingTask = loadingTasks.get(path);
+			if (loadingTask == null
+					|| !loadingFiles.get(path).isSameFile(lastModified, length)) {
+				loadingTask = new FutureTask<CachedFile>(
+						new Callable<CachedFile>() {
+							@Override
+							public CachedFile call() throws Exception {
+								return new CachedFile(lastModified, length,
+										load(file, length));
+							}
+						});
+				loadingTasks.put(path, loadingTask);
+				loadingFiles.put(path, new CachedFile(lastModified, length,
+						null));
+				loadByMe = true;
+				missCount.incrementAndGet();
+			} else {
+				hitCount.incrementAndGet();
+			}
+		}
+		// 读取文件比较耗时，不能在锁中进行
+		if (loadByMe) {
+			loadingTask.run();
+		}
+		try {
+			CachedFile cachedFile = loadingTask.get();
+			if (loadByMe && length <= maxCachedBytes) {
+				put(path, cachedFile);
+			}
+			return cachedFile.content.duplicate();
+		} catch (InterruptedException e) {
+			throw new IOException("读取测试数据时被中断", e);
+		} catch (ExecutionException e) {
+			throw new IOException("无法读取测试数据", e.getCause());
+		} finally {
+			if (loadByMe) {
+				removeLoadingTask(path, loadingTask);
+			}
+		}
+	}
+
+	private synchronized void removeLoadingTask(String path,
+			FutureTask<CachedFile> loadingTask) {
+		if (loadingTasks.get(path) == loadingTask) {
+			loadingTasks.remove(path);
+			loadingFiles.remove(path);
+		}
+	}
+
+	private synchronized void put(String path, CachedFile cachedFile) {
+		CachedFile old = cachedFiles.put(path, cachedFile);
+		if (old != null) {
+			cachedBytes -= old.length;
+		}
+		cachedBytes += cachedFile.length;
+		Iterator<Map.Entry<String, CachedFile>> iterator = cachedFiles
+				.entrySet().iterator();
+		while (cachedBytes > maxCachedBytes && iterator.hasNext()) {
+			Map.Entry<String, CachedFile> eldest = iterator.next();
+			if (eldest.getValue() == cachedFile) {
+				continue;
+			}
+			cachedBytes -= eldest.getValue().length;
+			iterator.remove();
+			evictionCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * 读取文件内容，大文件使用内存映射，由操作系统负责按需加载
+	 */
+	private ByteBuffer load(File file, long length) throws IOException {
+		FileInputStream inputStream = new FileInputStream(file);
+		try {
+			FileChannel channel = inputStream.getChannel();
+			if (length >= MAP_THRESHOLD) {
+				return channel.map(FileChannel.MapMode.READ_ONLY, 0, length)
+						.asReadOnlyBuffer();
+			}
+			ByteBuffer content = ByteBuffer.allocate((int) length);
+			while (content.hasRemaining() && channel.read(content) >= 0) {
+			}
+			content.flip();
+			return content.asReadOnlyBuffer();
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * 移除文件的缓存，正在使用该文件内容的线程不受影响
+	 * @param file 文件
+	 */
+	public synchronized void remove(File file) {
+		CachedFile cachedFile = cachedFiles.remove(file.getAbsolutePath());
+		if (cachedFile != null) {
+			cachedBytes -= cachedFile.length;
+		}
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	public synchronized long getCachedBytes() {
+		return cachedBytes;
+	}
+
+	public synchronized int getCachedFileCount() {
+		return cachedFiles.size();
+	}
+
+	private static class CachedFile {
+		private final long lastModified;
+		private final long length;
+		private final ByteBuffer content;
+
+		private CachedFile(long lastModified, long length, ByteBuffer content) {
+			this.lastModified = lastModified;
+			this.length = length;
+			this.content = content;
+		}
+
+		private boolean isSameFile(long lastModified, long length) {
+			return this.lastModified == lastModified && this.length == length;
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package cn.superman.sandbox.core.warmUp;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gson.Gson;
+
+import cn.superman.sandbox.callable.ProblemCallable;
+import cn.superman.sandbox.constant.CommunicationSignal;
+import cn.superman.sandbox.constant.CompareMode;
+import cn.superman.sandbox.constant.EntryMethod;
+import cn.superman.sandbox.constant.Verdict;
+import cn.superman.sandbox.core.entryPoint.EntryPointCache;
+import cn.superman.sandbox.core.protocol.BinaryFrameCodec;
+import cn.superman.sandbox.core.protocol.BinaryMessages;
+import cn.superman.sandbox.core.protocol.JsonLineCodec;
+import cn.superman.sandbox.core.protocol.ProtocolCodec;
+import cn.superman.sandbox.core.systemInStream.ThreadInputStream;
+import cn.superman.sandbox.core.systemOutStream.CacheOutputStream;
+import cn.superman.sandbox.core.testDataCache.TestDataCache;
+import cn.superman.sandbox.core.workerPool.WorkerPool;
+import cn.superman.sandbox.dto.Problem;
+import cn.superman.sandbox.dto.ProblemResult;
+import cn.superman.sandbox.dto.ProblemResultItem;
+import cn.superman.sandbox.dto.Response;
+
+/**
+ * 预热判题：在接收外界的判题请求之前，用WarmUpProgram走一遍完整的判题流程（JSON解析、执行、比对答案、编码结果），
+ * 让相关的类提前加载、初始化并被JIT编译，外界的第一道题就不需要再承担这些开销
+ */
+public class WarmUpJudge {
+	// 预热数据中的整数个数
+	private static final int WARM_UP_NUMBER_COUNT = 10000;
+	// 每道预热题目的测试用例数，多个测试用例会并行执行
+	private static final int WARM_UP_TEST_COUNT = 2;
+	private final Gson gson;
+	private final CacheOutputStream resultBuffer;
+	private final ThreadInputStream threadSystemIn;
+	private final TestDataCache testDataCache;
+	private final WorkerPool workerPool;
+	private final EntryPointCache entryPointCache;
+
+	public WarmUpJudge(Gson gson, CacheOutputStream resultBuffer,
+			ThreadInputStream threadSystemIn, TestDataCache testDataCache,
+			WorkerPool workerPool, EntryPointCache entryPointCache) {
+		this.gson = gson;
+		this.resultBuffer = resultBuffer;
+		this.threadSystemIn = threadSystemIn;
+		this.testDataCache = testDataCache;
+		this.workerPool = workerPool;
+		this.entryPointCache = entryPointCache;
+	}
+
+	/**
+	 * 执行预热判题，必须在设置权限之前执行，因为需要创建临时文件
+	 * @param judgeCount 预热判题的次数
+	 * @throws Exception 预热判题失败，说明沙箱环境有问题
+	 */
+	public void run(int judgeCount) throws Exception {
+		File inputFile = File.createTempFile("sandboxWarmUp", ".in");
+		File outputFile = File.createTempFile("sandboxWarmUp", ".out");
+		try {
+			writeTestData(inputFile, outputFile);
+			ProtocolCodec[] codecs = { new JsonLineCodec(null, gson),
+					new BinaryFrameCodec(null, gson, BinaryMessages.VERSION) };
+			for (int i = 0; i < judgeCount; i++) {
+				// 与外界的判题请求一样，经过JSON解析
+				Problem problem = gson.fromJson(
+						gson.toJson(createProblem(inputFile, outputFile, i)),
+						Problem.class);
+				ProblemResult problemResult = new ProblemResult();
+				problemResult.setRunId(problem.getRunId());
+				problemResult.setResultItems(new ProblemCallable(
+						entryPointCache.get(WarmUpProgram.class,
+								problem.getEntryMethod()), problem,
+						resultBuffer, threadSystemIn, testDataCache, workerPool)
+						.call());
+				problemResult.setTestCount(WARM_UP_TEST_COUNT);
+				for (ProblemResultItem item : problemResult.getResultItems()) {
+					if (!Verdict.ACCEPTED.equals(item.getVerdict())) {
+						throw new Exception("预热判题结果不正确：" + item.getVerdict()
+								+ " " + item.getMessage());
+					}
+				}
+				Response response = new Response();
+				response.setResponseCommand(CommunicationSignal.ResponseSignal.OK);
+				response.setRequestCommand(CommunicationSignal.RequestSignal.REQUSET_JUDGED_PROBLEM);
+				response.setBody(problemResult);
+				for (ProtocolCodec codec : codecs) {
+					codec.encodeResponse(response);
+				}
+			}
+		} finally {
+			testDataCache.remove(inputFile);
+			testDataCache.remove(outputFile);
+			inputFile.delete();
+			outputFile.delete();
+		}
+	}
+
+	private Problem createProblem(File inputFile, File outputFile, int index) {
+		Problem problem = new Problem();
+		problem.setRunId("warmUp" + index);
+		problem.setClassFileName(WarmUpProgram.class.getName());
+		problem.setTimeLimit(10000);
+		problem.setMemoryLimit(Long.MAX_VALUE);
+		List<String> inputPaths = new ArrayList<String>();
+		List<String> outputPaths = new ArrayList<String>();
+		for (int i = 0; i < WARM_UP_TEST_COUNT; i++) {
+			inputPaths.add(inputFile.getAbsolutePath());
+			outputPaths.add(outputFile.getAbsolutePath());
+		}
+		problem.setInputDataFilePathList(inputPaths);
+		problem.setOutputDataFilePathList(outputPaths);
+		// 两种比对方式轮流使用
+		problem.setCompareMode(index % 2 == 0 ? CompareMode.EXACT
+				: CompareMode.IGNORE_WHITESPACE);
+		// 两种入口方法也轮流使用，与比对方式错开
+		problem.setEntryMethod(index / 2 % 2 == 0 ? EntryMethod.MAIN
+				: EntryMethod.SOLVE);
+		return problem;
+	}
+
+	private void writeTestData(File inputFile, File outputFile)
+			throws IOException {
+		long sum = 0;
+		Writer writer = new BufferedWriter(new OutputStreamWriter(
+				new FileOutputStream(inputFile), "UTF-8"));
+		try {
+			for (int i = 0; i < WARM_UP_NUMBER_COUNT; i++) {
+				writer.write(Integer.toString(i));
+				writer.write(i % 10 == 9 ? '\n' : ' ');
+				sum += i;
+			}
+		} finally {
+			writer.close();
+		}
+		writer = new OutputStreamWriter(new FileOutputStream(outputFile),
+				"UTF-8");
+		try {
+			writer.write(sum + System.getProperty("line.separator"));
+		} finally {
+			writer.close();
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package cn.superman.sandbox.core.warmUp;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.StringTokenizer;
+
+/**
+ * 预热时使用的题目代码，读入所有整数并输出它们的和
+ */
+public class WarmUpProgram {
+	public static void main(String[] args) throws IOException {
+		solve(System.in, System.out);
+	}
+
+	public static void solve(InputStream in, PrintStream out)
+			throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in));
+		long sum = 0;
+		String line = null;
+		while ((line = reader.readLine()) != null) {
+			StringTokenizer tokenizer = new StringTokenizer(line);
+			while (tokenizer.hasMoreTokens()) {
+				sum += Long.parseLong(tokenizer.nextToken());
+			}
+		}
+		out.println(sum);
+	}
+}
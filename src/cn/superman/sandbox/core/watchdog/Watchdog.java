@@ -0,0 +1,166 @@
+package cn.superman.sandbox.core.watchdog;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 看门狗：用一个线程驱动哈希时间轮，在到期时执行任务。时间轮分成若干格，每一格代表一个tick，
+ * 任务按到期时间放入对应的格子，超过一圈的任务记录还需要转几圈，所以增加和到期都只需要常数时间，
+ * 无论有多少任务在等待，都只需要这一个线程。没有任务时线程会一直睡眠，不会定时醒来
+ */
+public class Watchdog {
+	// 默认每格1毫秒，一圈512格
+	public static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS
+			.toNanos(1);
+	public static final int DEFAULT_WHEEL_SIZE = 512;
+	private final long tickNanos;
+	private final int mask;
+	// 时间轮以及当前转到的格子，只在看门狗线程中使用
+	private final List<LinkedList<WatchdogTimeout>> wheel;
+	private long tick = 0;
+	// 其他线程新增的任务先放到这里，由看门狗线程放入时间轮，这样时间轮不需要加锁
+	private final Queue<WatchdogTimeout> newTimeouts = new ConcurrentLinkedQueue<WatchdogTimeout>();
+	// 还没有结束的任务数，为0时看门狗线程睡眠
+	private final AtomicInteger pendingCount = new AtomicInteger();
+	private volatile boolean idle = false;
+	private final long startTime = System.nanoTime();
+	private final Thread thread;
+
+	public Watchdog(String name) {
+		this(name, DEFAULT_TICK_NANOS, DEFAULT_WHEEL_SIZE);
+	}
+
+	/**
+	 * @param name 看门狗线程名
+	 * @param tickNanos 每格代表的时间（毫微秒），也就是到期时间的精度
+	 * @param wheelSize 时间轮的格数，会向上取整为2的幂
+	 */
+	public Watchdog(String name, long tickNanos, int wheelSize) {
+		this.tickNanos = tickNanos;
+		int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+		this.mask = size - 1;
+		wheel = new ArrayList<LinkedList<WatchdogTimeout>>(size);
+		for (int i = 0; i < size; i++) {
+			wheel.add(new LinkedList<WatchdogTimeout>());
+		}
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				Watchdog.this.run();
+			}
+		});
+		thread.setName(name);
+		thread.setDaemon(true);
+		// 看门狗不及时，超时的代码就会一直占用CPU
+		thread.setPriority(Thread.MAX_PRIORITY);
+		thread.start();
+	}
+
+	/**
+	 * 增加一个任务，可以在任何线程中调用
+	 * @param task 任务
+	 * @param delayNanos 多久之后执行（毫微秒）
+	 * @return 用于取消任务
+	 */
+	public WatchdogTimeout schedule(WatchdogTask task, long delayNanos) {
+		WatchdogTimeout timeout = new WatchdogTimeout(this, task,
+				System.nanoTime() + delayNanos);
+		pendingCount.incrementAndGet();
+		newTimeouts.add(timeout);
+		if (idle) {
+			LockSupport.unpark(thread);
+		}
+		return timeout;
+	}
+
+	/**
+	 * @return 还没有结束的任务数
+	 */
+	public int getPendingCount() {
+		return pendingCount.get();
+	}
+
+	void onFinished() {
+		pendingCount.decrementAndGet();
+	}
+
+	private void run() {
+		List<WatchdogTimeout> rescheduled = new ArrayList<WatchdogTimeout>();
+		while (true) {
+			if (pendingCount.get() == 0) {
+				// 先标记再检查，避免新增任务时错过唤醒
+				idle = true;
+				while (pendingCount.get() == 0) {
+					LockSupport.park(this);
+				}
+				idle = false;
+				// 睡眠期间时间轮中只有已经取消的任务，直接跳到当前时间
+				tick = Math.max(tick, (System.nanoTime() - startTime)
+						/ tickNanos);
+			}
+			long tickTime = startTime + (tick + 1) * tickNanos;
+			long waitNanos;
+			while ((waitNanos = tickTime - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(this, waitNanos);
+			}
+			transferNewTimeouts();
+			expire(wheel.get((int) (tick & mask)), rescheduled);
+			// 需要再次执行的任务放回新增队列，下一格再放入时间轮，避免放回正在处理的格子
+			newTimeouts.addAll(rescheduled);
+			rescheduled.clear();
+			tick++;
+		}
+	}
+
+	private void transferNewTimeouts() {
+		WatchdogTimeout timeout;
+		while ((timeout = newTimeouts.poll()) != null) {
+			if (timeout.isCancelled()) {
+				continue;
+			}
+			// 向上取整，保证不会提前到期
+			long deadlineTick = Math.max(tick, (timeout.deadline - startTime
+					+ tickNanos - 1)
+					/ tickNanos);
+			timeout.remainingRounds = (deadlineTick - tick) / (mask + 1);
+			wheel.get((int) (deadlineTick & mask)).add(timeout);
+		}
+	}
+
+	private void expire(LinkedList<WatchdogTimeout> bucket,
+			List<WatchdogTimeout> rescheduled) {
+		Iterator<WatchdogTimeout> iterator = bucket.iterator();
+		while (iterator.hasNext()) {
+			WatchdogTimeout timeout = iterator.next();
+			if (timeout.isCancelled()) {
+				iterator.remove();
+				continue;
+			}
+			if (timeout.remainingRounds > 0) {
+				timeout.remainingRounds--;
+				continue;
+			}
+			iterator.remove();
+			long nextDelayNanos = 0;
+			try {
+				nextDelayNanos = timeout.getTask().onTimeout();
+			} catch (Throwable e) {
+				// 一个任务出错不能影响看门狗处理其他任务
+				System.err.println(e);
+			}
+			if (nextDelayNanos > 0 && !timeout.isCancelled()) {
+				timeout.deadline = System.nanoTime() + nextDelayNanos;
+				rescheduled.add(timeout);
+			} else {
+				timeout.finish();
+			}
+		}
+	}
+}
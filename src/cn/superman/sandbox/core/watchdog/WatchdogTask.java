@@ -0,0 +1,12 @@
+package cn.superman.sandbox.core.watchdog;
+
+/**
+ * 由看门狗在到期时执行的任务
+ */
+public interface WatchdogTask {
+	/**
+	 * 到期时在看门狗线程中调用，所有任务共用这一个线程，不能做耗时的操作
+	 * @return 大于0时表示过这么久（毫微秒）再调用一次，否则任务结束
+	 */
+	long onTimeout();
+}
@@ -0,0 +1,52 @@
+package cn.superman.sandbox.core.watchdog;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 看门狗中的一个定时任务，可以在到期之前取消
+ */
+public class WatchdogTimeout {
+	private final Watchdog watchdog;
+	private final WatchdogTask task;
+	private final AtomicBoolean finished = new AtomicBoolean(false);
+	// 到期时间（毫微秒），以及还需要转过几圈时间轮才到期，只在看门狗线程中使用
+	long deadline;
+	long remainingRounds;
+
+	WatchdogTimeout(Watchdog watchdog, WatchdogTask task, long deadline) {
+		this.watchdog = watchdog;
+		this.task = task;
+		this.deadline = deadline;
+	}
+
+	/**
+	 * 取消任务，正在执行的任务不会被打断，但不会再被调用
+	 * @return 任务还没有结束，并且由这次调用取消时返回true
+	 */
+	public boolean cancel() {
+		if (finished.compareAndSet(false, true)) {
+			watchdog.onFinished();
+			return true;
+		}
+		return false;
+	}
+
+	public boolean isCancelled() {
+		return finished.get();
+	}
+
+	WatchdogTask getTask() {
+		return task;
+	}
+
+	/**
+	 * 任务执行完并且不再继续时调用，与cancel互斥，保证只计数一次
+	 */
+	boolean finish() {
+		if (finished.compareAndSet(false, true)) {
+			watchdog.onFinished();
+			return true;
+		}
+		return false;
+	}
+}
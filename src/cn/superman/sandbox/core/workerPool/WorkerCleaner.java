@@ -0,0 +1,11 @@
+package cn.superman.sandbox.core.workerPool;
+
+/**
+ * 清理工作线程上残留的内容
+ */
+public interface WorkerCleaner {
+	/**
+	 * 每个任务执行完之后，以及工作线程退出之前，在工作线程中调用
+	 */
+	void clean();
+}
@@ -0,0 +1,148 @@
+package cn.superman.sandbox.core.workerPool;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 执行测试用例的工作线程池。线程数固定，测试用例多于线程数时排队，避免同时执行的代码过多导致CPU争抢，影响计时。
+ * 被终止过的线程状态不可信（锁可能只释放了一半），执行完当前任务就退出；代码无法终止时线程直接被放弃。
+ * 这两种情况都会立即启动一个新的线程顶替，保证可用的线程数不变
+ */
+public class WorkerPool implements Executor {
+	private final String name;
+	private final long stackSize;
+	private final WorkerCleaner cleaner;
+	private final BlockingQueue<Runnable> taskQueue = new LinkedBlockingQueue<Runnable>();
+	// 计入线程数的工作线程，被替换掉的线程不在其中，执行完当前任务就退出
+	private final Set<Thread> workers = Collections
+			.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+	private final AtomicInteger activeCount = new AtomicInteger();
+	private final AtomicLong replacedCount = new AtomicLong();
+	private final AtomicInteger threadCount = new AtomicInteger();
+
+	/**
+	 * @param name 线程名前缀
+	 * @param workerCount 线程数，小于等于0时使用CPU核数
+	 * @param stackSize 每个线程的栈大小（字节），为0时使用虚拟机默认值，递归很深的题目需要调大
+	 * @param cleaner 清理工作线程上残留的内容，可以为null
+	 */
+	public WorkerPool(String name, int workerCount, long stackSize,
+			WorkerCleaner cleaner) {
+		this.name = name;
+		this.stackSize = stackSize;
+		this.cleaner = cleaner;
+		if (workerCount <= 0) {
+			workerCount = Runtime.getRuntime().availableProcessors();
+		}
+		for (int i = 0; i < workerCount; i++) {
+			startWorker();
+		}
+	}
+
+	@Override
+	public void execute(Runnable task) {
+		taskQueue.add(task);
+	}
+
+	/**
+	 * 替换掉当前的工作线程，当前任务执行完后线程就退出，在任务中调用
+	 */
+	public void retireCurrentWorker() {
+		retire(Thread.currentThread());
+	}
+
+	/**
+	 * 替换掉指定的工作线程，新的线程立即启动，旧的线程执行完当前任务就退出
+	 * @param worker 工作线程
+	 */
+	public void retire(Thread worker) {
+		if (worker != null && workers.remove(worker)) {
+			replacedCount.incrementAndGet();
+			startWorker();
+		}
+	}
+
+	private void startWorker() {
+		Thread thread = new Thread(null, new Runnable() {
+			@Override
+			public void run() {
+				runWorker();
+			}
+		}, name + " " + threadCount.getAndIncrement(), stackSize);
+		// 新线程会继承创建者的设置，顶替的线程可能由看门狗创建，需要重新设置
+		thread.setDaemon(true);
+		thread.setPriority(Thread.NORM_PRIORITY);
+		workers.add(thread);
+		thread.start();
+	}
+
+	private void runWorker() {
+		Thread current = Thread.currentThread();
+		try {
+			while (workers.contains(current)) {
+				try {
+					Runnable task = taskQueue.take();
+					activeCount.incrementAndGet();
+					try {
+						task.run();
+					} finally {
+						activeCount.decrementAndGet();
+						clean();
+					}
+				} catch (InterruptedException e) {
+					// 工作线程不响应中断，继续执行任务
+				} catch (ThreadDeath death) {
+					// 任务之外被终止了，线程状态不可信，换一个新的
+					retire(current);
+				} catch (Throwable e) {
+					System.err.println(e);
+				}
+			}
+		} finally {
+			// 意外退出时，也要保证线程数不变
+			retire(current);
+			clean();
+		}
+	}
+
+	private void clean() {
+		if (cleaner != null) {
+			try {
+				cleaner.clean();
+			} catch (Throwable e) {
+				System.err.println(e);
+			}
+		}
+	}
+
+	/**
+	 * @return 计入线程数的工作线程数
+	 */
+	public int getWorkerCount() {
+		return workers.size();
+	}
+
+	/**
+	 * @return 正在执行任务的线程数，包括已经被替换但还没有退出的线程
+	 */
+	public int getActiveCount() {
+		return activeCount.get();
+	}
+
+	public int getQueueSize() {
+		return taskQueue.size();
+	}
+
+	/**
+	 * @return 被替换掉的工作线程数
+	 */
+	public long getReplacedCount() {
+		return replacedCount.get();
+	}
+}
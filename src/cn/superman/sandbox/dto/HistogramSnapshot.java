@@ -0,0 +1,89 @@
+package cn.superman.sandbox.dto;
+
+public class HistogramSnapshot {
+	// 记录的次数、总和以及最大值（毫微秒）
+	private long count;
+	private long sum;
+	private long max;
+	// 平均值以及百分位数（毫微秒），百分位数是所在区间的上界，最多比实际值大一倍
+	private long mean;
+	private long p50;
+	private long p90;
+	private long p99;
+	private long p999;
+	// 每个区间的次数，第i个区间为[2^(i-1), 2^i)毫微秒，第0个区间为0，末尾为0的区间会被省略
+	private long[] buckets = new long[0];
+
+	public long getCount() {
+		return count;
+	}
+
+	public void setCount(long count) {
+		this.count = count;
+	}
+
+	public long getSum() {
+		return sum;
+	}
+
+	public void setSum(long sum) {
+		this.sum = sum;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	public void setMax(long max) {
+		this.max = max;
+	}
+
+	public long getMean() {
+		return mean;
+	}
+
+	public void setMean(long mean) {
+		this.mean = mean;
+	}
+
+	public long getP50() {
+		return p50;
+	}
+
+	public void setP50(long p50) {
+		this.p50 = p50;
+	}
+
+	public long getP90() {
+		return p90;
+	}
+
+	public void setP90(long p90) {
+		this.p90 = p90;
+	}
+
+	public long getP99() {
+		return p99;
+	}
+
+	public void setP99(long p99) {
+		this.p99 = p99;
+	}
+
+	public long getP999() {
+		return p999;
+	}
+
+	public void setP999(long p999) {
+		this.p999 = p999;
+	}
+
+	public long[] getBuckets() {
+		return buckets;
+	}
+
+	public void setBuckets(long[] buckets) {
+		this.buckets = buckets;
+	}
+
+}
@@ -0,0 +1,108 @@
+package cn.superman.sandbox.dto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import cn.superman.sandbox.constant.SubmissionKind;
+
+public class LoadTestConfig {
+	// 启动沙箱进程的配置，poolSize为压测的沙箱进程数，classFileRootPath由压测程序设置为语料目录
+	private SupervisorConfig supervisorConfig = createSupervisorConfig();
+	// 同时在判的请求数上限
+	private int concurrency = 4;
+	// 每秒提交的请求数，小于等于0时不限制，只受concurrency限制
+	private double ratePerSecond = 0;
+	// 预热时长（毫秒），这段时间内的结果不计入报告
+	private long warmUpMillis = 5000;
+	// 压测时长（毫秒）
+	private long durationMillis = 30000;
+	// 各种类型提交的权重，为0或者不在其中的类型不会被提交
+	private Map<String, Integer> kindWeights = createKindWeights();
+	// 选择提交类型的随机种子，相同的种子提交顺序相同
+	private long seed = 1;
+	// 报告（JSON）的输出文件，为null时只输出到标准输出
+	private String reportFile;
+
+	public SupervisorConfig getSupervisorConfig() {
+		return supervisorConfig;
+	}
+
+	public void setSupervisorConfig(SupervisorConfig supervisorConfig) {
+		this.supervisorConfig = supervisorConfig;
+	}
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	public double getRatePerSecond() {
+		return ratePerSecond;
+	}
+
+	public void setRatePerSecond(double ratePerSecond) {
+		this.ratePerSecond = ratePerSecond;
+	}
+
+	public long getWarmUpMillis() {
+		return warmUpMillis;
+	}
+
+	public void setWarmUpMillis(long warmUpMillis) {
+		this.warmUpMillis = warmUpMillis;
+	}
+
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+
+	public void setDurationMillis(long durationMillis) {
+		this.durationMillis = durationMillis;
+	}
+
+	public Map<String, Integer> getKindWeights() {
+		return kindWeights;
+	}
+
+	public void setKindWeights(Map<String, Integer> kindWeights) {
+		this.kindWeights = kindWeights;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public String getReportFile() {
+		return reportFile;
+	}
+
+	public void setReportFile(String reportFile) {
+		this.reportFile = reportFile;
+	}
+
+	private static SupervisorConfig createSupervisorConfig() {
+		SupervisorConfig supervisorConfig = new SupervisorConfig();
+		supervisorConfig.setPoolSize(1);
+		return supervisorConfig;
+	}
+
+	private static Map<String, Integer> createKindWeights() {
+		Map<String, Integer> kindWeights = new LinkedHashMap<String, Integer>();
+		kindWeights.put(SubmissionKind.CPU_BOUND, 4);
+		kindWeights.put(SubmissionKind.IO_HEAVY, 4);
+		kindWeights.put(SubmissionKind.ALLOCATION_HEAVY, 4);
+		kindWeights.put(SubmissionKind.TIME_LIMIT, 1);
+		kindWeights.put(SubmissionKind.MEMORY_LIMIT, 1);
+		kindWeights.put(SubmissionKind.MEMORY_CHURN, 1);
+		kindWeights.put(SubmissionKind.OUTPUT_FLOOD, 1);
+		return kindWeights;
+	}
+
+}
@@ -0,0 +1,66 @@
+package cn.superman.sandbox.dto;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class LoadTestKindReport {
+	// 提交类型以及预期的判题结果
+	private String kind;
+	private String expectedVerdict;
+	// 提交数、判题结果与预期不一致（包括判题失败）的数量
+	private long submittedCount;
+	private long mismatchCount;
+	// 每种判题结果的数量，判题失败记为ERROR
+	private Map<String, Long> verdictCounts = new HashMap<String, Long>();
+	// 从计划提交到收到结果的耗时
+	private LatencySummary latency = new LatencySummary();
+
+	public String getKind() {
+		return kind;
+	}
+
+	public void setKind(String kind) {
+		this.kind = kind;
+	}
+
+	public String getExpectedVerdict() {
+		return expectedVerdict;
+	}
+
+	public void setExpectedVerdict(String expectedVerdict) {
+		this.expectedVerdict = expectedVerdict;
+	}
+
+	public long getSubmittedCount() {
+		return submittedCount;
+	}
+
+	public void setSubmittedCount(long submittedCount) {
+		this.submittedCount = submittedCount;
+	}
+
+	public long getMismatchCount() {
+		return mismatchCount;
+	}
+
+	public void setMismatchCount(long mismatchCount) {
+		this.mismatchCount = mismatchCount;
+	}
+
+	public Map<String, Long> getVerdictCounts() {
+		return verdictCounts;
+	}
+
+	public void setVerdictCounts(Map<String, Long> verdictCounts) {
+		this.verdictCounts = verdictCounts;
+	}
+
+	public LatencySummary getLatency() {
+		return latency;
+	}
+
+	public void setLatency(LatencySummary latency) {
+		this.latency = latency;
+	}
+
+}
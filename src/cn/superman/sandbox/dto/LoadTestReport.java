@@ -0,0 +1,141 @@
+package cn.superman.sandbox.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LoadTestReport {
+	// 压测开始时间以及实际时长（毫秒），时长包括等待最后一批结果的时间
+	private long startTime;
+	private long durationMillis;
+	// 压测配置
+	private int poolSize;
+	private int concurrentJudgeCount;
+	private int concurrency;
+	private double ratePerSecond;
+	// 提交数、收到结果的数量以及判题失败的数量
+	private long submittedCount;
+	private long completedCount;
+	private long failedCount;
+	// 每秒收到的结果数
+	private double throughputPerSecond;
+	// 判题结果与预期不一致的数量，以及占所有提交的比例
+	private long mismatchCount;
+	private double verdictDrift;
+	// 从计划提交到收到结果的耗时，限制了提交速率时从计划的提交时间开始算，排队等待的时间也算在内
+	private LatencySummary latency = new LatencySummary();
+	// 每种提交类型的结果
+	private List<LoadTestKindReport> kindReports = new ArrayList<LoadTestKindReport>();
+
+	public long getStartTime() {
+		return startTime;
+	}
+
+	public void setStartTime(long startTime) {
+		this.startTime = startTime;
+	}
+
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+
+	public void setDurationMillis(long durationMillis) {
+		this.durationMillis = durationMillis;
+	}
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	public void setPoolSize(int poolSize) {
+		this.poolSize = poolSize;
+	}
+
+	public int getConcurrentJudgeCount() {
+		return concurrentJudgeCount;
+	}
+
+	public void setConcurrentJudgeCount(int concurrentJudgeCount) {
+		this.concurrentJudgeCount = concurrentJudgeCount;
+	}
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	public void setConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+	}
+
+	public double getRatePerSecond() {
+		return ratePerSecond;
+	}
+
+	public void setRatePerSecond(double ratePerSecond) {
+		this.ratePerSecond = ratePerSecond;
+	}
+
+	public long getSubmittedCount() {
+		return submittedCount;
+	}
+
+	public void setSubmittedCount(long submittedCount) {
+		this.submittedCount = submittedCount;
+	}
+
+	public long getCompletedCount() {
+		return completedCount;
+	}
+
+	public void setCompletedCount(long completedCount) {
+		this.completedCount = completedCount;
+	}
+
+	public long getFailedCount() {
+		return failedCount;
+	}
+
+	public void setFailedCount(long failedCount) {
+		this.failedCount = failedCount;
+	}
+
+	public double getThroughputPerSecond() {
+		return throughputPerSecond;
+	}
+
+	public void setThroughputPerSecond(double throughputPerSecond) {
+		this.throughputPerSecond = throughputPerSecond;
+	}
+
+	public long getMismatchCount() {
+		return mismatchCount;
+	}
+
+	public void setMismatchCount(long mismatchCount) {
+		this.mismatchCount = mismatchCount;
+	}
+
+	public double getVerdictDrift() {
+		return verdictDrift;
+	}
+
+	public void setVerdictDrift(double verdictDrift) {
+		this.verdictDrift = verdictDrift;
+	}
+
+	public LatencySummary getLatency() {
+		return latency;
+	}
+
+	public void setLatency(LatencySummary latency) {
+		this.latency = latency;
+	}
+
+	public List<LoadTestKindReport> getKindReports() {
+		return kindReports;
+	}
+
+	public void setKindReports(List<LoadTestKindReport> kindReports) {
+		this.kindReports = kindReports;
+	}
+
+}
@@ -3,12 +3,35 @@ package cn.superman.sandbox.dto;
 import java.util.ArrayList;
 import java.util.List;
 
+import cn.superman.sandbox.constant.CompareMode;
+import cn.superman.sandbox.constant.EntryMethod;
+import cn.superman.sandbox.constant.JudgeMode;
+
 public class Problem {
 	private long timeLimit;
 	private long memoryLimit;
+	// 每个测试用例最多允许输出的字节数，小于等于0时表示不限制
+	private long outputLimit = 64 * 1024 * 1024;
+	// 入口类的类名，带包名的类使用完整类名
 	private String classFileName;
+	// 提交的jar包路径，为空时只从class文件根目录中加载
+	private String jarFilePath;
 	private String runId;
 	private List<String> inputDataFilePathList = new ArrayList<String>();
+	// 标准答案文件路径，与inputDataFilePathList一一对应，为空时不在沙箱中比对答案，而是把输出结果返回给外界
+	private List<String> outputDataFilePathList = new ArrayList<String>();
+	// 比对方式，见CompareMode
+	private String compareMode = CompareMode.EXACT;
+	// 浮点数比对时允许的误差
+	private double floatEpsilon = 1e-6;
+	// 为true时每个测试用例判完就单独返回结果，最后再返回一个汇总结果，而不是等所有测试用例都判完再一起返回
+	private boolean streamResult;
+	// 判题方式，见JudgeMode
+	private String judgeMode = JudgeMode.FULL;
+	// 答案检查器的完整类名，不为空时由答案检查器判断输出是否正确，不再与标准答案逐个比对，标准答案会交给答案检查器
+	private String checkerClassName;
+	// 代码的入口方法，见EntryMethod
+	private String entryMethod = EntryMethod.MAIN;
 
 	public long getTimeLimit() {
 		return timeLimit;
@@ -26,6 +49,14 @@ public class Problem {
 		this.memoryLimit = memoryLimit;
 	}
 
+	public long getOutputLimit() {
+		return outputLimit;
+	}
+
+	public void setOutputLimit(long outputLimit) {
+		this.outputLimit = outputLimit;
+	}
+
 	public String getClassFileName() {
 		return classFileName;
 	}
@@ -34,6 +65,14 @@ public class Problem {
 		this.classFileName = classFileName;
 	}
 
+	public String getJarFilePath() {
+		return jarFilePath;
+	}
+
+	public void setJarFilePath(String jarFilePath) {
+		this.jarFilePath = jarFilePath;
+	}
+
 	public String getRunId() {
 		return runId;
 	}
@@ -50,12 +89,74 @@ public class Problem {
 		this.inputDataFilePathList = inputDataFilePathList;
 	}
 
+	public List<String> getOutputDataFilePathList() {
+		return outputDataFilePathList;
+	}
+
+	public void setOutputDataFilePathList(List<String> outputDataFilePathList) {
+		this.outputDataFilePathList = outputDataFilePathList;
+	}
+
+	public String getCompareMode() {
+		return compareMode;
+	}
+
+	public void setCompareMode(String compareMode) {
+		this.compareMode = compareMode;
+	}
+
+	public double getFloatEpsilon() {
+		return floatEpsilon;
+	}
+
+	public void setFloatEpsilon(double floatEpsilon) {
+		this.floatEpsilon = floatEpsilon;
+	}
+
+	public boolean isStreamResult() {
+		return streamResult;
+	}
+
+	public void setStreamResult(boolean streamResult) {
+		this.streamResult = streamResult;
+	}
+
+	public String getJudgeMode() {
+		return judgeMode;
+	}
+
+	public void setJudgeMode(String judgeMode) {
+		this.judgeMode = judgeMode;
+	}
+
+	public String getCheckerClassName() {
+		return checkerClassName;
+	}
+
+	public void setCheckerClassName(String checkerClassName) {
+		this.checkerClassName = checkerClassName;
+	}
+
+	public String getEntryMethod() {
+		return entryMethod;
+	}
+
+	public void setEntryMethod(String entryMethod) {
+		this.entryMethod = entryMethod;
+	}
+
 	@Override
 	public String toString() {
 		return "Problem [timeLimit=" + timeLimit + ", memoryLimit="
-				+ memoryLimit + ", classFileName=" + classFileName + ", runId="
-				+ runId + ", inputDataFilePathList=" + inputDataFilePathList
-				+ "]";
+				+ memoryLimit + ", outputLimit=" + outputLimit
+				+ ", classFileName=" + classFileName + ", jarFilePath="
+				+ jarFilePath + ", runId=" + runId
+				+ ", inputDataFilePathList=" + inputDataFilePathList
+				+ ", outputDataFilePathList=" + outputDataFilePathList
+				+ ", compareMode=" + compareMode + ", floatEpsilon="
+				+ floatEpsilon + ", streamResult=" + streamResult
+				+ ", judgeMode=" + judgeMode + ", checkerClassName="
+				+ checkerClassName + ", entryMethod=" + entryMethod + "]";
 	}
 
 }
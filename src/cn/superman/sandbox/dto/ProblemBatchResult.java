@@ -0,0 +1,34 @@
+package cn.superman.sandbox.dto;
+
+/**
+ * 批量判题的汇总结果，各道题的结果已经逐个返回，这里只有数量，外界可以用它核对是否收齐了
+ */
+public class ProblemBatchResult {
+	// 批量判题请求中的题目数
+	private int problemCount;
+	// 判题失败的题目数，失败的原因在各道题的结果中
+	private int failedCount;
+
+	public int getProblemCount() {
+		return problemCount;
+	}
+
+	public void setProblemCount(int problemCount) {
+		this.problemCount = problemCount;
+	}
+
+	public int getFailedCount() {
+		return failedCount;
+	}
+
+	public void setFailedCount(int failedCount) {
+		this.failedCount = failedCount;
+	}
+
+	@Override
+	public String toString() {
+		return "ProblemBatchResult [problemCount=" + problemCount
+				+ ", failedCount=" + failedCount + "]";
+	}
+
+}
@@ -6,6 +6,10 @@ import java.util.List;
 public class ProblemResult {
 	private String runId;
 	private List<ProblemResultItem> resultItems = new ArrayList<ProblemResultItem>();
+	// 测试用例总数，逐个返回结果时，汇总结果中不再包含各个测试用例的结果，外界可以用它核对是否收齐了
+	private int testCount;
+	// 判题失败（如入口类无法加载）的原因，只有批量判题时才会在这里返回，单道题判题失败时以ERROR回复
+	private String errorMessage;
 
 	public String getRunId() {
 		return runId;
@@ -23,4 +27,20 @@ public class ProblemResult {
 		this.resultItems = resultItems;
 	}
 
+	public int getTestCount() {
+		return testCount;
+	}
+
+	public void setTestCount(int testCount) {
+		this.testCount = testCount;
+	}
+
+	public String getErrorMessage() {
+		return errorMessage;
+	}
+
+	public void setErrorMessage(String errorMessage) {
+		this.errorMessage = errorMessage;
+	}
+
 }
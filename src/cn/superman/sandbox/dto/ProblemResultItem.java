@@ -1,12 +1,30 @@
 package cn.superman.sandbox.dto;
 
 public class ProblemResultItem {
+	// 执行线程实际占用的CPU时间（毫秒），判断是否超时以这个时间为准
 	private long useTime;
+	// 从开始执行到结束所经过的时间（毫秒），仅作参考
+	private long useWallTime;
 	private long useMemory;
+	// 执行线程在执行期间分配的内存总量（字节），虚拟机不支持统计时为-1
+	private long allocatedBytes = -1;
+	// 代码的输出结果，在沙箱中比对答案时不返回输出结果，只返回比对结果
 	private String result;
+	// 判题结果，见Verdict
+	private String verdict;
+	// 输出与标准答案第一个不同之处在输出中的位置（字节），没有不同或者没有比对时为-1
+	private long firstDifferencePosition = -1;
+	// 输出内容的MD5摘要，只有在沙箱中比对答案时才有
+	private String outputDigest;
 	private String message;
 	private boolean isNormal;
 	private String inputFilePath;
+	// 测试用例在inputDataFilePathList中的下标，测试用例是并行执行的，结果的顺序不一定与测试用例的顺序一致
+	private int testIndex = -1;
+	// 答案检查器占用的CPU时间（毫秒），单独统计，不算在useTime中，没有使用答案检查器时为-1
+	private long checkerTime = -1;
+	// 代码的输出，只在沙箱内部交给答案检查器使用，不会返回给外界
+	private transient byte[] output;
 
 	public long getUseTime() {
 		return useTime;
@@ -16,6 +34,14 @@ public class ProblemResultItem {
 		this.useTime = useTime;
 	}
 
+	public long getUseWallTime() {
+		return useWallTime;
+	}
+
+	public void setUseWallTime(long useWallTime) {
+		this.useWallTime = useWallTime;
+	}
+
 	public long getUseMemory() {
 		return useMemory;
 	}
@@ -24,6 +50,14 @@ public class ProblemResultItem {
 		this.useMemory = useMemory;
 	}
 
+	public long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	public void setAllocatedBytes(long allocatedBytes) {
+		this.allocatedBytes = allocatedBytes;
+	}
+
 	public String getResult() {
 		return result;
 	}
@@ -32,6 +66,30 @@ public class ProblemResultItem {
 		this.result = result;
 	}
 
+	public String getVerdict() {
+		return verdict;
+	}
+
+	public void setVerdict(String verdict) {
+		this.verdict = verdict;
+	}
+
+	public long getFirstDifferencePosition() {
+		return firstDifferencePosition;
+	}
+
+	public void setFirstDifferencePosition(long firstDifferencePosition) {
+		this.firstDifferencePosition = firstDifferencePosition;
+	}
+
+	public String getOutputDigest() {
+		return outputDigest;
+	}
+
+	public void setOutputDigest(String outputDigest) {
+		this.outputDigest = outputDigest;
+	}
+
 	public String getMessage() {
 		return message;
 	}
@@ -56,12 +114,40 @@ public class ProblemResultItem {
 		this.inputFilePath = inputFilePath;
 	}
 
+	public int getTestIndex() {
+		return testIndex;
+	}
+
+	public void setTestIndex(int testIndex) {
+		this.testIndex = testIndex;
+	}
+
+	public long getCheckerTime() {
+		return checkerTime;
+	}
+
+	public void setCheckerTime(long checkerTime) {
+		this.checkerTime = checkerTime;
+	}
+
+	public byte[] getOutput() {
+		return output;
+	}
+
+	public void setOutput(byte[] output) {
+		this.output = output;
+	}
+
 	@Override
 	public String toString() {
-		return "ProblemResultItem [useTime=" + useTime + ", useMemory="
-				+ useMemory + ", result=" + result + ", message=" + message
-				+ ", isNormal=" + isNormal + ", inputFilePath=" + inputFilePath
-				+ "]";
+		return "ProblemResultItem [useTime=" + useTime + ", useWallTime="
+				+ useWallTime + ", useMemory=" + useMemory + ", allocatedBytes="
+				+ allocatedBytes + ", result=" + result + ", verdict="
+				+ verdict + ", firstDifferencePosition="
+				+ firstDifferencePosition + ", outputDigest=" + outputDigest
+				+ ", message=" + message + ", isNormal=" + isNormal
+				+ ", inputFilePath=" + inputFilePath + ", testIndex="
+				+ testIndex + ", checkerTime=" + checkerTime + "]";
 	}
 
 }
@@ -5,6 +5,8 @@ public class Response {
 	private String responseCommand;
 	private String data;
 	private String signalId;
+	// 还没有编码的回复内容，由通信协议决定如何编码（JSON协议会编码后放到data中），不参与JSON序列化
+	private transient Object body;
 
 	public String getResponseCommand() {
 		return responseCommand;
@@ -38,4 +40,12 @@ public class Response {
 		this.signalId = signalId;
 	}
 
+	public Object getBody() {
+		return body;
+	}
+
+	public void setBody(Object body) {
+		this.body = body;
+	}
+
 }
@@ -1,11 +1,44 @@
 package cn.superman.sandbox.dto;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class SandBoxStatus {
 	private String pid;
 	private long useMemory;
 	private long maxMemory;
 	private long beginStartTime;
 	private boolean isBusy;
+	// 从虚拟机启动到可以判题所花的时间（毫秒），包括预热判题的时间
+	private long startupTime;
+	// 预热判题所花的时间（毫秒），没有预热时为0
+	private long warmUpTime;
+	// 从虚拟机启动到第一道题判完所花的时间（毫秒），还没有判过题时为-1
+	private long timeToFirstJudge = -1;
+	// 判题槽位总数
+	private int slotCount;
+	// 正在判题的槽位数
+	private int busySlotCount;
+	// 每个槽位当前正在判的题目runId，空闲的槽位为null
+	private List<String> slotRunIds = new ArrayList<String>();
+	// 已经收到但还没有返回结果的判题请求数，包括正在判的和排队的
+	private int inFlightJudgeCount;
+	// 测试数据缓存的命中次数、未命中次数、淘汰次数、缓存的文件数以及缓存的总量（字节）
+	private long testDataCacheHitCount;
+	private long testDataCacheMissCount;
+	private long testDataCacheEvictionCount;
+	private int testDataCacheFileCount;
+	private long testDataCacheBytes;
+	// 虚拟机当前加载的类数量以及元空间的使用量（字节）
+	private int loadedClassCount;
+	private long metaspaceUsed;
+	// 类加载器替换次数、已经替换但还没有被回收的类加载器数量、已经被回收的类加载器数量
+	private long classLoaderRecycleCount;
+	private int pendingClassLoaderCount;
+	private long unloadedClassLoaderCount;
+	// 字节码检查通过以及被拒绝的次数，不检查字节码时都为0
+	private long verifiedBytecodeCount;
+	private long rejectedBytecodeCount;
 
 	public String getPid() {
 		return pid;
@@ -47,4 +80,156 @@ public class SandBoxStatus {
 		this.isBusy = isBusy;
 	}
 
+	public int getSlotCount() {
+		return slotCount;
+	}
+
+	public void setSlotCount(int slotCount) {
+		this.slotCount = slotCount;
+	}
+
+	public int getBusySlotCount() {
+		return busySlotCount;
+	}
+
+	public void setBusySlotCount(int busySlotCount) {
+		this.busySlotCount = busySlotCount;
+	}
+
+	public List<String> getSlotRunIds() {
+		return slotRunIds;
+	}
+
+	public void setSlotRunIds(List<String> slotRunIds) {
+		this.slotRunIds = slotRunIds;
+	}
+
+	public long getTestDataCacheHitCount() {
+		return testDataCacheHitCount;
+	}
+
+	public void setTestDataCacheHitCount(long testDataCacheHitCount) {
+		this.testDataCacheHitCount = testDataCacheHitCount;
+	}
+
+	public long getTestDataCacheMissCount() {
+		return testDataCacheMissCount;
+	}
+
+	public void setTestDataCacheMissCount(long testDataCacheMissCount) {
+		this.testDataCacheMissCount = testDataCacheMissCount;
+	}
+
+	public long getTestDataCacheEvictionCount() {
+		return testDataCacheEvictionCount;
+	}
+
+	public void setTestDataCacheEvictionCount(long testDataCacheEvictionCount) {
+		this.testDataCacheEvictionCount = testDataCacheEvictionCount;
+	}
+
+	public int getTestDataCacheFileCount() {
+		return testDataCacheFileCount;
+	}
+
+	public void setTestDataCacheFileCount(int testDataCacheFileCount) {
+		this.testDataCacheFileCount = testDataCacheFileCount;
+	}
+
+	public long getTestDataCacheBytes() {
+		return testDataCacheBytes;
+	}
+
+	public void setTestDataCacheBytes(long testDataCacheBytes) {
+		this.testDataCacheBytes = testDataCacheBytes;
+	}
+
+	public int getLoadedClassCount() {
+		return loadedClassCount;
+	}
+
+	public void setLoadedClassCount(int loadedClassCount) {
+		this.loadedClassCount = loadedClassCount;
+	}
+
+	public long getMetaspaceUsed() {
+		return metaspaceUsed;
+	}
+
+	public void setMetaspaceUsed(long metaspaceUsed) {
+		this.metaspaceUsed = metaspaceUsed;
+	}
+
+	public long getClassLoaderRecycleCount() {
+		return classLoaderRecycleCount;
+	}
+
+	public void setClassLoaderRecycleCount(long classLoaderRecycleCount) {
+		this.classLoaderRecycleCount = classLoaderRecycleCount;
+	}
+
+	public int getPendingClassLoaderCount() {
+		return pendingClassLoaderCount;
+	}
+
+	public void setPendingClassLoaderCount(int pendingClassLoaderCount) {
+		this.pendingClassLoaderCount = pendingClassLoaderCount;
+	}
+
+	public long getUnloadedClassLoaderCount() {
+		return unloadedClassLoaderCount;
+	}
+
+	public void setUnloadedClassLoaderCount(long unloadedClassLoaderCount) {
+		this.unloadedClassLoaderCount = unloadedClassLoaderCount;
+	}
+
+	public long getVerifiedBytecodeCount() {
+		return verifiedBytecodeCount;
+	}
+
+	public void setVerifiedBytecodeCount(long verifiedBytecodeCount) {
+		this.verifiedBytecodeCount = verifiedBytecodeCount;
+	}
+
+	public long getRejectedBytecodeCount() {
+		return rejectedBytecodeCount;
+	}
+
+	public void setRejectedBytecodeCount(long rejectedBytecodeCount) {
+		this.rejectedBytecodeCount = rejectedBytecodeCount;
+	}
+
+	public int getInFlightJudgeCount() {
+		return inFlightJudgeCount;
+	}
+
+	public void setInFlightJudgeCount(int inFlightJudgeCount) {
+		this.inFlightJudgeCount = inFlightJudgeCount;
+	}
+
+	public long getStartupTime() {
+		return startupTime;
+	}
+
+	public void setStartupTime(long startupTime) {
+		this.startupTime = startupTime;
+	}
+
+	public long getWarmUpTime() {
+		return warmUpTime;
+	}
+
+	public void setWarmUpTime(long warmUpTime) {
+		this.warmUpTime = warmUpTime;
+	}
+
+	public long getTimeToFirstJudge() {
+		return timeToFirstJudge;
+	}
+
+	public void setTimeToFirstJudge(long timeToFirstJudge) {
+		this.timeToFirstJudge = timeToFirstJudge;
+	}
+
 }
@@ -1,8 +1,34 @@
 package cn.superman.sandbox.dto;
 
+import cn.superman.sandbox.constant.SecurityMode;
+import cn.superman.sandbox.core.classLoader.ClassLoaderRecycler;
+import cn.superman.sandbox.core.testDataCache.TestDataCache;
+
 public class SandboxInitData {
 	private int port;
 	private String classFileRootPath;
+	// 同一个沙箱进程中，允许同时判题的数量（即判题槽位数），小于等于0时按1处理
+	private int concurrentJudgeCount = 1;
+	// 输出缓冲是否使用堆外内存
+	private boolean directOutputBuffer = false;
+	// 测试数据缓存的总量上限（字节）
+	private long testDataCacheBytes = TestDataCache.DEFAULT_MAX_CACHED_BYTES;
+	// 共享的类加载器创建后，元空间增长超过这个值（字节）就换一个新的类加载器
+	private long metaspaceGrowthLimit = ClassLoaderRecycler.DEFAULT_METASPACE_GROWTH_LIMIT;
+	// 共享的类加载器定义的类超过这个数量就换一个新的类加载器
+	private int maxClassCountPerClassLoader = ClassLoaderRecycler.DEFAULT_MAX_CLASS_COUNT;
+	// 打开通道之前，先进行预热判题的次数，为0时不预热
+	private int warmUpJudgeCount = 0;
+	// 执行测试用例的线程数，所有题目的测试用例共用这些线程，小于等于0时使用CPU核数
+	private int testCaseWorkerCount = 0;
+	// 执行测试用例的线程的栈大小（字节），递归很深的题目需要调大，为0时使用虚拟机默认值
+	private long testCaseStackSize = 0;
+	// 答案检查器目录，为空时不支持使用答案检查器的题目
+	private String checkerClassRootPath;
+	// 执行答案检查器的线程数，小于等于0时使用CPU核数
+	private int checkerWorkerCount = 0;
+	// 限制提交代码的方式，见SecurityMode
+	private String securityMode = SecurityMode.SECURITY_MANAGER;
 
 	public int getPort() {
 		return port;
@@ -20,4 +46,92 @@ public class SandboxInitData {
 		this.classFileRootPath = classFileRootPath;
 	}
 
+	public int getConcurrentJudgeCount() {
+		return concurrentJudgeCount;
+	}
+
+	public void setConcurrentJudgeCount(int concurrentJudgeCount) {
+		this.concurrentJudgeCount = concurrentJudgeCount;
+	}
+
+	public boolean isDirectOutputBuffer() {
+		return directOutputBuffer;
+	}
+
+	public void setDirectOutputBuffer(boolean directOutputBuffer) {
+		this.directOutputBuffer = directOutputBuffer;
+	}
+
+	public long getTestDataCacheBytes() {
+		return testDataCacheBytes;
+	}
+
+	public void setTestDataCacheBytes(long testDataCacheBytes) {
+		this.testDataCacheBytes = testDataCacheBytes;
+	}
+
+	public long getMetaspaceGrowthLimit() {
+		return metaspaceGrowthLimit;
+	}
+
+	public void setMetaspaceGrowthLimit(long metaspaceGrowthLimit) {
+		this.metaspaceGrowthLimit = metaspaceGrowthLimit;
+	}
+
+	public int getMaxClassCountPerClassLoader() {
+		return maxClassCountPerClassLoader;
+	}
+
+	public void setMaxClassCountPerClassLoader(int maxClassCountPerClassLoader) {
+		this.maxClassCountPerClassLoader = maxClassCountPerClassLoader;
+	}
+
+	public int getWarmUpJudgeCount() {
+		return warmUpJudgeCount;
+	}
+
+	public void setWarmUpJudgeCount(int warmUpJudgeCount) {
+		this.warmUpJudgeCount = warmUpJudgeCount;
+	}
+
+	public int getTestCaseWorkerCount() {
+		return testCaseWorkerCount;
+	}
+
+	public void setTestCaseWorkerCount(int testCaseWorkerCount) {
+		this.testCaseWorkerCount = testCaseWorkerCount;
+	}
+
+	public long getTestCaseStackSize() {
+		return testCaseStackSize;
+	}
+
+	public void setTestCaseStackSize(long testCaseStackSize) {
+		this.testCaseStackSize = testCaseStackSize;
+	}
+
+	public String getCheckerClassRootPath() {
+		return checkerClassRootPath;
+	}
+
+	public void setCheckerClassRootPath(String checkerClassRootPath) {
+		this.checkerClassRootPath = checkerClassRootPath;
+	}
+
+	public int getCheckerWorkerCount() {
+		return checkerWorkerCount;
+	}
+
+	public void setCheckerWorkerCount(int checkerWorkerCount) {
+		this.checkerWorkerCount = checkerWorkerCount;
+	}
+
+	public String getSecurityMode() {
+		return securityMode;
+	}
+
+	public void setSecurityMode(String securityMode) {
+		this.securityMode = securityMode;
+	}
+
 }
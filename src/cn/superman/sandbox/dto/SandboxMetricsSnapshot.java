@@ -0,0 +1,271 @@
+package cn.superman.sandbox.dto;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class SandboxMetricsSnapshot {
+	// 沙箱进程已经运行的时间（毫秒）
+	private long uptime;
+	// 收到、成功返回结果、失败的判题请求数，预热判题不计算在内
+	private long receivedJudgeCount;
+	private long completedJudgeCount;
+	private long failedJudgeCount;
+	// 各个阶段的耗时（毫微秒）：排队等待判题线程、解析题目、加载入口类、执行所有测试用例、编码并写出结果，以及从收到请求到写出结果的总耗时
+	private HistogramSnapshot queueWaitLatency = new HistogramSnapshot();
+	private HistogramSnapshot parseLatency = new HistogramSnapshot();
+	private HistogramSnapshot classLoadLatency = new HistogramSnapshot();
+	private HistogramSnapshot executeLatency = new HistogramSnapshot();
+	private HistogramSnapshot responseWriteLatency = new HistogramSnapshot();
+	private HistogramSnapshot judgeLatency = new HistogramSnapshot();
+	// 判过的测试用例数，以及每种判题结果的测试用例数
+	private long testCaseCount;
+	private Map<String, Long> verdictCounts = new HashMap<String, Long>();
+	// 单个测试用例的CPU时间以及执行时间（毫微秒），只精确到毫秒
+	private HistogramSnapshot testCaseCpuTime = new HistogramSnapshot();
+	private HistogramSnapshot testCaseWallTime = new HistogramSnapshot();
+	// 答案检查器占用的CPU时间，只统计使用了答案检查器的测试用例
+	private HistogramSnapshot checkerTime = new HistogramSnapshot();
+	// 类加载器替换次数、已经替换但还没有被回收的类加载器数量、已经被回收的类加载器数量
+	private long classLoaderRecycleCount;
+	private int pendingClassLoaderCount;
+	private long unloadedClassLoaderCount;
+	// 判题线程池的线程数、正在判题的线程数以及排队的判题请求数
+	private int problemThreadPoolSize;
+	private int problemThreadPoolActiveCount;
+	private int problemThreadPoolQueueSize;
+	// 执行测试用例的线程数、正在执行测试用例的线程数、排队的测试用例数以及被替换掉的线程数
+	private int testCaseWorkerCount;
+	private int testCaseWorkerActiveCount;
+	private int testCaseQueueSize;
+	private long replacedWorkerCount;
+	// 看门狗正在检查是否超时的测试用例数
+	private int watchdogPendingCount;
+	// 所有垃圾收集器累计的收集次数以及耗时（毫秒）
+	private long gcCount;
+	private long gcTime;
+
+	public long getUptime() {
+		return uptime;
+	}
+
+	public void setUptime(long uptime) {
+		this.uptime = uptime;
+	}
+
+	public long getReceivedJudgeCount() {
+		return receivedJudgeCount;
+	}
+
+	public void setReceivedJudgeCount(long receivedJudgeCount) {
+		this.receivedJudgeCount = receivedJudgeCount;
+	}
+
+	public long getCompletedJudgeCount() {
+		return completedJudgeCount;
+	}
+
+	public void setCompletedJudgeCount(long completedJudgeCount) {
+		this.completedJudgeCount = completedJudgeCount;
+	}
+
+	public long getFailedJudgeCount() {
+		return failedJudgeCount;
+	}
+
+	public void setFailedJudgeCount(long failedJudgeCount) {
+		this.failedJudgeCount = failedJudgeCount;
+	}
+
+	public HistogramSnapshot getQueueWaitLatency() {
+		return queueWaitLatency;
+	}
+
+	public void setQueueWaitLatency(HistogramSnapshot queueWaitLatency) {
+		this.queueWaitLatency = queueWaitLatency;
+	}
+
+	public HistogramSnapshot getParseLatency() {
+		return parseLatency;
+	}
+
+	public void setParseLatency(HistogramSnapshot parseLatency) {
+		this.parseLatency = parseLatency;
+	}
+
+	public HistogramSnapshot getClassLoadLatency() {
+		return classLoadLatency;
+	}
+
+	public void setClassLoadLatency(HistogramSnapshot classLoadLatency) {
+		this.classLoadLatency = classLoadLatency;
+	}
+
+	public HistogramSnapshot getExecuteLatency() {
+		return executeLatency;
+	}
+
+	public void setExecuteLatency(HistogramSnapshot executeLatency) {
+		this.executeLatency = executeLatency;
+	}
+
+	public HistogramSnapshot getResponseWriteLatency() {
+		return responseWriteLatency;
+	}
+
+	public void setResponseWriteLatency(HistogramSnapshot responseWriteLatency) {
+		this.responseWriteLatency = responseWriteLatency;
+	}
+
+	public HistogramSnapshot getJudgeLatency() {
+		return judgeLatency;
+	}
+
+	public void setJudgeLatency(HistogramSnapshot judgeLatency) {
+		this.judgeLatency = judgeLatency;
+	}
+
+	public long getTestCaseCount() {
+		return testCaseCount;
+	}
+
+	public void setTestCaseCount(long testCaseCount) {
+		this.testCaseCount = testCaseCount;
+	}
+
+	public Map<String, Long> getVerdictCounts() {
+		return verdictCounts;
+	}
+
+	public void setVerdictCounts(Map<String, Long> verdictCounts) {
+		this.verdictCounts = verdictCounts;
+	}
+
+	public HistogramSnapshot getTestCaseCpuTime() {
+		return testCaseCpuTime;
+	}
+
+	public void setTestCaseCpuTime(HistogramSnapshot testCaseCpuTime) {
+		this.testCaseCpuTime = testCaseCpuTime;
+	}
+
+	public HistogramSnapshot getTestCaseWallTime() {
+		return testCaseWallTime;
+	}
+
+	public void setTestCaseWallTime(HistogramSnapshot testCaseWallTime) {
+		this.testCaseWallTime = testCaseWallTime;
+	}
+
+	public HistogramSnapshot getCheckerTime() {
+		return checkerTime;
+	}
+
+	public void setCheckerTime(HistogramSnapshot checkerTime) {
+		this.checkerTime = checkerTime;
+	}
+
+	public long getClassLoaderRecycleCount() {
+		return classLoaderRecycleCount;
+	}
+
+	public void setClassLoaderRecycleCount(long classLoaderRecycleCount) {
+		this.classLoaderRecycleCount = classLoaderRecycleCount;
+	}
+
+	public int getPendingClassLoaderCount() {
+		return pendingClassLoaderCount;
+	}
+
+	public void setPendingClassLoaderCount(int pendingClassLoaderCount) {
+		this.pendingClassLoaderCount = pendingClassLoaderCount;
+	}
+
+	public long getUnloadedClassLoaderCount() {
+		return unloadedClassLoaderCount;
+	}
+
+	public void setUnloadedClassLoaderCount(long unloadedClassLoaderCount) {
+		this.unloadedClassLoaderCount = unloadedClassLoaderCount;
+	}
+
+	public int getProblemThreadPoolSize() {
+		return problemThreadPoolSize;
+	}
+
+	public void setProblemThreadPoolSize(int problemThreadPoolSize) {
+		this.problemThreadPoolSize = problemThreadPoolSize;
+	}
+
+	public int getProblemThreadPoolActiveCount() {
+		return problemThreadPoolActiveCount;
+	}
+
+	public void setProblemThreadPoolActiveCount(int problemThreadPoolActiveCount) {
+		this.problemThreadPoolActiveCount = problemThreadPoolActiveCount;
+	}
+
+	public int getProblemThreadPoolQueueSize() {
+		return problemThreadPoolQueueSize;
+	}
+
+	public void setProblemThreadPoolQueueSize(int problemThreadPoolQueueSize) {
+		this.problemThreadPoolQueueSize = problemThreadPoolQueueSize;
+	}
+
+	public int getTestCaseWorkerCount() {
+		return testCaseWorkerCount;
+	}
+
+	public void setTestCaseWorkerCount(int testCaseWorkerCount) {
+		this.testCaseWorkerCount = testCaseWorkerCount;
+	}
+
+	public int getTestCaseWorkerActiveCount() {
+		return testCaseWorkerActiveCount;
+	}
+
+	public void setTestCaseWorkerActiveCount(int testCaseWorkerActiveCount) {
+		this.testCaseWorkerActiveCount = testCaseWorkerActiveCount;
+	}
+
+	public int getTestCaseQueueSize() {
+		return testCaseQueueSize;
+	}
+
+	public void setTestCaseQueueSize(int testCaseQueueSize) {
+		this.testCaseQueueSize = testCaseQueueSize;
+	}
+
+	public long getReplacedWorkerCount() {
+		return replacedWorkerCount;
+	}
+
+	public void setReplacedWorkerCount(long replacedWorkerCount) {
+		this.replacedWorkerCount = replacedWorkerCount;
+	}
+
+	public int getWatchdogPendingCount() {
+		return watchdogPendingCount;
+	}
+
+	public void setWatchdogPendingCount(int watchdogPendingCount) {
+		this.watchdogPendingCount = watchdogPendingCount;
+	}
+
+	public long getGcCount() {
+		return gcCount;
+	}
+
+	public void setGcCount(long gcCount) {
+		this.gcCount = gcCount;
+	}
+
+	public long getGcTime() {
+		return gcTime;
+	}
+
+	public void setGcTime(long gcTime) {
+		this.gcTime = gcTime;
+	}
+
+}
@@ -0,0 +1,111 @@
+package cn.superman.sandbox.dto;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+public class SupervisorConfig {
+	// 常驻的沙箱进程数
+	private int poolSize = 2;
+	// 启动沙箱进程使用的java命令
+	private String javaCommand = System.getProperty("java.home")
+			+ File.separator + "bin" + File.separator + "java";
+	// 沙箱进程的classpath，默认与当前进程一致
+	private String classPath = System.getProperty("java.class.path");
+	// 沙箱进程的虚拟机参数，如-Xmx256m
+	private List<String> jvmOptions = new ArrayList<String>();
+	// 沙箱初始化数据，端口由supervisor分配，这里的端口会被忽略
+	private SandboxInitData sandboxInitData = new SandboxInitData();
+	// 每个沙箱进程判完这么多道题后就换一个新的进程，小于等于0时不替换
+	private long maxJudgesPerInstance = 10000;
+	// 健康检查（SANDBOX_STATUS）的间隔（毫秒）
+	private long healthCheckIntervalMillis = 1000;
+	// 健康检查连续失败这么多次，就认为沙箱进程已经卡死，强制替换
+	private int maxHealthCheckFailures = 3;
+	// 沙箱进程启动并建立连接的超时时间（毫秒）
+	private long startupTimeoutMillis = 15000;
+	// 应用类数据共享（AppCDS）归档文件的路径，不存在时由supervisor启动一个进程生成，之后启动的进程都使用它，为null时不使用。
+	// 虚拟机只会归档classpath中jar包里的类，所以沙箱以及gson都需要以jar包的形式放在classpath中
+	private String classDataSharingArchive;
+
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	public void setPoolSize(int poolSize) {
+		this.poolSize = poolSize;
+	}
+
+	public String getJavaCommand() {
+		return javaCommand;
+	}
+
+	public void setJavaCommand(String javaCommand) {
+		this.javaCommand = javaCommand;
+	}
+
+	public String getClassPath() {
+		return classPath;
+	}
+
+	public void setClassPath(String classPath) {
+		this.classPath = classPath;
+	}
+
+	public List<String> getJvmOptions() {
+		return jvmOptions;
+	}
+
+	public void setJvmOptions(List<String> jvmOptions) {
+		this.jvmOptions = jvmOptions;
+	}
+
+	public SandboxInitData getSandboxInitData() {
+		return sandboxInitData;
+	}
+
+	public void setSandboxInitData(SandboxInitData sandboxInitData) {
+		this.sandboxInitData = sandboxInitData;
+	}
+
+	public long getMaxJudgesPerInstance() {
+		return maxJudgesPerInstance;
+	}
+
+	public void setMaxJudgesPerInstance(long maxJudgesPerInstance) {
+		this.maxJudgesPerInstance = maxJudgesPerInstance;
+	}
+
+	public long getHealthCheckIntervalMillis() {
+		return healthCheckIntervalMillis;
+	}
+
+	public void setHealthCheckIntervalMillis(long healthCheckIntervalMillis) {
+		this.healthCheckIntervalMillis = healthCheckIntervalMillis;
+	}
+
+	public int getMaxHealthCheckFailures() {
+		return maxHealthCheckFailures;
+	}
+
+	public void setMaxHealthCheckFailures(int maxHealthCheckFailures) {
+		this.maxHealthCheckFailures = maxHealthCheckFailures;
+	}
+
+	public long getStartupTimeoutMillis() {
+		return startupTimeoutMillis;
+	}
+
+	public void setStartupTimeoutMillis(long startupTimeoutMillis) {
+		this.startupTimeoutMillis = startupTimeoutMillis;
+	}
+
+	public String getClassDataSharingArchive() {
+		return classDataSharingArchive;
+	}
+
+	public void setClassDataSharingArchive(String classDataSharingArchive) {
+		this.classDataSharingArchive = classDataSharingArchive;
+	}
+
+}
@@ -0,0 +1,138 @@
+package cn.superman.sandbox.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SupervisorStatus {
+	// 可以接收判题的沙箱进程数（不包括正在启动以及等待替换的）
+	private int activeInstanceCount;
+	// 正在启动的沙箱进程数
+	private int launchingInstanceCount;
+	// 等待正在判的题目判完后就关闭的沙箱进程数
+	private int drainingInstanceCount;
+	// 还没有分配给沙箱进程的判题请求数
+	private int queueDepth;
+	// 已经分配给沙箱进程，但还没有返回结果的判题请求数
+	private int inFlightCount;
+	// 累计提交、完成、失败的判题请求数
+	private long submittedCount;
+	private long completedCount;
+	private long failedCount;
+	// 最近一次健康检查间隔内，每秒完成的判题请求数
+	private double throughputPerSecond;
+	// 因为进程异常退出或者卡死而替换的次数，以及因为判题数达到上限而替换的次数
+	private long restartCount;
+	private long recycleCount;
+	// 每个沙箱进程最近一次健康检查返回的状态
+	private List<SandBoxStatus> instanceStatuses = new ArrayList<SandBoxStatus>();
+
+	public int getActiveInstanceCount() {
+		return activeInstanceCount;
+	}
+
+	public void setActiveInstanceCount(int activeInstanceCount) {
+		this.activeInstanceCount = activeInstanceCount;
+	}
+
+	public int getLaunchingInstanceCount() {
+		return launchingInstanceCount;
+	}
+
+	public void setLaunchingInstanceCount(int launchingInstanceCount) {
+		this.launchingInstanceCount = launchingInstanceCount;
+	}
+
+	public int getDrainingInstanceCount() {
+		return drainingInstanceCount;
+	}
+
+	public void setDrainingInstanceCount(int drainingInstanceCount) {
+		this.drainingInstanceCount = drainingInstanceCount;
+	}
+
+	public int getQueueDepth() {
+		return queueDepth;
+	}
+
+	public void setQueueDepth(int queueDepth) {
+		this.queueDepth = queueDepth;
+	}
+
+	public int getInFlightCount() {
+		return inFlightCount;
+	}
+
+	public void setInFlightCount(int inFlightCount) {
+		this.inFlightCount = inFlightCount;
+	}
+
+	public long getSubmittedCount() {
+		return submittedCount;
+	}
+
+	public void setSubmittedCount(long submittedCount) {
+		this.submittedCount = submittedCount;
+	}
+
+	public long getCompletedCount() {
+		return completedCount;
+	}
+
+	public void setCompletedCount(long completedCount) {
+		this.completedCount = completedCount;
+	}
+
+	public long getFailedCount() {
+		return failedCount;
+	}
+
+	public void setFailedCount(long failedCount) {
+		this.failedCount = failedCount;
+	}
+
+	public double getThroughputPerSecond() {
+		return throughputPerSecond;
+	}
+
+	public void setThroughputPerSecond(double throughputPerSecond) {
+		this.throughputPerSecond = throughputPerSecond;
+	}
+
+	public long getRestartCount() {
+		return restartCount;
+	}
+
+	public void setRestartCount(long restartCount) {
+		this.restartCount = restartCount;
+	}
+
+	public long getRecycleCount() {
+		return recycleCount;
+	}
+
+	public void setRecycleCount(long recycleCount) {
+		this.recycleCount = recycleCount;
+	}
+
+	public List<SandBoxStatus> getInstanceStatuses() {
+		return instanceStatuses;
+	}
+
+	public void setInstanceStatuses(List<SandBoxStatus> instanceStatuses) {
+		this.instanceStatuses = instanceStatuses;
+	}
+
+	@Override
+	public String toString() {
+		return "SupervisorStatus [activeInstanceCount=" + activeInstanceCount
+				+ ", launchingInstanceCount=" + launchingInstanceCount
+				+ ", drainingInstanceCount=" + drainingInstanceCount
+				+ ", queueDepth=" + queueDepth + ", inFlightCount="
+				+ inFlightCount + ", submittedCount=" + submittedCount
+				+ ", completedCount=" + completedCount + ", failedCount="
+				+ failedCount + ", throughputPerSecond=" + throughputPerSecond
+				+ ", restartCount=" + restartCount + ", recycleCount="
+				+ recycleCount + "]";
+	}
+
+}
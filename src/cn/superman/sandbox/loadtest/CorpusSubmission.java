@@ -0,0 +1,69 @@
+package cn.superman.sandbox.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import cn.superman.sandbox.dto.Problem;
+
+/**
+ * 压测语料中的一份提交，包括编译好的入口类、测试数据以及预期的判题结果
+ */
+public class CorpusSubmission {
+	private final String kind;
+	private final String className;
+	private final String inputFilePath;
+	// 为null时不比对答案
+	private final String outputFilePath;
+	private final long timeLimit;
+	private final long memoryLimit;
+	private final long outputLimit;
+	private final String expectedVerdict;
+
+	public CorpusSubmission(String kind, String className,
+			String inputFilePath, String outputFilePath, long timeLimit,
+			long memoryLimit, long outputLimit, String expectedVerdict) {
+		this.kind = kind;
+		this.className = className;
+		this.inputFilePath = inputFilePath;
+		this.outputFilePath = outputFilePath;
+		this.timeLimit = timeLimit;
+		this.memoryLimit = memoryLimit;
+		this.outputLimit = outputLimit;
+		this.expectedVerdict = expectedVerdict;
+	}
+
+	/**
+	 * 每次提交都创建新的题目，避免多个请求共用同一个对象
+	 * @param runId 题目runId
+	 * @return 题目
+	 */
+	public Problem createProblem(String runId) {
+		Problem problem = new Problem();
+		problem.setRunId(runId);
+		problem.setClassFileName(className);
+		problem.setTimeLimit(timeLimit);
+		problem.setMemoryLimit(memoryLimit);
+		problem.setOutputLimit(outputLimit);
+		List<String> inputPaths = new ArrayList<String>();
+		inputPaths.add(inputFilePath);
+		problem.setInputDataFilePathList(inputPaths);
+		List<String> outputPaths = new ArrayList<String>();
+		if (outputFilePath != null) {
+			outputPaths.add(outputFilePath);
+		}
+		problem.setOutputDataFilePathList(outputPaths);
+		return problem;
+	}
+
+	public String getKind() {
+		return kind;
+	}
+
+	public String getClassName() {
+		return className;
+	}
+
+	public String getExpectedVerdict() {
+		return expectedVerdict;
+	}
+}
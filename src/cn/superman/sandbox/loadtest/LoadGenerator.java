@@ -0,0 +1,239 @@
+package cn.superman.sandbox.loadtest;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.google.gson.Gson;
+
+import cn.superman.sandbox.client.JudgeListener;
+import cn.superman.sandbox.dto.LoadTestConfig;
+import cn.superman.sandbox.dto.LoadTestKindReport;
+import cn.superman.sandbox.dto.LoadTestReport;
+import cn.superman.sandbox.dto.ProblemResult;
+import cn.superman.sandbox.dto.ProblemResultItem;
+import cn.superman.sandbox.dto.SupervisorConfig;
+import cn.superman.sandbox.supervisor.SandboxSupervisor;
+
+/**
+ * 端到端压测：生成标准提交语料，通过supervisor启动沙箱进程，按照配置的并发数以及速率反复提交语料，
+ * 统计吞吐量、耗时的百分位数以及判题结果与预期不一致的比例。
+ * 用法：LoadGenerator [LoadTestConfig的JSON]，报告以JSON格式输出，相同的配置每次提交的内容和顺序都一样
+ */
+public class LoadGenerator {
+	// 等待结果的时间上限，超过后放弃等待，还没有返回的请求不计入报告
+	private static final long DRAIN_TIMEOUT_MILLIS = 60000;
+	private final LoadTestConfig config;
+
+	public LoadGenerator(LoadTestConfig config) {
+		this.config = config;
+	}
+
+	public static void main(String[] args) throws Exception {
+		Gson gson = new Gson();
+		LoadTestConfig config = args.length > 0 ? gson.fromJson(args[0],
+				LoadTestConfig.class) : new LoadTestConfig();
+		LoadTestReport report = new LoadGenerator(config).run();
+		String json = gson.toJson(report);
+		if (config.getReportFile() != null) {
+			Writer writer = new OutputStreamWriter(new FileOutputStream(
+					config.getReportFile()), "UTF-8");
+			try {
+				writer.write(json);
+			} finally {
+				writer.close();
+			}
+		}
+		printSummary(report);
+		System.out.println(json);
+	}
+
+	/**
+	 * 执行压测，会阻塞到压测结束
+	 * @return 压测报告
+	 * @throws Exception 语料生成失败或者沙箱进程无法启动
+	 */
+	public LoadTestReport run() throws Exception {
+		File corpusDirectory = File.createTempFile("sandboxLoadTest", "");
+		corpusDirectory.delete();
+		SandboxSupervisor supervisor = null;
+		try {
+			List<CorpusSubmission> mix = createMix(SubmissionCorpus
+					.create(corpusDirectory));
+			SupervisorConfig supervisorConfig = config.getSupervisorConfig();
+			supervisorConfig.getSandboxInitData().setClassFileRootPath(
+					corpusDirectory.getAbsolutePath());
+			supervisor = new SandboxSupervisor(supervisorConfig);
+			supervisor.start();
+			waitForInstances(supervisor);
+
+			Random random = new Random(config.getSeed());
+			runPhase(supervisor, mix, random, config.getWarmUpMillis(),
+					new LoadTestRecorder());
+			LoadTestRecorder recorder = new LoadTestRecorder();
+			long startTime = System.currentTimeMillis();
+			long beginNanos = System.nanoTime();
+			runPhase(supervisor, mix, random, config.getDurationMillis(),
+					recorder);
+			LoadTestReport report = recorder.createReport(TimeUnit.NANOSECONDS
+					.toMillis(System.nanoTime() - beginNanos));
+			report.setStartTime(startTime);
+			report.setPoolSize(supervisorConfig.getPoolSize());
+			report.setConcurrentJudgeCount(supervisorConfig
+					.getSandboxInitData().getConcurrentJudgeCount());
+			report.setConcurrency(config.getConcurrency());
+			report.setRatePerSecond(config.getRatePerSecond());
+			return report;
+		} finally {
+			if (supervisor != null) {
+				supervisor.shutdown();
+			}
+			deleteDirectory(corpusDirectory);
+		}
+	}
+
+	/**
+	 * 按权重展开成提交列表，每次从中随机选一个提交
+	 */
+	private List<CorpusSubmission> createMix(List<CorpusSubmission> corpus) {
+		List<CorpusSubmission> mix = new ArrayList<CorpusSubmission>();
+		Map<String, Integer> kindWeights = config.getKindWeights();
+		for (CorpusSubmission submission : corpus) {
+			Integer weight = kindWeights.get(submission.getKind());
+			for (int i = 0; weight != null && i < weight; i++) {
+				mix.add(submission);
+			}
+		}
+		if (mix.isEmpty()) {
+			throw new IllegalArgumentException("没有可以提交的语料，检查kindWeights");
+		}
+		return mix;
+	}
+
+	/**
+	 * supervisor启动进程是异步的，等所有进程都可以判题了再开始，否则进程启动的时间会被算在耗时里
+	 */
+	private void waitForInstances(SandboxSupervisor supervisor)
+			throws Exception {
+		SupervisorConfig supervisorConfig = config.getSupervisorConfig();
+		// 第一次使用类数据共享归档时，还需要先启动一个进程生成归档
+		long deadline = System.currentTimeMillis() + 2
+				* supervisorConfig.getStartupTimeoutMillis();
+		while (supervisor.getStatus().getActiveInstanceCount() < supervisorConfig
+				.getPoolSize()) {
+			if (System.currentTimeMillis() > deadline) {
+				throw new Exception("沙箱进程启动超时");
+			}
+			Thread.sleep(100);
+		}
+	}
+
+	/**
+	 * 在指定时长内不断提交，然后等待所有结果返回。限制了速率时，耗时从计划的提交时间开始算，
+	 * 这样沙箱处理不过来导致提交被推迟时，推迟的时间也会体现在耗时中
+	 */
+	private void runPhase(SandboxSupervisor supervisor,
+			List<CorpusSubmission> mix, Random random, long durationMillis,
+			final LoadTestRecorder recorder) throws InterruptedException {
+		int concurrency = Math.max(1, config.getConcurrency());
+		final Semaphore permits = new Semaphore(concurrency);
+		long intervalNanos = config.getRatePerSecond() > 0 ? (long) (TimeUnit.SECONDS
+				.toNanos(1) / config.getRatePerSecond()) : 0;
+		long beginNanos = System.nanoTime();
+		long endNanos = beginNanos
+				+ TimeUnit.MILLISECONDS.toNanos(durationMillis);
+		long sequence = 0;
+		while (true) {
+			long scheduledNanos;
+			if (intervalNanos > 0) {
+				scheduledNanos = beginNanos + sequence * intervalNanos;
+				if (scheduledNanos >= endNanos) {
+					break;
+				}
+				long waitNanos;
+				while ((waitNanos = scheduledNanos - System.nanoTime()) > 0) {
+					LockSupport.parkNanos(waitNanos);
+				}
+				permits.acquire();
+			} else {
+				permits.acquire();
+				scheduledNanos = System.nanoTime();
+				if (scheduledNanos >= endNanos) {
+					permits.release();
+					break;
+				}
+			}
+			final CorpusSubmission submission = mix.get(random.nextInt(mix
+					.size()));
+			final long submitNanos = scheduledNanos;
+			recorder.recordSubmitted(submission);
+			try {
+				supervisor.submit(
+						submission.createProblem("load" + sequence),
+						new JudgeListener() {
+							@Override
+							public void onResultItem(String runId,
+									ProblemResultItem item) {
+							}
+
+							@Override
+							public void onComplete(ProblemResult result,
+									Throwable error) {
+								recorder.recordResult(submission, result,
+										System.nanoTime() - submitNanos);
+								permits.release();
+							}
+						});
+			} catch (RuntimeException e) {
+				recorder.recordResult(submission, null, System.nanoTime()
+						- submitNanos);
+				permits.release();
+			}
+			sequence++;
+		}
+		// 等待这一阶段的所有结果，避免影响下一阶段
+		if (permits.tryAcquire(concurrency, DRAIN_TIMEOUT_MILLIS,
+				TimeUnit.MILLISECONDS)) {
+			permits.release(concurrency);
+		}
+	}
+
+	private static void printSummary(LoadTestReport report) {
+		System.out.println(String.format(
+				"吞吐量 %.1f/s，完成 %d，失败 %d，结果不一致 %d（%.4f%%）",
+				report.getThroughputPerSecond(), report.getCompletedCount(),
+				report.getFailedCount(), report.getMismatchCount(),
+				report.getVerdictDrift() * 100));
+		System.out.println(String.format(
+				"耗时(ms) 平均 %.1f p50 %.1f p90 %.1f p99 %.1f p999 %.1f 最大 %.1f",
+				report.getLatency().getMean(), report.getLatency().getP50(),
+				report.getLatency().getP90(), report.getLatency().getP99(),
+				report.getLatency().getP999(), report.getLatency().getMax()));
+		for (LoadTestKindReport kindReport : report.getKindReports()) {
+			System.out.println(String.format(
+					"%-16s 提交 %d 不一致 %d p50 %.1f p99 %.1f %s",
+					kindReport.getKind(), kindReport.getSubmittedCount(),
+					kindReport.getMismatchCount(), kindReport.getLatency()
+							.getP50(), kindReport.getLatency().getP99(),
+					kindReport.getVerdictCounts()));
+		}
+	}
+
+	private static void deleteDirectory(File directory) {
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+}
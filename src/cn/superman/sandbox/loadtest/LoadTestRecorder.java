@@ -0,0 +1,162 @@
+package cn.superman.sandbox.loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import cn.superman.sandbox.constant.Verdict;
+import cn.superman.sandbox.dto.LatencySummary;
+import cn.superman.sandbox.dto.LoadTestKindReport;
+import cn.superman.sandbox.dto.LoadTestReport;
+import cn.superman.sandbox.dto.ProblemResult;
+import cn.superman.sandbox.dto.ProblemResultItem;
+
+/**
+ * 记录压测过程中每个请求的耗时以及判题结果。压测需要准确的百分位数，所以保存每一个耗时，生成报告时再排序
+ */
+public class LoadTestRecorder {
+	// 判题失败（没有拿到结果）时记录的判题结果
+	public static final String ERROR_VERDICT = "ERROR";
+	private final Map<String, KindRecord> kindRecords = new LinkedHashMap<String, KindRecord>();
+	private long submittedCount = 0;
+
+	/**
+	 * 记录一次提交
+	 * @param submission 提交
+	 */
+	public synchronized void recordSubmitted(CorpusSubmission submission) {
+		submittedCount++;
+		getKindRecord(submission).submittedCount++;
+	}
+
+	/**
+	 * 记录一次判题的结果
+	 * @param submission 提交
+	 * @param result 判题结果，判题失败时为null
+	 * @param latencyNanos 从计划提交到收到结果的耗时
+	 */
+	public synchronized void recordResult(CorpusSubmission submission,
+			ProblemResult result, long latencyNanos) {
+		KindRecord kindRecord = getKindRecord(submission);
+		String verdict = result == null ? ERROR_VERDICT : getVerdict(result);
+		Long count = kindRecord.verdictCounts.get(verdict);
+		kindRecord.verdictCounts.put(verdict, count == null ? 1 : count + 1);
+		if (!verdict.equals(submission.getExpectedVerdict())) {
+			kindRecord.mismatchCount++;
+		}
+		if (result == null) {
+			kindRecord.failedCount++;
+		}
+		kindRecord.latencies.add(latencyNanos);
+	}
+
+	/**
+	 * 生成报告，压测配置由调用者填写
+	 * @param durationMillis 压测时长
+	 * @return 报告
+	 */
+	public synchronized LoadTestReport createReport(long durationMillis) {
+		LoadTestReport report = new LoadTestReport();
+		report.setDurationMillis(durationMillis);
+		report.setSubmittedCount(submittedCount);
+		List<Long> allLatencies = new ArrayList<Long>();
+		long mismatchCount = 0;
+		long failedCount = 0;
+		for (Map.Entry<String, KindRecord> entry : kindRecords.entrySet()) {
+			KindRecord kindRecord = entry.getValue();
+			LoadTestKindReport kindReport = new LoadTestKindReport();
+			kindReport.setKind(entry.getKey());
+			kindReport.setExpectedVerdict(kindRecord.expectedVerdict);
+			kindReport.setSubmittedCount(kindRecord.submittedCount);
+			kindReport.setMismatchCount(kindRecord.mismatchCount);
+			kindReport.setVerdictCounts(new HashMap<String, Long>(
+					kindRecord.verdictCounts));
+			kindReport.setLatency(summarize(kindRecord.latencies));
+			report.getKindReports().add(kindReport);
+			allLatencies.addAll(kindRecord.latencies);
+			mismatchCount += kindRecord.mismatchCount;
+			failedCount += kindRecord.failedCount;
+		}
+		report.setCompletedCount(allLatencies.size());
+		report.setFailedCount(failedCount);
+		report.setMismatchCount(mismatchCount);
+		report.setVerdictDrift(allLatencies.isEmpty() ? 0
+				: (double) mismatchCount / allLatencies.size());
+		report.setThroughputPerSecond(durationMillis <= 0 ? 0 : allLatencies
+				.size() * 1000.0 / durationMillis);
+		report.setLatency(summarize(allLatencies));
+		return report;
+	}
+
+	/**
+	 * 有一个测试用例不通过，整道题就不通过，以第一个不通过的测试用例为准
+	 */
+	private String getVerdict(ProblemResult result) {
+		if (result.getResultItems().isEmpty()) {
+			return ERROR_VERDICT;
+		}
+		for (ProblemResultItem item : result.getResultItems()) {
+			if (!Verdict.ACCEPTED.equals(item.getVerdict())) {
+				return String.valueOf(item.getVerdict());
+			}
+		}
+		return Verdict.ACCEPTED;
+	}
+
+	private KindRecord getKindRecord(CorpusSubmission submission) {
+		KindRecord kindRecord = kindRecords.get(submission.getKind());
+		if (kindRecord == null) {
+			kindRecord = new KindRecord(submission.getExpectedVerdict());
+			kindRecords.put(submission.getKind(), kindRecord);
+		}
+		return kindRecord;
+	}
+
+	private static LatencySummary summarize(List<Long> latencies) {
+		LatencySummary summary = new LatencySummary();
+		long[] sorted = new long[latencies.size()];
+		long sum = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] = latencies.get(i);
+			sum += sorted[i];
+		}
+		Arrays.sort(sorted);
+		summary.setCount(sorted.length);
+		if (sorted.length == 0) {
+			return summary;
+		}
+		summary.setMean(toMillis(sum / sorted.length));
+		summary.setP50(toMillis(percentile(sorted, 0.5)));
+		summary.setP90(toMillis(percentile(sorted, 0.9)));
+		summary.setP99(toMillis(percentile(sorted, 0.99)));
+		summary.setP999(toMillis(percentile(sorted, 0.999)));
+		summary.setMax(toMillis(sorted[sorted.length - 1]));
+		return summary;
+	}
+
+	private static long percentile(long[] sorted, double quantile) {
+		int index = (int) Math.ceil(sorted.length * quantile) - 1;
+		return sorted[Math.max(0, index)];
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	private static class KindRecord {
+		private final String expectedVerdict;
+		private final Map<String, Long> verdictCounts = new HashMap<String, Long>();
+		private final List<Long> latencies = new ArrayList<Long>();
+		private long submittedCount = 0;
+		private long mismatchCount = 0;
+		private long failedCount = 0;
+
+		private KindRecord(String expectedVerdict) {
+			this.expectedVerdict = expectedVerdict;
+		}
+	}
+}
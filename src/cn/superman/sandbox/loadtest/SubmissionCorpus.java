@@ -0,0 +1,287 @@
+package cn.superman.sandbox.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import cn.superman.sandbox.constant.SubmissionKind;
+import cn.superman.sandbox.constant.Verdict;
+
+/**
+ * 压测使用的标准提交语料。源码内置在这里，生成语料时编译到指定目录，并生成对应的测试数据以及标准答案，
+ * 每次生成的内容都完全一样，不同时间的压测结果可以直接比较
+ */
+public class SubmissionCorpus {
+	// 测试数据的随机种子，固定下来保证每次生成的数据一样
+	private static final long DATA_SEED = 20160101L;
+	private static final int PRIME_LIMIT = 300000;
+	private static final int IO_NUMBER_COUNT = 100000;
+	private static final int ALLOCATION_COUNT = 200000;
+	// 正常的提交都在几十毫秒内完成，时间限制留足余量，机器繁忙时不应该被误判
+	private static final long NORMAL_TIME_LIMIT = 2000;
+	// 死循环的提交每次都会用完时间限制，限制设得短一些，避免压测时间都花在它上面
+	private static final long LOOP_TIME_LIMIT = 500;
+	// 与常见的题目一致，正常的提交远远用不到这么多
+	private static final long NORMAL_MEMORY_LIMIT = 256L * 1024 * 1024;
+	// 测试内存限制的提交使用较小的限制，占用超过限制的内存时不会挤占同一个进程中的其他题目
+	private static final long SMALL_MEMORY_LIMIT = 32L * 1024 * 1024;
+	private static final int MEMORY_CHUNK_SIZE = 1024 * 1024;
+	// 超出内存限制的提交最多占用的内存块数。沙箱不强制垃圾回收，开始执行时堆中还没回收的垃圾会让它少算一些，
+	// 所以超过限制之后仍然继续占用，直到某次垃圾回收确认超出，正常情况下远远到不了这么多
+	private static final int RETAINED_CHUNK_COUNT = (int) (SMALL_MEMORY_LIMIT
+			/ MEMORY_CHUNK_SIZE * 4);
+	// 不断丢弃内存的提交申请的内存块数，总量是限制的8倍
+	private static final int CHURN_CHUNK_COUNT = (int) (SMALL_MEMORY_LIMIT
+			/ MEMORY_CHUNK_SIZE * 8);
+	private static final long NORMAL_OUTPUT_LIMIT = 64L * 1024 * 1024;
+	private static final long FLOOD_OUTPUT_LIMIT = 1024 * 1024;
+
+	private static final String CPU_BOUND_SOURCE = ""
+			+ "import java.io.*;\n"
+			+ "public class LoadCpuBound {\n"
+			+ "	public static void main(String[] args) throws IOException {\n"
+			+ "		int n = Integer.parseInt(new BufferedReader(new InputStreamReader(System.in)).readLine().trim());\n"
+			+ "		int count = 0;\n"
+			+ "		for (int i = 2; i < n; i++) {\n"
+			+ "			boolean prime = true;\n"
+			+ "			for (int j = 2; (long) j * j <= i; j++) {\n"
+			+ "				if (i % j == 0) { prime = false; break; }\n"
+			+ "			}\n"
+			+ "			if (prime) count++;\n"
+			+ "		}\n"
+			+ "		System.out.print(count + \"\\n\");\n"
+			+ "	}\n"
+			+ "}\n";
+	private static final String IO_HEAVY_SOURCE = ""
+			+ "import java.io.*;\n"
+			+ "public class LoadIoHeavy {\n"
+			+ "	public static void main(String[] args) throws IOException {\n"
+			+ "		StreamTokenizer in = new StreamTokenizer(new BufferedReader(new InputStreamReader(System.in)));\n"
+			+ "		PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));\n"
+			+ "		in.nextToken();\n"
+			+ "		int n = (int) in.nval;\n"
+			+ "		for (int i = 0; i < n; i++) {\n"
+			+ "			in.nextToken();\n"
+			+ "			out.print(((long) in.nval * 2) + \"\\n\");\n"
+			+ "		}\n"
+			+ "		out.flush();\n"
+			+ "	}\n"
+			+ "}\n";
+	private static final String ALLOCATION_HEAVY_SOURCE = ""
+			+ "import java.io.*;\n"
+			+ "import java.util.*;\n"
+			+ "public class LoadAllocationHeavy {\n"
+			+ "	public static void main(String[] args) throws IOException {\n"
+			+ "		int n = Integer.parseInt(new BufferedReader(new InputStreamReader(System.in)).readLine().trim());\n"
+			+ "		Map<Integer, List<Integer>> groups = new HashMap<Integer, List<Integer>>();\n"
+			+ "		long length = 0;\n"
+			+ "		for (int i = 0; i < n; i++) {\n"
+			+ "			List<Integer> group = groups.get(i % 1000);\n"
+			+ "			if (group == null) { group = new ArrayList<Integer>(); groups.put(i % 1000, group); }\n"
+			+ "			group.add(Integer.valueOf((int) ((long) i * 31 % 100003)));\n"
+			+ "			length += String.valueOf(i).length();\n"
+			+ "		}\n"
+			+ "		long sum = 0;\n"
+			+ "		for (List<Integer> group : groups.values()) {\n"
+			+ "			for (Integer value : group) sum += value;\n"
+			+ "		}\n"
+			+ "		System.out.print(sum + \" \" + length + \"\\n\");\n"
+			+ "	}\n"
+			+ "}\n";
+	private static final String TIME_LIMIT_SOURCE = ""
+			+ "public class LoadTimeLimit {\n"
+			+ "	public static void main(String[] args) {\n"
+			+ "		long count = 0;\n"
+			+ "		while (true) {\n"
+			+ "			count++;\n"
+			+ "		}\n"
+			+ "	}\n"
+			+ "}\n";
+	// 一块一块地占用内存，每占用一块还会做一些产生垃圾的计算，和真实的代码一样，期间的垃圾回收会确认它超出了内存限制
+	private static final String MEMORY_LIMIT_SOURCE = ""
+			+ "import java.io.*;\n"
+			+ "import java.util.*;\n"
+			+ "public class LoadMemoryLimit {\n"
+			+ "	public static void main(String[] args) throws IOException {\n"
+			+ "		int n = Integer.parseInt(new BufferedReader(new InputStreamReader(System.in)).readLine().trim());\n"
+			+ "		List<byte[]> chunks = new ArrayList<byte[]>();\n"
+			+ "		long sum = 0;\n"
+			+ "		for (int i = 0; i < n; i++) {\n"
+			+ "			byte[] chunk = new byte[" + MEMORY_CHUNK_SIZE + "];\n"
+			+ "			chunk[i] = 1;\n"
+			+ "			chunks.add(chunk);\n"
+			+ "			for (int j = 0; j < 64; j++) {\n"
+			+ "				byte[] buffer = new byte[16 * 1024];\n"
+			+ "				buffer[j] = chunks.get(j % chunks.size())[i];\n"
+			+ "				sum += buffer[j];\n"
+			+ "			}\n"
+			+ "		}\n"
+			+ "		System.out.print(chunks.size() + \" \" + sum + \"\\n\");\n"
+			+ "	}\n"
+			+ "}\n";
+	// 申请的内存总量远超内存限制，但每次只留着最近的几块
+	private static final String MEMORY_CHURN_SOURCE = ""
+			+ "import java.io.*;\n"
+			+ "public class LoadMemoryChurn {\n"
+			+ "	public static void main(String[] args) throws IOException {\n"
+			+ "		int n = Integer.parseInt(new BufferedReader(new InputStreamReader(System.in)).readLine().trim());\n"
+			+ "		byte[][] recent = new byte[4][];\n"
+			+ "		long sum = 0;\n"
+			+ "		for (int i = 0; i < n; i++) {\n"
+			+ "			byte[] chunk = new byte[" + MEMORY_CHUNK_SIZE + "];\n"
+			+ "			chunk[i] = (byte) i;\n"
+			+ "			recent[i % recent.length] = chunk;\n"
+			+ "			sum += chunk[i];\n"
+			+ "		}\n"
+			+ "		System.out.print(sum + \"\\n\");\n"
+			+ "	}\n"
+			+ "}\n";
+	private static final String OUTPUT_FLOOD_SOURCE = ""
+			+ "public class LoadOutputFlood {\n"
+			+ "	public static void main(String[] args) {\n"
+			+ "		while (true) {\n"
+			+ "			System.out.println(\"flood flood flood flood flood flood flood\");\n"
+			+ "		}\n"
+			+ "	}\n"
+			+ "}\n";
+
+	private SubmissionCorpus() {
+	}
+
+	/**
+	 * 生成压测语料，需要在JDK中运行，因为要使用编译器
+	 * @param directory 语料目录，同时也是沙箱的classFileRootPath
+	 * @return 每种类型一份提交
+	 * @throws IOException 写文件失败或者编译失败
+	 */
+	public static List<CorpusSubmission> create(File directory)
+			throws IOException {
+		directory.mkdirs();
+		compile(directory, "LoadCpuBound", CPU_BOUND_SOURCE);
+		compile(directory, "LoadIoHeavy", IO_HEAVY_SOURCE);
+		compile(directory, "LoadAllocationHeavy", ALLOCATION_HEAVY_SOURCE);
+		compile(directory, "LoadTimeLimit", TIME_LIMIT_SOURCE);
+		compile(directory, "LoadMemoryLimit", MEMORY_LIMIT_SOURCE);
+		compile(directory, "LoadMemoryChurn", MEMORY_CHURN_SOURCE);
+		compile(directory, "LoadOutputFlood", OUTPUT_FLOOD_SOURCE);
+
+		List<CorpusSubmission> corpus = new ArrayList<CorpusSubmission>();
+		corpus.add(new CorpusSubmission(SubmissionKind.CPU_BOUND,
+				"LoadCpuBound", write(directory, "cpu.in", PRIME_LIMIT + "\n"),
+				write(directory, "cpu.out", countPrimes(PRIME_LIMIT) + "\n"),
+				NORMAL_TIME_LIMIT, NORMAL_MEMORY_LIMIT, NORMAL_OUTPUT_LIMIT,
+				Verdict.ACCEPTED));
+		StringBuilder ioInput = new StringBuilder();
+		StringBuilder ioOutput = new StringBuilder();
+		Random random = new Random(DATA_SEED);
+		ioInput.append(IO_NUMBER_COUNT).append('\n');
+		for (int i = 0; i < IO_NUMBER_COUNT; i++) {
+			int value = random.nextInt(1000000);
+			ioInput.append(value).append(i % 10 == 9 ? '\n' : ' ');
+			ioOutput.append((long) value * 2).append('\n');
+		}
+		corpus.add(new CorpusSubmission(SubmissionKind.IO_HEAVY,
+				"LoadIoHeavy", write(directory, "io.in", ioInput.toString()),
+				write(directory, "io.out", ioOutput.toString()),
+				NORMAL_TIME_LIMIT, NORMAL_MEMORY_LIMIT, NORMAL_OUTPUT_LIMIT,
+				Verdict.ACCEPTED));
+		corpus.add(new CorpusSubmission(SubmissionKind.ALLOCATION_HEAVY,
+				"LoadAllocationHeavy", write(directory, "allocation.in",
+						ALLOCATION_COUNT + "\n"), write(directory,
+						"allocation.out", allocationAnswer(ALLOCATION_COUNT)),
+				NORMAL_TIME_LIMIT, NORMAL_MEMORY_LIMIT, NORMAL_OUTPUT_LIMIT,
+				Verdict.ACCEPTED));
+		String emptyInput = write(directory, "empty.in", "\n");
+		corpus.add(new CorpusSubmission(SubmissionKind.TIME_LIMIT,
+				"LoadTimeLimit", emptyInput, null, LOOP_TIME_LIMIT,
+				NORMAL_MEMORY_LIMIT, NORMAL_OUTPUT_LIMIT,
+				Verdict.TIME_LIMIT_EXCEEDED));
+		corpus.add(new CorpusSubmission(SubmissionKind.MEMORY_LIMIT,
+				"LoadMemoryLimit", write(directory, "memory.in",
+						RETAINED_CHUNK_COUNT + "\n"), null, NORMAL_TIME_LIMIT,
+				SMALL_MEMORY_LIMIT, NORMAL_OUTPUT_LIMIT,
+				Verdict.MEMORY_LIMIT_EXCEEDED));
+		corpus.add(new CorpusSubmission(SubmissionKind.MEMORY_CHURN,
+				"LoadMemoryChurn", write(directory, "churn.in",
+						CHURN_CHUNK_COUNT + "\n"), write(directory, "churn.out",
+						churnAnswer(CHURN_CHUNK_COUNT)), NORMAL_TIME_LIMIT,
+				SMALL_MEMORY_LIMIT, NORMAL_OUTPUT_LIMIT, Verdict.ACCEPTED));
+		// 不比对答案，否则第一行输出就会被判为答案错误，测不到输出限制
+		corpus.add(new CorpusSubmission(SubmissionKind.OUTPUT_FLOOD,
+				"LoadOutputFlood", emptyInput, null, NORMAL_TIME_LIMIT,
+				NORMAL_MEMORY_LIMIT, FLOOD_OUTPUT_LIMIT,
+				Verdict.OUTPUT_LIMIT_EXCEEDED));
+		return corpus;
+	}
+
+	private static void compile(File directory, String className,
+			String source) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			throw new IOException("找不到Java编译器，需要在JDK中运行");
+		}
+		File sourceFile = new File(directory, className + ".java");
+		write(directory, sourceFile.getName(), source);
+		ByteArrayOutputStream errors = new ByteArrayOutputStream();
+		int result = compiler.run(null, null, errors, "-g:none", "-d",
+				directory.getAbsolutePath(), sourceFile.getAbsolutePath());
+		if (result != 0) {
+			throw new IOException("编译" + className + "失败："
+					+ errors.toString("UTF-8"));
+		}
+	}
+
+	private static String write(File directory, String fileName,
+			String content) throws IOException {
+		File file = new File(directory, fileName);
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file),
+				"UTF-8");
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+		return file.getAbsolutePath();
+	}
+
+	private static int countPrimes(int limit) {
+		boolean[] composite = new boolean[limit];
+		int count = 0;
+		for (int i = 2; i < limit; i++) {
+			if (!composite[i]) {
+				count++;
+				for (long j = (long) i * i; j < limit; j += i) {
+					composite[(int) j] = true;
+				}
+			}
+		}
+		return count;
+	}
+
+	private static String allocationAnswer(int count) {
+		long sum = 0;
+		long length = 0;
+		for (int i = 0; i < count; i++) {
+			sum += (long) i * 31 % 100003;
+			length += String.valueOf(i).length();
+		}
+		return sum + " " + length + "\n";
+	}
+
+	private static String churnAnswer(int count) {
+		long sum = 0;
+		for (int i = 0; i < count; i++) {
+			sum += (byte) i;
+		}
+		return sum + "\n";
+	}
+}
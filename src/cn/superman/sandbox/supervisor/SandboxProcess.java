@@ -0,0 +1,290 @@
+package cn.superman.sandbox.supervisor;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.Gson;
+
+import cn.superman.sandbox.client.SandboxClient;
+import cn.superman.sandbox.dto.SandBoxStatus;
+import cn.superman.sandbox.dto.SandboxInitData;
+import cn.superman.sandbox.dto.SupervisorConfig;
+
+/**
+ * 由supervisor启动的一个沙箱进程，以及与它的连接
+ */
+public class SandboxProcess {
+	private static final String SANDBOX_MAIN_CLASS = "cn.superman.sandbox.core.Sandbox";
+	private static final String LOCAL_HOST = "127.0.0.1";
+	// 每次尝试连接的超时时间，以及连接失败后重试的间隔（毫秒）
+	private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+	private static final long CONNECT_RETRY_INTERVAL_MILLIS = 50;
+	// 关闭沙箱后，等待进程退出的时间（毫秒），超时后强制结束进程
+	private static final long EXIT_TIMEOUT_MILLIS = 2000;
+	private final int id;
+	private final Process process;
+	private final SandboxClient client;
+	private final int slotCount;
+	private final long startTime;
+	// 已经分配给这个进程，但还没有返回结果的判题请求数
+	private final AtomicInteger inFlightCount = new AtomicInteger();
+	// 已经判完的题目数
+	private final AtomicLong judgedCount = new AtomicLong();
+	// 为true时不再分配新的判题请求，正在判的题目判完后就关闭
+	private volatile boolean draining = false;
+	private volatile SandBoxStatus lastStatus;
+	// 健康检查连续失败的次数，只在健康检查线程中使用
+	private int healthCheckFailures = 0;
+
+	private SandboxProcess(int id, Process process, SandboxClient client,
+			int slotCount) {
+		this.id = id;
+		this.process = process;
+		this.client = client;
+		this.slotCount = slotCount;
+		this.startTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * 启动沙箱进程并建立连接，会阻塞到连接建立或者超时为止
+	 * @param id 进程编号，只用于区分进程
+	 * @param config supervisor配置
+	 * @param gson JSON编解码
+	 * @return 沙箱进程
+	 * @throws IOException 进程无法启动，或者在超时时间内无法建立连接
+	 */
+	public static SandboxProcess launch(int id, SupervisorConfig config,
+			Gson gson) throws IOException {
+		List<String> extraJvmOptions = new ArrayList<String>();
+		String archive = config.getClassDataSharingArchive();
+		if (archive != null && new File(archive).isFile()) {
+			// 归档与当前的classpath或者虚拟机不匹配时，虚拟机会忽略它正常启动
+			extraJvmOptions.add("-XX:SharedArchiveFile=" + archive);
+		}
+		return launch(id, config, gson, copyInitData(config, gson),
+				extraJvmOptions);
+	}
+
+	/**
+	 * 启动一个沙箱进程，进行预热判题后关闭它，虚拟机退出时会把加载过的类写入类数据共享归档。
+	 * 归档先写到临时文件，完成后再改名，避免其他进程用到写了一半的归档
+	 * @param id 进程编号
+	 * @param config supervisor配置，classDataSharingArchive不能为null
+	 * @param gson JSON编解码
+	 * @return 归档是否生成成功
+	 * @throws IOException 进程无法启动
+	 */
+	public static boolean createClassDataSharingArchive(int id,
+			SupervisorConfig config, Gson gson) throws IOException {
+		File archive = new File(config.getClassDataSharingArchive());
+		File temp = new File(archive.getPath() + ".tmp");
+		temp.delete();
+		SandboxInitData sandboxInitData = copyInitData(config, gson);
+		// 至少预热一次，判题用到的类才会被加载并写入归档
+		sandboxInitData.setWarmUpJudgeCount(Math.max(1,
+				sandboxInitData.getWarmUpJudgeCount()));
+		List<String> extraJvmOptions = new ArrayList<String>();
+		extraJvmOptions.add("-XX:ArchiveClassesAtExit=" + temp.getPath());
+		SandboxProcess instance = launch(id, config, gson, sandboxInitData,
+				extraJvmOptions);
+		instance.client.close();
+		try {
+			// 写归档需要一点时间，不能像普通关闭一样很快就强制结束进程
+			if (!instance.process.waitFor(config.getStartupTimeoutMillis(),
+					TimeUnit.MILLISECONDS)) {
+				instance.process.destroyForcibly();
+				return false;
+			}
+		} catch (InterruptedException e) {
+			instance.process.destroyForcibly();
+			return false;
+		}
+		return temp.isFile() && temp.renameTo(archive);
+	}
+
+	/**
+	 * 复制一份初始化数据，避免修改共享的配置
+	 */
+	private static SandboxInitData copyInitData(SupervisorConfig config,
+			Gson gson) {
+		return gson.fromJson(gson.toJson(config.getSandboxInitData()),
+				SandboxInitData.class);
+	}
+
+	private static SandboxProcess launch(int id, SupervisorConfig config,
+			Gson gson, SandboxInitData sandboxInitData,
+			List<String> extraJvmOptions) throws IOException {
+		int port = findFreePort();
+		sandboxInitData.setPort(port);
+
+		List<String> command = new ArrayList<String>();
+		command.add(config.getJavaCommand());
+		command.addAll(config.getJvmOptions());
+		command.addAll(extraJvmOptions);
+		command.add("-cp");
+		command.add(config.getClassPath());
+		command.add(SANDBOX_MAIN_CLASS);
+		command.add(gson.toJson(sandboxInitData));
+		ProcessBuilder processBuilder = new ProcessBuilder(command);
+		processBuilder.redirectErrorStream(true);
+		Process process = processBuilder.start();
+		drainOutput(process, id);
+
+		try {
+			SandboxClient client = connect(process, port,
+					config.getStartupTimeoutMillis());
+			return new SandboxProcess(id, process, client, Math.max(1,
+					sandboxInitData.getConcurrentJudgeCount()));
+		} catch (IOException e) {
+			process.destroyForcibly();
+			throw e;
+		}
+	}
+
+	/**
+	 * 找一个当前空闲的端口，沙箱进程启动前端口可能被别人占用，这时会启动失败，由supervisor重新启动
+	 */
+	private static int findFreePort() throws IOException {
+		ServerSocket serverSocket = new ServerSocket(0);
+		try {
+			return serverSocket.getLocalPort();
+		} finally {
+			serverSocket.close();
+		}
+	}
+
+	/**
+	 * 读掉沙箱进程的输出，避免输出缓冲区满了之后进程被阻塞
+	 */
+	private static void drainOutput(final Process process, int id) {
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					BufferedReader reader = new BufferedReader(
+							new InputStreamReader(process.getInputStream(),
+									"UTF-8"));
+					while (reader.readLine() != null) {
+					}
+				} catch (IOException e) {
+				}
+			}
+		});
+		thread.setName("sandboxProcessOutput " + id);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * 沙箱进程启动后才会监听端口，所以需要不断重试，直到连接上为止
+	 */
+	private static SandboxClient connect(Process process, int port,
+			long startupTimeoutMillis) throws IOException {
+		long deadline = System.currentTimeMillis() + startupTimeoutMillis;
+		while (true) {
+			if (!process.isAlive()) {
+				throw new IOException("沙箱进程启动失败，退出码："
+						+ process.exitValue());
+			}
+			try {
+				return new SandboxClient(LOCAL_HOST, port,
+						CONNECT_TIMEOUT_MILLIS);
+			} catch (ConnectException e) {
+				if (System.currentTimeMillis() > deadline) {
+					throw new IOException("沙箱进程启动超时");
+				}
+			}
+			try {
+				Thread.sleep(CONNECT_RETRY_INTERVAL_MILLIS);
+			} catch (InterruptedException e) {
+				throw new IOException("启动沙箱进程时被中断");
+			}
+		}
+	}
+
+	/**
+	 * @return 进程还在运行并且连接没有断开
+	 */
+	public boolean isAlive() {
+		return process.isAlive() && !client.isClosed();
+	}
+
+	/**
+	 * 通知沙箱关闭，并等待进程退出，超时后强制结束进程
+	 */
+	public void close() {
+		client.close();
+		try {
+			if (!process.waitFor(EXIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+				process.destroyForcibly();
+			}
+		} catch (InterruptedException e) {
+			process.destroyForcibly();
+		}
+	}
+
+	/**
+	 * 强制结束进程，用于进程卡死的情况
+	 */
+	public void destroy() {
+		process.destroyForcibly();
+		client.close();
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public SandboxClient getClient() {
+		return client;
+	}
+
+	public int getSlotCount() {
+		return slotCount;
+	}
+
+	public long getStartTime() {
+		return startTime;
+	}
+
+	public AtomicInteger getInFlightCount() {
+		return inFlightCount;
+	}
+
+	public AtomicLong getJudgedCount() {
+		return judgedCount;
+	}
+
+	public boolean isDraining() {
+		return draining;
+	}
+
+	public void setDraining(boolean draining) {
+		this.draining = draining;
+	}
+
+	public SandBoxStatus getLastStatus() {
+		return lastStatus;
+	}
+
+	public void setLastStatus(SandBoxStatus lastStatus) {
+		this.lastStatus = lastStatus;
+	}
+
+	int getHealthCheckFailures() {
+		return healthCheckFailures;
+	}
+
+	void setHealthCheckFailures(int healthCheckFailures) {
+		this.healthCheckFailures = healthCheckFailures;
+	}
+}
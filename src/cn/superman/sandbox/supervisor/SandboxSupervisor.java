@@ -0,0 +1,501 @@
+package cn.superman.sandbox.supervisor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.Gson;
+
+import cn.superman.sandbox.client.JudgeListener;
+import cn.superman.sandbox.dto.Problem;
+import cn.superman.sandbox.dto.ProblemResult;
+import cn.superman.sandbox.dto.ProblemResultItem;
+import cn.superman.sandbox.dto.SandBoxStatus;
+import cn.superman.sandbox.dto.SupervisorConfig;
+import cn.superman.sandbox.dto.SupervisorStatus;
+
+/**
+ * 沙箱进程池。常驻poolSize个沙箱进程，判题请求分配给有空闲槽位的进程中最空闲的那个，没有空闲槽位时在这里排队。
+ * 进程异常退出、卡死或者判题数达到上限时，会提前启动新的进程替换它，保证随时都有足够的进程可用
+ */
+public class SandboxSupervisor {
+	private final SupervisorConfig config;
+	private final Gson gson = new Gson();
+	// 以下内容都由lock保护
+	private final Object lock = new Object();
+	private final List<SandboxProcess> instances = new ArrayList<SandboxProcess>();
+	private final LinkedList<PendingJudge> pendingJudges = new LinkedList<PendingJudge>();
+	private int launchingCount = 0;
+	private int nextInstanceId = 0;
+	private boolean shutdown = false;
+
+	private final AtomicLong submittedCount = new AtomicLong();
+	private final AtomicLong completedCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+	private final AtomicLong restartCount = new AtomicLong();
+	private final AtomicLong recycleCount = new AtomicLong();
+	private volatile double throughputPerSecond = 0;
+	// 上一次计算吞吐量时的完成数以及时间，只在健康检查线程中使用
+	private long lastCompletedCount = 0;
+	private long lastCheckTime = System.currentTimeMillis();
+
+	// 定时做健康检查
+	private ScheduledExecutorService monitorThreadPool;
+	// 启动以及关闭沙箱进程都比较慢，不能在分配判题请求的线程中进行
+	private ExecutorService launchThreadPool;
+
+	public SandboxSupervisor(SupervisorConfig config) {
+		this.config = config;
+	}
+
+	/**
+	 * 启动沙箱进程池，不会等待进程启动完成，启动完成前提交的判题请求会先排队
+	 */
+	public void start() {
+		monitorThreadPool = Executors
+				.newSingleThreadScheduledExecutor(createThreadFactory("sandboxSupervisor"));
+		launchThreadPool = Executors
+				.newCachedThreadPool(createThreadFactory("sandboxLauncher"));
+		String archive = config.getClassDataSharingArchive();
+		if (archive != null && !new File(archive).isFile()) {
+			// 归档生成之前启动的进程不使用归档，生成之后替换进来的进程才会使用
+			launchThreadPool.execute(new Runnable() {
+				@Override
+				public void run() {
+					createClassDataSharingArchive();
+				}
+			});
+		}
+		synchronized (lock) {
+			ensurePoolSize();
+		}
+		monitorThreadPool.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					checkHealth();
+				} catch (Exception e) {
+					System.err.println(e);
+				}
+			}
+		}, config.getHealthCheckIntervalMillis(),
+				config.getHealthCheckIntervalMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * 提交判题请求
+	 * @param problem 题目
+	 * @return 判题结果
+	 */
+	public Future<ProblemResult> submit(Problem problem) {
+		return submit(problem, null);
+	}
+
+	/**
+	 * 提交判题请求
+	 * @param problem 题目
+	 * @param listener 判题过程的回调，可以为null
+	 * @return 判题结果，沙箱进程在判题过程中异常退出时会失败
+	 */
+	public Future<ProblemResult> submit(Problem problem, JudgeListener listener) {
+		PendingJudge pendingJudge = new PendingJudge(problem, listener);
+		synchronized (lock) {
+			if (shutdown) {
+				throw new IllegalStateException("沙箱进程池已经关闭");
+			}
+			submittedCount.incrementAndGet();
+			pendingJudges.addLast(pendingJudge);
+			dispatch();
+		}
+		return pendingJudge;
+	}
+
+	/**
+	 * @return 沙箱进程池的状态
+	 */
+	public SupervisorStatus getStatus() {
+		SupervisorStatus status = new SupervisorStatus();
+		synchronized (lock) {
+			int activeCount = 0;
+			int drainingCount = 0;
+			int inFlightCount = 0;
+			List<SandBoxStatus> instanceStatuses = new ArrayList<SandBoxStatus>();
+			for (SandboxProcess instance : instances) {
+				if (instance.isDraining()) {
+					drainingCount++;
+				} else if (instance.isAlive()) {
+					activeCount++;
+				}
+				inFlightCount += instance.getInFlightCount().get();
+				if (instance.getLastStatus() != null) {
+					instanceStatuses.add(instance.getLastStatus());
+				}
+			}
+			status.setActiveInstanceCount(activeCount);
+			status.setDrainingInstanceCount(drainingCount);
+			status.setLaunchingInstanceCount(launchingCount);
+			status.setQueueDepth(pendingJudges.size());
+			status.setInFlightCount(inFlightCount);
+			status.setInstanceStatuses(instanceStatuses);
+		}
+		status.setSubmittedCount(submittedCount.get());
+		status.setCompletedCount(completedCount.get());
+		status.setFailedCount(failedCount.get());
+		status.setThroughputPerSecond(throughputPerSecond);
+		status.setRestartCount(restartCount.get());
+		status.setRecycleCount(recycleCount.get());
+		return status;
+	}
+
+	/**
+	 * 关闭所有沙箱进程，还在排队的判题请求都会失败
+	 */
+	public void shutdown() {
+		List<SandboxProcess> closingInstances = null;
+		synchronized (lock) {
+			if (shutdown) {
+				return;
+			}
+			shutdown = true;
+			while (!pendingJudges.isEmpty()) {
+				failedCount.incrementAndGet();
+				pendingJudges.removeFirst().fail(
+						new IllegalStateException("沙箱进程池已经关闭"));
+			}
+			closingInstances = new ArrayList<SandboxProcess>(instances);
+			instances.clear();
+		}
+		if (monitorThreadPool != null) {
+			monitorThreadPool.shutdownNow();
+		}
+		for (SandboxProcess instance : closingInstances) {
+			instance.close();
+		}
+		if (launchThreadPool != null) {
+			launchThreadPool.shutdown();
+		}
+	}
+
+	/**
+	 * 把排队的判题请求分配给沙箱进程，直到没有空闲槽位为止，调用前需要持有lock
+	 */
+	private void dispatch() {
+		while (!pendingJudges.isEmpty()) {
+			SandboxProcess instance = selectInstance();
+			if (instance == null) {
+				return;
+			}
+			PendingJudge pendingJudge = pendingJudges.removeFirst();
+			if (!sendJudge(instance, pendingJudge)) {
+				// 连接已经断开，题目还没有发出去，放回队头，换一个进程
+				pendingJudges.addFirst(pendingJudge);
+				handleDeadInstance(instance);
+			}
+		}
+	}
+
+	/**
+	 * 选出有空闲槽位的进程中，正在判的题目最少的那个，调用前需要持有lock
+	 * @return 沙箱进程，所有进程都没有空闲槽位时返回null
+	 */
+	private SandboxProcess selectInstance() {
+		SandboxProcess selected = null;
+		int selectedInFlightCount = Integer.MAX_VALUE;
+		for (SandboxProcess instance : instances) {
+			if (instance.isDraining() || !instance.isAlive()) {
+				continue;
+			}
+			int inFlightCount = instance.getInFlightCount().get();
+			if (inFlightCount < instance.getSlotCount()
+					&& inFlightCount < selectedInFlightCount) {
+				selected = instance;
+				selectedInFlightCount = inFlightCount;
+			}
+		}
+		return selected;
+	}
+
+	/**
+	 * 把判题请求发给沙箱进程
+	 * @return 连接已经断开时返回false
+	 */
+	private boolean sendJudge(final SandboxProcess instance,
+			final PendingJudge pendingJudge) {
+		instance.getInFlightCount().incrementAndGet();
+		try {
+			instance.getClient().judge(pendingJudge.problem,
+					new JudgeListener() {
+						@Override
+						public void onResultItem(String runId,
+								ProblemResultItem item) {
+							if (pendingJudge.listener != null) {
+								pendingJudge.listener.onResultItem(runId, item);
+							}
+						}
+
+						@Override
+						public void onComplete(ProblemResult result,
+								Throwable error) {
+							onJudgeComplete(instance, pendingJudge, result,
+									error);
+						}
+					});
+			return true;
+		} catch (IOException e) {
+			instance.getInFlightCount().decrementAndGet();
+			return false;
+		}
+	}
+
+	/**
+	 * 判题结束，在连接的读取线程中被调用
+	 */
+	private void onJudgeComplete(SandboxProcess instance,
+			PendingJudge pendingJudge, ProblemResult result, Throwable error) {
+		instance.getInFlightCount().decrementAndGet();
+		if (error == null) {
+			instance.getJudgedCount().incrementAndGet();
+			completedCount.incrementAndGet();
+			pendingJudge.complete(result);
+		} else {
+			failedCount.incrementAndGet();
+			pendingJudge.fail(error);
+		}
+		synchronized (lock) {
+			if (!instance.isAlive()) {
+				handleDeadInstance(instance);
+			} else {
+				checkRecycle(instance);
+			}
+			dispatch();
+		}
+	}
+
+	/**
+	 * 判题数达到上限的进程不再分配判题请求，并提前启动一个新的进程，正在判的题目判完后再关闭，调用前需要持有lock
+	 */
+	private void checkRecycle(SandboxProcess instance) {
+		long maxJudges = config.getMaxJudgesPerInstance();
+		if (!instance.isDraining() && maxJudges > 0
+				&& instance.getJudgedCount().get() >= maxJudges) {
+			instance.setDraining(true);
+			recycleCount.incrementAndGet();
+			ensurePoolSize();
+		}
+		if (instance.isDraining() && instance.getInFlightCount().get() == 0) {
+			retire(instance);
+		}
+	}
+
+	/**
+	 * 进程异常退出或者卡死，移除并启动新的进程替换它，调用前需要持有lock
+	 */
+	private void handleDeadInstance(final SandboxProcess instance) {
+		if (!instances.remove(instance)) {
+			return;
+		}
+		if (!shutdown) {
+			restartCount.incrementAndGet();
+		}
+		launchThreadPool.execute(new Runnable() {
+			@Override
+			public void run() {
+				instance.destroy();
+			}
+		});
+		ensurePoolSize();
+	}
+
+	/**
+	 * 移除并关闭进程，调用前需要持有lock
+	 */
+	private void retire(final SandboxProcess instance) {
+		if (!instances.remove(instance)) {
+			return;
+		}
+		launchThreadPool.execute(new Runnable() {
+			@Override
+			public void run() {
+				instance.close();
+			}
+		});
+	}
+
+	/**
+	 * 可用的进程加上正在启动的进程不足poolSize时，启动新的进程，调用前需要持有lock
+	 */
+	private void ensurePoolSize() {
+		if (shutdown) {
+			return;
+		}
+		int count = launchingCount;
+		for (SandboxProcess instance : instances) {
+			if (!instance.isDraining() && instance.isAlive()) {
+				count++;
+			}
+		}
+		for (int i = count; i < config.getPoolSize(); i++) {
+			launchInstance();
+		}
+	}
+
+	/**
+	 * 在启动线程中启动一个新的进程，调用前需要持有lock
+	 */
+	private void launchInstance() {
+		launchingCount++;
+		final int id = nextInstanceId++;
+		launchThreadPool.execute(new Runnable() {
+			@Override
+			public void run() {
+				SandboxProcess instance = null;
+				try {
+					instance = SandboxProcess.launch(id, config, gson);
+				} catch (IOException e) {
+					// 启动失败，下一次健康检查时会重新启动
+					System.err.println("沙箱进程" + id + "启动失败："
+							+ e.getMessage());
+				}
+				boolean closeInstance = false;
+				synchronized (lock) {
+					launchingCount--;
+					if (instance != null) {
+						if (shutdown) {
+							closeInstance = true;
+						} else {
+							instances.add(instance);
+							dispatch();
+						}
+					}
+				}
+				if (closeInstance) {
+					instance.close();
+				}
+			}
+		});
+	}
+
+	private void createClassDataSharingArchive() {
+		int id = 0;
+		synchronized (lock) {
+			id = nextInstanceId++;
+		}
+		try {
+			if (!SandboxProcess.createClassDataSharingArchive(id, config, gson)) {
+				System.err.println("类数据共享归档生成失败");
+			}
+		} catch (IOException e) {
+			System.err.println("类数据共享归档生成失败：" + e.getMessage());
+		}
+	}
+
+	/**
+	 * 健康检查，在健康检查线程中定时执行：查询每个进程的状态，替换异常的进程，补足进程数，并计算吞吐量
+	 */
+	private void checkHealth() {
+		List<SandboxProcess> snapshot = null;
+		synchronized (lock) {
+			snapshot = new ArrayList<SandboxProcess>(instances);
+		}
+		for (SandboxProcess instance : snapshot) {
+			boolean dead = !instance.isAlive();
+			if (!dead) {
+				try {
+					instance.setLastStatus(instance.getClient().status()
+							.get(config.getHealthCheckIntervalMillis(),
+									TimeUnit.MILLISECONDS));
+					instance.setHealthCheckFailures(0);
+				} catch (Exception e) {
+					instance.setHealthCheckFailures(instance
+							.getHealthCheckFailures() + 1);
+					// 连续多次没有回复，认为进程已经卡死
+					dead = instance.getHealthCheckFailures() >= config
+							.getMaxHealthCheckFailures();
+				}
+			}
+			if (dead) {
+				synchronized (lock) {
+					handleDeadInstance(instance);
+				}
+			}
+		}
+		synchronized (lock) {
+			for (SandboxProcess instance : new ArrayList<SandboxProcess>(
+					instances)) {
+				if (instance.isDraining()
+						&& instance.getInFlightCount().get() == 0) {
+					retire(instance);
+				}
+			}
+			ensurePoolSize();
+			dispatch();
+		}
+		long now = System.currentTimeMillis();
+		long completed = completedCount.get();
+		if (now > lastCheckTime) {
+			throughputPerSecond = (completed - lastCompletedCount) * 1000.0
+					/ (now - lastCheckTime);
+		}
+		lastCompletedCount = completed;
+		lastCheckTime = now;
+	}
+
+	private ThreadFactory createThreadFactory(final String name) {
+		return new ThreadFactory() {
+			private int threadCount = 0;
+
+			@Override
+			public synchronized Thread newThread(Runnable r) {
+				Thread thread = new Thread(r);
+				thread.setName(name + " " + threadCount++);
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * 还没有返回结果的判题请求
+	 */
+	private static class PendingJudge extends FutureTask<ProblemResult> {
+		private final Problem problem;
+		private final JudgeListener listener;
+
+		PendingJudge(Problem problem, JudgeListener listener) {
+			super(new Callable<ProblemResult>() {
+				@Override
+				public ProblemResult call() throws Exception {
+					// 结果由沙箱进程的回复设置，不会被执行
+					return null;
+				}
+			});
+			this.problem = problem;
+			this.listener = listener;
+		}
+
+		void complete(ProblemResult result) {
+			set(result);
+			if (listener != null) {
+				listener.onComplete(result, null);
+			}
+		}
+
+		void fail(Throwable cause) {
+			setException(cause);
+			if (listener != null) {
+				listener.onComplete(null, cause);
+			}
+		}
+	}
+}
@@ -0,0 +1,113 @@
+package cn.superman.sandbox.callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cn.superman.sandbox.constant.Verdict;
+import cn.superman.sandbox.core.entryPoint.EntryPointCache;
+import cn.superman.sandbox.core.systemInStream.ThreadInputStream;
+import cn.superman.sandbox.core.systemOutStream.CacheOutputStream;
+import cn.superman.sandbox.core.testDataCache.TestDataCache;
+import cn.superman.sandbox.core.workerPool.WorkerCleaner;
+import cn.superman.sandbox.core.workerPool.WorkerPool;
+import cn.superman.sandbox.dto.Problem;
+import cn.superman.sandbox.dto.ProblemResultItem;
+
+/**
+ * 执行结束之后仍然要判断是否超出内存限制：很快就结束的代码可能一次完整的垃圾回收都没有遇到，
+ * 但不断分配又马上丢弃内存的代码不能因此被误判
+ */
+public class MemoryLimitTest {
+	private static final long MEMORY_LIMIT = 32 * 1024 * 1024;
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+	private static CacheOutputStream resultBuffer;
+	private static ThreadInputStream threadSystemIn;
+	private static TestDataCache testDataCache;
+	private static WorkerPool workerPool;
+	private static EntryPointCache entryPointCache;
+	private static File inputFile;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		resultBuffer = new CacheOutputStream();
+		threadSystemIn = new ThreadInputStream();
+		testDataCache = new TestDataCache(
+				TestDataCache.DEFAULT_MAX_CACHED_BYTES);
+		entryPointCache = new EntryPointCache();
+		workerPool = new WorkerPool("testCaseWorker", 1, 0,
+				new WorkerCleaner() {
+					@Override
+					public void clean() {
+						resultBuffer.removeThreadBuffer();
+						threadSystemIn.removeAndCloseThreadIn();
+					}
+				});
+		inputFile = folder.newFile("empty.in");
+	}
+
+	@Test
+	public void retainedArrayExceedsLimitAfterQuickExit() throws Exception {
+		try {
+			ProblemResultItem item = judge(Retainer.class);
+			assertEquals(Verdict.MEMORY_LIMIT_EXCEEDED, item.getVerdict());
+			assertTrue(item.getUseMemory() > MEMORY_LIMIT);
+		} finally {
+			Retainer.data = null;
+		}
+	}
+
+	@Test
+	public void churnIsNotCountedAsRetained() throws Exception {
+		ProblemResultItem item = judge(Churner.class);
+		assertEquals(Verdict.FINISHED, item.getVerdict());
+		assertTrue(item.getUseMemory() <= MEMORY_LIMIT);
+		assertTrue(item.getAllocatedBytes() > MEMORY_LIMIT);
+	}
+
+	private static ProblemResultItem judge(Class<?> mainClass)
+			throws Exception {
+		Problem problem = new Problem();
+		problem.setRunId(mainClass.getSimpleName());
+		problem.setTimeLimit(5000);
+		problem.setMemoryLimit(MEMORY_LIMIT);
+		problem.setInputDataFilePathList(Collections.singletonList(inputFile
+				.getPath()));
+		List<ProblemResultItem> items = new ProblemCallable(
+				entryPointCache.get(mainClass, null), problem, resultBuffer,
+				threadSystemIn, testDataCache, workerPool).call();
+		assertEquals(1, items.size());
+		return items.get(0);
+	}
+
+	public static class Retainer {
+		public static int[] data;
+
+		public static void main(String[] args) {
+			// 100MB，比新生代大，直接分配在Eden区以外
+			data = new int[25 * 1024 * 1024];
+			System.out.println(data.length);
+		}
+	}
+
+	public static class Churner {
+		public static void main(String[] args) {
+			long sum = 0;
+			for (int i = 0; i < 1000; i++) {
+				byte[] chunk = new byte[256 * 1024];
+				chunk[i % chunk.length] = 1;
+				sum += chunk[i % chunk.length];
+			}
+			System.out.println(sum);
+		}
+	}
+}
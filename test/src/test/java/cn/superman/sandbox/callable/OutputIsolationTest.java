@@ -0,0 +1,172 @@
+package cn.superman.sandbox.callable;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Scanner;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cn.superman.sandbox.constant.Verdict;
+import cn.superman.sandbox.core.entryPoint.EntryPointCache;
+import cn.superman.sandbox.core.systemInStream.ThreadInputStream;
+import cn.superman.sandbox.core.systemOutStream.CacheOutputStream;
+import cn.superman.sandbox.core.systemOutStream.ThreadPrintStream;
+import cn.superman.sandbox.core.testDataCache.TestDataCache;
+import cn.superman.sandbox.core.workerPool.WorkerCleaner;
+import cn.superman.sandbox.core.workerPool.WorkerPool;
+import cn.superman.sandbox.dto.Problem;
+import cn.superman.sandbox.dto.ProblemResultItem;
+
+/**
+ * 一个提交的输出被中途打断（输出超限、答案错误）之后，残留的输出不能混进下一个提交的输出。
+ * 与沙箱一样，System.out被换成了按线程区分的输出流，只有一个执行线程，两个提交先后在同一个线程上执行
+ */
+public class OutputIsolationTest {
+	private static final String HELLO_OUTPUT = "hello 7"
+			+ System.lineSeparator();
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+	private static PrintStream originalOut;
+	private static InputStream originalIn;
+	private static CacheOutputStream resultBuffer;
+	private static ThreadInputStream threadSystemIn;
+	private static TestDataCache testDataCache;
+	private static WorkerPool workerPool;
+	private static EntryPointCache entryPointCache;
+	private static File inputFile;
+	private static File answerFile;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		resultBuffer = new CacheOutputStream();
+		threadSystemIn = new ThreadInputStream();
+		testDataCache = new TestDataCache(
+				TestDataCache.DEFAULT_MAX_CACHED_BYTES);
+		entryPointCache = new EntryPointCache();
+		workerPool = new WorkerPool("testCaseWorker", 1, 0,
+				new WorkerCleaner() {
+					@Override
+					public void clean() {
+						resultBuffer.removeThreadBuffer();
+						threadSystemIn.removeAndCloseThreadIn();
+					}
+				});
+		inputFile = write("7.in", "7\n");
+		answerFile = write("7.out", HELLO_OUTPUT);
+		originalOut = System.out;
+		originalIn = System.in;
+		System.setOut(new ThreadPrintStream(resultBuffer));
+		System.setIn(threadSystemIn);
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		System.setOut(originalOut);
+		System.setIn(originalIn);
+	}
+
+	@Test
+	public void outputLimitBreachDoesNotLeakIntoNextSubmission()
+			throws Exception {
+		ProblemResultItem flood = judge(Flood.class, 50000, false);
+		assertEquals(Verdict.OUTPUT_LIMIT_EXCEEDED, flood.getVerdict());
+		assertEquals(Verdict.ACCEPTED, judge(Hello.class, 0, true)
+				.getVerdict());
+		assertEquals(HELLO_OUTPUT, judge(Hello.class, 0, false).getResult());
+	}
+
+	@Test
+	public void mismatchDoesNotLeakIntoNextSubmission() throws Exception {
+		ProblemResultItem flood = judge(Flood.class, 0, true);
+		assertEquals(Verdict.WRONG_ANSWER, flood.getVerdict());
+		assertEquals(0, flood.getFirstDifferencePosition());
+		ProblemResultItem hello = judge(Hello.class, 0, true);
+		assertEquals(Verdict.ACCEPTED, hello.getVerdict());
+		assertEquals(-1, hello.getFirstDifferencePosition());
+	}
+
+	@Test
+	public void swallowedOutputLimitIsStillReported() throws Exception {
+		ProblemResultItem flood = judge(SwallowingFlood.class, 50000, false);
+		assertEquals(Verdict.OUTPUT_LIMIT_EXCEEDED, flood.getVerdict());
+		assertEquals(HELLO_OUTPUT, judge(Hello.class, 0, false).getResult());
+	}
+
+	private static ProblemResultItem judge(Class<?> mainClass,
+			long outputLimit, boolean compare) throws Exception {
+		Problem problem = new Problem();
+		problem.setRunId(mainClass.getSimpleName());
+		problem.setTimeLimit(5000);
+		problem.setOutputLimit(outputLimit);
+		problem.setInputDataFilePathList(Collections.singletonList(inputFile
+				.getPath()));
+		if (compare) {
+			problem.setOutputDataFilePathList(Collections
+					.singletonList(answerFile.getPath()));
+		}
+		List<ProblemResultItem> items = new ProblemCallable(
+				entryPointCache.get(mainClass, null), problem, resultBuffer,
+				threadSystemIn, testDataCache, workerPool).call();
+		assertEquals(1, items.size());
+		return items.get(0);
+	}
+
+	private static File write(String name, String content) throws Exception {
+		File file = folder.newFile(name);
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(content.getBytes(StandardCharsets.US_ASCII));
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+	private static String wideLine(char c) {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			builder.append(c);
+		}
+		return builder.toString();
+	}
+
+	public static class Flood {
+		public static void main(String[] args) {
+			String line = wideLine('x');
+			while (true) {
+				System.out.println(line);
+			}
+		}
+	}
+
+	public static class SwallowingFlood {
+		public static void main(String[] args) {
+			String line = wideLine('y');
+			try {
+				while (true) {
+					System.out.println(line);
+				}
+			} catch (Throwable e) {
+				// 吞掉输出超限，正常结束
+			}
+		}
+	}
+
+	public static class Hello {
+		public static void main(String[] args) {
+			Scanner scanner = new Scanner(System.in);
+			System.out.println("hello " + scanner.nextInt());
+		}
+	}
+}
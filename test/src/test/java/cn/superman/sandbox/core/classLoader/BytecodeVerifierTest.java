@@ -0,0 +1,277 @@
+package cn.superman.sandbox.core.classLoader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cn.superman.sandbox.core.classLoader.ClassBytecodeCache.Bytecode;
+
+/**
+ * 字节码检查的允许与拒绝。提交的代码用当前JDK编译（--release 17），这样才会有record以及invokedynamic的字符串拼接，
+ * 它们的常量池会引用java.lang.invoke、java.lang.runtime中的引导方法，不能被误判
+ */
+public class BytecodeVerifierTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	private BytecodeVerifier verifier;
+	private ClassBytecodeCache bytecodeCache;
+
+	@Before
+	public void setUp() {
+		verifier = new BytecodeVerifier();
+		bytecodeCache = new ClassBytecodeCache(
+				ClassBytecodeCache.DEFAULT_MAX_CACHED_BYTES);
+	}
+
+	@Test
+	public void allowsPlainCode() throws Exception {
+		assertAllowed("Main", "import java.util.*;\n"
+				+ "public class Main {\n"
+				+ "  public static void main(String[] args) {\n"
+				+ "    Scanner scanner = new Scanner(System.in);\n"
+				+ "    List<Integer> list = new ArrayList<Integer>();\n"
+				+ "    while (scanner.hasNextInt()) list.add(scanner.nextInt());\n"
+				+ "    Collections.sort(list);\n"
+				+ "    int[] array = new int[list.size()];\n"
+				+ "    Arrays.sort(array);\n"
+				+ "    System.out.println(list);\n" + "  }\n" + "}\n");
+	}
+
+	@Test
+	public void allowsLambdasAndMethodReferences() throws Exception {
+		assertAllowed("Main", "import java.util.*;\n"
+				+ "import java.util.function.*;\n"
+				+ "public class Main {\n"
+				+ "  public static void main(String[] args) {\n"
+				+ "    List<String> list = new ArrayList<>(Arrays.asList(args));\n"
+				+ "    list.sort((a, b) -> b.compareTo(a));\n"
+				+ "    Function<String, Integer> length = String::length;\n"
+				+ "    Runnable runnable = () -> System.out.println(list);\n"
+				+ "    runnable.run();\n"
+				+ "    System.out.println(list.stream().map(length).reduce(0, Integer::sum));\n"
+				+ "  }\n" + "}\n");
+	}
+
+	@Test
+	public void allowsRecords() throws Exception {
+		assertAllowed("Main", "public class Main {\n"
+				+ "  record Point(int x, int y) {}\n"
+				+ "  public static void main(String[] args) {\n"
+				+ "    Point point = new Point(1, 2);\n"
+				+ "    System.out.println(point.equals(new Point(1, 2)) + \" \" + point.hashCode() + \" \" + point);\n"
+				+ "  }\n" + "}\n", "Main$Point");
+	}
+
+	@Test
+	public void allowsIndyStringConcat() throws Exception {
+		assertAllowed("Main", "public class Main {\n"
+				+ "  public static void main(String[] args) {\n"
+				+ "    int a = args.length;\n"
+				+ "    String s = \"a=\" + a + \", b=\" + (a * 2L) + '!';\n"
+				+ "    System.out.println(s);\n" + "  }\n" + "}\n");
+	}
+
+	@Test
+	public void deniesThread() throws Exception {
+		assertDenied("java.lang.Thread", "Main", "public class Main {\n"
+				+ "  public static void main(String[] args) throws Exception {\n"
+				+ "    Thread thread = new Thread(() -> System.out.println(1));\n"
+				+ "    thread.start();\n" + "    thread.join();\n" + "  }\n"
+				+ "}\n");
+	}
+
+	@Test
+	public void deniesThreadSubclass() throws Exception {
+		assertDenied("java.lang.Thread", "Main", "public class Main extends Thread {\n"
+				+ "  public static void main(String[] args) {\n"
+				+ "    new Main().start();\n" + "  }\n" + "}\n");
+	}
+
+	@Test
+	public void deniesExecutors() throws Exception {
+		assertDenied("java.util.concurrent.Executors", "Main",
+				"import java.util.concurrent.*;\n"
+						+ "public class Main {\n"
+						+ "  public static void main(String[] args) {\n"
+						+ "    ExecutorService executor = Executors.newFixedThreadPool(2);\n"
+						+ "    executor.shutdown();\n" + "  }\n" + "}\n");
+	}
+
+	@Test
+	public void deniesFinalizeOverride() throws Exception {
+		assertDenied("重写finalize", "Main", "public class Main {\n"
+				+ "  @Override\n"
+				+ "  protected void finalize() { System.out.println(1); }\n"
+				+ "  public static void main(String[] args) {\n"
+				+ "    new Main();\n" + "  }\n" + "}\n");
+	}
+
+	@Test
+	public void allowsStaticMethodNamedFinalize() throws Exception {
+		assertAllowed("Main", "public class Main {\n"
+				+ "  static void finalize(int x) { System.out.println(x); }\n"
+				+ "  public static void main(String[] args) {\n"
+				+ "    finalize(1);\n" + "  }\n" + "}\n");
+	}
+
+	@Test
+	public void deniesParallelStream() throws Exception {
+		assertDenied("parallelStream", "Main", "import java.util.*;\n"
+				+ "public class Main {\n"
+				+ "  public static void main(String[] args) {\n"
+				+ "    List<String> list = Arrays.asList(args);\n"
+				+ "    System.out.println(list.parallelStream().count());\n"
+				+ "  }\n" + "}\n");
+	}
+
+	@Test
+	public void deniesStreamParallel() throws Exception {
+		assertDenied("parallel", "Main", "import java.util.stream.*;\n"
+				+ "public class Main {\n"
+				+ "  public static void main(String[] args) {\n"
+				+ "    System.out.println(IntStream.range(0, 100).parallel().sum());\n"
+				+ "  }\n" + "}\n");
+	}
+
+	@Test
+	public void deniesStreamSupport() throws Exception {
+		assertDenied("java.util.stream.StreamSupport", "Main",
+				"import java.util.*;\n"
+						+ "import java.util.stream.*;\n"
+						+ "public class Main {\n"
+						+ "  public static void main(String[] args) {\n"
+						+ "    Spliterator<String> spliterator = Arrays.asList(args).spliterator();\n"
+						+ "    System.out.println(StreamSupport.stream(spliterator, true).count());\n"
+						+ "  }\n" + "}\n");
+	}
+
+	@Test
+	public void deniesParallelSort() throws Exception {
+		assertDenied("parallelSort", "Main", "import java.util.*;\n"
+				+ "public class Main {\n"
+				+ "  public static void main(String[] args) {\n"
+				+ "    int[] array = new int[args.length];\n"
+				+ "    Arrays.parallelSort(array);\n" + "  }\n" + "}\n");
+	}
+
+	@Test
+	public void deniesReflectionAndExit() throws Exception {
+		assertDenied("java.lang.Class.forName", "Main", "public class Main {\n"
+				+ "  public static void main(String[] args) throws Exception {\n"
+				+ "    System.out.println(Class.forName(args[0]));\n"
+				+ "  }\n" + "}\n");
+		assertDenied("java.lang.System.exit", "Exit", "public class Exit {\n"
+				+ "  public static void main(String[] args) {\n"
+				+ "    System.exit(1);\n" + "  }\n" + "}\n");
+	}
+
+	@Test
+	public void deniesWritingFiles() throws Exception {
+		assertDenied("java.io.FileOutputStream", "Main", "import java.io.*;\n"
+				+ "public class Main {\n"
+				+ "  public static void main(String[] args) throws IOException {\n"
+				+ "    new FileOutputStream(args[0]).close();\n" + "  }\n"
+				+ "}\n");
+		assertDenied("继承java.io.File", "MyFile", "import java.io.*;\n"
+				+ "public class MyFile extends File {\n"
+				+ "  public MyFile(String path) { super(path); }\n"
+				+ "  public static void main(String[] args) {\n"
+				+ "    new MyFile(args[0]).delete();\n" + "  }\n" + "}\n");
+	}
+
+	@Test
+	public void rejectsMalformedBytecode() throws Exception {
+		File classFile = folder.newFile("Broken.class");
+		FileOutputStream outputStream = new FileOutputStream(classFile);
+		try {
+			outputStream.write(new byte[] { (byte) 0xCA, (byte) 0xFE,
+					(byte) 0xBA, (byte) 0xBE, 0, 0, 0, 61, 0, 5, 99 });
+		} finally {
+			outputStream.close();
+		}
+		try {
+			verifier.verify("Broken", bytecodeCache.getFromFile(classFile));
+			fail("不完整的字节码应该被拒绝");
+		} catch (VerifyError e) {
+			assertTrue(e.getMessage().contains("无法解析的字节码"));
+		}
+	}
+
+	@Test
+	public void remembersVerifiedBytecode() throws Exception {
+		File classDir = compile("Main", "public class Main {\n"
+				+ "  public static void main(String[] args) {\n"
+				+ "    System.out.println(1);\n" + "  }\n" + "}\n");
+		Bytecode bytecode = bytecodeCache.getFromFile(new File(classDir,
+				"Main.class"));
+		verifier.verify("Main", bytecode);
+		verifier.verify("Main", bytecode);
+		// 同一份字节码只检查一次
+		assertEquals(1, verifier.getVerifiedCount());
+		assertEquals(0, verifier.getRejectedCount());
+	}
+
+	private void assertAllowed(String className, String source,
+			String... otherClassNames) throws Exception {
+		File classDir = compile(className, source);
+		verify(classDir, className);
+		for (String otherClassName : otherClassNames) {
+			verify(classDir, otherClassName);
+		}
+		assertEquals(0, verifier.getRejectedCount());
+	}
+
+	private void assertDenied(String violation, String className,
+			String source) throws Exception {
+		File classDir = compile(className, source);
+		long rejectedCount = verifier.getRejectedCount();
+		try {
+			verify(classDir, className);
+			fail(className + "应该因为" + violation + "被拒绝");
+		} catch (VerifyError e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(violation));
+		}
+		assertEquals(rejectedCount + 1, verifier.getRejectedCount());
+	}
+
+	private void verify(File classDir, String className) throws Exception {
+		Bytecode bytecode = bytecodeCache.getFromFile(new File(classDir,
+				className + ".class"));
+		assertNotNull(className + ".class", bytecode);
+		verifier.verify(className, bytecode);
+	}
+
+	private File compile(String className, String source) throws Exception {
+		File dir = folder.newFolder();
+		File sourceFile = new File(dir, className + ".java");
+		Writer writer = new OutputStreamWriter(
+				new FileOutputStream(sourceFile), "UTF-8");
+		try {
+			writer.write(source);
+		} finally {
+			writer.close();
+		}
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assertNotNull("需要在JDK中运行", compiler);
+		int result = compiler.run(null, null, null, Arrays.asList(
+				"--release", "17", "-encoding", "UTF-8", "-nowarn", "-d",
+				dir.getPath(), sourceFile.getPath()).toArray(new String[0]));
+		assertEquals("编译失败", 0, result);
+		return dir;
+	}
+}
@@ -0,0 +1,156 @@
+package cn.superman.sandbox.core.outputComparator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import org.junit.Test;
+
+import cn.superman.sandbox.constant.CompareMode;
+
+public class ExactOutputComparatorTest {
+
+	@Test
+	public void acceptsIdenticalOutputWrittenInChunks() throws Exception {
+		OutputComparator comparator = create("1 2 3\nhello\n");
+		write(comparator, "1 2");
+		write(comparator, " 3\nhe");
+		write(comparator, "llo\n");
+		assertTrue(comparator.finish());
+		assertEquals(-1, comparator.getMismatchPosition());
+		assertEquals(md5("1 2 3\nhello\n"), comparator.getDigest());
+	}
+
+	@Test
+	public void acceptsSingleByteWrites() throws Exception {
+		OutputComparator comparator = create("ab\n");
+		for (byte b : "ab\n".getBytes(StandardCharsets.US_ASCII)) {
+			comparator.write(b);
+		}
+		assertTrue(comparator.finish());
+	}
+
+	@Test
+	public void reportsFirstDifferenceAcrossChunks() {
+		OutputComparator comparator = create("hello world\n");
+		write(comparator, "hello ");
+		try {
+			write(comparator, "wOrld\n");
+			fail("发现不同时应该抛出OutputMismatchError");
+		} catch (OutputMismatchError e) {
+			// 预期之中
+		}
+		assertFalse(comparator.finish());
+		assertEquals(7, comparator.getMismatchPosition());
+	}
+
+	@Test
+	public void keepsFailingAfterMismatch() {
+		OutputComparator comparator = create("abc");
+		try {
+			write(comparator, "x");
+			fail();
+		} catch (OutputMismatchError e) {
+			// 预期之中
+		}
+		String digest = md5("x");
+		try {
+			// 代码捕获了OutputMismatchError之后继续输出
+			write(comparator, "abc");
+			fail();
+		} catch (OutputMismatchError e) {
+			// 预期之中
+		}
+		assertFalse(comparator.finish());
+		assertEquals(0, comparator.getMismatchPosition());
+		assertEquals(digest, comparator.getDigest());
+	}
+
+	@Test
+	public void reportsMissingOutputAtEndOfOutput() {
+		OutputComparator comparator = create("6\n7\n");
+		write(comparator, "6\n");
+		assertFalse(comparator.finish());
+		assertEquals(2, comparator.getMismatchPosition());
+	}
+
+	@Test
+	public void reportsExtraOutputAtEndOfExpected() {
+		OutputComparator comparator = create("6\n");
+		try {
+			write(comparator, "6\n\n");
+			fail();
+		} catch (OutputMismatchError e) {
+			// 预期之中
+		}
+		assertEquals(2, comparator.getMismatchPosition());
+	}
+
+	@Test
+	public void doesNotIgnoreWhitespace() {
+		OutputComparator comparator = create("6\n");
+		try {
+			write(comparator, "6 \n");
+			fail();
+		} catch (OutputMismatchError e) {
+			// 预期之中
+		}
+		assertEquals(1, comparator.getMismatchPosition());
+	}
+
+	@Test
+	public void comparesOutputLongerThanExpectedBuffer() {
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			expected.append(i).append('\n');
+		}
+		OutputComparator comparator = create(expected.toString());
+		write(comparator, expected.toString());
+		assertTrue(comparator.finish());
+		assertEquals(md5(expected.toString()), comparator.getDigest());
+	}
+
+	@Test
+	public void createsExactComparatorByDefault() {
+		assertTrue(OutputComparator.create(null, in(""), 0) instanceof ExactOutputComparator);
+		assertTrue(OutputComparator.create(CompareMode.EXACT, in(""), 0) instanceof ExactOutputComparator);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsUnknownCompareMode() {
+		OutputComparator.create("UNKNOWN", in(""), 0);
+	}
+
+	static OutputComparator create(String expected) {
+		return new ExactOutputComparator(in(expected));
+	}
+
+	static ByteArrayInputStream in(String content) {
+		return new ByteArrayInputStream(
+				content.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	static void write(OutputComparator comparator, String output) {
+		byte[] bytes = output.getBytes(StandardCharsets.US_ASCII);
+		comparator.write(bytes, 0, bytes.length);
+	}
+
+	static String md5(String content) {
+		try {
+			byte[] digest = MessageDigest.getInstance("MD5").digest(
+					content.getBytes(StandardCharsets.US_ASCII));
+			StringBuilder builder = new StringBuilder();
+			for (byte b : digest) {
+				builder.append(String.format("%02x", b & 0xFF));
+			}
+			return builder.toString();
+		} catch (Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package cn.superman.sandbox.core.outputComparator;
+
+import static cn.superman.sandbox.core.outputComparator.ExactOutputComparatorTest.in;
+import static cn.superman.sandbox.core.outputComparator.ExactOutputComparatorTest.md5;
+import static cn.superman.sandbox.core.outputComparator.ExactOutputComparatorTest.write;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedInputStream;
+
+import org.junit.Test;
+
+import cn.superman.sandbox.constant.CompareMode;
+
+public class TokenOutputComparatorTest {
+
+	@Test
+	public void ignoresWhitespaceDifferences() {
+		OutputComparator comparator = ignoreWhitespace("1 2 3\nhello\n");
+		write(comparator, "  1\t2\r\n3   hel");
+		write(comparator, "lo");
+		assertTrue(comparator.finish());
+		assertEquals(-1, comparator.getMismatchPosition());
+		assertEquals(md5("  1\t2\r\n3   hello"), comparator.getDigest());
+	}
+
+	@Test
+	public void reportsPositionOfFirstDifferentToken() {
+		OutputComparator comparator = ignoreWhitespace("1 2 3\n");
+		try {
+			write(comparator, "1  20 3\n");
+			fail("发现不同时应该抛出OutputMismatchError");
+		} catch (OutputMismatchError e) {
+			// 预期之中
+		}
+		assertFalse(comparator.finish());
+		assertEquals(3, comparator.getMismatchPosition());
+	}
+
+	@Test
+	public void comparesLastTokenWhenOutputEnds() {
+		OutputComparator comparator = ignoreWhitespace("1 2");
+		write(comparator, "1 3");
+		assertFalse(comparator.finish());
+		assertEquals(2, comparator.getMismatchPosition());
+	}
+
+	@Test
+	public void reportsMissingTokensAtEndOfOutput() {
+		OutputComparator comparator = ignoreWhitespace("1 2 3");
+		write(comparator, "1 2 ");
+		assertFalse(comparator.finish());
+		assertEquals(4, comparator.getMismatchPosition());
+	}
+
+	@Test
+	public void reportsExtraTokens() {
+		OutputComparator comparator = ignoreWhitespace("1 2");
+		try {
+			write(comparator, "1 2 3\n");
+			fail();
+		} catch (OutputMismatchError e) {
+			// 预期之中
+		}
+		assertEquals(4, comparator.getMismatchPosition());
+	}
+
+	@Test
+	public void comparesTokensLongerThanInitialBuffer() {
+		StringBuilder token = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			token.append((char) ('a' + i % 26));
+		}
+		OutputComparator comparator = ignoreWhitespace(token + "\n" + token);
+		write(comparator, token + " " + token + "\n");
+		assertTrue(comparator.finish());
+	}
+
+	@Test
+	public void numbersMustMatchExactlyWithoutFloatCompare() {
+		OutputComparator comparator = ignoreWhitespace("0.5\n");
+		write(comparator, "0.50");
+		assertFalse(comparator.finish());
+	}
+
+	@Test
+	public void acceptsNumbersWithinAbsoluteOrRelativeEpsilon() {
+		OutputComparator comparator = floatEpsilon("3.14159 1000000 abc\n",
+				1e-4);
+		// 第一个数绝对误差在范围内，第二个数相对误差在范围内，不是数字的单词仍然要完全一致
+		write(comparator, "3.1416 1000050.0 abc");
+		assertTrue(comparator.finish());
+	}
+
+	@Test
+	public void rejectsNumbersOutsideEpsilon() {
+		OutputComparator comparator = floatEpsilon("1.0 2.0\n", 1e-6);
+		write(comparator, "1.0 2.001");
+		assertFalse(comparator.finish());
+		assertEquals(4, comparator.getMismatchPosition());
+	}
+
+	@Test
+	public void rejectsNonNumbersWithFloatCompare() {
+		OutputComparator comparator = floatEpsilon("abc\n", 1);
+		write(comparator, "abd");
+		assertFalse(comparator.finish());
+		assertEquals(0, comparator.getMismatchPosition());
+	}
+
+	@Test
+	public void createsTokenComparatorForWhitespaceModes() {
+		assertTrue(OutputComparator.create(CompareMode.IGNORE_WHITESPACE,
+				in(""), 0) instanceof TokenOutputComparator);
+		assertTrue(OutputComparator.create(CompareMode.FLOAT_EPSILON, in(""),
+				0) instanceof TokenOutputComparator);
+	}
+
+	private static OutputComparator ignoreWhitespace(String expected) {
+		return new TokenOutputComparator(new BufferedInputStream(
+				in(expected)), false, 0);
+	}
+
+	private static OutputComparator floatEpsilon(String expected,
+			double epsilon) {
+		return new TokenOutputComparator(new BufferedInputStream(
+				in(expected)), true, epsilon);
+	}
+}
@@ -0,0 +1,236 @@
+package cn.superman.sandbox.core.protocol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+import cn.superman.sandbox.dto.ProblemResult;
+import cn.superman.sandbox.dto.ProblemResultItem;
+import cn.superman.sandbox.dto.Request;
+import cn.superman.sandbox.dto.Response;
+
+/**
+ * 二进制帧协议在每个协议版本下的编码与解码：当前版本的字段都能原样读回，旧版本中没有的字段保持默认值
+ */
+public class BinaryMessagesTest {
+	private final Gson gson = new Gson();
+
+	@Test
+	public void requestRoundTrip() throws Exception {
+		Request request = new Request();
+		request.setCommand("judge");
+		request.setSignalId("信号1");
+		// 二进制帧中可以包含换行
+		request.setData("{\"runId\":\"1\"}\n第二行");
+		Request decoded = roundTrip(request);
+		assertEquals("judge", decoded.getCommand());
+		assertEquals("信号1", decoded.getSignalId());
+		assertEquals("{\"runId\":\"1\"}\n第二行", decoded.getData());
+	}
+
+	@Test
+	public void requestWithoutData() throws Exception {
+		Request request = new Request();
+		request.setCommand("close");
+		Request decoded = roundTrip(request);
+		assertEquals("close", decoded.getCommand());
+		assertNull(decoded.getSignalId());
+		assertNull(decoded.getData());
+	}
+
+	@Test
+	public void problemResultRoundTripInEveryVersion() throws Exception {
+		for (int version = 1; version <= BinaryMessages.VERSION; version++) {
+			ProblemResult decoded = (ProblemResult) decodeResponse(
+					problemResultResponse(), version).getBody();
+			assertEquals("run-7", decoded.getRunId());
+			assertEquals(2, decoded.getResultItems().size());
+			ProblemResultItem item = decoded.getResultItems().get(1);
+			assertEquals(15, item.getUseTime());
+			assertEquals(20, item.getUseWallTime());
+			assertEquals(1024, item.getUseMemory());
+			assertEquals(4096, item.getAllocatedBytes());
+			assertEquals("3\n4\n", item.getResult());
+			assertEquals("WRONG_ANSWER", item.getVerdict());
+			assertEquals(2, item.getFirstDifferencePosition());
+			assertEquals("abcdef", item.getOutputDigest());
+			assertEquals("答案错误", item.getMessage());
+			assertTrue(item.isNormal());
+			assertEquals("/data/2.in", item.getInputFilePath());
+			// 版本2：测试用例总数以及测试用例下标
+			assertEquals(version >= 2 ? 5 : 0, decoded.getTestCount());
+			assertEquals(version >= 2 ? 1 : -1, item.getTestIndex());
+			// 版本3：答案检查器的耗时
+			assertEquals(version >= 3 ? 3 : -1, item.getCheckerTime());
+			// 版本4：判题失败的原因
+			assertEquals(version >= 4 ? "部分测试数据缺失" : null,
+					decoded.getErrorMessage());
+		}
+	}
+
+	@Test
+	public void newerVersionsOnlyAppendFields() throws Exception {
+		Response response = problemResultResponse();
+		int previousLength = 0;
+		for (int version = 1; version <= BinaryMessages.VERSION; version++) {
+			int length = new BinaryFrameCodec(null, gson, version)
+					.encodeResponse(response).length;
+			assertTrue("版本" + version, length > previousLength);
+			previousLength = length;
+		}
+	}
+
+	@Test
+	public void decodingWithWrongVersionFails() throws Exception {
+		byte[] frame = encodeResponse(problemResultResponse(), 1);
+		try {
+			// 按版本4解码版本1的内容，字段会错位，最终读到帧的末尾之外
+			BinaryMessages.decodeResponse(payload(frame), 4);
+			fail("协议版本不一致时应该解码失败");
+		} catch (IOException e) {
+			// 期望的结果
+		}
+	}
+
+	@Test
+	public void stringAndEmptyBodies() throws Exception {
+		Response response = new Response();
+		response.setRequestCommand("status");
+		response.setResponseCommand("status");
+		response.setData("ok");
+		Response decoded = decodeResponse(response, BinaryMessages.VERSION);
+		assertEquals("status", decoded.getRequestCommand());
+		assertEquals("ok", decoded.getData());
+		assertNull(decoded.getBody());
+
+		// 判题结果以外的body按JSON字符串发送
+		List<String> body = new ArrayList<String>();
+		body.add("a");
+		response.setBody(body);
+		decoded = decodeResponse(response, BinaryMessages.VERSION);
+		assertEquals("[\"a\"]", decoded.getData());
+
+		response.setBody(null);
+		response.setData(null);
+		decoded = decodeResponse(response, BinaryMessages.VERSION);
+		assertNull(decoded.getData());
+		assertNull(decoded.getBody());
+	}
+
+	@Test
+	public void negotiatesLowerVersion() throws Exception {
+		assertEquals(2, negotiate(2));
+		assertEquals(BinaryMessages.VERSION, negotiate(BinaryMessages.VERSION));
+		assertEquals(BinaryMessages.VERSION,
+				negotiate(BinaryMessages.VERSION + 5));
+	}
+
+	@Test
+	public void fallsBackToJsonLines() throws Exception {
+		ProtocolCodec codec = ProtocolNegotiator.negotiate(
+				new ByteArrayInputStream("{\"command\":\"judge\"}\n"
+						.getBytes("UTF-8")), new ByteArrayOutputStream(), gson);
+		assertEquals(0, codec.getVersion());
+		assertEquals("judge", codec.readRequest().getCommand());
+	}
+
+	@Test
+	public void rejectsInvalidFrameLength() throws Exception {
+		byte[] frame = { (byte) 0xFF, 0, 0, 0 };
+		try {
+			BinaryMessages.readFrame(new DataInputStream(
+					new ByteArrayInputStream(frame)));
+			fail("负数的帧长度应该被拒绝");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("帧长度不正确"));
+		}
+		assertNull(BinaryMessages.readFrame(new DataInputStream(
+				new ByteArrayInputStream(new byte[0]))));
+	}
+
+	private static Request roundTrip(Request request) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryMessages.writeFrame(out, BinaryMessages.encodeRequest(request));
+		BinaryFrameCodec codec = new BinaryFrameCodec(new ByteArrayInputStream(
+				out.toByteArray()), new Gson(), BinaryMessages.VERSION);
+		Request decoded = codec.readRequest();
+		// 只写了一个帧
+		assertNull(codec.readRequest());
+		return decoded;
+	}
+
+	private byte[] encodeResponse(Response response, int version)
+			throws IOException {
+		return new BinaryFrameCodec(null, gson, version)
+				.encodeResponse(response);
+	}
+
+	private Response decodeResponse(Response response, int version)
+			throws IOException {
+		return BinaryMessages.decodeResponse(
+				payload(encodeResponse(response, version)), version);
+	}
+
+	private static byte[] payload(byte[] frame) throws IOException {
+		return BinaryMessages.readFrame(new DataInputStream(
+				new ByteArrayInputStream(frame)));
+	}
+
+	private int negotiate(int clientVersion) throws IOException {
+		ByteArrayOutputStream hello = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(hello);
+		data.write(BinaryMessages.MAGIC);
+		data.writeInt(clientVersion);
+		ByteArrayOutputStream reply = new ByteArrayOutputStream();
+		ProtocolCodec codec = ProtocolNegotiator.negotiate(
+				new ByteArrayInputStream(hello.toByteArray()), reply, gson);
+		// 回复中的版本与编解码器使用的版本一致
+		int version = BinaryMessages.handshake(new DataInputStream(
+				new ByteArrayInputStream(reply.toByteArray())),
+				new ByteArrayOutputStream());
+		assertEquals(version, codec.getVersion());
+		return version;
+	}
+
+	private static Response problemResultResponse() {
+		ProblemResult problemResult = new ProblemResult();
+		problemResult.setRunId("run-7");
+		problemResult.setTestCount(5);
+		problemResult.setErrorMessage("部分测试数据缺失");
+		problemResult.getResultItems().add(new ProblemResultItem());
+		ProblemResultItem item = new ProblemResultItem();
+		item.setUseTime(15);
+		item.setUseWallTime(20);
+		item.setUseMemory(1024);
+		item.setAllocatedBytes(4096);
+		item.setResult("3\n4\n");
+		item.setVerdict("WRONG_ANSWER");
+		item.setFirstDifferencePosition(2);
+		item.setOutputDigest("abcdef");
+		item.setMessage("答案错误");
+		item.setNormal(true);
+		item.setInputFilePath("/data/2.in");
+		item.setTestIndex(1);
+		item.setCheckerTime(3);
+		problemResult.getResultItems().add(item);
+		Response response = new Response();
+		response.setRequestCommand("judge");
+		response.setResponseCommand("judgeResult");
+		response.setSignalId("7");
+		response.setBody(problemResult);
+		return response;
+	}
+}
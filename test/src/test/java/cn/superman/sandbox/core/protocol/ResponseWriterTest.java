@@ -0,0 +1,98 @@
+package cn.superman.sandbox.core.protocol;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.google.gson.Gson;
+
+import cn.superman.sandbox.dto.ProblemResult;
+import cn.superman.sandbox.dto.ProblemResultItem;
+import cn.superman.sandbox.dto.Response;
+
+/**
+ * 多个线程同时写回复时，每个帧都必须完整地写出，不能和其他回复交错
+ */
+public class ResponseWriterTest {
+	private static final int THREAD_COUNT = 8;
+	private static final int RESPONSES_PER_THREAD = 200;
+
+	@Test
+	public void concurrentResponsesDoNotInterleave() throws Exception {
+		// 每次只写出几个字节，并且不在整个写出过程中加锁，没有ResponseWriter的锁时帧就会交错
+		final ByteArrayOutputStream connection = new ByteArrayOutputStream() {
+			@Override
+			public void write(byte[] b, int off, int len) {
+				for (int i = 0; i < len; i += 7) {
+					super.write(b, off + i, Math.min(7, len - i));
+					Thread.yield();
+				}
+			}
+		};
+		final ResponseWriter writer = new ResponseWriter(connection,
+				new BinaryFrameCodec(null, new Gson(), BinaryMessages.VERSION));
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread[] threads = new Thread[THREAD_COUNT];
+		for (int t = 0; t < THREAD_COUNT; t++) {
+			final int threadIndex = t;
+			threads[t] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for (int i = 0; i < RESPONSES_PER_THREAD; i++) {
+							writer.write(response(threadIndex + "-" + i));
+						}
+					} catch (Throwable e) {
+						failure.set(e);
+					}
+				}
+			});
+			threads[t].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertNull(failure.get());
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+				connection.toByteArray()));
+		Set<String> runIds = new HashSet<String>();
+		byte[] frame;
+		while ((frame = BinaryMessages.readFrame(in)) != null) {
+			Response response = BinaryMessages.decodeResponse(frame,
+					BinaryMessages.VERSION);
+			ProblemResult problemResult = (ProblemResult) response.getBody();
+			assertEquals(problemResult.getRunId(), response.getSignalId());
+			assertEquals(problemResult.getRunId(), problemResult
+					.getResultItems().get(0).getResult());
+			assertTrue(runIds.add(problemResult.getRunId()));
+		}
+		assertEquals(THREAD_COUNT * RESPONSES_PER_THREAD, runIds.size());
+	}
+
+	private static Response response(String runId) {
+		ProblemResult problemResult = new ProblemResult();
+		problemResult.setRunId(runId);
+		ProblemResultItem item = new ProblemResultItem();
+		item.setResult(runId);
+		problemResult.getResultItems().add(item);
+		Response response = new Response();
+		response.setRequestCommand("judge");
+		response.setSignalId(runId);
+		response.setBody(problemResult);
+		return response;
+	}
+}
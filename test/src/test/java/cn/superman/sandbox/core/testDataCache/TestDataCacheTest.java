@@ -0,0 +1,224 @@
+package cn.superman.sandbox.core.testDataCache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 测试数据缓存的命中、失效以及淘汰：文件修改时间或大小变化时要重新读取，超过总量上限时淘汰最久没有使用的文件
+ */
+public class TestDataCacheTest {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void secondReadHitsCache() throws Exception {
+		TestDataCache cache = new TestDataCache(
+				TestDataCache.DEFAULT_MAX_CACHED_BYTES);
+		File file = newFile("1.in", "1 2\n");
+		assertEquals("1 2\n", read(cache.get(file)));
+		assertEquals("1 2\n", read(cache.get(file)));
+		assertEquals(1, cache.getMissCount());
+		assertEquals(1, cache.getHitCount());
+		assertEquals(4, cache.getCachedBytes());
+		assertEquals(1, cache.getCachedFileCount());
+	}
+
+	@Test
+	public void returnedBuffersAreIndependent() throws Exception {
+		TestDataCache cache = new TestDataCache(
+				TestDataCache.DEFAULT_MAX_CACHED_BYTES);
+		File file = newFile("1.in", "abc");
+		ByteBuffer first = cache.get(file);
+		first.get();
+		ByteBuffer second = cache.get(file);
+		assertEquals(0, second.position());
+		assertEquals("abc", read(second));
+		assertTrue(second.isReadOnly());
+	}
+
+	@Test
+	public void modifiedFileIsReloaded() throws Exception {
+		TestDataCache cache = new TestDataCache(
+				TestDataCache.DEFAULT_MAX_CACHED_BYTES);
+		File file = newFile("1.in", "old");
+		long lastModified = file.lastModified();
+		assertEquals("old", read(cache.get(file)));
+		// 大小不变，只有修改时间变化
+		write(file, "new");
+		file.setLastModified(lastModified - 10000);
+		assertEquals("new", read(cache.get(file)));
+		assertEquals(2, cache.getMissCount());
+		assertEquals(0, cache.getHitCount());
+		// 替换掉旧的内容，不会重复计算缓存总量
+		assertEquals(3, cache.getCachedBytes());
+		assertEquals(1, cache.getCachedFileCount());
+	}
+
+	@Test
+	public void resizedFileIsReloaded() throws Exception {
+		TestDataCache cache = new TestDataCache(
+				TestDataCache.DEFAULT_MAX_CACHED_BYTES);
+		File file = newFile("1.in", "old");
+		long lastModified = file.lastModified();
+		assertEquals("old", read(cache.get(file)));
+		// 修改时间不变，只有大小变化
+		write(file, "longer");
+		file.setLastModified(lastModified);
+		assertEquals("longer", read(cache.get(file)));
+		assertEquals(2, cache.getMissCount());
+		assertEquals(6, cache.getCachedBytes());
+	}
+
+	@Test
+	public void removedFileIsReloaded() throws Exception {
+		TestDataCache cache = new TestDataCache(
+				TestDataCache.DEFAULT_MAX_CACHED_BYTES);
+		File file = newFile("1.in", "data");
+		ByteBuffer inUse = cache.get(file);
+		cache.remove(file);
+		assertEquals(0, cache.getCachedBytes());
+		assertEquals(0, cache.getCachedFileCount());
+		// 已经拿到的内容不受影响
+		assertEquals("data", read(inUse));
+		assertEquals("data", read(cache.get(file)));
+		assertEquals(2, cache.getMissCount());
+		// 移除不存在的缓存没有影响
+		cache.remove(newFile("2.in", "x"));
+		assertEquals(4, cache.getCachedBytes());
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsed() throws Exception {
+		TestDataCache cache = new TestDataCache(10);
+		File a = newFile("a.in", "aaaa");
+		File b = newFile("b.in", "bbbb");
+		File c = newFile("c.in", "cccc");
+		cache.get(a);
+		cache.get(b);
+		// a最近被使用过，超过上限时淘汰的是b
+		cache.get(a);
+		cache.get(c);
+		assertEquals(1, cache.getEvictionCount());
+		assertEquals(8, cache.getCachedBytes());
+		assertEquals(2, cache.getCachedFileCount());
+		long missCount = cache.getMissCount();
+		cache.get(a);
+		cache.get(c);
+		assertEquals(missCount, cache.getMissCount());
+		assertEquals("bbbb", read(cache.get(b)));
+		assertEquals(missCount + 1, cache.getMissCount());
+	}
+
+	@Test
+	public void fileLargerThanLimitIsNotCached() throws Exception {
+		TestDataCache cache = new TestDataCache(4);
+		File file = newFile("big.in", "0123456789");
+		assertEquals("0123456789", read(cache.get(file)));
+		assertEquals("0123456789", read(cache.get(file)));
+		assertEquals(2, cache.getMissCount());
+		assertEquals(0, cache.getCachedBytes());
+		assertEquals(0, cache.getEvictionCount());
+	}
+
+	@Test
+	public void largeFileIsMapped() throws Exception {
+		TestDataCache cache = new TestDataCache(
+				TestDataCache.DEFAULT_MAX_CACHED_BYTES);
+		byte[] content = new byte[2 * 1024 * 1024 + 3];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) ('0' + i % 10);
+		}
+		File file = folder.newFile("large.in");
+		write(file, content);
+		ByteBuffer buffer = cache.get(file);
+		assertEquals(content.length, buffer.remaining());
+		for (int i = 0; i < content.length; i++) {
+			if (buffer.get(i) != content[i]) {
+				fail("第" + i + "个字节不一致");
+			}
+		}
+		assertEquals(content.length, cache.getCachedBytes());
+	}
+
+	@Test
+	public void concurrentReadsLoadOnce() throws Exception {
+		final TestDataCache cache = new TestDataCache(
+				TestDataCache.DEFAULT_MAX_CACHED_BYTES);
+		final File file = newFile("1.in", "shared");
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						assertEquals("shared", read(cache.get(file)));
+					} catch (Throwable e) {
+						failure.set(e);
+					}
+				}
+			});
+			threads[i].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertNull(failure.get());
+		assertEquals(1, cache.getMissCount());
+		assertEquals(threads.length - 1, cache.getHitCount());
+	}
+
+	@Test
+	public void missingFileFails() throws Exception {
+		TestDataCache cache = new TestDataCache(
+				TestDataCache.DEFAULT_MAX_CACHED_BYTES);
+		try {
+			cache.get(new File(folder.getRoot(), "missing.in"));
+			fail("不存在的文件应该读取失败");
+		} catch (IOException e) {
+			// 期望的结果
+		}
+		assertEquals(0, cache.getCachedFileCount());
+	}
+
+	private File newFile(String name, String content) throws IOException {
+		File file = folder.newFile(name);
+		write(file, content);
+		return file;
+	}
+
+	private static void write(File file, String content) throws IOException {
+		write(file, content.getBytes("UTF-8"));
+	}
+
+	private static void write(File file, byte[] content) throws IOException {
+		FileOutputStream outputStream = new FileOutputStream(file);
+		try {
+			outputStream.write(content);
+		} finally {
+			outputStream.close();
+		}
+	}
+
+	private static String read(ByteBuffer buffer) throws IOException {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return new String(bytes, "UTF-8");
+	}
+}
@@ -0,0 +1,173 @@
+package cn.superman.sandbox.core.watchdog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * 时间轮的到期、再次执行和取消。时间轮只有8格，超过一圈的任务要靠remainingRounds才不会提前到期
+ */
+public class WatchdogTest {
+	private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+	private static final int WHEEL_SIZE = 8;
+
+	@Test
+	public void expiresNoEarlierThanDeadline() throws Exception {
+		Watchdog watchdog = new Watchdog("watchdogTest", TICK_NANOS,
+				WHEEL_SIZE);
+		long delayNanos = TimeUnit.MILLISECONDS.toNanos(20);
+		RecordingTask task = new RecordingTask(1);
+		long begin = System.nanoTime();
+		watchdog.schedule(task, delayNanos);
+		assertTrue(task.await());
+		assertTrue(task.lastCallTime.get() - begin >= delayNanos);
+		assertEquals(1, task.calls.get());
+		waitUntilIdle(watchdog);
+	}
+
+	@Test
+	public void longDelayWaitsForRemainingRounds() throws Exception {
+		Watchdog watchdog = new Watchdog("watchdogTest", TICK_NANOS,
+				WHEEL_SIZE);
+		// 远远超过一圈（8毫秒），只看格子的话会在第一圈就到期
+		long delayNanos = TimeUnit.MILLISECONDS.toNanos(50);
+		RecordingTask task = new RecordingTask(1);
+		long begin = System.nanoTime();
+		watchdog.schedule(task, delayNanos);
+		assertTrue(task.await());
+		assertTrue(task.lastCallTime.get() - begin >= delayNanos);
+	}
+
+	@Test
+	public void cancelledTaskIsNeverCalled() throws Exception {
+		Watchdog watchdog = new Watchdog("watchdogTest", TICK_NANOS,
+				WHEEL_SIZE);
+		RecordingTask cancelled = new RecordingTask(1);
+		RecordingTask later = new RecordingTask(1);
+		WatchdogTimeout timeout = watchdog.schedule(cancelled,
+				TimeUnit.MILLISECONDS.toNanos(10));
+		watchdog.schedule(later, TimeUnit.MILLISECONDS.toNanos(30));
+		assertTrue(timeout.cancel());
+		assertTrue(timeout.isCancelled());
+		// 重复取消不会重复计数
+		assertFalse(timeout.cancel());
+		assertTrue(later.await());
+		assertEquals(0, cancelled.calls.get());
+		waitUntilIdle(watchdog);
+	}
+
+	@Test
+	public void positiveReturnReschedules() throws Exception {
+		Watchdog watchdog = new Watchdog("watchdogTest", TICK_NANOS,
+				WHEEL_SIZE);
+		final long periodNanos = TimeUnit.MILLISECONDS.toNanos(5);
+		RecordingTask task = new RecordingTask(3) {
+			@Override
+			public long onTimeout() {
+				super.onTimeout();
+				return calls.get() < 3 ? periodNanos : 0;
+			}
+		};
+		watchdog.schedule(task, periodNanos);
+		assertTrue(task.await());
+		waitUntilIdle(watchdog);
+		Thread.sleep(20);
+		// 返回0之后任务结束，不会再被调用
+		assertEquals(3, task.calls.get());
+	}
+
+	@Test
+	public void cancelStopsRescheduledTask() throws Exception {
+		Watchdog watchdog = new Watchdog("watchdogTest", TICK_NANOS,
+				WHEEL_SIZE);
+		final long periodNanos = TimeUnit.MILLISECONDS.toNanos(2);
+		RecordingTask task = new RecordingTask(2) {
+			@Override
+			public long onTimeout() {
+				super.onTimeout();
+				return periodNanos;
+			}
+		};
+		WatchdogTimeout timeout = watchdog.schedule(task, periodNanos);
+		assertTrue(task.await());
+		assertTrue(timeout.cancel());
+		waitUntilIdle(watchdog);
+		int calls = task.calls.get();
+		Thread.sleep(20);
+		// 取消时可能正在执行一次，之后不会再被调用
+		assertTrue(task.calls.get() <= calls + 1);
+		assertFalse(timeout.cancel());
+	}
+
+	@Test
+	public void failingTaskDoesNotStopOthers() throws Exception {
+		Watchdog watchdog = new Watchdog("watchdogTest", TICK_NANOS,
+				WHEEL_SIZE);
+		watchdog.schedule(new WatchdogTask() {
+			@Override
+			public long onTimeout() {
+				throw new IllegalStateException("任务出错");
+			}
+		}, TimeUnit.MILLISECONDS.toNanos(5));
+		RecordingTask task = new RecordingTask(1);
+		watchdog.schedule(task, TimeUnit.MILLISECONDS.toNanos(10));
+		assertTrue(task.await());
+		waitUntilIdle(watchdog);
+	}
+
+	@Test
+	public void wakesUpAfterIdle() throws Exception {
+		Watchdog watchdog = new Watchdog("watchdogTest", TICK_NANOS,
+				WHEEL_SIZE);
+		RecordingTask first = new RecordingTask(1);
+		watchdog.schedule(first, TimeUnit.MILLISECONDS.toNanos(2));
+		assertTrue(first.await());
+		waitUntilIdle(watchdog);
+		// 空闲睡眠期间时间没有转动，醒来后也不能让新任务提前到期
+		Thread.sleep(30);
+		long delayNanos = TimeUnit.MILLISECONDS.toNanos(15);
+		RecordingTask second = new RecordingTask(1);
+		long begin = System.nanoTime();
+		watchdog.schedule(second, delayNanos);
+		assertTrue(second.await());
+		assertTrue(second.lastCallTime.get() - begin >= delayNanos);
+	}
+
+	private static void waitUntilIdle(Watchdog watchdog)
+			throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (watchdog.getPendingCount() != 0 && System.nanoTime() < deadline) {
+			Thread.sleep(1);
+		}
+		assertEquals(0, watchdog.getPendingCount());
+	}
+
+	private static class RecordingTask implements WatchdogTask {
+		final AtomicInteger calls = new AtomicInteger();
+		final AtomicLong lastCallTime = new AtomicLong();
+		private final CountDownLatch latch;
+
+		RecordingTask(int expectedCalls) {
+			latch = new CountDownLatch(expectedCalls);
+		}
+
+		@Override
+		public long onTimeout() {
+			lastCallTime.set(System.nanoTime());
+			calls.incrementAndGet();
+			latch.countDown();
+			return 0;
+		}
+
+		boolean await() throws InterruptedException {
+			return latch.await(5, TimeUnit.SECONDS);
+		}
+	}
+}